@@ -10,6 +10,9 @@ import cn.heimdall.core.message.MessageType;
 import cn.heimdall.core.message.ResultCode;
 import cn.heimdall.core.message.body.register.AppRegisterRequest;
 import cn.heimdall.core.message.body.register.AppRegisterResponse;
+import cn.heimdall.core.message.compress.CompressorNegotiator;
+import cn.heimdall.core.message.compress.DictionaryRegistry;
+import cn.heimdall.core.network.bootstrap.NetworkResourceManager;
 import cn.heimdall.core.network.processor.ClientProcessor;
 import cn.heimdall.core.network.processor.client.ClientIdleProcessor;
 import cn.heimdall.core.network.remote.AbstractRemotingClient;
@@ -25,9 +28,10 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.net.InetSocketAddress;
+import java.net.SocketAddress;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.Random;
 import java.util.Set;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
@@ -53,7 +57,8 @@ public class GuarderRemotingClient extends AbstractRemotingClient {
     private NodeRole remoteRole = NodeRole.GUARDER;
     private ClusterInfo clusterInfo;
     private Configuration configuration;
-    private Set<InetSocketAddress> seekAddresses;
+    private Set<SocketAddress> seekAddresses;
+    private List<SocketAddress> seekPeers;
     private ClientInfo clientInfo;
 
     public GuarderRemotingClient(NetworkConfig networkConfig, ThreadPoolExecutor executor) {
@@ -72,12 +77,13 @@ public class GuarderRemotingClient extends AbstractRemotingClient {
             this.registerProcessor();
             String[] ips = this.configuration.getConfigFromSys(ConfigurationKeys.GUARDER_SEED_HOSTS).split(",");
             this.seekAddresses = Stream.of(ips).
-                    map(ip -> NetUtil.toInetSocketAddress(ip)).collect(Collectors.toSet());
+                    map(ip -> NetUtil.toSocketAddress(ip)).collect(Collectors.toSet());
+            this.seekPeers = Collections.unmodifiableList(new ArrayList<>(this.seekAddresses));
         }
     }
 
     @Override
-    protected Set<InetSocketAddress> getAvailableAddress() {
+    protected Set<? extends SocketAddress> getAvailableAddress() {
         //如果动态变更信息中没有有效数据
         Set<InetSocketAddress> addresses = this.clusterInfo.
                 getActiveInetSocketAddress(NodeRole.GUARDER, HeimdallConfig.NODE_HEART_BEAT_EXPIRE_TIME);
@@ -99,8 +105,8 @@ public class GuarderRemotingClient extends AbstractRemotingClient {
     }
 
     private void registerProcessor() {
-        super.registerProcessor(MessageType.CLIENT_HEARTBEAT_RESPONSE, new HeartbeatResponseProcessor(getFutures()), messageExecutor);
-        super.registerProcessor(MessageType.CLIENT_REGISTER_RESPONSE, new RegisterResponseProcessor(getFutures()), messageExecutor);
+        super.registerProcessor(MessageType.CLIENT_HEARTBEAT_RESPONSE, new HeartbeatResponseProcessor(), messageExecutor);
+        super.registerProcessor(MessageType.CLIENT_REGISTER_RESPONSE, new RegisterResponseProcessor(), messageExecutor);
         super.registerProcessor(MessageType.TYPE_PING_MESSAGE, new ClientIdleProcessor());
     }
 
@@ -114,11 +120,12 @@ public class GuarderRemotingClient extends AbstractRemotingClient {
                 if (instance == null) {
                     NetworkManageConfig networkManageConfig = new NetworkManageConfig();
                     //发送消息线程池
-                    final ThreadPoolExecutor messageExecutor = new ThreadPoolExecutor(
-                            NetworkManageConfig.MANAGE_WORK_THREAD_SIZE, NetworkManageConfig.MANAGE_WORK_THREAD_SIZE,
-                            KEEP_ALIVE_TIME, TimeUnit.SECONDS, new LinkedBlockingQueue<>(MAX_QUEUE_SIZE),
-                            new NamedThreadFactory("app-manage-remoting-client:", true),
-                            new ThreadPoolExecutor.CallerRunsPolicy());
+                    final ThreadPoolExecutor messageExecutor = NetworkResourceManager.getInstance().getMessageExecutor("GuarderRemotingClient",
+                            () -> new ThreadPoolExecutor(
+                                NetworkManageConfig.MANAGE_WORK_THREAD_SIZE, NetworkManageConfig.MANAGE_WORK_THREAD_SIZE,
+                                KEEP_ALIVE_TIME, TimeUnit.SECONDS, new LinkedBlockingQueue<>(MAX_QUEUE_SIZE),
+                                new NamedThreadFactory("app-manage-remoting-client:", true),
+                                new ThreadPoolExecutor.AbortPolicy()));
                     instance = new GuarderRemotingClient(networkManageConfig, messageExecutor);
                     instance.init();
                 }
@@ -128,22 +135,16 @@ public class GuarderRemotingClient extends AbstractRemotingClient {
     }
 
     @Override
-    public String loadBalance() {
-        //TODO 负载均衡
-        Set<InetSocketAddress> addresses = getAvailableAddress();
-        ArrayList<InetSocketAddress> ipArrayList = new ArrayList<>();
-        ipArrayList.addAll(addresses);
-        //循环随机数
-        Random random = new Random();
-        //随机数在list数量中取（1-list.size）
-        int pos = random.nextInt(ipArrayList.size());
-        InetSocketAddress serverNameReturn = ipArrayList.get(pos);
-        return NetUtil.toStringAddress(serverNameReturn);
+    protected List<? extends SocketAddress> getActivePeers() {
+        List<InetSocketAddress> peers = this.clusterInfo.
+                getActivePeers(NodeRole.GUARDER, HeimdallConfig.NODE_HEART_BEAT_EXPIRE_TIME);
+        return peers.isEmpty() ? this.seekPeers : peers;
     }
 
     @Override
     protected Function<String, ClientPoolKey> getPoolKeyFunction() {
-        return addressIp -> new ClientPoolKey(selfRoles, addressIp, new AppRegisterRequest(clientInfo.getAppName(), clientInfo.getHost()));
+        return addressIp -> new ClientPoolKey(selfRoles, addressIp, new AppRegisterRequest(clientInfo.getAppName(), clientInfo.getHost())
+                .setCompressors(CompressorNegotiator.getInstance().getSupportedCompressors()));
     }
 
     @Override
@@ -160,6 +161,8 @@ public class GuarderRemotingClient extends AbstractRemotingClient {
             LOGGER.info("register client manager success. client version:{}, server version:{},channel:{}", requestBody,
                     responseBody, channel);
         }
+        CompressorNegotiator.getInstance().onNegotiated(((AppRegisterResponse) responseBody).getCompressor());
+        DictionaryRegistry.getInstance().activate(((AppRegisterResponse) responseBody).getDictionary());
         getClientChannelManager().registerChannel(serverAddress, channel);
     }
 
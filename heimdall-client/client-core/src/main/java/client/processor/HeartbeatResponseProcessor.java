@@ -1,33 +1,25 @@
 package client.processor;
 
 import cn.heimdall.core.message.Message;
+import cn.heimdall.core.message.body.heartbeat.ClientHeartbeatResponse;
+import cn.heimdall.core.message.compress.DictionaryRegistry;
 import cn.heimdall.core.network.processor.ClientProcessor;
-import cn.heimdall.core.network.remote.MessageFuture;
 import io.netty.channel.ChannelHandlerContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.concurrent.ConcurrentMap;
-
 public class HeartbeatResponseProcessor implements ClientProcessor {
 
-    private ConcurrentMap<Integer, MessageFuture> futures;
-
     private static final Logger LOGGER = LoggerFactory.getLogger(HeartbeatResponseProcessor.class);
 
-    public HeartbeatResponseProcessor(ConcurrentMap<Integer, MessageFuture> futures) {
-        this.futures = futures;
-    }
-
     @Override
     public void process(ChannelHandlerContext ctx, Message message) {
-        MessageFuture messageFuture = futures.remove(message.getMessageId());
-        if (messageFuture != null) {
-            messageFuture.setResultMessage(message.getMessageBody());
-        } else {
-            if (LOGGER.isInfoEnabled()) {
-                LOGGER.info("HeartbeatResponseProcessor messageFuture is null received response msg [{}] from guarder server.", message.toString());
-            }
+        //同步请求的future已在AbstractRemoting中按messageId完成
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("HeartbeatResponseProcessor received response msg [{}] from guarder server.", message.getMessageId());
         }
+        //注册之后训练出的新字典，或guarder已没有该应用的字典
+        ClientHeartbeatResponse response = (ClientHeartbeatResponse) message.getMessageBody();
+        DictionaryRegistry.getInstance().activate(response.getDictionary());
     }
 }
@@ -2,7 +2,11 @@ package cn.heimdall.compressor.lz4;
 
 
 import cn.heimdall.core.message.compress.Compressor;
+import cn.heimdall.core.utils.annotation.LoadLevel;
+import cn.heimdall.core.utils.constants.LoadLevelConstants;
+import io.netty.buffer.ByteBuf;
 
+@LoadLevel(name = LoadLevelConstants.COMPRESSOR_LZ4)
 public class Lz4Compressor implements Compressor {
     @Override
     public byte[] compress(byte[] bytes) {
@@ -13,4 +17,14 @@ public class Lz4Compressor implements Compressor {
     public byte[] decompress(byte[] bytes) {
         return Lz4Util.decompress(bytes);
     }
+
+    @Override
+    public void compress(ByteBuf in, ByteBuf out) {
+        Lz4Util.compress(in, out);
+    }
+
+    @Override
+    public void decompress(ByteBuf in, ByteBuf out) {
+        Lz4Util.decompress(in, out);
+    }
 }
@@ -1,54 +1,104 @@
 package cn.heimdall.compressor.lz4;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
-import net.jpountz.lz4.LZ4BlockInputStream;
-import net.jpountz.lz4.LZ4BlockOutputStream;
+import cn.heimdall.core.config.NetworkConfig;
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.CorruptedFrameException;
 import net.jpountz.lz4.LZ4Compressor;
 import net.jpountz.lz4.LZ4Factory;
-import net.jpountz.lz4.LZ4FastDecompressor;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import net.jpountz.lz4.LZ4SafeDecompressor;
 
+import java.nio.ByteBuffer;
+
+/**
+ * lz4块压缩，格式为 原始长度(4) + 压缩块
+ * 压缩器和解压器线程安全，全局只查找一次
+ */
 public class Lz4Util {
-    private static final Logger LOGGER = LoggerFactory.getLogger(Lz4Util.class);
-    private static final int ARRAY_SIZE = 1024;
+    private static final int LENGTH_FIELD_LENGTH = 4;
+    private static final LZ4Factory FACTORY = LZ4Factory.fastestInstance();
+    private static final LZ4Compressor COMPRESSOR = FACTORY.fastCompressor();
+    //网络上的数据不可信，使用会做边界检查的safe解压器
+    private static final LZ4SafeDecompressor DECOMPRESSOR = FACTORY.safeDecompressor();
 
     public static byte[] compress(byte[] bytes) {
         if (bytes == null) {
             throw new NullPointerException("bytes is null");
         }
-        LZ4Compressor compressor = LZ4Factory.fastestInstance().fastCompressor();
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-        try (LZ4BlockOutputStream lz4BlockOutputStream
-                     = new LZ4BlockOutputStream(outputStream, ARRAY_SIZE, compressor)) {
-            lz4BlockOutputStream.write(bytes);
-        } catch (IOException e) {
-            LOGGER.error("compress bytes error", e);
-        }
-        return outputStream.toByteArray();
+        byte[] out = new byte[LENGTH_FIELD_LENGTH + COMPRESSOR.maxCompressedLength(bytes.length)];
+        writeLength(out, bytes.length);
+        int written = COMPRESSOR.compress(bytes, 0, bytes.length, out, LENGTH_FIELD_LENGTH,
+                out.length - LENGTH_FIELD_LENGTH);
+        byte[] result = new byte[LENGTH_FIELD_LENGTH + written];
+        System.arraycopy(out, 0, result, 0, result.length);
+        return result;
     }
 
     public static byte[] decompress(byte[] bytes) {
         if (bytes == null) {
             throw new NullPointerException("bytes is null");
         }
+        if (bytes.length < LENGTH_FIELD_LENGTH) {
+            throw new CorruptedFrameException("lz4 block too short: " + bytes.length);
+        }
+        int length = checkDeclaredLength(readLength(bytes));
+        byte[] out = new byte[length];
+        int read = DECOMPRESSOR.decompress(bytes, LENGTH_FIELD_LENGTH, bytes.length - LENGTH_FIELD_LENGTH,
+                out, 0, length);
+        checkLength(read, length);
+        return out;
+    }
+
+    public static void compress(ByteBuf in, ByteBuf out) {
+        int srcLen = in.readableBytes();
+        int maxLen = COMPRESSOR.maxCompressedLength(srcLen);
+        out.writeInt(srcLen);
+        out.ensureWritable(maxLen);
+        ByteBuffer src = in.nioBuffer(in.readerIndex(), srcLen);
+        ByteBuffer dest = out.nioBuffer(out.writerIndex(), maxLen);
+        int written = COMPRESSOR.compress(src, src.position(), srcLen, dest, dest.position(), maxLen);
+        in.skipBytes(srcLen);
+        out.writerIndex(out.writerIndex() + written);
+    }
+
+    public static void decompress(ByteBuf in, ByteBuf out) {
+        if (in.readableBytes() < LENGTH_FIELD_LENGTH) {
+            throw new CorruptedFrameException("lz4 block too short: " + in.readableBytes());
+        }
+        int length = checkDeclaredLength(in.readInt());
+        int srcLen = in.readableBytes();
+        out.ensureWritable(length);
+        ByteBuffer src = in.nioBuffer(in.readerIndex(), srcLen);
+        ByteBuffer dest = out.nioBuffer(out.writerIndex(), length);
+        int read = DECOMPRESSOR.decompress(src, src.position(), srcLen, dest, dest.position(), length);
+        checkLength(read, length);
+        in.skipBytes(srcLen);
+        out.writerIndex(out.writerIndex() + length);
+    }
+
+    /**
+     * 原始长度来自网络，分配前按消息最大长度检查，避免一个很小的帧申请大量内存
+     */
+    private static int checkDeclaredLength(int length) {
+        if (length < 0 || length > NetworkConfig.getMaxMessageLength()) {
+            throw new CorruptedFrameException("invalid lz4 length: " + length);
+        }
+        return length;
+    }
 
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(ARRAY_SIZE);
-
-        LZ4FastDecompressor decompressor = LZ4Factory.fastestInstance().fastDecompressor();
-        ByteArrayInputStream inputStream = new ByteArrayInputStream(bytes);
-        try (LZ4BlockInputStream decompressedInputStream
-                     = new LZ4BlockInputStream(inputStream, decompressor)) {
-            int count;
-            byte[] buffer = new byte[ARRAY_SIZE];
-            while ((count = decompressedInputStream.read(buffer)) != -1) {
-                outputStream.write(buffer, 0, count);
-            }
-        } catch (IOException e) {
-            LOGGER.error("decompress bytes error", e);
+    private static void checkLength(int actual, int expected) {
+        if (actual != expected) {
+            throw new CorruptedFrameException("lz4 length mismatch, expected " + expected + " but was " + actual);
         }
-        return outputStream.toByteArray();
+    }
+
+    private static void writeLength(byte[] out, int length) {
+        out[0] = (byte) (length >>> 24);
+        out[1] = (byte) (length >>> 16);
+        out[2] = (byte) (length >>> 8);
+        out[3] = (byte) length;
+    }
+
+    private static int readLength(byte[] bytes) {
+        return (bytes[0] & 0xFF) << 24 | (bytes[1] & 0xFF) << 16 | (bytes[2] & 0xFF) << 8 | (bytes[3] & 0xFF);
     }
 }
@@ -0,0 +1,166 @@
+package cn.heimdall.compressor.zstd;
+
+import cn.heimdall.core.config.NetworkConfig;
+import cn.heimdall.core.message.compress.CompressionDictionary;
+import cn.heimdall.core.message.compress.Compressor;
+import cn.heimdall.core.message.compress.DictionaryRegistry;
+import cn.heimdall.core.utils.annotation.LoadLevel;
+import cn.heimdall.core.utils.constants.LoadLevelConstants;
+import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdDictCompress;
+import com.github.luben.zstd.ZstdDictDecompress;
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.CorruptedFrameException;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * zstd压缩，格式为 字典id(4) + 原始长度(4) + zstd帧，字典id为0表示不使用字典
+ * 解压按帧里的字典id从本节点的字典表查找
+ * 直接内存之间走零拷贝接口，其他情况退化为byte[]
+ */
+@LoadLevel(name = LoadLevelConstants.COMPRESSOR_ZSTD)
+public class ZstdCompressor implements Compressor {
+
+    private static final int LEVEL = 3;
+    private static final int HEADER_LENGTH = 8;
+    private static final int NO_DICTIONARY = 0;
+
+    private final DictionaryRegistry registry = DictionaryRegistry.getInstance();
+
+    //字典预处理代价较高，按id缓存
+    private final Map<Integer, ZstdDictCompress> compressDictionaries = new ConcurrentHashMap<>();
+    private final Map<Integer, ZstdDictDecompress> decompressDictionaries = new ConcurrentHashMap<>();
+
+    @Override
+    public byte[] compress(byte[] bytes) {
+        return compress(bytes, null);
+    }
+
+    private byte[] compress(byte[] bytes, CompressionDictionary dictionary) {
+        byte[] frame = dictionary == null ? Zstd.compress(bytes, LEVEL)
+                : Zstd.compress(bytes, compressDictionary(dictionary));
+        byte[] out = new byte[HEADER_LENGTH + frame.length];
+        ByteBuffer.wrap(out).putInt(dictionaryId(dictionary)).putInt(bytes.length).put(frame);
+        return out;
+    }
+
+    @Override
+    public byte[] decompress(byte[] bytes) {
+        if (bytes.length < HEADER_LENGTH) {
+            throw new CorruptedFrameException("zstd block too short: " + bytes.length);
+        }
+        ByteBuffer header = ByteBuffer.wrap(bytes);
+        int dictionaryId = header.getInt();
+        int length = checkLength(header.getInt());
+        byte[] frame = Arrays.copyOfRange(bytes, HEADER_LENGTH, bytes.length);
+        byte[] out = dictionaryId == NO_DICTIONARY ? Zstd.decompress(frame, length)
+                : Zstd.decompress(frame, decompressDictionary(dictionaryId), length);
+        if (out.length != length) {
+            throw new CorruptedFrameException("zstd length mismatch, expected " + length + " but was " + out.length);
+        }
+        return out;
+    }
+
+    @Override
+    public void compress(ByteBuf in, ByteBuf out) {
+        compress(in, out, null);
+    }
+
+    /**
+     * 只使用调用方给出的字典，该字典需已由对端确认，见ProtocolEncoder
+     */
+    @Override
+    public void compress(ByteBuf in, ByteBuf out, CompressionDictionary dictionary) {
+        if (!isDirect(in) || !out.isDirect()) {
+            byte[] bytes = new byte[in.readableBytes()];
+            in.readBytes(bytes);
+            out.writeBytes(compress(bytes, dictionary));
+            return;
+        }
+        int srcLen = in.readableBytes();
+        int bound = (int) Zstd.compressBound(srcLen);
+        out.writeInt(dictionaryId(dictionary));
+        out.writeInt(srcLen);
+        out.ensureWritable(bound);
+        ByteBuffer src = in.nioBuffer(in.readerIndex(), srcLen);
+        ByteBuffer dst = out.nioBuffer(out.writerIndex(), bound);
+        long written = dictionary == null
+                ? Zstd.compressDirectByteBuffer(dst, dst.position(), bound, src, src.position(), srcLen, LEVEL)
+                : Zstd.compressDirectByteBufferFastDict(dst, dst.position(), bound, src, src.position(), srcLen,
+                compressDictionary(dictionary));
+        if (Zstd.isError(written)) {
+            throw new IllegalStateException("zstd compress error: " + Zstd.getErrorName(written));
+        }
+        in.skipBytes(srcLen);
+        out.writerIndex(out.writerIndex() + (int) written);
+    }
+
+    @Override
+    public void decompress(ByteBuf in, ByteBuf out) {
+        if (!isDirect(in) || !out.isDirect()) {
+            Compressor.super.decompress(in, out);
+            return;
+        }
+        if (in.readableBytes() < HEADER_LENGTH) {
+            throw new CorruptedFrameException("zstd block too short: " + in.readableBytes());
+        }
+        int dictionaryId = in.readInt();
+        int length = checkLength(in.readInt());
+        int srcLen = in.readableBytes();
+        out.ensureWritable(length);
+        ByteBuffer src = in.nioBuffer(in.readerIndex(), srcLen);
+        ByteBuffer dst = out.nioBuffer(out.writerIndex(), length);
+        long read = dictionaryId == NO_DICTIONARY
+                ? Zstd.decompressDirectByteBuffer(dst, dst.position(), length, src, src.position(), srcLen)
+                : Zstd.decompressDirectByteBufferFastDict(dst, dst.position(), length, src, src.position(), srcLen,
+                decompressDictionary(dictionaryId));
+        if (Zstd.isError(read)) {
+            throw new CorruptedFrameException("zstd decompress error: " + Zstd.getErrorName(read));
+        }
+        if (read != length) {
+            throw new CorruptedFrameException("zstd length mismatch, expected " + length + " but was " + read);
+        }
+        in.skipBytes(srcLen);
+        out.writerIndex(out.writerIndex() + length);
+    }
+
+    private ZstdDictCompress compressDictionary(CompressionDictionary dictionary) {
+        return compressDictionaries.computeIfAbsent(dictionary.getId(),
+                id -> new ZstdDictCompress(dictionary.getData(), LEVEL));
+    }
+
+    private ZstdDictDecompress decompressDictionary(int dictionaryId) {
+        ZstdDictDecompress dictionary = decompressDictionaries.get(dictionaryId);
+        if (dictionary != null) {
+            return dictionary;
+        }
+        CompressionDictionary compressionDictionary = registry.get(dictionaryId);
+        if (compressionDictionary == null) {
+            throw new CorruptedFrameException("unknown compression dictionary id: " + dictionaryId);
+        }
+        return decompressDictionaries.computeIfAbsent(dictionaryId,
+                id -> new ZstdDictDecompress(compressionDictionary.getData()));
+    }
+
+    private static int dictionaryId(CompressionDictionary dictionary) {
+        return dictionary == null ? NO_DICTIONARY : dictionary.getId();
+    }
+
+    /**
+     * 原始长度来自网络，分配前按消息最大长度检查，避免一个很小的帧申请大量内存
+     */
+    private static int checkLength(int length) {
+        if (length < 0 || length > NetworkConfig.getMaxMessageLength()) {
+            throw new CorruptedFrameException("invalid zstd length: " + length);
+        }
+        return length;
+    }
+
+    private static boolean isDirect(ByteBuf buf) {
+        return buf.isDirect() && buf.nioBufferCount() == 1;
+    }
+}
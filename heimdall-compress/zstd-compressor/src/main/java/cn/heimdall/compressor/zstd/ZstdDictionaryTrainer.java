@@ -0,0 +1,29 @@
+package cn.heimdall.compressor.zstd;
+
+import cn.heimdall.core.message.compress.CompressionDictionary;
+import cn.heimdall.core.message.compress.DictionaryTrainer;
+import cn.heimdall.core.utils.annotation.LoadLevel;
+import cn.heimdall.core.utils.constants.LoadLevelConstants;
+import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdDictTrainer;
+
+import java.util.List;
+
+@LoadLevel(name = LoadLevelConstants.COMPRESSOR_ZSTD)
+public class ZstdDictionaryTrainer implements DictionaryTrainer {
+
+    @Override
+    public CompressionDictionary train(String domain, List<byte[]> samples, int dictionarySize) {
+        int sampleSize = 0;
+        for (byte[] sample : samples) {
+            sampleSize += sample.length;
+        }
+        ZstdDictTrainer trainer = new ZstdDictTrainer(sampleSize, dictionarySize);
+        for (byte[] sample : samples) {
+            trainer.addSample(sample);
+        }
+        byte[] data = trainer.trainSamples();
+        //字典id由zstd写在字典头部，压缩帧里也会带上
+        return new CompressionDictionary((int) Zstd.getDictIdFromDict(data), domain, data);
+    }
+}
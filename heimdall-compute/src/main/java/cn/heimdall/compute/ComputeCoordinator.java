@@ -5,6 +5,8 @@ import cn.heimdall.compute.processor.client.StoreAppStateResponseProcessor;
 import cn.heimdall.compute.processor.client.StoreMetricResponseProcessor;
 import cn.heimdall.compute.processor.server.AppStateProcessor;
 import cn.heimdall.compute.processor.server.MessageTreeProcessor;
+import cn.heimdall.compute.schedule.DictionaryStore;
+import cn.heimdall.compute.schedule.DictionaryTrainTask;
 import cn.heimdall.compute.schedule.MetricTimerListener;
 import cn.heimdall.core.config.Configuration;
 import cn.heimdall.core.config.ConfigurationFactory;
@@ -17,6 +19,9 @@ import cn.heimdall.core.message.body.origin.AppStateRequest;
 import cn.heimdall.core.message.body.origin.AppStateResponse;
 import cn.heimdall.core.message.body.origin.MessageTreeRequest;
 import cn.heimdall.core.message.body.origin.MessageTreeResponse;
+import cn.heimdall.core.message.compress.CompressionDictionary;
+import cn.heimdall.core.message.compress.DictionaryRegistry;
+import cn.heimdall.core.message.compress.DictionaryTrainer;
 import cn.heimdall.core.message.hander.ComputeInboundHandler;
 import cn.heimdall.core.network.client.GuarderRemotingClient;
 import cn.heimdall.core.network.client.StorageRemotingClient;
@@ -24,13 +29,16 @@ import cn.heimdall.core.network.coordinator.Coordinator;
 import cn.heimdall.core.network.processor.client.NodeHeartbeatResponseProcessor;
 import cn.heimdall.core.network.processor.client.NodeRegisterResponseProcessor;
 import cn.heimdall.core.network.remote.AbstractRemotingServer;
+import cn.heimdall.core.network.remote.LocalTransport;
 import cn.heimdall.core.network.remote.RemotingInstanceFactory;
 import cn.heimdall.core.utils.annotation.LoadLevel;
 import cn.heimdall.core.utils.constants.ConfigurationKeys;
 import cn.heimdall.core.utils.constants.LoadLevelConstants;
+import cn.heimdall.core.utils.enums.NodeRole;
 import cn.heimdall.core.utils.enums.NettyServerType;
 import cn.heimdall.core.utils.event.EventBus;
 import cn.heimdall.core.utils.event.EventBusManager;
+import cn.heimdall.core.utils.exception.SpiNotFoundException;
 import cn.heimdall.core.utils.spi.EnhancedServiceLoader;
 import cn.heimdall.core.utils.spi.Initialize;
 import cn.heimdall.core.utils.thread.NamedThreadFactory;
@@ -62,11 +70,24 @@ public final class ComputeCoordinator implements MessageDoorway, Coordinator, Co
             new NamedThreadFactory("traceLogUploader", 1));
     private ScheduledThreadPoolExecutor appStateUploader = new ScheduledThreadPoolExecutor(1,
             new NamedThreadFactory("appStateUploader", 1));
+    private ScheduledThreadPoolExecutor dictionaryTrainer = new ScheduledThreadPoolExecutor(1,
+            new NamedThreadFactory("dictionaryTrainer", 1));
+
+    private DictionaryTrainTask dictionaryTrainTask;
 
     protected static final Configuration CONFIG = ConfigurationFactory.getInstance();
 
     protected static final long METRIC_UPLOADER_PERIOD = CONFIG.getLong(ConfigurationKeys.METRIC_UPLOADER_PERIOD, 1000L);
 
+    protected static final int DICTIONARY_SAMPLE_RATE = CONFIG.getInt(ConfigurationKeys.COMPUTE_DICTIONARY_SAMPLE_RATE, 100);
+
+    protected static final long DICTIONARY_TRAIN_PERIOD = CONFIG.getLong(ConfigurationKeys.COMPUTE_DICTIONARY_TRAIN_PERIOD, 600000L);
+
+    protected static final int DICTIONARY_SIZE = CONFIG.getInt(ConfigurationKeys.COMPUTE_DICTIONARY_SIZE, 16 * 1024);
+
+    protected static final String DICTIONARY_DIR = CONFIG.getConfig(ConfigurationKeys.COMPUTE_DICTIONARY_DIR,
+            System.getProperty("user.home") + "/heimdall/dictionary");
+
     @Override
     public void init() {
         if (LOGGER.isInfoEnabled()) {
@@ -78,11 +99,34 @@ public final class ComputeCoordinator implements MessageDoorway, Coordinator, Co
         MetricTimerListener metricTimerListener = new MetricTimerListener(StorageRemotingClient.getInstance());
         //开启metric上报至storage
         metricUploader.scheduleAtFixedRate(metricTimerListener, 0, METRIC_UPLOADER_PERIOD, TimeUnit.MILLISECONDS);
+        //按domain训练压缩字典
+        initDictionaryTrainer();
+        //同进程内的角色直接调用
+        LocalTransport.getInstance().register(NodeRole.COMPUTE, this);
         if (LOGGER.isInfoEnabled()) {
             LOGGER.info("ComputeCoordinator init end");
         }
     }
 
+    private void initDictionaryTrainer() {
+        DictionaryTrainer trainer;
+        try {
+            trainer = EnhancedServiceLoader.load(DictionaryTrainer.class, LoadLevelConstants.COMPRESSOR_ZSTD);
+        } catch (SpiNotFoundException e) {
+            LOGGER.warn("no zstd dictionary trainer found, dictionary compression disabled");
+            return;
+        }
+        //重启前训练的字典重新登记并发给guarder，发送可能等待建连，不在初始化线程执行
+        DictionaryStore store = new DictionaryStore(DICTIONARY_DIR);
+        List<CompressionDictionary> dictionaries = store.load();
+        DictionaryRegistry.getInstance().register(dictionaries);
+        GuarderRemotingClient guarder = GuarderRemotingClient.getInstance();
+        dictionaryTrainer.execute(() -> dictionaries.forEach(guarder::publishDictionary));
+        dictionaryTrainTask = new DictionaryTrainTask(trainer, store, guarder, DICTIONARY_SAMPLE_RATE, DICTIONARY_SIZE);
+        dictionaryTrainer.scheduleAtFixedRate(dictionaryTrainTask, DICTIONARY_TRAIN_PERIOD, DICTIONARY_TRAIN_PERIOD,
+                TimeUnit.MILLISECONDS);
+    }
+
     @Override
     public MessageBody onRequest(MessageBody request) {
         //如果不是发往服务端的消息
@@ -109,7 +153,15 @@ public final class ComputeCoordinator implements MessageDoorway, Coordinator, Co
 
     @Override
     public MessageTreeResponse handle(MessageTreeRequest request) {
-        analyzerMap.get(request.getMessageType()).distribute(request);
+        try {
+            if (dictionaryTrainTask != null) {
+                dictionaryTrainTask.sample(request);
+            }
+            analyzerMap.get(request.getMessageType()).distribute(request);
+        } finally {
+            //各分析任务已各自retain，释放解码时的引用
+            request.release();
+        }
         MessageTreeResponse response = new MessageTreeResponse();
         return response;
     }
@@ -131,13 +183,13 @@ public final class ComputeCoordinator implements MessageDoorway, Coordinator, Co
     public void initClientRemoteInstance() {
         //init guarder client
         GuarderRemotingClient guarder = GuarderRemotingClient.getInstance();
-        guarder.doRegisterProcessor(MessageType.NODE_HEARTBEAT_REQUEST, new NodeHeartbeatResponseProcessor());
-        guarder.doRegisterProcessor(MessageType.NODE_REGISTER_REQUEST, new NodeRegisterResponseProcessor());
+        guarder.doRegisterProcessor(MessageType.NODE_HEARTBEAT_RESPONSE, new NodeHeartbeatResponseProcessor());
+        guarder.doRegisterProcessor(MessageType.NODE_REGISTER_RESPONSE, new NodeRegisterResponseProcessor());
         //init storage client
         StorageRemotingClient storage = StorageRemotingClient.getInstance();
-        storage.doRegisterProcessor(MessageType.STORE_TRANCE_LOG_REQUEST, new StoreAppStateResponseProcessor());
-        storage.doRegisterProcessor(MessageType.STORE_METRIC_REQUEST, new StoreMetricResponseProcessor());
-        storage.doRegisterProcessor(MessageType.STORE_APP_STATE_REQUEST, new StoreAppStateResponseProcessor());
+        storage.doRegisterProcessor(MessageType.STORE_TRANCE_LOG_RESPONSE, new StoreAppStateResponseProcessor());
+        storage.doRegisterProcessor(MessageType.STORE_METRIC_RESPONSE, new StoreMetricResponseProcessor());
+        storage.doRegisterProcessor(MessageType.STORE_APP_STATE_RESPONSE, new StoreAppStateResponseProcessor());
     }
 
 }
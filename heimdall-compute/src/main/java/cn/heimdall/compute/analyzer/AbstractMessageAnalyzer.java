@@ -6,6 +6,7 @@ import cn.heimdall.core.message.MessageTypeAware;
 import cn.heimdall.core.message.body.origin.ClientMessageRequest;
 import cn.heimdall.core.message.task.MessageTask;
 import cn.heimdall.core.utils.spi.Initialize;
+import io.netty.util.ReferenceCountUtil;
 
 import java.util.List;
 import java.util.Map;
@@ -40,7 +41,11 @@ public abstract class AbstractMessageAnalyzer implements MessageTypeAware, Messa
             int len = tasks.size();
             int index = Math.abs(clientMessage.getDomain().hashCode()) % len;
             MessageTask messageTask = tasks.get(index);
-            messageTask.offerQueue(messageBody);
+            //flyweight的消息树每个任务持有一次引用，任务处理完后释放
+            ReferenceCountUtil.retain(messageBody);
+            if (!messageTask.offerQueue(messageBody)) {
+                ReferenceCountUtil.release(messageBody);
+            }
         }
     }
 
@@ -18,7 +18,7 @@ public abstract class AbstractMetricCompute extends AbstractCompute {
         if (metric != null) {
             return metric;
         }
-        return whatPluses.putIfAbsent(metricKey, new MetricWhatPulse(metricKey));
+        return whatPluses.computeIfAbsent(metricKey, MetricWhatPulse::new);
     }
 
     protected abstract MetricKey wrapMetricKey(TraceLog tracelog);
@@ -5,8 +5,8 @@ import cn.heimdall.core.message.metric.MetricKey;
 import cn.heimdall.compute.metric.MetricWhatPulse;
 import cn.heimdall.core.message.MessageBody;
 import cn.heimdall.core.message.body.origin.MessageTreeRequest;
+import cn.heimdall.core.message.serializer.TraceLogCursor;
 import cn.heimdall.core.message.trace.EventLog;
-import cn.heimdall.core.message.trace.SpanLog;
 import cn.heimdall.core.message.trace.TraceLog;
 import cn.heimdall.core.utils.annotation.LoadLevel;
 import cn.heimdall.core.utils.common.CollectionUtil;
@@ -20,6 +20,14 @@ public class EventLogCompute extends AbstractMetricCompute {
     @Override
     public void compute(MessageBody messageBody) {
         MessageTreeRequest messageTreeRequest = (MessageTreeRequest) messageBody;
+        if (messageTreeRequest.isView()) {
+            TraceLogCursor cursor = TraceLogCursor.events(messageTreeRequest);
+            while (cursor.next()) {
+                invokeMetric(new EventMetricKey(cursor.getDomain(), cursor.getIpAddress(),
+                        cursor.getType(), cursor.getName()), cursor.isErrorTag());
+            }
+            return;
+        }
         List<EventLog> eventLogs = messageTreeRequest.getEventLogs();
         if (!CollectionUtil.isEmpty(eventLogs)) {
             eventLogs.stream().forEach(this::doInvokeMetric);
@@ -28,10 +36,13 @@ public class EventLogCompute extends AbstractMetricCompute {
 
     @Override
     protected void doInvokeMetric(TraceLog tracelog) {
-        MetricWhatPulse metric = getMetricInvoker(wrapMetricKey(tracelog));
-        EventLog eventLog = (EventLog) tracelog;
+        invokeMetric(wrapMetricKey(tracelog), tracelog.isErrorTag());
+    }
+
+    private void invokeMetric(MetricKey metricKey, boolean errorTag) {
+        MetricWhatPulse metric = getMetricInvoker(metricKey);
         metric.addSuccess(1);
-        if (eventLog.isErrorTag()) {
+        if (errorTag) {
             metric.addException(1);
         }
     }
@@ -39,9 +50,8 @@ public class EventLogCompute extends AbstractMetricCompute {
 
     @Override
     protected MetricKey wrapMetricKey(TraceLog tracelog) {
-        SpanLog spanLog = (SpanLog) tracelog;
-        return new EventMetricKey(spanLog.getDomain(), spanLog.getIpAddress(),
-                spanLog.getType(), spanLog.getName());
+        return new EventMetricKey(tracelog.getDomain(), tracelog.getIpAddress(),
+                tracelog.getType(), tracelog.getName());
     }
 
 }
@@ -5,6 +5,7 @@ import cn.heimdall.compute.metric.MetricWhatPulse;
 import cn.heimdall.core.message.metric.SpanMetricKey;
 import cn.heimdall.core.message.MessageBody;
 import cn.heimdall.core.message.body.origin.MessageTreeRequest;
+import cn.heimdall.core.message.serializer.TraceLogCursor;
 import cn.heimdall.core.message.trace.SpanLog;
 import cn.heimdall.core.message.trace.TraceLog;
 import cn.heimdall.core.utils.annotation.LoadLevel;
@@ -23,20 +24,31 @@ public class SpanLogCompute extends AbstractMetricCompute {
     @Override
     public void compute(MessageBody messageBody) {
         MessageTreeRequest treeBody = (MessageTreeRequest) messageBody;
+        if (treeBody.isView()) {
+            TraceLogCursor cursor = TraceLogCursor.spans(treeBody);
+            while (cursor.next()) {
+                invokeMetric(new SpanMetricKey(cursor.getDomain(), cursor.getIpAddress(),
+                        cursor.getType(), cursor.getName()), cursor.getCostInMillis(), cursor.isErrorTag());
+            }
+            return;
+        }
         List<SpanLog> childSpanLogs = treeBody.getSpanLogs();
-        if (CollectionUtil.isEmpty(childSpanLogs)) {
+        if (!CollectionUtil.isEmpty(childSpanLogs)) {
             childSpanLogs.stream().forEach(this::doInvokeMetric);
         }
     }
 
     @Override
     protected void doInvokeMetric(TraceLog tracelog) {
-        MetricKey metricKey = wrapMetricKey(tracelog);
-        MetricWhatPulse spanMetric = getMetricInvoker(metricKey);
         SpanLog spanLog = (SpanLog) tracelog;
-        spanMetric.addRT(spanLog.getCostInMillis());
+        invokeMetric(wrapMetricKey(tracelog), spanLog.getCostInMillis(), spanLog.isErrorTag());
+    }
+
+    private void invokeMetric(MetricKey metricKey, long costInMillis, boolean errorTag) {
+        MetricWhatPulse spanMetric = getMetricInvoker(metricKey);
+        spanMetric.addRT(costInMillis);
         spanMetric.addSuccess(1);
-        if (spanLog.isErrorTag()) {
+        if (errorTag) {
             spanMetric.addException(1);
         }
     }
@@ -11,8 +11,6 @@ import cn.heimdall.core.utils.constants.MetricConstants;
 import org.apache.log4j.LogManager;
 import org.apache.log4j.Logger;
 
-import java.util.concurrent.TimeoutException;
-
 public class AppStateDumperTask implements MessageTask {
 
     private MessageQueue messageQueue;
@@ -44,11 +42,18 @@ public class AppStateDumperTask implements MessageTask {
                 if (!messageQueue.isEmpty()) {
                     AppStateRequest appStateRequest = (AppStateRequest) messageQueue.poll();
                     //TODO 这里需要将appStateRequest转化为storeRequest
-                    StorageRemotingClient.getInstance().sendSyncRequest(StoreAppStateRequest.getRpcMessage(appStateRequest));
+                    //按应用名路由，同一个应用的状态存到同一个存储节点
+                    StorageRemotingClient.getInstance().sendBatchedRequest(StoreAppStateRequest.getRpcMessage(appStateRequest),
+                            appStateRequest.getDomain())
+                        .whenComplete((body, e) -> {
+                            if (e != null) {
+                                log.error("AppStateRequestTask store app state error", e);
+                            }
+                        });
                 } else {
                     Thread.sleep(10L);
                 }
-            } catch (InterruptedException | TimeoutException e) {
+            } catch (InterruptedException e) {
                 log.error("AppStateRequestTask messageQueue", e);
             }
         }
@@ -9,6 +9,7 @@ import cn.heimdall.core.message.body.origin.MessageTreeRequest;
 import cn.heimdall.core.message.task.DefaultMessageQueue;
 import cn.heimdall.core.message.task.MessageQueue;
 import cn.heimdall.core.message.task.MessageTask;
+import io.netty.util.ReferenceCountUtil;
 import org.apache.log4j.LogManager;
 import org.apache.log4j.Logger;
 
@@ -51,7 +52,11 @@ public class MetricComputeTask implements MessageTask {
                 if (!messageQueue.isEmpty()) {
                     //TODO 优化dd
                     MessageTreeRequest tree = (MessageTreeRequest) messageQueue.poll();
-                    compute.compute(tree);
+                    try {
+                        compute.compute(tree);
+                    } finally {
+                        ReferenceCountUtil.release(tree);
+                    }
                 } else {
                    Thread.sleep(10L);
                 }
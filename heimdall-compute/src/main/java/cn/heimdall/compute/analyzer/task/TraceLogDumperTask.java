@@ -1,23 +1,33 @@
 package cn.heimdall.compute.analyzer.task;
 
+import cn.heimdall.core.config.NetworkConfig;
 import cn.heimdall.core.message.MessageBody;
+import cn.heimdall.core.message.RpcMessage;
+import cn.heimdall.core.message.SerializerType;
 import cn.heimdall.core.message.body.origin.MessageTreeRequest;
 import cn.heimdall.core.message.body.store.StoreTraceRequest;
+import cn.heimdall.core.message.serializer.HeimdallSerializer;
 import cn.heimdall.core.message.task.DefaultMessageQueue;
 import cn.heimdall.core.message.task.MessageQueue;
 import cn.heimdall.core.message.task.MessageTask;
 import cn.heimdall.core.message.trace.EventLog;
 import cn.heimdall.core.message.trace.SpanLog;
 import cn.heimdall.core.network.client.StorageRemotingClient;
+import cn.heimdall.core.utils.common.NetUtil;
 import cn.heimdall.core.utils.constants.MetricConstants;
+import io.netty.util.ReferenceCountUtil;
 import org.apache.log4j.LogManager;
 import org.apache.log4j.Logger;
 
 import java.util.List;
-import java.util.concurrent.TimeoutException;
 
 public class TraceLogDumperTask implements MessageTask {
 
+    private static final boolean PASS_THROUGH =
+            SerializerType.getByName(NetworkConfig.getSerialization()) == SerializerType.HEIMDALL;
+
+    private static final String COMPUTE_IP = NetUtil.getLocalIp();
+
     private MessageQueue messageQueue;
 
     private int queueOverflow;
@@ -40,6 +50,18 @@ public class TraceLogDumperTask implements MessageTask {
         return result;
     }
 
+    /**
+     * flyweight模式的消息树直接透传原始字节，只有二进制序列化支持透传
+     */
+    private RpcMessage wrapStoreMessage(MessageTreeRequest tree) {
+        if (tree.isView() && PASS_THROUGH) {
+            return StoreTraceRequest.getRpcMessage(tree, COMPUTE_IP);
+        }
+        List<SpanLog> spanLogs = tree.isView() ? HeimdallSerializer.readSpanLogs(tree) : tree.getSpanLogs();
+        List<EventLog> eventLogs = tree.isView() ? HeimdallSerializer.readEventLogs(tree) : tree.getEventLogs();
+        return StoreTraceRequest.getRpcMessage(spanLogs, eventLogs);
+    }
+
     @Override
     public void run() {
         for (;;){
@@ -47,14 +69,24 @@ public class TraceLogDumperTask implements MessageTask {
                 if (!messageQueue.isEmpty()) {
                     //TODO 这里会远程发送信息。
                     MessageTreeRequest tree = (MessageTreeRequest) messageQueue.poll();
-                    List<SpanLog> spanLogs = tree.getSpanLogs();
-                    List<EventLog> eventLogs = tree.getEventLogs();
-                    //TODO 优化,这里是否需要进行compute
-                    StorageRemotingClient.getInstance().sendSyncRequest(StoreTraceRequest.getRpcMessage(spanLogs, eventLogs));
+                    RpcMessage message;
+                    //按traceId路由，同一条链路的消息树存到同一个存储节点
+                    String traceId = tree.getTraceId();
+                    try {
+                        message = wrapStoreMessage(tree);
+                    } finally {
+                        ReferenceCountUtil.release(tree);
+                    }
+                    //异步发送，一个线程可以同时有多个在途的存储请求
+                    StorageRemotingClient.getInstance().sendBatchedRequest(message, traceId).whenComplete((body, e) -> {
+                        if (e != null) {
+                            log.error("TraceLogDumperTask store trace error", e);
+                        }
+                    });
                 } else {
                     Thread.sleep(10L);
                 }
-            } catch (InterruptedException | TimeoutException e) {
+            } catch (InterruptedException e) {
                 log.error("TraceLogDumperTask messageQueue", e);
             }
         }
@@ -0,0 +1,80 @@
+package cn.heimdall.compute.schedule;
+
+import cn.heimdall.core.message.compress.CompressionDictionary;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 训练出的压缩字典按domain各保存最新的一份，格式为 id(4) + domain + 长度(4) + 字典
+ */
+public class DictionaryStore {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DictionaryStore.class);
+
+    private static final String SUFFIX = ".dict";
+
+    private final Path dir;
+
+    public DictionaryStore(String dir) {
+        this.dir = Paths.get(dir);
+    }
+
+    public void save(CompressionDictionary dictionary) {
+        try {
+            Files.createDirectories(dir);
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(dictionary.getData().length + 64);
+            try (DataOutputStream out = new DataOutputStream(bytes)) {
+                out.writeInt(dictionary.getId());
+                out.writeUTF(dictionary.getDomain());
+                out.writeInt(dictionary.getData().length);
+                out.write(dictionary.getData());
+            }
+            //先写临时文件再替换，避免重启时读到写了一半的字典
+            String name = URLEncoder.encode(dictionary.getDomain(), StandardCharsets.UTF_8.name());
+            Path tmp = dir.resolve(name + ".tmp");
+            Files.write(tmp, bytes.toByteArray());
+            Files.move(tmp, dir.resolve(name + SUFFIX), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            LOGGER.error("save compression dictionary {} to {} failed", dictionary, dir, e);
+        }
+    }
+
+    public List<CompressionDictionary> load() {
+        List<CompressionDictionary> dictionaries = new ArrayList<>();
+        if (!Files.isDirectory(dir)) {
+            return dictionaries;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*" + SUFFIX)) {
+            for (Path file : files) {
+                try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(Files.readAllBytes(file)))) {
+                    int id = in.readInt();
+                    String domain = in.readUTF();
+                    byte[] data = new byte[in.readInt()];
+                    in.readFully(data);
+                    dictionaries.add(new CompressionDictionary(id, domain, data));
+                } catch (IOException | RuntimeException e) {
+                    LOGGER.warn("skip broken compression dictionary file {}", file, e);
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.error("load compression dictionaries from {} failed", dir, e);
+        }
+        return dictionaries;
+    }
+}
@@ -0,0 +1,115 @@
+package cn.heimdall.compute.schedule;
+
+import cn.heimdall.core.message.SerializerType;
+import cn.heimdall.core.message.body.origin.MessageTreeRequest;
+import cn.heimdall.core.message.compress.CompressionDictionary;
+import cn.heimdall.core.message.compress.DictionaryRegistry;
+import cn.heimdall.core.message.compress.DictionaryTrainer;
+import cn.heimdall.core.message.serializer.Serializer;
+import cn.heimdall.core.message.serializer.SerializerFactory;
+import cn.heimdall.core.network.client.GuarderRemotingClient;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 按domain采样消息树，定时训练压缩字典
+ * 训练出的字典注册到本节点并保存，发给guarder后由guarder在注册和心跳时下发给客户端
+ */
+public class DictionaryTrainTask implements Runnable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DictionaryTrainTask.class);
+
+    //每个domain最多保留的样本数
+    private static final int MAX_SAMPLES = 2000;
+
+    //样本太少训练出的字典没有意义
+    private static final int MIN_SAMPLES = 100;
+
+    private final DictionaryTrainer trainer;
+
+    private final DictionaryStore store;
+
+    private final GuarderRemotingClient guarder;
+
+    private final int sampleRate;
+
+    private final int dictionarySize;
+
+    private final Serializer serializer = SerializerFactory.getSerializer(SerializerType.HEIMDALL);
+
+    private final Map<String, List<byte[]>> samples = new ConcurrentHashMap<>();
+
+    private final AtomicLong counter = new AtomicLong();
+
+    public DictionaryTrainTask(DictionaryTrainer trainer, DictionaryStore store, GuarderRemotingClient guarder,
+                               int sampleRate, int dictionarySize) {
+        this.trainer = trainer;
+        this.store = store;
+        this.guarder = guarder;
+        this.sampleRate = Math.max(sampleRate, 1);
+        this.dictionarySize = dictionarySize;
+    }
+
+    public void sample(MessageTreeRequest request) {
+        String domain = request.getDomain();
+        if (domain == null || counter.incrementAndGet() % sampleRate != 0) {
+            return;
+        }
+        List<byte[]> domainSamples = samples.computeIfAbsent(domain, k -> new ArrayList<>());
+        synchronized (domainSamples) {
+            if (domainSamples.size() >= MAX_SAMPLES) {
+                return;
+            }
+        }
+        //flyweight模式直接取span和event的原始字节
+        if (request.isView()) {
+            byte[] sample = ByteBufUtil.getBytes(request.getByteBuf());
+            synchronized (domainSamples) {
+                domainSamples.add(sample);
+            }
+            return;
+        }
+        ByteBuf buf = Unpooled.buffer();
+        try {
+            serializer.serialize(request, buf);
+            byte[] sample = ByteBufUtil.getBytes(buf);
+            synchronized (domainSamples) {
+                domainSamples.add(sample);
+            }
+        } finally {
+            buf.release();
+        }
+    }
+
+    @Override
+    public void run() {
+        for (Map.Entry<String, List<byte[]>> entry : samples.entrySet()) {
+            List<byte[]> domainSamples = entry.getValue();
+            List<byte[]> trainSamples;
+            synchronized (domainSamples) {
+                if (domainSamples.size() < MIN_SAMPLES) {
+                    continue;
+                }
+                trainSamples = new ArrayList<>(domainSamples);
+                domainSamples.clear();
+            }
+            try {
+                CompressionDictionary dictionary = trainer.train(entry.getKey(), trainSamples, dictionarySize);
+                DictionaryRegistry.getInstance().register(dictionary);
+                store.save(dictionary);
+                guarder.publishDictionary(dictionary);
+            } catch (Exception e) {
+                LOGGER.error("train compression dictionary failed, domain is {}", entry.getKey(), e);
+            }
+        }
+    }
+}
@@ -14,7 +14,6 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
-import java.util.concurrent.TimeoutException;
 
 public class MetricTimerListener implements Runnable {
 
@@ -40,19 +39,20 @@ public class MetricTimerListener implements Runnable {
             for (Map.Entry<Long, List<MetricNode>> entry : maps.entrySet()) {
                 try {
                     entry.getValue().stream().forEach(metricNode -> {
-                        try {
-                            metricNode.setTimestamp(entry.getKey());
+                        metricNode.setTimestamp(entry.getKey());
 
-                            long second = entry.getKey() / 1000;
+                        long second = entry.getKey() / 1000;
 
-                            //TODO 远程发送
-                            remotingClient.sendSyncRequest(StoreMetricRequest.getRpcMessage(metricNode));
+                        //异步发送，不必等上一个节点存储完成，按应用名路由
+                        remotingClient.sendBatchedRequest(StoreMetricRequest.getRpcMessage(metricNode),
+                                metricNode.getMetricKey().getDomain())
+                            .whenComplete((body, e) -> {
+                                if (e != null) {
+                                    log.error("remotingClient sendBatchedRequest is error, ", e);
+                                }
+                            });
 
-                            lastSecond = second;
-
-                        } catch (TimeoutException e) {
-                            log.error("remotingClient sendSyncRequest is error, ", e);
-                        }
+                        lastSecond = second;
                     });
                 } catch (Exception e) {
                     log.error("metric timer listener is error, ", e);
@@ -4,7 +4,9 @@ import cn.heimdall.core.utils.common.CurrentTimeFactory;
 import cn.heimdall.core.utils.enums.NodeRole;
 
 import java.net.InetSocketAddress;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
@@ -20,6 +22,11 @@ public class ClusterInfo {
     private Map<InetSocketAddress, Long> computeNodes;
     private Map<InetSocketAddress, Long> storageNodes;
 
+    //可用节点快照的有效期，过期后重新按心跳时间过滤
+    private static final long PEER_SNAPSHOT_TTL = 1000L;
+    //各角色可用节点的快照，客户端每次选节点都读它，不再每次过滤和复制
+    private final transient Map<NodeRole, PeerSnapshot> peerSnapshots = new ConcurrentHashMap<>();
+
     public ClusterInfo() {
     }
 
@@ -32,6 +39,11 @@ public class ClusterInfo {
 
     //添加节点角色的地址信息到全局集群信息中
     public void putInetSocketAddress(NodeRole nodeRole, InetSocketAddress inetSocketAddress, long currentTime) {
+        Map<InetSocketAddress, Long> nodes = getNodes(nodeRole);
+        if (nodes != null && !nodes.containsKey(inetSocketAddress)) {
+            //新节点立即可见
+            peerSnapshots.remove(nodeRole);
+        }
         switch (nodeRole) {
             case COMPUTE:
                 safeUpdateInetSocketAddress(computeNodes, inetSocketAddress, currentTime);
@@ -73,6 +85,43 @@ public class ClusterInfo {
         return Collections.emptySet();
     }
 
+    /**
+     * 可用节点的快照，节点没有变化时返回同一个不可修改的列表
+     */
+    public List<InetSocketAddress> getActivePeers(NodeRole nodeRole, long expireThreshold) {
+        long currentTimestamp = CurrentTimeFactory.currentTimeMillis();
+        PeerSnapshot snapshot = peerSnapshots.get(nodeRole);
+        if (snapshot != null && currentTimestamp - snapshot.createTime < PEER_SNAPSHOT_TTL) {
+            return snapshot.peers;
+        }
+        Set<InetSocketAddress> active = getActiveInetSocketAddress(nodeRole, expireThreshold);
+        List<InetSocketAddress> peers = snapshot != null && snapshot.peers.size() == active.size()
+                && active.containsAll(snapshot.peers) ? snapshot.peers : Collections.unmodifiableList(new ArrayList<>(active));
+        peerSnapshots.put(nodeRole, new PeerSnapshot(currentTimestamp, peers));
+        return peers;
+    }
+
+    private Map<InetSocketAddress, Long> getNodes(NodeRole nodeRole) {
+        switch (nodeRole) {
+            case COMPUTE:
+                return computeNodes;
+            case GUARDER:
+                return guarderNodes;
+            case STORAGE:
+                return storageNodes;
+        }
+        return null;
+    }
+
+    private static class PeerSnapshot {
+        private final long createTime;
+        private final List<InetSocketAddress> peers;
+
+        PeerSnapshot(long createTime, List<InetSocketAddress> peers) {
+            this.createTime = createTime;
+            this.peers = peers;
+        }
+    }
 
     public String getClusterName() {
         return clusterName;
@@ -26,7 +26,9 @@ public class LocalConfiguration extends AbstractConfiguration {
 
     @Override
     public String getLatestConfig(String configId, String defaultValue, long timeoutMills) {
-        return null;
+        //没有配置文件时取系统属性，都没有则使用默认值
+        String value = getConfigFromSys(configId);
+        return value == null ? defaultValue : value;
     }
 
     @Override
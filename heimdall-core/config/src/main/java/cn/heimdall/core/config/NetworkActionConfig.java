@@ -26,4 +26,9 @@ public class NetworkActionConfig extends NetworkConfig{
     public int getPort() {
         return CONFIG.getInt(ConfigurationKeys.HTTP_PORT, 7400);
     }
+
+    @Override
+    public int getMaxFrameLength() {
+        return CONFIG.getInt(ConfigurationKeys.HTTP_MAX_FRAME_LENGTH, 16 * 1024 * 1024);
+    }
 }
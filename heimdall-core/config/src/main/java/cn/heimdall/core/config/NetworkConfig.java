@@ -1,7 +1,6 @@
 package cn.heimdall.core.config;
 
-import io.netty.channel.Channel;
-import io.netty.channel.socket.nio.NioSocketChannel;
+import cn.heimdall.core.utils.constants.ConfigurationKeys;
 import io.netty.util.NettyRuntime;
 
 public class NetworkConfig extends HeimdallConfig{
@@ -10,24 +9,159 @@ public class NetworkConfig extends HeimdallConfig{
         return 30 * 1000;
     }
 
-    public static int getMaxNotWriteableRetry() {
-        return 2000;
+    public static int getRpcMaxInFlight() {
+        return CONFIG.getInt(ConfigurationKeys.TRANSPORT_RPC_MAX_IN_FLIGHT, 512);
+    }
+
+    public static int getRpcInFlightTableSize() {
+        return CONFIG.getInt(ConfigurationKeys.TRANSPORT_RPC_IN_FLIGHT_TABLE_SIZE, 4096);
+    }
+
+    public static long getMaxPendingWriteBytes() {
+        return CONFIG.getLong(ConfigurationKeys.TRANSPORT_MAX_PENDING_WRITE_BYTES, 128 * 1024 * 1024L);
+    }
+
+    public static int getAckIntervalMillis() {
+        return CONFIG.getInt(ConfigurationKeys.TRANSPORT_ACK_INTERVAL, 1000);
+    }
+
+    public static int getAckTimeoutMillis() {
+        return CONFIG.getInt(ConfigurationKeys.TRANSPORT_ACK_TIMEOUT, 30 * 1000);
+    }
+
+    public static int getMaxUnackedMessages() {
+        return CONFIG.getInt(ConfigurationKeys.TRANSPORT_MAX_UNACKED, 10000);
+    }
+
+    public static int getLaneCapacity(String lane, int defaultCapacity) {
+        return CONFIG.getInt(ConfigurationKeys.TRANSPORT_LANE_CAPACITY_PREFIX + lane, defaultCapacity);
+    }
+
+    public static int getLaneShedPercent() {
+        return CONFIG.getInt(ConfigurationKeys.TRANSPORT_LANE_SHED_PERCENT, 70);
+    }
+
+    public static int getBusyRetryAfterMillis() {
+        return CONFIG.getInt(ConfigurationKeys.TRANSPORT_BUSY_RETRY_AFTER, 1000);
+    }
+
+    public static int getCreditIntervalMillis() {
+        return CONFIG.getInt(ConfigurationKeys.TRANSPORT_CREDIT_INTERVAL, 100);
+    }
+
+    public static int getCreditMaxWindow() {
+        return CONFIG.getInt(ConfigurationKeys.TRANSPORT_CREDIT_MAX_WINDOW, 1024);
+    }
+
+    public static boolean isLocalTransportEnabled() {
+        return CONFIG.getBoolean(ConfigurationKeys.TRANSPORT_LOCAL_ENABLED, true);
+    }
+
+    public static int getLocalQueueSize() {
+        return CONFIG.getInt(ConfigurationKeys.TRANSPORT_LOCAL_QUEUE_SIZE, 10000);
+    }
+
+    public static int getLocalWorkerThreads() {
+        return CONFIG.getInt(ConfigurationKeys.TRANSPORT_LOCAL_WORKER_THREADS, NettyRuntime.availableProcessors());
+    }
+
+    public static int getSharedWorkerThreads() {
+        return CONFIG.getInt(ConfigurationKeys.TRANSPORT_WORKER_THREADS, NettyRuntime.availableProcessors() * 2);
+    }
+
+    public static int getSharedTimerThreads() {
+        return CONFIG.getInt(ConfigurationKeys.TRANSPORT_TIMER_THREADS, 2);
+    }
+
+    public static boolean isShareMessageExecutor() {
+        return CONFIG.getBoolean(ConfigurationKeys.TRANSPORT_SHARE_EXECUTOR, false);
+    }
+
+    public static int getSharedExecutorThreads() {
+        return CONFIG.getInt(ConfigurationKeys.TRANSPORT_SHARED_EXECUTOR_THREADS, NettyRuntime.availableProcessors() * 4);
+    }
+
+    public static int getSharedExecutorQueueSize() {
+        return CONFIG.getInt(ConfigurationKeys.TRANSPORT_SHARED_EXECUTOR_QUEUE_SIZE, 20000);
+    }
+
+    public static boolean isControlPlaneEnabled() {
+        return CONFIG.getBoolean(ConfigurationKeys.TRANSPORT_CONTROL_ENABLED, true);
+    }
+
+    public static int getControlPortOffset() {
+        return CONFIG.getInt(ConfigurationKeys.TRANSPORT_CONTROL_PORT_OFFSET, 10);
+    }
+
+    public static int getControlThreads() {
+        return CONFIG.getInt(ConfigurationKeys.TRANSPORT_CONTROL_THREADS, 1);
+    }
+
+    public static int getControlExecutorThreads() {
+        return CONFIG.getInt(ConfigurationKeys.TRANSPORT_CONTROL_EXECUTOR_THREADS, 2);
+    }
+
+    public static boolean isBatchEnabled() {
+        return CONFIG.getBoolean(ConfigurationKeys.TRANSPORT_BATCH_ENABLED, true);
+    }
+
+    public static int getBatchMaxCount() {
+        return CONFIG.getInt(ConfigurationKeys.TRANSPORT_BATCH_MAX_COUNT, 128);
+    }
+
+    public static int getBatchMaxBytes() {
+        return CONFIG.getInt(ConfigurationKeys.TRANSPORT_BATCH_MAX_BYTES, 256 * 1024);
+    }
+
+    public static int getBatchLingerMillis() {
+        return CONFIG.getInt(ConfigurationKeys.TRANSPORT_BATCH_LINGER, 5);
+    }
+
+    public static int getFlushConsolidation() {
+        return CONFIG.getInt(ConfigurationKeys.TRANSPORT_FLUSH_CONSOLIDATION, 256);
     }
 
     public static String getSocketAddressStartChar() {
         return "/";
     }
 
-    public static long getNotWriteableCheckMills() {
-        return 10L;
+    public static String getSerialization() {
+        return CONFIG.getConfig(ConfigurationKeys.TRANSPORT_SERIALIZATION, "heimdall");
+    }
+
+    public static boolean isDataStringTableEnabled() {
+        return CONFIG.getBoolean(ConfigurationKeys.TRANSPORT_DATA_STRING_TABLE, false);
     }
 
-    public static int getMaxCheckAliveRetry() {
-        return 300;
+    //单帧最大长度，超过chunk size的消息会拆成续帧，因此单帧不需要很大
+    public int getMaxFrameLength() {
+        return 4 * 1024 * 1024;
     }
 
-    public static long getCheckAliveInternal() {
-        return 10;
+    //续帧拼接和解压后的消息最大长度
+    public static int getMaxMessageLength() {
+        return CONFIG.getInt(ConfigurationKeys.TRANSPORT_MAX_MESSAGE_LENGTH, 64 * 1024 * 1024);
+    }
+
+    //老版本服务端只认老的帧格式，客户端无法从回复中得知，只能按配置指定
+    public static boolean isClientLegacyFramingEnabled() {
+        return CONFIG.getBoolean(ConfigurationKeys.TRANSPORT_CLIENT_LEGACY_FRAMING, false);
+    }
+
+    public int getFrameChunkSize() {
+        return CONFIG.getInt(ConfigurationKeys.TRANSPORT_FRAME_CHUNK_SIZE, 1024 * 1024);
+    }
+
+    public static String getCompressor() {
+        return CONFIG.getConfig(ConfigurationKeys.TRANSPORT_COMPRESSOR, "zstd,lz4");
+    }
+
+    public static int getCompressThreshold() {
+        return CONFIG.getInt(ConfigurationKeys.TRANSPORT_COMPRESS_THRESHOLD, 4096);
+    }
+
+    public static int getDictionaryCompressThreshold() {
+        return CONFIG.getInt(ConfigurationKeys.TRANSPORT_DICTIONARY_COMPRESS_THRESHOLD, 256);
     }
 
 
@@ -54,18 +188,10 @@ public class NetworkConfig extends HeimdallConfig{
         return "NettyClientWorkerThread";
     }
 
-    public Class<? extends Channel> getClientChannelClazz() {
-        return  NioSocketChannel.class;
-    }
-
     public int getClientSocketRcvBufSize() {
         return 153600;
     }
 
-    public boolean enableNative() {
-        return false;
-    }
-
     public int getClientSocketSndBufSize() {
         return 153600;
     }
@@ -82,32 +208,36 @@ public class NetworkConfig extends HeimdallConfig{
         return 15;
     }
 
-    public int getMaxPoolActive() {
-        return 1;
+    //客户端到每个服务端的连接数，按负载在最小和最大之间伸缩
+    public int getMinChannelsPerPeer() {
+        return CONFIG.getInt(ConfigurationKeys.TRANSPORT_CHANNEL_GROUP_MIN, 1);
     }
 
-    public int getMinPoolIdle() {
-        return 20;
+    public int getMaxChannelsPerPeer() {
+        return CONFIG.getInt(ConfigurationKeys.TRANSPORT_CHANNEL_GROUP_MAX, 4);
     }
 
-    public long getMaxAcquireConnMills() {
-        return 60 * 1000L;
+    public int getChannelBusyInFlight() {
+        return CONFIG.getInt(ConfigurationKeys.TRANSPORT_CHANNEL_BUSY_IN_FLIGHT, 64);
     }
 
-    public boolean isPoolTestBorrow() {
-        return true;
+    public long getChannelGroupShrinkIdleMillis() {
+        return CONFIG.getLong(ConfigurationKeys.TRANSPORT_CHANNEL_GROUP_SHRINK_IDLE, 60 * 1000L);
     }
 
-    public boolean isPoolTestReturn() {
-        return true;
+    public String getLoadBalance() {
+        return CONFIG.getConfig(ConfigurationKeys.TRANSPORT_LOAD_BALANCE, "p2c_ewma");
     }
 
-    public boolean isPoolLifo() {
-
-        return true;
+    /**
+     * 传输实现 auto/io_uring/epoll/nio，server和client的event loop与channel类型一起选择
+     */
+    public String getTransportType() {
+        return CONFIG.getConfig(ConfigurationKeys.TRANSPORT_TYPE, "auto");
     }
 
-    public boolean enableEpoll() {
+    //SO_REUSEPORT 多个acceptor绑定同一端口，只有epoll和io_uring支持
+    public boolean isReusePort() {
         return false;
     }
 
@@ -115,6 +245,11 @@ public class NetworkConfig extends HeimdallConfig{
         return 1;
     }
 
+    //服务端额外监听的unix domain socket路径，为空时不监听
+    public String getDomainSocketPath() {
+        return null;
+    }
+
     public String getBossThreadPrefix() {
         return "NettyBoss";
     }
@@ -33,4 +33,14 @@ public class NetworkManageConfig extends NetworkConfig {
         return CONFIG.getInt(ConfigurationKeys.MANAGE_PORT, 7200);
 
     }
+
+    @Override
+    public String getDomainSocketPath() {
+        return CONFIG.getConfig(ConfigurationKeys.MANAGE_DOMAIN_SOCKET, null);
+    }
+
+    @Override
+    public int getMaxFrameLength() {
+        return CONFIG.getInt(ConfigurationKeys.MANAGE_MAX_FRAME_LENGTH, 4 * 1024 * 1024);
+    }
 }
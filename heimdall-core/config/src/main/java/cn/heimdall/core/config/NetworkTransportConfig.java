@@ -25,4 +25,25 @@ public class NetworkTransportConfig extends NetworkConfig{
     public int getPort() {
         return CONFIG.getInt(ConfigurationKeys.TRANSPORT_PORT, 7300);
     }
+
+    @Override
+    public boolean isReusePort() {
+        return CONFIG.getBoolean(ConfigurationKeys.TRANSPORT_REUSE_PORT, true);
+    }
+
+    //开启SO_REUSEPORT时每个boss线程各绑定一次端口，由内核分发新连接
+    @Override
+    public int getBossThreadSize() {
+        return CONFIG.getInt(ConfigurationKeys.TRANSPORT_ACCEPTOR_THREADS, 4);
+    }
+
+    @Override
+    public String getDomainSocketPath() {
+        return CONFIG.getConfig(ConfigurationKeys.TRANSPORT_DOMAIN_SOCKET, null);
+    }
+
+    @Override
+    public int getMaxFrameLength() {
+        return CONFIG.getInt(ConfigurationKeys.TRANSPORT_MAX_FRAME_LENGTH, 16 * 1024 * 1024);
+    }
 }
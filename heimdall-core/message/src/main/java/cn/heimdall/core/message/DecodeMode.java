@@ -0,0 +1,15 @@
+package cn.heimdall.core.message;
+
+/**
+ * 消息体的解码位置
+ */
+public enum DecodeMode {
+    //在io线程解码，适合很小的控制类消息
+    INLINE,
+
+    //io线程只解析消息头，消息体交给处理器的线程池解码
+    OFFLOAD,
+
+    //消息体用到了连接的字符串表时必须在io线程按顺序解码，否则交给处理器的线程池
+    AUTO
+}
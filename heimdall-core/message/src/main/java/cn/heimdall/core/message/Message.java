@@ -1,10 +1,13 @@
 package cn.heimdall.core.message;
 
-import cn.heimdall.core.utils.common.JsonUtil;
+import cn.heimdall.core.message.compress.CompressionDictionary;
+import cn.heimdall.core.message.compress.CompressorFactory;
+import cn.heimdall.core.message.compress.CompressorType;
+import cn.heimdall.core.message.serializer.Serializer;
+import cn.heimdall.core.message.serializer.SerializerFactory;
+import cn.heimdall.core.message.serializer.StringTable;
 import io.netty.buffer.ByteBuf;
 
-import java.nio.charset.StandardCharsets;
-
 public abstract class Message<T extends MessageBody>  {
 
     private MessageHeader messageHeader;
@@ -13,45 +16,272 @@ public abstract class Message<T extends MessageBody>  {
 
     private int compressorType;
 
+    //压缩时使用的字典，只在本地编码时使用，不写入消息头
+    private CompressionDictionary dictionary;
+
     private T messageBody;
 
+    //io线程只解析了消息头时保留的消息体，第一次获取消息体时在处理线程解码
+    private ByteBuf retainedBody;
+
     protected Message() {
     }
 
     public T getMessageBody(){
+        if (retainedBody != null) {
+            ByteBuf body = retainedBody;
+            retainedBody = null;
+            try {
+                decodeBody(body);
+            } finally {
+                body.release();
+            }
+        }
         return messageBody;
     }
 
     public void encode(ByteBuf byteBuf) {
-        byteBuf.writeInt(messageHeader.getVersion());
+        encode(byteBuf, 0);
+    }
+
+    public void encode(ByteBuf byteBuf, int compressThreshold) {
+        encode(byteBuf, compressThreshold, null);
+    }
+
+    /**
+     * @param compressThreshold 消息体小于该字节数时不压缩
+     * @param stringTable 连接的编码字符串表，为null时字符串都按字面量发送
+     */
+    public void encode(ByteBuf byteBuf, int compressThreshold, StringTable stringTable) {
+        int version = messageHeader.getVersion();
+        if (version < MessageHeader.VERSION_FIXED_HEADER) {
+            encodeLegacy(byteBuf, version);
+            return;
+        }
+        boolean tabled = stringTable != null && version >= MessageHeader.VERSION_STRING_TABLE && usesStringTable();
+        byte flags = messageHeader.getFlags();
+        messageHeader.setFlags((byte) (tabled ? flags | MessageHeader.FLAG_STRING_TABLE
+                : flags & ~MessageHeader.FLAG_STRING_TABLE));
+        byteBuf.writeShort(MessageHeader.MAGIC);
+        byteBuf.writeByte(version);
+        byteBuf.writeByte(messageHeader.getFlags());
+        byteBuf.writeShort(messageHeader.getTypeCode());
+        byteBuf.writeInt(messageId);
+        byteBuf.writeByte(messageHeader.getSerializer());
+        int compressorIndex = byteBuf.writerIndex();
+        byteBuf.writeByte(compressorType);
+        //先占位，消息体写完后回填长度
+        int lengthIndex = byteBuf.writerIndex();
+        byteBuf.writeInt(0);
+        if (version < MessageHeader.VERSION_STRING_TABLE) {
+            encodeBody(byteBuf, compressorIndex, compressThreshold);
+        } else {
+            encodeBody(byteBuf, compressorIndex, compressThreshold, tabled ? stringTable : new StringTable(0));
+        }
+        byteBuf.setInt(lengthIndex, byteBuf.writerIndex() - lengthIndex - 4);
+    }
+
+    /**
+     * 在处理线程延迟解码的消息体不能引用连接的字符串表，解码时表已经被后面的消息改变，
+     * 新登记的字符串也不会进入对端的表，这类消息体只发字面量
+     * AUTO类型由调用方决定是否传入字符串表，使用时消息头带FLAG_STRING_TABLE，对端在io线程解码
+     */
+    private boolean usesStringTable() {
+        return messageHeader.isResponse()
+                || MessageType.fromTypeCode(messageHeader.getTypeCode()).getDecodeMode() != DecodeMode.OFFLOAD;
+    }
+
+    private void encodeLegacy(ByteBuf byteBuf, int version) {
+        byteBuf.writeInt(version);
         byteBuf.writeShort(messageHeader.getTypeCode());
-        byteBuf.writeBytes(JsonUtil.toJson(messageBody).getBytes());
+        //老版本的对端只认识json
+        if (version >= MessageHeader.VERSION_SERIALIZER) {
+            byteBuf.writeByte(messageHeader.getSerializer());
+        } else {
+            messageHeader.setSerializer(SerializerType.JSON.getCode());
+        }
+        SerializerFactory.getSerializer(messageHeader.getSerializer()).serialize(messageBody, byteBuf);
+    }
+
+    private void encodeBody(ByteBuf byteBuf, int compressorIndex, int compressThreshold, StringTable stringTable) {
+        StringTable.bind(stringTable);
+        boolean success = false;
+        try {
+            encodeBody(byteBuf, compressorIndex, compressThreshold);
+            success = true;
+        } finally {
+            StringTable.unbind();
+            if (success) {
+                stringTable.commit();
+            } else {
+                stringTable.rollback();
+            }
+        }
+    }
+
+    private void encodeBody(ByteBuf byteBuf, int compressorIndex, int compressThreshold) {
+        //先直接序列化到输出buffer，小消息不需要额外拷贝
+        int bodyIndex = byteBuf.writerIndex();
+        SerializerFactory.getSerializer(messageHeader.getSerializer()).serialize(messageBody, byteBuf);
+        int bodyLength = byteBuf.writerIndex() - bodyIndex;
+        if (compressorType == CompressorType.NONE.getCode()) {
+            return;
+        }
+        if (bodyLength < compressThreshold) {
+            setUncompressed(byteBuf, compressorIndex);
+            return;
+        }
+        ByteBuf compressed = byteBuf.alloc().directBuffer(bodyLength);
+        try {
+            CompressorFactory.getCompressor((byte) compressorType)
+                    .compress(byteBuf.slice(bodyIndex, bodyLength), compressed, dictionary);
+            //压缩后没有变小则保留原文
+            if (compressed.readableBytes() >= bodyLength) {
+                setUncompressed(byteBuf, compressorIndex);
+                return;
+            }
+            byteBuf.writerIndex(bodyIndex);
+            byteBuf.writeBytes(compressed);
+        } finally {
+            compressed.release();
+        }
+    }
+
+    private void setUncompressed(ByteBuf byteBuf, int compressorIndex) {
+        this.compressorType = CompressorType.NONE.getCode();
+        byteBuf.setByte(compressorIndex, compressorType);
     }
 
     public void decode(ByteBuf msg) {
-        //读取头信息
+        decodeHeader(msg);
+        decodeBody(msg);
+    }
+
+    /**
+     * 读取消息头，兼容没有magic的老版本协议
+     * @param msg
+     */
+    public void decodeHeader(ByteBuf msg) {
+        if (msg.readableBytes() < 2 || msg.getShort(msg.readerIndex()) != MessageHeader.MAGIC) {
+            decodeLegacyHeader(msg);
+            return;
+        }
+        msg.skipBytes(2);
+        int version = msg.readUnsignedByte();
+        byte flags = msg.readByte();
+        short typeCode = msg.readShort();
+        this.messageId = msg.readInt();
+        byte serializer = msg.readByte();
+        this.compressorType = msg.readByte();
+        this.messageHeader = wrapHeader(typeCode, version, serializer);
+        this.messageHeader.setFlags(flags);
+        this.messageHeader.setBodyLength(msg.readInt());
+    }
+
+    private void decodeLegacyHeader(ByteBuf msg) {
         int version = msg.readInt();
         short typeCode = msg.readShort();
-        this.messageHeader = wrapHeader(typeCode, version);
-        Class<T> bodyClazz = getMessageBodyClass(typeCode);
-        //目前使用json协议，需要改成自定义协议
-        T body = JsonUtil.fromJson(msg.toString(StandardCharsets.UTF_8), bodyClazz);
-        this.messageBody = body;
+        byte serializer = SerializerType.JSON.getCode();
+        if (version >= MessageHeader.VERSION_SERIALIZER) {
+            serializer = msg.readByte();
+        }
+        this.messageHeader = wrapHeader(typeCode, version, serializer);
+        //老版本协议消息体占满整个帧
+        this.messageHeader.setBodyLength(msg.readableBytes());
+    }
+
+    /**
+     * 读取消息体，需先调用decodeHeader
+     * @param msg
+     */
+    public void decodeBody(ByteBuf msg) {
+        decodeBody(msg, null);
+    }
+
+    /**
+     * 读取消息体，需先调用decodeHeader
+     * @param msg
+     * @param stringTable 连接的解码字符串表，同一连接的消息需按顺序解码，
+     *                    为null时消息体只能包含字面量，见usesStringTable
+     */
+    public void decodeBody(ByteBuf msg, StringTable stringTable) {
+        if (messageHeader.getVersion() < MessageHeader.VERSION_STRING_TABLE) {
+            doDecodeBody(msg);
+            return;
+        }
+        StringTable.bind(stringTable == null ? new StringTable(0) : stringTable);
+        try {
+            doDecodeBody(msg);
+        } finally {
+            StringTable.unbind();
+        }
+    }
+
+    private void doDecodeBody(ByteBuf msg) {
+        Class<T> bodyClazz = getMessageBodyClass(messageHeader.getTypeCode());
+        Serializer serializer = SerializerFactory.getSerializer(messageHeader.getSerializer());
+        ByteBuf body = msg.readSlice(messageHeader.getBodyLength());
+        if (compressorType == CompressorType.NONE.getCode()) {
+            this.messageBody = serializer.deserializeView(bodyClazz, body);
+            return;
+        }
+        ByteBuf plain = msg.alloc().directBuffer();
+        try {
+            CompressorFactory.getCompressor((byte) compressorType).decompress(body, plain);
+            this.messageBody = serializer.deserializeView(bodyClazz, plain);
+        } finally {
+            plain.release();
+        }
+    }
+
+    /**
+     * 只保留消息体，延迟到第一次获取消息体时再解码，需先调用decodeHeader
+     * @param msg
+     */
+    public void retainBody(ByteBuf msg) {
+        this.retainedBody = msg.readRetainedSlice(messageHeader.getBodyLength());
+    }
+
+    /**
+     * @return 消息体是否还未解码，等待处理线程第一次获取时解码
+     */
+    public boolean isBodyRetained() {
+        return retainedBody != null;
+    }
+
+    /**
+     * 消息体没有解码就被丢弃时释放保留的消息体
+     */
+    public void releaseBody() {
+        if (retainedBody != null) {
+            retainedBody.release();
+            retainedBody = null;
+        }
     }
 
     public int getCompressorType() {
         return compressorType;
     }
 
+    public CompressionDictionary getDictionary() {
+        return dictionary;
+    }
+
+    public Message<T> setDictionary(CompressionDictionary dictionary) {
+        this.dictionary = dictionary;
+        return this;
+    }
+
     public Message<T> setCompressorType(int compressorType) {
         this.compressorType = compressorType;
         return this;
     }
 
-    private MessageHeader wrapHeader(short type, int version){
+    private MessageHeader wrapHeader(short type, int version, byte serializer){
         MessageHeader messageHeader = new MessageHeader();
         messageHeader.setTypeCode(type);
         messageHeader.setVersion(version);
+        messageHeader.setSerializer(serializer);
         return messageHeader;
     }
 
@@ -77,4 +307,16 @@ public abstract class Message<T extends MessageBody>  {
     public void setMessageId(int messageId) {
         this.messageId = messageId;
     }
+
+    public boolean isResponse() {
+        return messageHeader != null && messageHeader.isResponse();
+    }
+
+    public boolean isOneway() {
+        return messageHeader != null && messageHeader.isOneway();
+    }
+
+    public boolean isAckRequested() {
+        return messageHeader != null && messageHeader.isAckRequested();
+    }
 }
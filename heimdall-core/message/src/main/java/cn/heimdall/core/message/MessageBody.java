@@ -2,4 +2,14 @@ package cn.heimdall.core.message;
 
 public abstract class MessageBody implements MessageTypeAware{
 
+    //没有覆盖estimateSize的消息体按这个大小估算
+    private static final int DEFAULT_ESTIMATED_SIZE = 128;
+
+    /**
+     * 编码后的大致字节数，批量发送时按它累计批的大小，不需要精确
+     */
+    public int estimateSize() {
+        return DEFAULT_ESTIMATED_SIZE;
+    }
+
 }
@@ -2,11 +2,42 @@ package cn.heimdall.core.message;
 
 /**
  * 消息头，通用的消息信息
+ * 定长头部格式：
+ * magic(2) version(1) flags(1) typeCode(2) messageId(4) serializer(1) compressor(1) bodyLength(4)
  */
 public class MessageHeader {
 
-    private int version = 1;
+    //老版本协议，头部只有version和typeCode，消息体固定为json
+    public static final int VERSION_LEGACY = 1;
+    //头部增加序列化方式
+    public static final int VERSION_SERIALIZER = 2;
+    //定长头部，带magic、flags、messageId、压缩方式和消息体长度
+    public static final int VERSION_FIXED_HEADER = 3;
+    //trace的重复字符串使用连接级别的字符串表
+    public static final int VERSION_STRING_TABLE = 4;
+    //支持按连接同步压缩字典，AUTO类型的消息体只有带FLAG_STRING_TABLE时才在io线程解码
+    public static final int VERSION_DICTIONARY = 5;
+    //当前发出的协议版本
+    public static final int VERSION_CURRENT = VERSION_DICTIONARY;
+
+    //老版本协议以int类型的version开头，前两个字节总是0，以此和magic区分
+    public static final short MAGIC = (short) 0xDA7A;
+    public static final int HEADER_LENGTH = 16;
+
+    public static final byte FLAG_REQUEST = 0x01;
+    public static final byte FLAG_RESPONSE = 0x02;
+    //单向消息，对端不需要回复
+    public static final byte FLAG_ONEWAY = 0x04;
+    //单向消息需要对端定期回复累计确认，messageId为该连接上连续的序号
+    public static final byte FLAG_ACK = 0x08;
+    //消息体引用了连接的字符串表，需在io线程按顺序解码
+    public static final byte FLAG_STRING_TABLE = 0x10;
+
+    private int version = VERSION_LEGACY;
     private short typeCode;
+    private byte flags = FLAG_REQUEST;
+    private byte serializer = SerializerType.JSON.getCode();
+    private int bodyLength;
 
     public MessageHeader(){
 
@@ -37,4 +68,47 @@ public class MessageHeader {
         this.typeCode = typeCode;
     }
 
+    public byte getFlags() {
+        return flags;
+    }
+
+    public void setFlags(byte flags) {
+        this.flags = flags;
+    }
+
+    public boolean isRequest() {
+        return (flags & FLAG_REQUEST) != 0;
+    }
+
+    public boolean isResponse() {
+        return (flags & FLAG_RESPONSE) != 0;
+    }
+
+    public boolean isOneway() {
+        return (flags & FLAG_ONEWAY) != 0;
+    }
+
+    public boolean isAckRequested() {
+        return (flags & FLAG_ACK) != 0;
+    }
+
+    public boolean isStringTableUsed() {
+        return (flags & FLAG_STRING_TABLE) != 0;
+    }
+
+    public byte getSerializer() {
+        return serializer;
+    }
+
+    public void setSerializer(byte serializer) {
+        this.serializer = serializer;
+    }
+
+    public int getBodyLength() {
+        return bodyLength;
+    }
+
+    public void setBodyLength(int bodyLength) {
+        this.bodyLength = bodyLength;
+    }
 }
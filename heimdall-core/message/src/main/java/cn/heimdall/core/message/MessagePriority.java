@@ -0,0 +1,25 @@
+package cn.heimdall.core.message;
+
+/**
+ * 消息的优先级分类，每类有自己的排队上限，负载高时按类丢弃
+ */
+public enum MessagePriority {
+    //心跳、注册、确认等控制类消息，不丢弃
+    CONTROL(1000),
+
+    //客户端上报和存储写入
+    DATA(10000),
+
+    //查询
+    QUERY(1000);
+
+    private final int defaultCapacity;
+
+    MessagePriority(int defaultCapacity) {
+        this.defaultCapacity = defaultCapacity;
+    }
+
+    public int getDefaultCapacity() {
+        return defaultCapacity;
+    }
+}
@@ -1,6 +1,13 @@
 package cn.heimdall.core.message;
 
 
+import cn.heimdall.core.message.body.AckMessage;
+import cn.heimdall.core.message.body.BatchMessage;
+import cn.heimdall.core.message.body.BatchResponse;
+import cn.heimdall.core.message.body.BusyResponse;
+import cn.heimdall.core.message.body.CreditMessage;
+import cn.heimdall.core.message.body.DictionaryMessage;
+import cn.heimdall.core.message.body.DictionaryResponse;
 import cn.heimdall.core.message.body.PingMessage;
 import cn.heimdall.core.message.body.action.QueryAppStateRequest;
 import cn.heimdall.core.message.body.action.QueryAppStateResponse;
@@ -27,76 +34,111 @@ import cn.heimdall.core.message.body.store.StoreMetricResponse;
 import cn.heimdall.core.message.body.store.StoreTraceRequest;
 import cn.heimdall.core.message.body.store.StoreTraceResponse;
 
-import java.util.function.Predicate;
-
 public enum MessageType {
     //客户端发送应用状态信息
-    TYPE_PING_MESSAGE(100, PingMessage.class),
-    APP_STATE_REQUEST(101, AppStateRequest.class),
-    APP_STATE_RESPONSE(201, AppStateResponse.class),
-    //客户端发送客户端消息树
-    MESSAGE_TREE_REQUEST(102, MessageTreeRequest.class),
-    MESSAGE_TREE_RESPONSE(202, MessageTreeResponse.class),
+    TYPE_PING_MESSAGE(100, PingMessage.class, MessagePriority.CONTROL),
+    APP_STATE_REQUEST(101, AppStateRequest.class, DecodeMode.AUTO, MessagePriority.DATA),
+    APP_STATE_RESPONSE(201, AppStateResponse.class, MessagePriority.DATA),
+    //客户端发送客户端消息树，过载时先于指标丢弃
+    MESSAGE_TREE_REQUEST(102, MessageTreeRequest.class, DecodeMode.AUTO, MessagePriority.DATA, true),
+    MESSAGE_TREE_RESPONSE(202, MessageTreeResponse.class, MessagePriority.DATA),
     //客户端注册数据（发给guarder的）
-    CLIENT_REGISTER_REQUEST(103, AppRegisterRequest.class),
-    CLIENT_REGISTER_RESPONSE(203, AppRegisterResponse.class),
+    CLIENT_REGISTER_REQUEST(103, AppRegisterRequest.class, MessagePriority.CONTROL),
+    CLIENT_REGISTER_RESPONSE(203, AppRegisterResponse.class, MessagePriority.CONTROL),
     //客户端心跳数据（发给guarder的）
-    CLIENT_HEARTBEAT_REQUEST(104, ClientHeartbeatRequest.class),
-    CLIENT_HEARTBEAT_RESPONSE(204, ClientHeartbeatResponse.class),
+    CLIENT_HEARTBEAT_REQUEST(104, ClientHeartbeatRequest.class, MessagePriority.CONTROL),
+    CLIENT_HEARTBEAT_RESPONSE(204, ClientHeartbeatResponse.class, MessagePriority.CONTROL),
     //节点注册消息
-    NODE_REGISTER_REQUEST(105, NodeRegisterRequest.class),
-    NODE_REGISTER_RESPONSE(205, NodeRegisterResponse.class),
+    NODE_REGISTER_REQUEST(105, NodeRegisterRequest.class, MessagePriority.CONTROL),
+    NODE_REGISTER_RESPONSE(205, NodeRegisterResponse.class, MessagePriority.CONTROL),
     //节点心跳消息
-    NODE_HEARTBEAT_REQUEST(106, NodeHeartbeatRequest.class),
-    NODE_HEARTBEAT_RESPONSE(206, NodeHeartbeatResponse.class),
+    NODE_HEARTBEAT_REQUEST(106, NodeHeartbeatRequest.class, MessagePriority.CONTROL),
+    NODE_HEARTBEAT_RESPONSE(206, NodeHeartbeatResponse.class, MessagePriority.CONTROL),
 
     //存储节点
-    //计算节点发送存储traceLog
-    STORE_TRANCE_LOG_REQUEST(107, StoreTraceRequest.class),
-    STORE_TRANCE_LOG_RESPONSE(207, StoreTraceResponse.class),
+    //计算节点发送存储traceLog，过载时先于指标丢弃
+    STORE_TRANCE_LOG_REQUEST(107, StoreTraceRequest.class, DecodeMode.AUTO, MessagePriority.DATA, true),
+    STORE_TRANCE_LOG_RESPONSE(207, StoreTraceResponse.class, MessagePriority.DATA),
     //计算节点发送存储metricLog
-    STORE_METRIC_REQUEST(108, StoreMetricRequest.class),
-    STORE_METRIC_RESPONSE(208, StoreMetricResponse.class),
+    STORE_METRIC_REQUEST(108, StoreMetricRequest.class, DecodeMode.OFFLOAD, MessagePriority.DATA),
+    STORE_METRIC_RESPONSE(208, StoreMetricResponse.class, MessagePriority.DATA),
     //计算节点发送存储应用状态信息
-    STORE_APP_STATE_REQUEST(109, StoreAppStateRequest.class),
-    STORE_APP_STATE_RESPONSE(209, StoreAppStateResponse.class),
+    STORE_APP_STATE_REQUEST(109, StoreAppStateRequest.class, DecodeMode.OFFLOAD, MessagePriority.DATA),
+    STORE_APP_STATE_RESPONSE(209, StoreAppStateResponse.class, MessagePriority.DATA),
 
     //查询存储信息
-    STORE_SEARCH_METRIC_REQUEST(110, QueryAppStateRequest.class),
-    STORE_SEARCH_METRIC_RESPONSE(210, QueryAppStateRequest.class),
-    STORE_SEARCH_TRACE_LOG_REQUEST(111, QueryAppStateRequest.class),
-    STORE_SEARCH_TRACE_LOG_RESPONSE(211, QueryAppStateRequest.class),
-    STORE_SEARCH_APP_STATE_REQUEST(112, QueryAppStateRequest.class),
-    STORE_SEARCH_APP_STATE_RESPONSE(212, QueryAppStateRequest.class),
+    STORE_SEARCH_METRIC_REQUEST(110, QueryAppStateRequest.class, MessagePriority.QUERY),
+    STORE_SEARCH_METRIC_RESPONSE(210, QueryAppStateRequest.class, MessagePriority.QUERY),
+    STORE_SEARCH_TRACE_LOG_REQUEST(111, QueryAppStateRequest.class, MessagePriority.QUERY),
+    STORE_SEARCH_TRACE_LOG_RESPONSE(211, QueryAppStateRequest.class, MessagePriority.QUERY),
+    STORE_SEARCH_APP_STATE_REQUEST(112, QueryAppStateRequest.class, MessagePriority.QUERY),
+    STORE_SEARCH_APP_STATE_RESPONSE(212, QueryAppStateRequest.class, MessagePriority.QUERY),
 
     //查询协调信息相关接口
-    ACTION_QUERY_METRIC_REQUEST(113, QueryAppStateRequest.class),
-    ACTION_QUERY_METRIC_RESPONSE(213, QueryMetricResponse.class),
-    ACTION_QUERY_APP_STATE_REQUEST(114, QueryAppStateRequest.class),
-    ACTION_TYPE_QUERY_APP_STATE_RESPONSE(214, QueryAppStateResponse.class),
-    ACTION_QUERY_TRANCE_LOG_REQUEST(115, QueryTraceRequest.class),
-    ACTION_QUERY_TRANCE_LOG_RESPONSE(215, QueryTraceResponse.class);
+    ACTION_QUERY_METRIC_REQUEST(113, QueryAppStateRequest.class, MessagePriority.QUERY),
+    ACTION_QUERY_METRIC_RESPONSE(213, QueryMetricResponse.class, MessagePriority.QUERY),
+    ACTION_QUERY_APP_STATE_REQUEST(114, QueryAppStateRequest.class, MessagePriority.QUERY),
+    ACTION_TYPE_QUERY_APP_STATE_RESPONSE(214, QueryAppStateResponse.class, MessagePriority.QUERY),
+    ACTION_QUERY_TRANCE_LOG_REQUEST(115, QueryTraceRequest.class, MessagePriority.QUERY),
+    ACTION_QUERY_TRANCE_LOG_RESPONSE(215, QueryTraceResponse.class, MessagePriority.QUERY),
+
+    //服务端对单向消息的累计确认
+    CLIENT_ACK(116, AckMessage.class, MessagePriority.CONTROL),
+    //服务端过载丢弃请求时的回复
+    SERVER_BUSY_RESPONSE(217, BusyResponse.class, MessagePriority.CONTROL),
+    //服务端授予数据类请求的发送额度
+    CREDIT_GRANT(118, CreditMessage.class, MessagePriority.CONTROL),
+    //多个数据类消息体合并的一帧，子消息体可能用到连接的字符串表
+    BATCH_REQUEST(119, BatchMessage.class, DecodeMode.AUTO, MessagePriority.DATA),
+    BATCH_RESPONSE(219, BatchResponse.class, MessagePriority.DATA),
+    //压缩字典按连接同步，对端确认前不使用该字典
+    DICTIONARY_SYNC_REQUEST(120, DictionaryMessage.class, MessagePriority.CONTROL),
+    DICTIONARY_SYNC_RESPONSE(220, DictionaryResponse.class, MessagePriority.CONTROL);
 
     private short typeCode;
     private Class messageBodyClass;
+    private DecodeMode decodeMode;
+    private MessagePriority priority;
+    //过载时先于同类的其它消息丢弃
+    private boolean shedFirst;
+
+    MessageType(int typeCode, Class messageBodyClass, MessagePriority priority) {
+        this(typeCode, messageBodyClass, DecodeMode.INLINE, priority);
+    }
 
-    MessageType(int typeCode, Class messageBodyClass) {
+    MessageType(int typeCode, Class messageBodyClass, DecodeMode decodeMode, MessagePriority priority) {
+        this(typeCode, messageBodyClass, decodeMode, priority, false);
+    }
+
+    MessageType(int typeCode, Class messageBodyClass, DecodeMode decodeMode, MessagePriority priority,
+                boolean shedFirst) {
         this.typeCode = (short) typeCode;
         this.messageBodyClass = messageBodyClass;
+        this.decodeMode = decodeMode;
+        this.priority = priority;
+        this.shedFirst = shedFirst;
     }
 
-    private static MessageType getMessageType(Predicate<MessageType> predicate) {
-        MessageType[] values = values();
-        for (MessageType messageType : values) {
-            if (predicate.test(messageType)) {
-                return messageType;
-            }
+    //按typeCode下标直接取，替代遍历values()
+    private static final MessageType[] TYPES;
+
+    static {
+        int max = 0;
+        for (MessageType messageType : values()) {
+            max = Math.max(max, messageType.typeCode);
+        }
+        TYPES = new MessageType[max + 1];
+        for (MessageType messageType : values()) {
+            TYPES[messageType.typeCode] = messageType;
         }
-        throw new AssertionError("no found message type");
     }
 
     public static MessageType fromTypeCode(short type) {
-        return getMessageType(requestType -> requestType.getTypeCode() == type);
+        MessageType messageType = type >= 0 && type < TYPES.length ? TYPES[type] : null;
+        if (messageType == null) {
+            throw new AssertionError("no found message type");
+        }
+        return messageType;
     }
 
     public short getTypeCode() {
@@ -106,4 +148,16 @@ public enum MessageType {
     public Class getMessageBodyClass() {
         return messageBodyClass;
     }
+
+    public DecodeMode getDecodeMode() {
+        return decodeMode;
+    }
+
+    public MessagePriority getPriority() {
+        return priority;
+    }
+
+    public boolean isShedFirst() {
+        return shedFirst;
+    }
 }
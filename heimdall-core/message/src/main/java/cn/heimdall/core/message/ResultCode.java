@@ -1,7 +1,8 @@
 package cn.heimdall.core.message;
 
 public enum ResultCode {
-    SUCCESS(0, "成功");
+    SUCCESS(0, "成功"),
+    FAILED(1, "失败");
     int code;
     String desc;
     ResultCode(int code, String desc) {
@@ -1,19 +1,52 @@
 package cn.heimdall.core.message;
 
+import cn.heimdall.core.config.NetworkConfig;
+
 public class RpcMessage extends Message<MessageBody> {
 
+    private static final byte DEFAULT_SERIALIZER = SerializerType.getByName(NetworkConfig.getSerialization()).getCode();
+
     public RpcMessage() {
     }
 
     public RpcMessage(MessageBody messageBody) {
+        this(messageBody, MessageHeader.FLAG_REQUEST);
+    }
+
+    public RpcMessage(MessageBody messageBody, byte flags) {
         MessageHeader messageHeader = new MessageHeader();
         messageHeader.setTypeCode(messageBody.getMessageType().getTypeCode());
-        //TODO 设置头信息
-        messageHeader.setVersion(1);
+        messageHeader.setVersion(MessageHeader.VERSION_CURRENT);
+        messageHeader.setFlags(flags);
+        messageHeader.setSerializer(DEFAULT_SERIALIZER);
         super.setMessageHeader(messageHeader);
         super.setMessageBody(messageBody);
     }
 
+    /**
+     * 构造对某个请求的回复，沿用请求的messageId
+     */
+    public static RpcMessage response(Message request, MessageBody messageBody) {
+        RpcMessage response = new RpcMessage(messageBody, MessageHeader.FLAG_RESPONSE);
+        response.setMessageId(request.getMessageId());
+        return response;
+    }
+
+    /**
+     * 单向消息，对端不回复
+     */
+    public static RpcMessage oneway(MessageBody messageBody) {
+        return new RpcMessage(messageBody, (byte) (MessageHeader.FLAG_REQUEST | MessageHeader.FLAG_ONEWAY));
+    }
+
+    /**
+     * 单向消息，对端不逐条回复，而是定期回复累计确认，未确认的消息由发送端重发
+     */
+    public static RpcMessage onewayWithAck(MessageBody messageBody) {
+        return new RpcMessage(messageBody,
+                (byte) (MessageHeader.FLAG_REQUEST | MessageHeader.FLAG_ONEWAY | MessageHeader.FLAG_ACK));
+    }
+
     @Override
     public Class<MessageBody> getMessageBodyClass(short typeCode) {
         return MessageType.fromTypeCode(typeCode).getMessageBodyClass();
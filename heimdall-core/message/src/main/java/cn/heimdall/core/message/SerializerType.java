@@ -1,19 +1,59 @@
 package cn.heimdall.core.message;
 
+import cn.heimdall.core.utils.constants.LoadLevelConstants;
+
 public enum SerializerType {
-    HEIMDALL((byte)0x1),
+    HEIMDALL((byte)0x1, LoadLevelConstants.SERIALIZER_HEIMDALL),
 
-    PROTOBUF((byte)0x2),
+    PROTOBUF((byte)0x2, LoadLevelConstants.SERIALIZER_PROTOBUF),
 
-    JSON((byte)0x3);
+    JSON((byte)0x3, LoadLevelConstants.SERIALIZER_JSON);
 
     private final byte code;
 
-    SerializerType(final byte code) {
+    private final String loadLevelName;
+
+    SerializerType(final byte code, final String loadLevelName) {
         this.code = code;
+        this.loadLevelName = loadLevelName;
+    }
+
+    //编码都是很小的非负数，按下标直接取
+    private static final SerializerType[] CODES;
+
+    static {
+        int max = 0;
+        for (SerializerType type : values()) {
+            max = Math.max(max, type.code);
+        }
+        CODES = new SerializerType[max + 1];
+        for (SerializerType type : values()) {
+            CODES[type.code] = type;
+        }
+    }
+
+    public static SerializerType getByCode(int code) {
+        SerializerType type = code >= 0 && code < CODES.length ? CODES[code] : null;
+        if (type == null) {
+            throw new IllegalArgumentException("unknown serializer:" + code);
+        }
+        return type;
+    }
+
+    public static SerializerType getByName(String name) {
+        for (SerializerType b : SerializerType.values()) {
+            if (b.name().equalsIgnoreCase(name)) {
+                return b;
+            }
+        }
+        throw new IllegalArgumentException("unknown serializer:" + name);
     }
 
     public byte getCode() {
         return code;
     }
+
+    public String getLoadLevelName() {
+        return loadLevelName;
+    }
 }
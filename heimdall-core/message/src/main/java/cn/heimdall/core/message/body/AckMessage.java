@@ -0,0 +1,39 @@
+package cn.heimdall.core.message.body;
+
+import cn.heimdall.core.message.MessageBody;
+import cn.heimdall.core.message.MessageType;
+
+/**
+ * 累计确认，服务端定期告知客户端该连接上序号不超过watermark的单向消息都已处理
+ */
+public class AckMessage extends MessageBody {
+
+    private int watermark;
+
+    public AckMessage() {
+    }
+
+    public AckMessage(int watermark) {
+        this.watermark = watermark;
+    }
+
+    public int getWatermark() {
+        return watermark;
+    }
+
+    public void setWatermark(int watermark) {
+        this.watermark = watermark;
+    }
+
+    @Override
+    public MessageType getMessageType() {
+        return MessageType.CLIENT_ACK;
+    }
+
+    @Override
+    public String toString() {
+        return "AckMessage{" +
+                "watermark=" + watermark +
+                '}';
+    }
+}
@@ -0,0 +1,104 @@
+package cn.heimdall.core.message.body;
+
+import cn.heimdall.core.message.MessageBody;
+import cn.heimdall.core.message.MessageType;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.ReferenceCounted;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 多个数据类消息体合并为一帧发送，服务端逐个交给各自类型的处理器，整批只回复一次
+ * 引用计数作用于所有带原始字节的子消息体，编码后由ProtocolEncoder统一释放
+ */
+public class BatchMessage extends MessageBody implements ReferenceCounted {
+
+    private List<MessageBody> bodies;
+
+    public BatchMessage() {
+        this(new ArrayList<>());
+    }
+
+    public BatchMessage(List<MessageBody> bodies) {
+        this.bodies = bodies;
+    }
+
+    public List<MessageBody> getBodies() {
+        return bodies;
+    }
+
+    public void setBodies(List<MessageBody> bodies) {
+        this.bodies = bodies;
+    }
+
+    public int size() {
+        return bodies.size();
+    }
+
+    @Override
+    public int estimateSize() {
+        int size = 0;
+        for (MessageBody body : bodies) {
+            size += body.estimateSize();
+        }
+        return size;
+    }
+
+    @Override
+    public int refCnt() {
+        return 1;
+    }
+
+    @Override
+    public BatchMessage retain() {
+        return retain(1);
+    }
+
+    @Override
+    public BatchMessage retain(int increment) {
+        for (MessageBody body : bodies) {
+            ReferenceCountUtil.retain(body, increment);
+        }
+        return this;
+    }
+
+    @Override
+    public BatchMessage touch() {
+        return touch(null);
+    }
+
+    @Override
+    public BatchMessage touch(Object hint) {
+        for (MessageBody body : bodies) {
+            ReferenceCountUtil.touch(body, hint);
+        }
+        return this;
+    }
+
+    @Override
+    public boolean release() {
+        return release(1);
+    }
+
+    @Override
+    public boolean release(int decrement) {
+        boolean released = false;
+        for (MessageBody body : bodies) {
+            released |= ReferenceCountUtil.release(body, decrement);
+        }
+        return released;
+    }
+
+    @Override
+    public MessageType getMessageType() {
+        return MessageType.BATCH_REQUEST;
+    }
+
+    @Override
+    public String toString() {
+        return "BatchMessage{" +
+                "size=" + bodies.size() +
+                '}';
+    }
+}
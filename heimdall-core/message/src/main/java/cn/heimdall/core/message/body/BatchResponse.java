@@ -0,0 +1,28 @@
+package cn.heimdall.core.message.body;
+
+import cn.heimdall.core.message.MessageType;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 整批处理完后的回复，有子消息处理失败时resultCode为FAILED，msg中带失败的条数
+ * failedIndexes是失败的子消息在批中的下标，老版本服务端不带，此时按整批失败处理
+ */
+public class BatchResponse extends MessageResponse {
+
+    private List<Integer> failedIndexes = new ArrayList<>();
+
+    public List<Integer> getFailedIndexes() {
+        return failedIndexes;
+    }
+
+    public void setFailedIndexes(List<Integer> failedIndexes) {
+        this.failedIndexes = failedIndexes;
+    }
+
+    @Override
+    public MessageType getMessageType() {
+        return MessageType.BATCH_RESPONSE;
+    }
+}
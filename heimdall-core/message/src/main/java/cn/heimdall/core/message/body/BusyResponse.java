@@ -0,0 +1,39 @@
+package cn.heimdall.core.message.body;
+
+import cn.heimdall.core.message.MessageBody;
+import cn.heimdall.core.message.MessageType;
+
+/**
+ * 服务端过载丢弃请求时的回复，发送端应等待retryAfterMillis后再重试或换节点
+ */
+public class BusyResponse extends MessageBody {
+
+    private int retryAfterMillis;
+
+    public BusyResponse() {
+    }
+
+    public BusyResponse(int retryAfterMillis) {
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    public int getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
+
+    public void setRetryAfterMillis(int retryAfterMillis) {
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    @Override
+    public MessageType getMessageType() {
+        return MessageType.SERVER_BUSY_RESPONSE;
+    }
+
+    @Override
+    public String toString() {
+        return "BusyResponse{" +
+                "retryAfterMillis=" + retryAfterMillis +
+                '}';
+    }
+}
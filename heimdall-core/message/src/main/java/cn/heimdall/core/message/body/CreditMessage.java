@@ -0,0 +1,40 @@
+package cn.heimdall.core.message.body;
+
+import cn.heimdall.core.message.MessageBody;
+import cn.heimdall.core.message.MessageType;
+
+/**
+ * 服务端授予的发送额度，该连接上累计发送的数据类请求数不能超过limit
+ * limit按服务端已处理完的请求数加上按处理队列深度计算的窗口得到
+ */
+public class CreditMessage extends MessageBody {
+
+    private long limit;
+
+    public CreditMessage() {
+    }
+
+    public CreditMessage(long limit) {
+        this.limit = limit;
+    }
+
+    public long getLimit() {
+        return limit;
+    }
+
+    public void setLimit(long limit) {
+        this.limit = limit;
+    }
+
+    @Override
+    public MessageType getMessageType() {
+        return MessageType.CREDIT_GRANT;
+    }
+
+    @Override
+    public String toString() {
+        return "CreditMessage{" +
+                "limit=" + limit +
+                '}';
+    }
+}
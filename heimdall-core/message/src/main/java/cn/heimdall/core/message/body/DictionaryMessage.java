@@ -0,0 +1,40 @@
+package cn.heimdall.core.message.body;
+
+import cn.heimdall.core.message.MessageBody;
+import cn.heimdall.core.message.MessageType;
+import cn.heimdall.core.message.compress.CompressionDictionary;
+
+/**
+ * 把压缩字典发给对端，对端确认后这条连接上才使用该字典压缩
+ */
+public class DictionaryMessage extends MessageBody {
+
+    private CompressionDictionary dictionary;
+
+    public DictionaryMessage() {
+    }
+
+    public DictionaryMessage(CompressionDictionary dictionary) {
+        this.dictionary = dictionary;
+    }
+
+    public CompressionDictionary getDictionary() {
+        return dictionary;
+    }
+
+    public void setDictionary(CompressionDictionary dictionary) {
+        this.dictionary = dictionary;
+    }
+
+    @Override
+    public MessageType getMessageType() {
+        return MessageType.DICTIONARY_SYNC_REQUEST;
+    }
+
+    @Override
+    public String toString() {
+        return "DictionaryMessage{" +
+                "dictionary=" + dictionary +
+                '}';
+    }
+}
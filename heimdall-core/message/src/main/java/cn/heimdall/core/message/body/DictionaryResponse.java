@@ -0,0 +1,10 @@
+package cn.heimdall.core.message.body;
+
+import cn.heimdall.core.message.MessageType;
+
+public class DictionaryResponse extends MessageResponse {
+    @Override
+    public MessageType getMessageType() {
+        return MessageType.DICTIONARY_SYNC_RESPONSE;
+    }
+}
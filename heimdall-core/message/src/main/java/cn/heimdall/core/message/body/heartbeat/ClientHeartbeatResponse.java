@@ -1,6 +1,7 @@
 package cn.heimdall.core.message.body.heartbeat;
 
 import cn.heimdall.core.message.MessageType;
+import cn.heimdall.core.message.compress.CompressionDictionary;
 import cn.heimdall.core.utils.enums.NodeRole;
 import cn.heimdall.core.message.body.MessageResponse;
 
@@ -14,6 +15,9 @@ public class ClientHeartbeatResponse  extends MessageResponse {
 
     private Map<NodeRole, Map<InetSocketAddress, Long>> addresses;
 
+    //应用当前应使用的压缩字典，为null时停用字典
+    private CompressionDictionary dictionary;
+
     public Map<NodeRole, Map<InetSocketAddress, Long>> getAddresses() {
         return addresses;
     }
@@ -38,6 +42,14 @@ public class ClientHeartbeatResponse  extends MessageResponse {
         this.port = port;
     }
 
+    public CompressionDictionary getDictionary() {
+        return dictionary;
+    }
+
+    public void setDictionary(CompressionDictionary dictionary) {
+        this.dictionary = dictionary;
+    }
+
     @Override
     public MessageType getMessageType() {
         return MessageType.CLIENT_HEARTBEAT_RESPONSE;
@@ -49,6 +61,7 @@ public class ClientHeartbeatResponse  extends MessageResponse {
                 "host='" + host + '\'' +
                 ", port='" + port + '\'' +
                 ", addresses=" + addresses +
+                ", dictionary=" + dictionary +
                 '}' + super.toString();
     }
 }
@@ -4,17 +4,25 @@ import cn.heimdall.core.message.MessageType;
 import cn.heimdall.core.message.body.MessageResponse;
 import cn.heimdall.core.message.trace.EventLog;
 import cn.heimdall.core.message.trace.SpanLog;
+import cn.heimdall.core.message.serializer.StringTable;
 import io.netty.buffer.ByteBuf;
+import io.netty.util.ReferenceCounted;
 
 import java.util.ArrayList;
 import java.util.List;
 
 /**
  * 客户端形成的消息树
+ * compute接收时为flyweight模式，span和event保留在byteBuf中，通过TraceLogCursor读取，
+ * byteBuf按分析任务数retain，最后一个任务处理完后释放
  */
-public class MessageTreeRequest extends ClientMessageRequest {
+public class MessageTreeRequest extends ClientMessageRequest implements ReferenceCounted {
 
-    private ByteBuf byteBuf;
+    //span和event列表的原始字节，为null时使用eventLogs和spanLogs
+    private transient ByteBuf byteBuf;
+
+    //解析byteBuf中字符串id用的只读字符串表
+    private transient StringTable stringTable;
 
     private String messageId;
 
@@ -47,6 +55,18 @@ public class MessageTreeRequest extends ClientMessageRequest {
         this.byteBuf = byteBuf;
     }
 
+    public StringTable getStringTable() {
+        return stringTable;
+    }
+
+    public void setStringTable(StringTable stringTable) {
+        this.stringTable = stringTable;
+    }
+
+    public boolean isView() {
+        return byteBuf != null;
+    }
+
     public String getMessageId() {
         return messageId;
     }
@@ -71,6 +91,13 @@ public class MessageTreeRequest extends ClientMessageRequest {
         this.rootMessageId = rootMessageId;
     }
 
+    /**
+     * 链路id，根消息没有rootMessageId，使用自身的id
+     */
+    public String getTraceId() {
+        return rootMessageId == null ? messageId : rootMessageId;
+    }
+
     public String getThreadGroupName() {
         return threadGroupName;
     }
@@ -119,6 +146,58 @@ public class MessageTreeRequest extends ClientMessageRequest {
         this.spanLogs = spanLogs;
     }
 
+    @Override
+    public int estimateSize() {
+        if (byteBuf != null) {
+            return byteBuf.readableBytes();
+        }
+        return super.estimateSize() * Math.max(spanLogs.size() + eventLogs.size(), 1);
+    }
+
+    @Override
+    public int refCnt() {
+        return byteBuf == null ? 1 : byteBuf.refCnt();
+    }
+
+    @Override
+    public MessageTreeRequest retain() {
+        if (byteBuf != null) {
+            byteBuf.retain();
+        }
+        return this;
+    }
+
+    @Override
+    public MessageTreeRequest retain(int increment) {
+        if (byteBuf != null) {
+            byteBuf.retain(increment);
+        }
+        return this;
+    }
+
+    @Override
+    public MessageTreeRequest touch() {
+        return touch(null);
+    }
+
+    @Override
+    public MessageTreeRequest touch(Object hint) {
+        if (byteBuf != null) {
+            byteBuf.touch(hint);
+        }
+        return this;
+    }
+
+    @Override
+    public boolean release() {
+        return byteBuf != null && byteBuf.release();
+    }
+
+    @Override
+    public boolean release(int decrement) {
+        return byteBuf != null && byteBuf.release(decrement);
+    }
+
     @Override
     public MessageType getMessageType() {
         return MessageType.MESSAGE_TREE_REQUEST;
@@ -5,12 +5,16 @@ import cn.heimdall.core.message.MessageType;
 import cn.heimdall.core.message.body.GuarderMessageRequest;
 import cn.heimdall.core.message.body.MessageResponse;
 
+import java.util.List;
+
 /**
  * 客户端注册请求body
  */
 public class AppRegisterRequest extends GuarderMessageRequest {
     private String appName;
     private String ip;
+    //本地支持的压缩方式，按优先级排列
+    private List<String> compressors;
 
     public AppRegisterRequest(String appName, String ip) {
         this.appName = appName;
@@ -49,11 +53,21 @@ public class AppRegisterRequest extends GuarderMessageRequest {
         return this;
     }
 
+    public List<String> getCompressors() {
+        return compressors;
+    }
+
+    public AppRegisterRequest setCompressors(List<String> compressors) {
+        this.compressors = compressors;
+        return this;
+    }
+
     @Override
     public String toString() {
         return "ClientRegisterRequest{" +
                 "appName='" + appName + '\'' +
                 ", ip='" + ip + '\'' +
+                ", compressors=" + compressors +
                 '}';
     }
 }
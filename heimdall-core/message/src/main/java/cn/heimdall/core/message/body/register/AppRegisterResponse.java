@@ -1,6 +1,7 @@
 package cn.heimdall.core.message.body.register;
 
 import cn.heimdall.core.message.MessageType;
+import cn.heimdall.core.message.compress.CompressionDictionary;
 import cn.heimdall.core.utils.enums.NodeRole;
 import cn.heimdall.core.message.body.MessageResponse;
 
@@ -13,6 +14,10 @@ import java.util.Map;
 public class AppRegisterResponse extends MessageResponse {
 
     private Map<NodeRole, Map<InetSocketAddress, Long>> addresses;
+    //guarder协商出的压缩方式
+    private String compressor;
+    //应用所属domain的压缩字典
+    private CompressionDictionary dictionary;
 
     @Override
     public MessageType getMessageType() {
@@ -28,10 +33,30 @@ public class AppRegisterResponse extends MessageResponse {
         return this;
     }
 
+    public String getCompressor() {
+        return compressor;
+    }
+
+    public AppRegisterResponse setCompressor(String compressor) {
+        this.compressor = compressor;
+        return this;
+    }
+
+    public CompressionDictionary getDictionary() {
+        return dictionary;
+    }
+
+    public AppRegisterResponse setDictionary(CompressionDictionary dictionary) {
+        this.dictionary = dictionary;
+        return this;
+    }
+
     @Override
     public String toString() {
         return "ClientRegisterResponse{" +
                 "addresses=" + addresses +
+                ", compressor='" + compressor + '\'' +
+                ", dictionary=" + dictionary +
                 '}' + super.toString();
     }
 }
@@ -14,6 +14,8 @@ public class NodeRegisterRequest extends GuarderMessageRequest {
     private List<NodeRole> nodeRoles;
     private String ip;
     private int host;
+    //本地支持的压缩方式，按优先级排列
+    private List<String> compressors;
 
     public NodeRegisterRequest(List<NodeRole> nodeRoles, String ip) {
         this.nodeRoles = nodeRoles;
@@ -45,6 +47,14 @@ public class NodeRegisterRequest extends GuarderMessageRequest {
     }
 
 
+    public List<String> getCompressors() {
+        return compressors;
+    }
+
+    public void setCompressors(List<String> compressors) {
+        this.compressors = compressors;
+    }
+
     @Override
     public MessageType getMessageType() {
         return MessageType.NODE_REGISTER_REQUEST;
@@ -61,6 +71,7 @@ public class NodeRegisterRequest extends GuarderMessageRequest {
                 "nodeRoles=" + nodeRoles +
                 ", ip='" + ip + '\'' +
                 ", host=" + host +
+                ", compressors=" + compressors +
                 '}';
     }
 }
@@ -1,10 +1,12 @@
 package cn.heimdall.core.message.body.register;
 
 import cn.heimdall.core.message.MessageType;
+import cn.heimdall.core.message.compress.CompressionDictionary;
 import cn.heimdall.core.utils.enums.NodeRole;
 import cn.heimdall.core.message.body.MessageResponse;
 
 import java.net.InetSocketAddress;
+import java.util.List;
 import java.util.Map;
 
 public class NodeRegisterResponse extends MessageResponse {
@@ -14,6 +16,10 @@ public class NodeRegisterResponse extends MessageResponse {
     private String port;
 
     private Map<NodeRole, Map<InetSocketAddress, Long>> addresses;
+    //guarder协商出的压缩方式
+    private String compressor;
+    //已训练的压缩字典
+    private List<CompressionDictionary> dictionaries;
 
     public NodeRegisterResponse(boolean identified) {
         this.identified = identified;
@@ -62,6 +68,24 @@ public class NodeRegisterResponse extends MessageResponse {
         return this;
     }
 
+    public String getCompressor() {
+        return compressor;
+    }
+
+    public NodeRegisterResponse setCompressor(String compressor) {
+        this.compressor = compressor;
+        return this;
+    }
+
+    public List<CompressionDictionary> getDictionaries() {
+        return dictionaries;
+    }
+
+    public NodeRegisterResponse setDictionaries(List<CompressionDictionary> dictionaries) {
+        this.dictionaries = dictionaries;
+        return this;
+    }
+
     @Override
     public MessageType getMessageType() {
         return MessageType.NODE_REGISTER_RESPONSE;
@@ -75,6 +99,8 @@ public class NodeRegisterResponse extends MessageResponse {
                 ", host='" + host + '\'' +
                 ", port='" + port + '\'' +
                 ", addresses=" + addresses +
+                ", compressor='" + compressor + '\'' +
+                ", dictionaries=" + dictionaries +
                 '}' + super.toString();
     }
 }
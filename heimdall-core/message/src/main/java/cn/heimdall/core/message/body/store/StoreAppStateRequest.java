@@ -57,6 +57,15 @@ public class StoreAppStateRequest extends AbstractStoreRequest {
         this.timeStamp = timeStamp;
     }
 
+    @Override
+    public int estimateSize() {
+        return super.estimateSize() + length(gcJson) + length(sysJson) + length(threadJson);
+    }
+
+    private static int length(String json) {
+        return json == null ? 0 : json.length();
+    }
+
     @Override
     public MessageType getMessageType() {
         return MessageType.STORE_APP_STATE_REQUEST;
@@ -64,7 +73,7 @@ public class StoreAppStateRequest extends AbstractStoreRequest {
 
     @Override
     public MessageResponse handle() {
-        return null;
+        return inboundHandler.handle(this);
     }
 
     public static RpcMessage getRpcMessage(AppStateRequest appStateRequest) {
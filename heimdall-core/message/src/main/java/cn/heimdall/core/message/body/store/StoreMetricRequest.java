@@ -24,7 +24,7 @@ public class StoreMetricRequest extends AbstractStoreRequest {
 
     @Override
     public MessageResponse handle() {
-        return null;
+        return inboundHandler.handle(this);
     }
 
 
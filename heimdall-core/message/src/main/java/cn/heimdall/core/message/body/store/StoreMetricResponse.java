@@ -1,9 +1,9 @@
 package cn.heimdall.core.message.body.store;
 
-import cn.heimdall.core.message.MessageBody;
 import cn.heimdall.core.message.MessageType;
+import cn.heimdall.core.message.body.MessageResponse;
 
-public class StoreMetricResponse extends MessageBody {
+public class StoreMetricResponse extends MessageResponse {
     @Override
     public MessageType getMessageType() {
         return MessageType.STORE_METRIC_RESPONSE;
@@ -3,19 +3,29 @@ package cn.heimdall.core.message.body.store;
 import cn.heimdall.core.message.MessageType;
 import cn.heimdall.core.message.RpcMessage;
 import cn.heimdall.core.message.body.MessageResponse;
+import cn.heimdall.core.message.body.origin.MessageTreeRequest;
+import cn.heimdall.core.message.serializer.StringTable;
 import cn.heimdall.core.message.trace.EventLog;
 import cn.heimdall.core.message.trace.SpanLog;
+import io.netty.buffer.ByteBuf;
+import io.netty.util.ReferenceCounted;
 
 import java.util.List;
 
 /**
  * 存储tracelog请求body
+ * 透传模式下不带spanLogs和eventLogs，而是直接转发消息树中span和event的原始字节
  */
-public class StoreTraceRequest extends AbstractStoreRequest {
+public class StoreTraceRequest extends AbstractStoreRequest implements ReferenceCounted {
     private String traceId;
     private List<SpanLog> spanLogs;
     private List<EventLog> eventLogs;
 
+    //透传的原始字节，编码后由ProtocolEncoder释放，存储端处理完后释放
+    private transient ByteBuf traceBytes;
+    //解析traceBytes中字符串id用的只读字符串表，为null表示没有使用字符串表
+    private transient StringTable stringTable;
+
     public List<SpanLog> getSpanLogs() {
         return spanLogs;
     }
@@ -40,6 +50,79 @@ public class StoreTraceRequest extends AbstractStoreRequest {
         this.traceId = traceId;
     }
 
+    public ByteBuf getTraceBytes() {
+        return traceBytes;
+    }
+
+    public void setTraceBytes(ByteBuf traceBytes) {
+        this.traceBytes = traceBytes;
+    }
+
+    public StringTable getStringTable() {
+        return stringTable;
+    }
+
+    public void setStringTable(StringTable stringTable) {
+        this.stringTable = stringTable;
+    }
+
+    public boolean isPassThrough() {
+        return traceBytes != null;
+    }
+
+    @Override
+    public int estimateSize() {
+        if (traceBytes != null) {
+            return traceBytes.readableBytes();
+        }
+        int logs = (spanLogs == null ? 0 : spanLogs.size()) + (eventLogs == null ? 0 : eventLogs.size());
+        return super.estimateSize() * Math.max(logs, 1);
+    }
+
+    @Override
+    public int refCnt() {
+        return traceBytes == null ? 1 : traceBytes.refCnt();
+    }
+
+    @Override
+    public StoreTraceRequest retain() {
+        if (traceBytes != null) {
+            traceBytes.retain();
+        }
+        return this;
+    }
+
+    @Override
+    public StoreTraceRequest retain(int increment) {
+        if (traceBytes != null) {
+            traceBytes.retain(increment);
+        }
+        return this;
+    }
+
+    @Override
+    public StoreTraceRequest touch() {
+        return touch(null);
+    }
+
+    @Override
+    public StoreTraceRequest touch(Object hint) {
+        if (traceBytes != null) {
+            traceBytes.touch(hint);
+        }
+        return this;
+    }
+
+    @Override
+    public boolean release() {
+        return traceBytes != null && traceBytes.release();
+    }
+
+    @Override
+    public boolean release(int decrement) {
+        return traceBytes != null && traceBytes.release(decrement);
+    }
+
     @Override
     public MessageType getMessageType() {
         return MessageType.STORE_TRANCE_LOG_REQUEST;
@@ -47,7 +130,7 @@ public class StoreTraceRequest extends AbstractStoreRequest {
 
     @Override
     public MessageResponse handle() {
-        return null;
+        return inboundHandler.handle(this);
     }
 
     public static RpcMessage getRpcMessage(List<SpanLog> spanLogs, List<EventLog> eventLogs) {
@@ -57,4 +140,18 @@ public class StoreTraceRequest extends AbstractStoreRequest {
         return new RpcMessage(request);
     }
 
+    /**
+     * 透传flyweight模式的消息树，不重新序列化span和event
+     */
+    public static RpcMessage getRpcMessage(MessageTreeRequest tree, String computeIp) {
+        StoreTraceRequest request = new StoreTraceRequest();
+        request.setComputeIp(computeIp);
+        request.setAppName(tree.getDomain());
+        request.setAddressIp(tree.getIp());
+        request.setTraceId(tree.getTraceId());
+        request.setStringTable(tree.getStringTable());
+        request.setTraceBytes(tree.getByteBuf().retainedDuplicate());
+        return new RpcMessage(request);
+    }
+
 }
@@ -1,12 +1,12 @@
 package cn.heimdall.core.message.body.store;
 
-import cn.heimdall.core.message.MessageBody;
 import cn.heimdall.core.message.MessageType;
+import cn.heimdall.core.message.body.MessageResponse;
 
 /**
  * 存储tracelog返回body
  */
-public class StoreTraceResponse extends MessageBody {
+public class StoreTraceResponse extends MessageResponse {
     @Override
     public MessageType getMessageType() {
         return MessageType.STORE_TRANCE_LOG_RESPONSE;
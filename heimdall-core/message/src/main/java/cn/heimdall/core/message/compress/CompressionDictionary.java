@@ -0,0 +1,53 @@
+package cn.heimdall.core.message.compress;
+
+/**
+ * 压缩字典，按domain训练，用id区分不同版本
+ */
+public class CompressionDictionary {
+
+    private int id;
+    private String domain;
+    private byte[] data;
+
+    public CompressionDictionary() {
+    }
+
+    public CompressionDictionary(int id, String domain, byte[] data) {
+        this.id = id;
+        this.domain = domain;
+        this.data = data;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public void setId(int id) {
+        this.id = id;
+    }
+
+    public String getDomain() {
+        return domain;
+    }
+
+    public void setDomain(String domain) {
+        this.domain = domain;
+    }
+
+    public byte[] getData() {
+        return data;
+    }
+
+    public void setData(byte[] data) {
+        this.data = data;
+    }
+
+    @Override
+    public String toString() {
+        return "CompressionDictionary{" +
+                "id=" + id +
+                ", domain='" + domain + '\'' +
+                ", size=" + (data == null ? 0 : data.length) +
+                '}';
+    }
+}
@@ -1,10 +1,37 @@
 package cn.heimdall.core.message.compress;
 
 
+import io.netty.buffer.ByteBuf;
+
 public interface Compressor {
 
     byte[] compress(byte[] bytes);
 
     byte[] decompress(byte[] bytes);
 
+    /**
+     * 压缩in中可读的全部字节并写入out，默认实现经过byte[]中转
+     */
+    default void compress(ByteBuf in, ByteBuf out) {
+        byte[] bytes = new byte[in.readableBytes()];
+        in.readBytes(bytes);
+        out.writeBytes(compress(bytes));
+    }
+
+    /**
+     * 使用对端已确认的字典压缩，不支持字典的实现忽略dictionary
+     */
+    default void compress(ByteBuf in, ByteBuf out, CompressionDictionary dictionary) {
+        compress(in, out);
+    }
+
+    /**
+     * 解压in中可读的全部字节并写入out
+     */
+    default void decompress(ByteBuf in, ByteBuf out) {
+        byte[] bytes = new byte[in.readableBytes()];
+        in.readBytes(bytes);
+        out.writeBytes(decompress(bytes));
+    }
+
 }
@@ -3,6 +3,9 @@ package cn.heimdall.core.message.compress;
 
 
 import cn.heimdall.core.utils.common.CollectionUtil;
+import cn.heimdall.core.utils.exception.SpiNotFoundException;
+import cn.heimdall.core.utils.spi.EnhancedServiceLoader;
+import io.netty.buffer.ByteBuf;
 
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -17,9 +20,23 @@ public class CompressorFactory {
     }
 
     public static Compressor getCompressor(byte code) {
-        CompressorType type = CompressorType.getByCode(code);
+        return getCompressor(CompressorType.getByCode(code));
+    }
+
+    public static Compressor getCompressor(CompressorType type) {
         return CollectionUtil.computeIfAbsent(COMPRESSOR_MAP, type,
-            key -> null);
+            key -> EnhancedServiceLoader.load(Compressor.class, key.getLoadLevelName()));
+    }
+
+    /**
+     * 本地classpath中是否有该压缩实现
+     */
+    public static boolean isSupported(CompressorType type) {
+        try {
+            return getCompressor(type) != null;
+        } catch (SpiNotFoundException e) {
+            return false;
+        }
     }
 
     public static class NoneCompressor implements Compressor {
@@ -32,6 +49,16 @@ public class CompressorFactory {
         public byte[] decompress(byte[] bytes) {
             return bytes;
         }
+
+        @Override
+        public void compress(ByteBuf in, ByteBuf out) {
+            out.writeBytes(in);
+        }
+
+        @Override
+        public void decompress(ByteBuf in, ByteBuf out) {
+            out.writeBytes(in);
+        }
     }
 
 }
@@ -0,0 +1,97 @@
+package cn.heimdall.core.message.compress;
+
+import cn.heimdall.core.config.NetworkConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 注册时协商压缩方式
+ * 注册方带上本地支持的压缩方式列表，guarder选出双方都支持的第一个返回
+ */
+public class CompressorNegotiator {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CompressorNegotiator.class);
+
+    private static volatile CompressorNegotiator INSTANCE;
+
+    //本地支持的压缩方式，按配置的优先级排列
+    private final List<String> supportedCompressors;
+
+    private volatile CompressorType negotiated = CompressorType.NONE;
+
+    public CompressorNegotiator() {
+        List<String> compressors = new ArrayList<>();
+        for (String name : NetworkConfig.getCompressor().split(",")) {
+            CompressorType type = toType(name.trim());
+            if (type != null && type != CompressorType.NONE && CompressorFactory.isSupported(type)) {
+                compressors.add(type.getLoadLevelName());
+            }
+        }
+        this.supportedCompressors = Collections.unmodifiableList(compressors);
+    }
+
+    public static CompressorNegotiator getInstance() {
+        if (INSTANCE == null) {
+            synchronized (CompressorNegotiator.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new CompressorNegotiator();
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    public List<String> getSupportedCompressors() {
+        return supportedCompressors;
+    }
+
+    /**
+     * guarder侧选出双方都支持的压缩方式，没有则不压缩
+     */
+    public String choose(List<String> peerCompressors) {
+        if (peerCompressors == null) {
+            return CompressorType.NONE.getLoadLevelName();
+        }
+        for (String name : supportedCompressors) {
+            if (peerCompressors.contains(name)) {
+                return name;
+            }
+        }
+        return CompressorType.NONE.getLoadLevelName();
+    }
+
+    /**
+     * 注册成功后记录协商结果，之后本节点主动发出的请求使用该压缩方式
+     */
+    public void onNegotiated(String name) {
+        CompressorType type = toType(name);
+        if (type == null || (type != CompressorType.NONE && !supportedCompressors.contains(type.getLoadLevelName()))) {
+            LOGGER.warn("negotiated compressor {} is not supported locally, disable compression", name);
+            type = CompressorType.NONE;
+        }
+        if (negotiated != type && LOGGER.isInfoEnabled()) {
+            LOGGER.info("negotiated compressor changed from {} to {}", negotiated, type);
+        }
+        this.negotiated = type;
+    }
+
+    public byte getNegotiated() {
+        return negotiated.getCode();
+    }
+
+    private static CompressorType toType(String name) {
+        if (name == null || name.isEmpty()) {
+            return null;
+        }
+        try {
+            return CompressorType.getByName(name);
+        } catch (IllegalArgumentException e) {
+            LOGGER.warn("unknown compressor {}", name);
+            return null;
+        }
+    }
+}
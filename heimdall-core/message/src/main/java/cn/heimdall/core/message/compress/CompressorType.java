@@ -1,24 +1,44 @@
 package cn.heimdall.core.message.compress;
 
+import cn.heimdall.core.utils.constants.LoadLevelConstants;
+
 public enum CompressorType {
-    NONE((byte) 0),
+    NONE((byte) 0, LoadLevelConstants.COMPRESSOR_NONE),
+
+    LZ4((byte) 5, LoadLevelConstants.COMPRESSOR_LZ4),
 
-    LZ4((byte) 5);
+    //带字典的zstd，字典由compute节点训练
+    ZSTD((byte) 6, LoadLevelConstants.COMPRESSOR_ZSTD);
 
     private final byte code;
+    private final String loadLevelName;
 
-    CompressorType(final byte code) {
+    CompressorType(final byte code, final String loadLevelName) {
         this.code = code;
+        this.loadLevelName = loadLevelName;
+    }
+
+    //编码都是很小的非负数，按下标直接取
+    private static final CompressorType[] CODES;
+
+    static {
+        int max = 0;
+        for (CompressorType type : values()) {
+            max = Math.max(max, type.code);
+        }
+        CODES = new CompressorType[max + 1];
+        for (CompressorType type : values()) {
+            CODES[type.code] = type;
+        }
     }
 
 
     public static CompressorType getByCode(int code) {
-        for (CompressorType b : CompressorType.values()) {
-            if (code == b.code) {
-                return b;
-            }
+        CompressorType type = code >= 0 && code < CODES.length ? CODES[code] : null;
+        if (type == null) {
+            throw new IllegalArgumentException("unknown codec:" + code);
         }
-        throw new IllegalArgumentException("unknown codec:" + code);
+        return type;
     }
 
 
@@ -34,4 +54,8 @@ public enum CompressorType {
     public byte getCode() {
         return code;
     }
+
+    public String getLoadLevelName() {
+        return loadLevelName;
+    }
 }
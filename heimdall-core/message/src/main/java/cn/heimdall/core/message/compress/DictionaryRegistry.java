@@ -0,0 +1,84 @@
+package cn.heimdall.core.message.compress;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 本节点已知的压缩字典
+ * 解压时按帧里的字典id查找，压缩时使用当前激活的字典
+ */
+public class DictionaryRegistry {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DictionaryRegistry.class);
+
+    private static volatile DictionaryRegistry INSTANCE;
+
+    //旧字典仍可能被尚未重新注册的客户端使用，所以按id全部保留
+    private final Map<Integer, CompressionDictionary> dictionaries = new ConcurrentHashMap<>();
+
+    private final Map<String, CompressionDictionary> latestByDomain = new ConcurrentHashMap<>();
+
+    private volatile CompressionDictionary active;
+
+    public static DictionaryRegistry getInstance() {
+        if (INSTANCE == null) {
+            synchronized (DictionaryRegistry.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new DictionaryRegistry();
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    public void register(CompressionDictionary dictionary) {
+        if (dictionary == null || dictionary.getId() == 0 || dictionary.getData() == null) {
+            return;
+        }
+        if (dictionaries.putIfAbsent(dictionary.getId(), dictionary) == null) {
+            latestByDomain.put(dictionary.getDomain(), dictionary);
+            if (LOGGER.isInfoEnabled()) {
+                LOGGER.info("register compression dictionary {}", dictionary);
+            }
+        }
+    }
+
+    public void register(List<CompressionDictionary> dictionaries) {
+        if (dictionaries != null) {
+            dictionaries.forEach(this::register);
+        }
+    }
+
+    /**
+     * 注册并作为本节点压缩时使用的字典，传入null时停用字典
+     */
+    public void activate(CompressionDictionary dictionary) {
+        if (dictionary == null) {
+            this.active = null;
+            return;
+        }
+        register(dictionary);
+        this.active = dictionaries.get(dictionary.getId());
+    }
+
+    public CompressionDictionary getActive() {
+        return active;
+    }
+
+    public CompressionDictionary get(int id) {
+        return dictionaries.get(id);
+    }
+
+    public CompressionDictionary getByDomain(String domain) {
+        return domain == null ? null : latestByDomain.get(domain);
+    }
+
+    public List<CompressionDictionary> getAll() {
+        return new ArrayList<>(dictionaries.values());
+    }
+}
@@ -0,0 +1,11 @@
+package cn.heimdall.core.message.compress;
+
+import java.util.List;
+
+/**
+ * 根据采样数据训练压缩字典
+ */
+public interface DictionaryTrainer {
+
+    CompressionDictionary train(String domain, List<byte[]> samples, int dictionarySize);
+}
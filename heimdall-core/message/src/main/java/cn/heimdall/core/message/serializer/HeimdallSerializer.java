@@ -0,0 +1,666 @@
+package cn.heimdall.core.message.serializer;
+
+import cn.heimdall.core.message.MessageBody;
+import cn.heimdall.core.message.MessageType;
+import cn.heimdall.core.message.body.MessageResponse;
+import cn.heimdall.core.message.body.AckMessage;
+import cn.heimdall.core.message.body.BatchMessage;
+import cn.heimdall.core.message.body.BatchResponse;
+import cn.heimdall.core.message.body.BusyResponse;
+import cn.heimdall.core.message.body.CreditMessage;
+import cn.heimdall.core.message.body.DictionaryMessage;
+import cn.heimdall.core.message.body.DictionaryResponse;
+import cn.heimdall.core.message.body.PingMessage;
+import cn.heimdall.core.message.body.action.QueryAppStateRequest;
+import cn.heimdall.core.message.body.action.QueryAppStateResponse;
+import cn.heimdall.core.message.body.action.QueryMetricRequest;
+import cn.heimdall.core.message.body.action.QueryMetricResponse;
+import cn.heimdall.core.message.body.action.QueryTraceRequest;
+import cn.heimdall.core.message.body.action.QueryTraceResponse;
+import cn.heimdall.core.message.body.heartbeat.ClientHeartbeatRequest;
+import cn.heimdall.core.message.body.heartbeat.ClientHeartbeatResponse;
+import cn.heimdall.core.message.body.heartbeat.NodeHeartbeatRequest;
+import cn.heimdall.core.message.body.heartbeat.NodeHeartbeatResponse;
+import cn.heimdall.core.message.body.origin.AppStateRequest;
+import cn.heimdall.core.message.body.origin.AppStateResponse;
+import cn.heimdall.core.message.body.origin.ClientMessageRequest;
+import cn.heimdall.core.message.body.origin.MessageTreeRequest;
+import cn.heimdall.core.message.body.origin.MessageTreeResponse;
+import cn.heimdall.core.message.body.register.AppRegisterRequest;
+import cn.heimdall.core.message.body.register.AppRegisterResponse;
+import cn.heimdall.core.message.body.register.NodeRegisterRequest;
+import cn.heimdall.core.message.body.register.NodeRegisterResponse;
+import cn.heimdall.core.message.body.store.AbstractStoreRequest;
+import cn.heimdall.core.message.body.store.StoreAppStateRequest;
+import cn.heimdall.core.message.body.store.StoreAppStateResponse;
+import cn.heimdall.core.message.body.store.StoreMetricRequest;
+import cn.heimdall.core.message.body.store.StoreMetricResponse;
+import cn.heimdall.core.message.body.store.StoreTraceRequest;
+import cn.heimdall.core.message.body.store.StoreTraceResponse;
+import cn.heimdall.core.message.body.store.search.SearchAppStateRequest;
+import cn.heimdall.core.message.body.store.search.SearchAppStateResponse;
+import cn.heimdall.core.message.body.store.search.SearchMetricRequest;
+import cn.heimdall.core.message.body.store.search.SearchMetricResponse;
+import cn.heimdall.core.message.body.store.search.SearchTraceRequest;
+import cn.heimdall.core.message.body.store.search.SearchTraceResponse;
+import cn.heimdall.core.message.compress.CompressionDictionary;
+import cn.heimdall.core.message.metric.EventMetricKey;
+import cn.heimdall.core.message.metric.MetricKey;
+import cn.heimdall.core.message.metric.MetricNode;
+import cn.heimdall.core.message.metric.SpanMetricKey;
+import cn.heimdall.core.message.trace.EventLog;
+import cn.heimdall.core.message.trace.SpanLog;
+import cn.heimdall.core.message.trace.TraceLog;
+import cn.heimdall.core.utils.annotation.LoadLevel;
+import cn.heimdall.core.utils.constants.LoadLevelConstants;
+import cn.heimdall.core.utils.enums.MetricType;
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.CorruptedFrameException;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static cn.heimdall.core.message.serializer.SerializerUtil.readAddresses;
+import static cn.heimdall.core.message.serializer.SerializerUtil.readBoolean;
+import static cn.heimdall.core.message.serializer.SerializerUtil.readBytes;
+import static cn.heimdall.core.message.serializer.SerializerUtil.readList;
+import static cn.heimdall.core.message.serializer.SerializerUtil.readString;
+import static cn.heimdall.core.message.serializer.SerializerUtil.readTableString;
+import static cn.heimdall.core.message.serializer.SerializerUtil.readVarInt;
+import static cn.heimdall.core.message.serializer.SerializerUtil.readVarLong;
+import static cn.heimdall.core.message.serializer.SerializerUtil.writeAddresses;
+import static cn.heimdall.core.message.serializer.SerializerUtil.writeBoolean;
+import static cn.heimdall.core.message.serializer.SerializerUtil.writeBytes;
+import static cn.heimdall.core.message.serializer.SerializerUtil.writeList;
+import static cn.heimdall.core.message.serializer.SerializerUtil.writeString;
+import static cn.heimdall.core.message.serializer.SerializerUtil.writeTableString;
+import static cn.heimdall.core.message.serializer.SerializerUtil.writeVarInt;
+import static cn.heimdall.core.message.serializer.SerializerUtil.writeVarLong;
+
+/**
+ * heimdall 二进制序列化，每种消息体按字段顺序手写读写，不依赖反射
+ */
+@LoadLevel(name = LoadLevelConstants.SERIALIZER_HEIMDALL)
+public class HeimdallSerializer implements Serializer {
+
+    private static final byte METRIC_KEY_NULL = 0;
+    private static final byte METRIC_KEY_SPAN = 1;
+    private static final byte METRIC_KEY_EVENT = 2;
+
+    private static final Map<Class<?>, BodyCodec<?>> CODECS = new HashMap<>();
+
+    //按消息体类型缓存codec，查找时不需要计算hash
+    private static final ClassValue<BodyCodec<?>> CODEC_CACHE = new ClassValue<BodyCodec<?>>() {
+        @Override
+        protected BodyCodec<?> computeValue(Class<?> type) {
+            return CODECS.get(type);
+        }
+    };
+
+    static {
+        register(PingMessage.class, (body, out) -> writeBoolean(out, body.isPing()),
+            in -> readBoolean(in) ? PingMessage.PING : PingMessage.PONG);
+        register(AckMessage.class, (body, out) -> out.writeInt(body.getWatermark()),
+            in -> new AckMessage(in.readInt()));
+        register(BusyResponse.class, (body, out) -> out.writeInt(body.getRetryAfterMillis()),
+            in -> new BusyResponse(in.readInt()));
+        register(CreditMessage.class, (body, out) -> out.writeLong(body.getLimit()),
+            in -> new CreditMessage(in.readLong()));
+        register(BatchMessage.class, HeimdallSerializer::writeBatch, HeimdallSerializer::readBatch);
+        register(BatchResponse.class, (body, out) -> {
+            writeResponse(out, body);
+            writeList(out, body.getFailedIndexes(), SerializerUtil::writeVarInt);
+        }, in -> {
+            BatchResponse body = readResponse(in, new BatchResponse());
+            //老版本的服务端不带失败的下标
+            if (in.isReadable()) {
+                body.setFailedIndexes(readList(in, SerializerUtil::readVarInt));
+            }
+            return body;
+        });
+        register(DictionaryMessage.class, (body, out) -> writeDictionary(out, body.getDictionary()),
+            in -> new DictionaryMessage(readDictionary(in)));
+        registerResponse(DictionaryResponse.class, DictionaryResponse::new);
+
+        //客户端上报
+        register(AppStateRequest.class, (body, out) -> {
+            writeClientRequest(out, body);
+            writeString(out, body.getGcJson());
+            writeString(out, body.getSysJson());
+            writeString(out, body.getThreadJson());
+        }, in -> {
+            AppStateRequest body = readClientRequest(in, new AppStateRequest());
+            body.setGcJson(readString(in));
+            body.setSysJson(readString(in));
+            body.setThreadJson(readString(in));
+            return body;
+        });
+        register(MessageTreeRequest.class, (body, out) -> {
+            writeClientRequest(out, body);
+            writeString(out, body.getMessageId());
+            writeString(out, body.getParentMessageId());
+            writeString(out, body.getRootMessageId());
+            writeString(out, body.getThreadGroupName());
+            writeString(out, body.getThreadId());
+            writeString(out, body.getThreadName());
+            writeBoolean(out, body.isHitSample());
+            writeList(out, body.getEventLogs(), HeimdallSerializer::writeEventLog);
+            writeList(out, body.getSpanLogs(), HeimdallSerializer::writeSpanLog);
+        }, in -> {
+            MessageTreeRequest body = readClientRequest(in, new MessageTreeRequest());
+            body.setMessageId(readString(in));
+            body.setParentMessageId(readString(in));
+            body.setRootMessageId(readString(in));
+            body.setThreadGroupName(readString(in));
+            body.setThreadId(readString(in));
+            body.setThreadName(readString(in));
+            body.setHitSample(readBoolean(in));
+            body.setEventLogs(readList(in, HeimdallSerializer::readEventLog));
+            body.setSpanLogs(readList(in, HeimdallSerializer::readSpanLog));
+            return body;
+        });
+        registerResponse(AppStateResponse.class, AppStateResponse::new);
+        registerResponse(MessageTreeResponse.class, MessageTreeResponse::new);
+
+        //注册和心跳
+        register(AppRegisterRequest.class, (body, out) -> {
+            writeString(out, body.getAppName());
+            writeString(out, body.getIp());
+            writeList(out, body.getCompressors(), SerializerUtil::writeString);
+        }, in -> new AppRegisterRequest(readString(in), readString(in))
+                .setCompressors(readList(in, SerializerUtil::readString)));
+        register(AppRegisterResponse.class, (body, out) -> {
+            writeResponse(out, body);
+            writeAddresses(out, body.getAddresses());
+            writeString(out, body.getCompressor());
+            writeDictionary(out, body.getDictionary());
+        }, in -> readResponse(in, new AppRegisterResponse()).setAddresses(readAddresses(in))
+                .setCompressor(readString(in)).setDictionary(readDictionary(in)));
+        register(ClientHeartbeatRequest.class, (body, out) -> {
+            writeList(out, body.getNodeRoles(), SerializerUtil::writeNodeRole);
+            writeString(out, body.getIp());
+            writeString(out, body.getAppName());
+            writeVarInt(out, body.getPort());
+        }, in -> {
+            ClientHeartbeatRequest body = new ClientHeartbeatRequest();
+            body.setNodeRoles(readList(in, SerializerUtil::readNodeRole));
+            body.setIp(readString(in));
+            body.setAppName(readString(in));
+            body.setPort(readVarInt(in));
+            return body;
+        });
+        register(ClientHeartbeatResponse.class, (body, out) -> {
+            writeResponse(out, body);
+            writeString(out, body.getHost());
+            writeString(out, body.getPort());
+            writeAddresses(out, body.getAddresses());
+            writeDictionary(out, body.getDictionary());
+        }, in -> {
+            ClientHeartbeatResponse body = readResponse(in, new ClientHeartbeatResponse());
+            body.setHost(readString(in));
+            body.setPort(readString(in));
+            body.setAddresses(readAddresses(in));
+            //老版本的guarder不带字典
+            body.setDictionary(in.isReadable() ? readDictionary(in) : null);
+            return body;
+        });
+        register(NodeRegisterRequest.class, (body, out) -> {
+            writeList(out, body.getNodeRoles(), SerializerUtil::writeNodeRole);
+            writeString(out, body.getIp());
+            writeVarInt(out, body.getHost());
+            writeList(out, body.getCompressors(), SerializerUtil::writeString);
+        }, in -> {
+            NodeRegisterRequest body = new NodeRegisterRequest(readList(in, SerializerUtil::readNodeRole), readString(in));
+            body.setHost(readVarInt(in));
+            body.setCompressors(readList(in, SerializerUtil::readString));
+            return body;
+        });
+        register(NodeRegisterResponse.class, (body, out) -> {
+            writeResponse(out, body);
+            writeBoolean(out, body.isIdentified());
+            writeString(out, body.getExtraData());
+            writeString(out, body.getHost());
+            writeString(out, body.getPort());
+            writeAddresses(out, body.getAddresses());
+            writeString(out, body.getCompressor());
+            writeList(out, body.getDictionaries(), HeimdallSerializer::writeDictionary);
+        }, in -> {
+            NodeRegisterResponse body = readResponse(in, new NodeRegisterResponse(false));
+            body.setIdentified(readBoolean(in));
+            body.setExtraData(readString(in));
+            return body.setHost(readString(in)).setPort(readString(in)).setAddresses(readAddresses(in))
+                    .setCompressor(readString(in)).setDictionaries(readList(in, HeimdallSerializer::readDictionary));
+        });
+        register(NodeHeartbeatRequest.class, (body, out) -> {
+            writeList(out, body.getNodeRoles(), SerializerUtil::writeNodeRole);
+            writeString(out, body.getIp());
+            writeVarInt(out, body.getPort());
+        }, in -> {
+            NodeHeartbeatRequest body = new NodeHeartbeatRequest();
+            body.setNodeRoles(readList(in, SerializerUtil::readNodeRole));
+            body.setIp(readString(in));
+            body.setPort(readVarInt(in));
+            return body;
+        });
+        register(NodeHeartbeatResponse.class, (body, out) -> {
+            writeResponse(out, body);
+            writeString(out, body.getHost());
+            writeString(out, body.getPort());
+            writeAddresses(out, body.getAddresses());
+        }, in -> {
+            NodeHeartbeatResponse body = readResponse(in, new NodeHeartbeatResponse());
+            body.setHost(readString(in));
+            body.setPort(readString(in));
+            body.setAddresses(readAddresses(in));
+            return body;
+        });
+
+        //存储
+        register(StoreTraceRequest.class, (body, out) -> {
+            writeStoreRequest(out, body);
+            writeString(out, body.getTraceId());
+            writeList(out, body.getSpanLogs(), HeimdallSerializer::writeSpanLog);
+            writeList(out, body.getEventLogs(), HeimdallSerializer::writeEventLog);
+            writeBoolean(out, body.isPassThrough());
+            if (body.isPassThrough()) {
+                writeTraceBytes(out, body.getTraceBytes(), body.getStringTable());
+            }
+        }, in -> {
+            StoreTraceRequest body = new StoreTraceRequest();
+            readStoreRequest(in, body);
+            body.setTraceId(readString(in));
+            body.setSpanLogs(readList(in, HeimdallSerializer::readSpanLog));
+            body.setEventLogs(readList(in, HeimdallSerializer::readEventLog));
+            if (readBoolean(in)) {
+                readTraceBytes(in, body);
+            }
+            return body;
+        });
+        register(StoreMetricRequest.class, (body, out) -> {
+            writeStoreRequest(out, body);
+            writeMetricNode(out, body.getMetricNode());
+        }, in -> {
+            String computeIp = readString(in);
+            String appName = readString(in);
+            String addressIp = readString(in);
+            StoreMetricRequest body = new StoreMetricRequest(readMetricNode(in));
+            body.setComputeIp(computeIp);
+            body.setAppName(appName);
+            body.setAddressIp(addressIp);
+            return body;
+        });
+        register(StoreAppStateRequest.class, (body, out) -> {
+            writeStoreRequest(out, body);
+            writeString(out, body.getGcJson());
+            writeString(out, body.getSysJson());
+            writeString(out, body.getThreadJson());
+            writeString(out, body.getIp());
+            writeBoolean(out, body.getTimeStamp() != null);
+            if (body.getTimeStamp() != null) {
+                writeVarLong(out, body.getTimeStamp());
+            }
+        }, in -> {
+            StoreAppStateRequest body = new StoreAppStateRequest();
+            readStoreRequest(in, body);
+            body.setGcJson(readString(in));
+            body.setSysJson(readString(in));
+            body.setThreadJson(readString(in));
+            body.setIp(readString(in));
+            if (readBoolean(in)) {
+                body.setTimeStamp(readVarLong(in));
+            }
+            return body;
+        });
+        registerEmpty(StoreTraceResponse.class, StoreTraceResponse::new);
+        registerEmpty(StoreMetricResponse.class, StoreMetricResponse::new);
+        registerEmpty(StoreAppStateResponse.class, StoreAppStateResponse::new);
+
+        //查询
+        registerEmpty(SearchAppStateRequest.class, SearchAppStateRequest::new);
+        registerEmpty(SearchMetricRequest.class, SearchMetricRequest::new);
+        register(SearchTraceRequest.class, (body, out) -> writeStoreRequest(out, body),
+            in -> readStoreRequest(in, new SearchTraceRequest()));
+        registerResponse(SearchAppStateResponse.class, SearchAppStateResponse::new);
+        registerResponse(SearchMetricResponse.class, SearchMetricResponse::new);
+        registerResponse(SearchTraceResponse.class, SearchTraceResponse::new);
+        registerEmpty(QueryAppStateRequest.class, QueryAppStateRequest::new);
+        registerEmpty(QueryMetricRequest.class, QueryMetricRequest::new);
+        registerEmpty(QueryTraceRequest.class, QueryTraceRequest::new);
+        registerResponse(QueryAppStateResponse.class, QueryAppStateResponse::new);
+        registerResponse(QueryMetricResponse.class, QueryMetricResponse::new);
+        registerResponse(QueryTraceResponse.class, QueryTraceResponse::new);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void serialize(MessageBody messageBody, ByteBuf out) {
+        BodyCodec<MessageBody> codec = (BodyCodec<MessageBody>) getCodec(messageBody.getClass());
+        codec.writer.accept(messageBody, out);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T extends MessageBody> T deserialize(Class<T> clazz, ByteBuf in) {
+        BodyCodec<T> codec = (BodyCodec<T>) getCodec(clazz);
+        return codec.reader.apply(in);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T extends MessageBody> T deserializeView(Class<T> clazz, ByteBuf in) {
+        if (clazz != MessageTreeRequest.class) {
+            return deserialize(clazz, in);
+        }
+        return (T) readMessageTreeView(in);
+    }
+
+    /**
+     * 读取flyweight模式下保留的event列表
+     */
+    public static List<EventLog> readEventLogs(MessageTreeRequest request) {
+        ByteBuf in = request.getByteBuf().duplicate();
+        return readTraceLogs(request, () -> readList(in, HeimdallSerializer::readEventLog));
+    }
+
+    /**
+     * 读取flyweight模式下保留的span列表
+     */
+    public static List<SpanLog> readSpanLogs(MessageTreeRequest request) {
+        ByteBuf in = request.getByteBuf().duplicate();
+        return readTraceLogs(request, () -> {
+            TraceLogCursor.skipEventLogs(in, request.getStringTable());
+            return readList(in, HeimdallSerializer::readSpanLog);
+        });
+    }
+
+    private static <E> List<E> readTraceLogs(MessageTreeRequest request, Supplier<List<E>> reader) {
+        StringTable.bind(request.getStringTable());
+        try {
+            return reader.get();
+        } finally {
+            StringTable.unbind();
+        }
+    }
+
+    private static MessageTreeRequest readMessageTreeView(ByteBuf in) {
+        MessageTreeRequest body = readClientRequest(in, new MessageTreeRequest());
+        body.setMessageId(readString(in));
+        body.setParentMessageId(readString(in));
+        body.setRootMessageId(readString(in));
+        body.setThreadGroupName(readString(in));
+        body.setThreadId(readString(in));
+        body.setThreadName(readString(in));
+        body.setHitSample(readBoolean(in));
+        //扫描一遍span和event，字符串表中新出现的字符串必须在io线程按顺序登记
+        StringTable table = StringTable.current();
+        int logsIndex = in.readerIndex();
+        TraceLogCursor.skipEventLogs(in, table);
+        TraceLogCursor.skipSpanLogs(in, table);
+        body.setEventLogs(null);
+        body.setSpanLogs(null);
+        body.setStringTable(table == null ? null : table.reader());
+        body.setByteBuf(in.retainedSlice(logsIndex, in.readerIndex() - logsIndex));
+        return body;
+    }
+
+    private static BodyCodec<?> getCodec(Class<?> clazz) {
+        BodyCodec<?> codec = CODEC_CACHE.get(clazz);
+        if (codec == null) {
+            throw new IllegalArgumentException("no heimdall serializer for " + clazz.getName());
+        }
+        return codec;
+    }
+
+    private static <T extends MessageBody> void register(Class<T> clazz, BiConsumer<T, ByteBuf> writer,
+                                                         Function<ByteBuf, T> reader) {
+        CODECS.put(clazz, new BodyCodec<>(writer, reader));
+    }
+
+    private static <T extends MessageResponse> void registerResponse(Class<T> clazz, Supplier<T> constructor) {
+        register(clazz, (body, out) -> writeResponse(out, body), in -> readResponse(in, constructor.get()));
+    }
+
+    private static <T extends MessageBody> void registerEmpty(Class<T> clazz, Supplier<T> constructor) {
+        register(clazz, (body, out) -> { }, in -> constructor.get());
+    }
+
+    /**
+     * 每个子消息体前写类型和长度，读取时按长度切出，消息树仍按flyweight模式读取
+     */
+    @SuppressWarnings("unchecked")
+    private static void writeBatch(BatchMessage batch, ByteBuf out) {
+        writeVarInt(out, batch.size());
+        for (MessageBody body : batch.getBodies()) {
+            out.writeShort(body.getMessageType().getTypeCode());
+            int lengthIndex = out.writerIndex();
+            out.writeInt(0);
+            ((BodyCodec<MessageBody>) getCodec(body.getClass())).writer.accept(body, out);
+            out.setInt(lengthIndex, out.writerIndex() - lengthIndex - 4);
+        }
+    }
+
+    private static BatchMessage readBatch(ByteBuf in) {
+        int size = readVarInt(in);
+        List<MessageBody> bodies = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Class<?> clazz = MessageType.fromTypeCode(in.readShort()).getMessageBodyClass();
+            ByteBuf body = in.readSlice(in.readInt());
+            bodies.add(clazz == MessageTreeRequest.class ? readMessageTreeView(body)
+                    : (MessageBody) getCodec(clazz).reader.apply(body));
+        }
+        return new BatchMessage(bodies);
+    }
+
+    private static void writeResponse(ByteBuf out, MessageResponse response) {
+        writeVarInt(out, response.getResultCode());
+        writeString(out, response.getMsg());
+    }
+
+    private static <T extends MessageResponse> T readResponse(ByteBuf in, T response) {
+        response.setResultCode(readVarInt(in));
+        response.setMsg(readString(in));
+        return response;
+    }
+
+    private static void writeClientRequest(ByteBuf out, ClientMessageRequest request) {
+        writeTableString(out, request.getDomain());
+        writeTableString(out, request.getIp());
+    }
+
+    private static <T extends ClientMessageRequest> T readClientRequest(ByteBuf in, T request) {
+        request.setDomain(readTableString(in));
+        request.setIp(readTableString(in));
+        return request;
+    }
+
+    private static void writeStoreRequest(ByteBuf out, AbstractStoreRequest request) {
+        writeString(out, request.getComputeIp());
+        writeString(out, request.getAppName());
+        writeString(out, request.getAddressIp());
+    }
+
+    private static <T extends AbstractStoreRequest> T readStoreRequest(ByteBuf in, T request) {
+        request.setComputeIp(readString(in));
+        request.setAppName(readString(in));
+        request.setAddressIp(readString(in));
+        return request;
+    }
+
+    /**
+     * 透传的原始字节中的字符串id属于客户端连接的字符串表，一并带上引用到的字符串，
+     * 这些字符串通过本连接的字符串表写出
+     */
+    private static void writeTraceBytes(ByteBuf out, ByteBuf traceBytes, StringTable table) {
+        writeBoolean(out, table != null);
+        if (table != null) {
+            BitSet references = new BitSet();
+            TraceLogCursor.collectReferences(traceBytes, table, references);
+            writeVarInt(out, references.cardinality());
+            for (int id = references.nextSetBit(0); id >= 0; id = references.nextSetBit(id + 1)) {
+                writeVarInt(out, id);
+                writeTableString(out, table.lookup(id));
+            }
+        }
+        writeVarInt(out, traceBytes.readableBytes());
+        out.writeBytes(traceBytes, traceBytes.readerIndex(), traceBytes.readableBytes());
+    }
+
+    private static void readTraceBytes(ByteBuf in, StoreTraceRequest body) {
+        if (readBoolean(in)) {
+            int size = readVarInt(in);
+            int[] ids = new int[size];
+            String[] values = new String[size];
+            int maxId = 0;
+            for (int i = 0; i < size; i++) {
+                ids[i] = readVarInt(in);
+                if (ids[i] < 1 || ids[i] > StringTable.MAX_SIZE) {
+                    throw new CorruptedFrameException("invalid string table id " + ids[i]);
+                }
+                values[i] = readTableString(in);
+                maxId = Math.max(maxId, ids[i]);
+            }
+            String[] strings = new String[maxId];
+            for (int i = 0; i < size; i++) {
+                strings[ids[i] - 1] = values[i];
+            }
+            body.setStringTable(StringTable.readOnly(strings));
+        }
+        body.setTraceBytes(in.readRetainedSlice(readVarInt(in)));
+    }
+
+    private static void writeDictionary(ByteBuf out, CompressionDictionary dictionary) {
+        writeBoolean(out, dictionary != null);
+        if (dictionary != null) {
+            out.writeInt(dictionary.getId());
+            writeString(out, dictionary.getDomain());
+            writeBytes(out, dictionary.getData());
+        }
+    }
+
+    private static CompressionDictionary readDictionary(ByteBuf in) {
+        if (!readBoolean(in)) {
+            return null;
+        }
+        return new CompressionDictionary(in.readInt(), readString(in), readBytes(in));
+    }
+
+    private static void writeTraceLog(ByteBuf out, TraceLog traceLog) {
+        writeTableString(out, traceLog.getDomain());
+        writeTableString(out, traceLog.getIpAddress());
+        writeString(out, traceLog.getParentTraceId());
+        writeString(out, traceLog.getTraceId());
+        writeString(out, traceLog.getLogId());
+        writeTableString(out, traceLog.getType());
+        writeTableString(out, traceLog.getName());
+        writeBoolean(out, traceLog.isErrorTag());
+        writeTableString(out, traceLog.getContent());
+    }
+
+    private static <T extends TraceLog> T readTraceLog(ByteBuf in, T traceLog) {
+        traceLog.setDomain(readTableString(in));
+        traceLog.setIpAddress(readTableString(in));
+        traceLog.setParentTraceId(readString(in));
+        traceLog.setTraceId(readString(in));
+        traceLog.setLogId(readString(in));
+        traceLog.setType(readTableString(in));
+        traceLog.setName(readTableString(in));
+        traceLog.setErrorTag(readBoolean(in));
+        traceLog.setContent(readTableString(in));
+        return traceLog;
+    }
+
+    private static void writeEventLog(ByteBuf out, EventLog eventLog) {
+        writeTraceLog(out, eventLog);
+        writeVarLong(out, eventLog.getEventTime());
+    }
+
+    private static EventLog readEventLog(ByteBuf in) {
+        EventLog eventLog = readTraceLog(in, new EventLog());
+        eventLog.setEventTime(readVarLong(in));
+        return eventLog;
+    }
+
+    private static void writeSpanLog(ByteBuf out, SpanLog spanLog) {
+        writeTraceLog(out, spanLog);
+        writeVarLong(out, spanLog.getStartTime());
+        writeVarLong(out, spanLog.getEndTime());
+        writeVarLong(out, spanLog.getCostInMillis());
+        writeBoolean(out, spanLog.isCompleted());
+        writeList(out, spanLog.getChildrenSpanLog(), HeimdallSerializer::writeSpanLog);
+        writeList(out, spanLog.getEventLogs(), HeimdallSerializer::writeEventLog);
+    }
+
+    private static SpanLog readSpanLog(ByteBuf in) {
+        SpanLog spanLog = readTraceLog(in, new SpanLog());
+        spanLog.setStartTime(readVarLong(in));
+        spanLog.setEndTime(readVarLong(in));
+        spanLog.setCostInMillis(readVarLong(in));
+        spanLog.setCompleted(readBoolean(in));
+        spanLog.setChildrenSpanLog(readList(in, HeimdallSerializer::readSpanLog));
+        spanLog.setEventLogs(readList(in, HeimdallSerializer::readEventLog));
+        return spanLog;
+    }
+
+    private static void writeMetricNode(ByteBuf out, MetricNode metricNode) {
+        writeBoolean(out, metricNode != null);
+        if (metricNode == null) {
+            return;
+        }
+        MetricKey metricKey = metricNode.getMetricKey();
+        if (metricKey == null) {
+            out.writeByte(METRIC_KEY_NULL);
+        } else {
+            out.writeByte(metricKey.getMetricType() == MetricType.MetricTypeSpan ? METRIC_KEY_SPAN : METRIC_KEY_EVENT);
+            writeString(out, metricKey.getDomain());
+            writeString(out, metricKey.getIp());
+            writeString(out, metricKey.getType());
+            writeString(out, metricKey.getName());
+        }
+        writeVarLong(out, metricNode.getSuccessQps());
+        writeVarLong(out, metricNode.getExceptionQps());
+        writeVarLong(out, metricNode.getRt());
+        writeVarLong(out, metricNode.getTimestamp());
+    }
+
+    private static MetricNode readMetricNode(ByteBuf in) {
+        if (!readBoolean(in)) {
+            return null;
+        }
+        MetricNode metricNode = new MetricNode();
+        byte keyType = in.readByte();
+        if (keyType != METRIC_KEY_NULL) {
+            String domain = readString(in);
+            String ip = readString(in);
+            String type = readString(in);
+            String name = readString(in);
+            if (keyType == METRIC_KEY_SPAN) {
+                metricNode.setMetricKey(new SpanMetricKey(domain, ip, type, name));
+            } else if (keyType == METRIC_KEY_EVENT) {
+                metricNode.setMetricKey(new EventMetricKey(domain, ip, type, name));
+            } else {
+                throw new CorruptedFrameException("unknown metric key type:" + keyType);
+            }
+        }
+        metricNode.setSuccessQps(readVarLong(in));
+        metricNode.setExceptionQps(readVarLong(in));
+        metricNode.setRt(readVarLong(in));
+        metricNode.setTimestamp(readVarLong(in));
+        return metricNode;
+    }
+
+    private static final class BodyCodec<T> {
+        private final BiConsumer<T, ByteBuf> writer;
+        private final Function<ByteBuf, T> reader;
+
+        private BodyCodec(BiConsumer<T, ByteBuf> writer, Function<ByteBuf, T> reader) {
+            this.writer = writer;
+            this.reader = reader;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package cn.heimdall.core.message.serializer;
+
+import cn.heimdall.core.message.MessageBody;
+import cn.heimdall.core.utils.annotation.LoadLevel;
+import cn.heimdall.core.utils.common.JsonUtil;
+import cn.heimdall.core.utils.constants.LoadLevelConstants;
+import io.netty.buffer.ByteBuf;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * json序列化，兼容老版本的节点和客户端
+ */
+@LoadLevel(name = LoadLevelConstants.SERIALIZER_JSON)
+public class JsonSerializer implements Serializer {
+
+    @Override
+    public void serialize(MessageBody messageBody, ByteBuf out) {
+        out.writeCharSequence(JsonUtil.toJson(messageBody), StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public <T extends MessageBody> T deserialize(Class<T> clazz, ByteBuf in) {
+        String json = in.toString(StandardCharsets.UTF_8);
+        in.skipBytes(in.readableBytes());
+        return JsonUtil.fromJson(json, clazz);
+    }
+}
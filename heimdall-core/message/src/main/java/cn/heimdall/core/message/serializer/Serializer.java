@@ -0,0 +1,22 @@
+package cn.heimdall.core.message.serializer;
+
+import cn.heimdall.core.message.MessageBody;
+import io.netty.buffer.ByteBuf;
+
+/**
+ * 消息体序列化，实现通过spi加载，编码直接写入ByteBuf避免中间对象
+ */
+public interface Serializer {
+
+    void serialize(MessageBody messageBody, ByteBuf out);
+
+    <T extends MessageBody> T deserialize(Class<T> clazz, ByteBuf in);
+
+    /**
+     * 只解码消息体中的少量字段，其余部分保留在retain过的buffer中按需读取，不支持的消息体完整解码
+     */
+    default <T extends MessageBody> T deserializeView(Class<T> clazz, ByteBuf in) {
+        return deserialize(clazz, in);
+    }
+
+}
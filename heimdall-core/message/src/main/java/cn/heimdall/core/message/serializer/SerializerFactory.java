@@ -0,0 +1,23 @@
+package cn.heimdall.core.message.serializer;
+
+import cn.heimdall.core.message.SerializerType;
+import cn.heimdall.core.utils.common.CollectionUtil;
+import cn.heimdall.core.utils.spi.EnhancedServiceLoader;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class SerializerFactory {
+
+    protected static final Map<SerializerType, Serializer> SERIALIZER_MAP = new ConcurrentHashMap<>();
+
+    public static Serializer getSerializer(byte code) {
+        return getSerializer(SerializerType.getByCode(code));
+    }
+
+    public static Serializer getSerializer(SerializerType type) {
+        return CollectionUtil.computeIfAbsent(SERIALIZER_MAP, type,
+            key -> EnhancedServiceLoader.load(Serializer.class, key.getLoadLevelName()));
+    }
+
+}
@@ -0,0 +1,228 @@
+package cn.heimdall.core.message.serializer;
+
+import cn.heimdall.core.utils.enums.NodeRole;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.handler.codec.CorruptedFrameException;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * 二进制序列化的基础读写方法
+ * 字符串和集合的长度都使用 (length + 1) 的varint 表示，0 表示 null
+ */
+public final class SerializerUtil {
+
+    private SerializerUtil() {
+    }
+
+    public static void writeVarInt(ByteBuf out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    public static int readVarInt(ByteBuf in) {
+        int result = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = in.readByte();
+            result |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new CorruptedFrameException("malformed varint");
+    }
+
+    public static void writeVarLong(ByteBuf out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    public static long readVarLong(ByteBuf in) {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.readByte();
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new CorruptedFrameException("malformed varlong");
+    }
+
+    public static void writeString(ByteBuf out, String value) {
+        if (value == null) {
+            writeVarInt(out, 0);
+            return;
+        }
+        int length = ByteBufUtil.utf8Bytes(value);
+        writeVarInt(out, length + 1);
+        ByteBufUtil.reserveAndWriteUtf8(out, value, length);
+    }
+
+    public static String readString(ByteBuf in) {
+        int length = readVarInt(in) - 1;
+        if (length < 0) {
+            return null;
+        }
+        String value = in.toString(in.readerIndex(), length, StandardCharsets.UTF_8);
+        in.skipBytes(length);
+        return value;
+    }
+
+    public static void skipString(ByteBuf in) {
+        int length = readVarInt(in) - 1;
+        if (length > 0) {
+            in.skipBytes(length);
+        }
+    }
+
+    /**
+     * 重复率高的字符串，绑定了连接的字符串表时写入表中的id
+     */
+    public static void writeTableString(ByteBuf out, String value) {
+        StringTable table = StringTable.current();
+        if (table == null) {
+            writeString(out, value);
+            return;
+        }
+        table.write(out, value);
+    }
+
+    public static String readTableString(ByteBuf in) {
+        StringTable table = StringTable.current();
+        if (table == null) {
+            return readString(in);
+        }
+        return table.read(in);
+    }
+
+    public static void skipTableString(ByteBuf in, StringTable table) {
+        if (table == null) {
+            skipString(in);
+            return;
+        }
+        table.skip(in);
+    }
+
+    public static void writeBytes(ByteBuf out, byte[] value) {
+        if (value == null) {
+            writeVarInt(out, 0);
+            return;
+        }
+        writeVarInt(out, value.length + 1);
+        out.writeBytes(value);
+    }
+
+    public static byte[] readBytes(ByteBuf in) {
+        int length = readVarInt(in) - 1;
+        if (length < 0) {
+            return null;
+        }
+        byte[] value = new byte[length];
+        in.readBytes(value);
+        return value;
+    }
+
+    public static void writeBoolean(ByteBuf out, boolean value) {
+        out.writeByte(value ? 1 : 0);
+    }
+
+    public static boolean readBoolean(ByteBuf in) {
+        return in.readByte() != 0;
+    }
+
+    public static <E> void writeList(ByteBuf out, List<E> list, BiConsumer<ByteBuf, E> elementWriter) {
+        if (list == null) {
+            writeVarInt(out, 0);
+            return;
+        }
+        writeVarInt(out, list.size() + 1);
+        for (E element : list) {
+            elementWriter.accept(out, element);
+        }
+    }
+
+    public static <E> List<E> readList(ByteBuf in, Function<ByteBuf, E> elementReader) {
+        int size = readVarInt(in) - 1;
+        if (size < 0) {
+            return null;
+        }
+        List<E> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            list.add(elementReader.apply(in));
+        }
+        return list;
+    }
+
+    public static void writeNodeRole(ByteBuf out, NodeRole nodeRole) {
+        out.writeByte(nodeRole.getValue());
+    }
+
+    public static NodeRole readNodeRole(ByteBuf in) {
+        int value = in.readByte();
+        for (NodeRole nodeRole : NodeRole.values()) {
+            if (nodeRole.getValue() == value) {
+                return nodeRole;
+            }
+        }
+        throw new CorruptedFrameException("unknown node role:" + value);
+    }
+
+    /**
+     * 集群地址信息 Map<NodeRole, Map<InetSocketAddress, Long>>
+     */
+    public static void writeAddresses(ByteBuf out, Map<NodeRole, Map<InetSocketAddress, Long>> addresses) {
+        if (addresses == null) {
+            writeVarInt(out, 0);
+            return;
+        }
+        writeVarInt(out, addresses.size() + 1);
+        for (Map.Entry<NodeRole, Map<InetSocketAddress, Long>> roleEntry : addresses.entrySet()) {
+            writeNodeRole(out, roleEntry.getKey());
+            Map<InetSocketAddress, Long> nodes = roleEntry.getValue();
+            writeVarInt(out, nodes == null ? 0 : nodes.size());
+            if (nodes == null) {
+                continue;
+            }
+            for (Map.Entry<InetSocketAddress, Long> nodeEntry : nodes.entrySet()) {
+                writeString(out, nodeEntry.getKey().getHostString());
+                writeVarInt(out, nodeEntry.getKey().getPort());
+                writeVarLong(out, nodeEntry.getValue() == null ? 0L : nodeEntry.getValue());
+            }
+        }
+    }
+
+    public static Map<NodeRole, Map<InetSocketAddress, Long>> readAddresses(ByteBuf in) {
+        int size = readVarInt(in) - 1;
+        if (size < 0) {
+            return null;
+        }
+        Map<NodeRole, Map<InetSocketAddress, Long>> addresses = new HashMap<>(size);
+        for (int i = 0; i < size; i++) {
+            NodeRole nodeRole = readNodeRole(in);
+            int nodeSize = readVarInt(in);
+            Map<InetSocketAddress, Long> nodes = new HashMap<>(nodeSize);
+            for (int j = 0; j < nodeSize; j++) {
+                String host = readString(in);
+                int port = readVarInt(in);
+                nodes.put(new InetSocketAddress(host, port), readVarLong(in));
+            }
+            addresses.put(nodeRole, nodes);
+        }
+        return addresses;
+    }
+}
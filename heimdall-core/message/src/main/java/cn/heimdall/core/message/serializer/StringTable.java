@@ -0,0 +1,205 @@
+package cn.heimdall.core.message.serializer;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.CorruptedFrameException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 连接级别的字符串表，类似HPACK的动态表
+ * 字符串第一次在连接上出现时带id发送，之后只发送id，编码端和解码端各持有一份
+ * 格式为varint标记：0 为null，奇数为引用 (id << 1 | 1)，其余偶数为字面量 ((id + 1) << 1)，id为0表示不入表，字面量后面跟字符串
+ */
+public class StringTable {
+
+    //当前线程正在编解码的连接的字符串表，由Message在序列化前后绑定
+    private static final ThreadLocal<StringTable> CURRENT = new ThreadLocal<>();
+
+    //每个连接最多缓存的字符串数，两端一致
+    public static final int MAX_SIZE = 4096;
+
+    //过长的字符串一般是唯一的内容，不入表
+    private static final int MAX_INDEXED_LENGTH = 256;
+
+    private final int maxSize;
+
+    //编码端
+    private final Map<String, Integer> ids = new HashMap<>();
+    //本条消息新加入的字符串，消息编码失败时需要撤销
+    private final List<String> pending = new ArrayList<>();
+
+    //解码端，下标为id - 1，定长数组保证只读视图不受扩容影响
+    private String[] strings;
+    private int size;
+    private final boolean readOnly;
+
+    public StringTable() {
+        this(MAX_SIZE);
+    }
+
+    /**
+     * @param maxSize 编码端最多入表的字符串数，0 表示只发字面量
+     */
+    public StringTable(int maxSize) {
+        this.maxSize = Math.min(maxSize, MAX_SIZE);
+        this.readOnly = false;
+    }
+
+    private StringTable(String[] strings) {
+        this.maxSize = 0;
+        this.strings = strings;
+        this.readOnly = true;
+    }
+
+    public static void bind(StringTable table) {
+        CURRENT.set(table);
+    }
+
+    public static void unbind() {
+        CURRENT.remove();
+    }
+
+    public static StringTable current() {
+        return CURRENT.get();
+    }
+
+    public void write(ByteBuf out, String value) {
+        if (value == null) {
+            SerializerUtil.writeVarInt(out, 0);
+            return;
+        }
+        Integer id = ids.get(value);
+        if (id != null) {
+            SerializerUtil.writeVarInt(out, id << 1 | 1);
+            return;
+        }
+        int newId = 0;
+        if (ids.size() < maxSize && value.length() <= MAX_INDEXED_LENGTH) {
+            newId = ids.size() + 1;
+            ids.put(value, newId);
+            pending.add(value);
+        }
+        SerializerUtil.writeVarInt(out, literalTag(newId));
+        SerializerUtil.writeString(out, value);
+    }
+
+    public String read(ByteBuf in) {
+        int tag = SerializerUtil.readVarInt(in);
+        if (tag == 0) {
+            return null;
+        }
+        if ((tag & 1) == 1) {
+            return get(tag >>> 1);
+        }
+        int id = literalId(tag);
+        if (id == 0) {
+            return SerializerUtil.readString(in);
+        }
+        if (readOnly) {
+            String value = lookup(id);
+            if (value == null) {
+                return SerializerUtil.readString(in);
+            }
+            SerializerUtil.skipString(in);
+            return value;
+        }
+        return add(id, SerializerUtil.readString(in));
+    }
+
+    /**
+     * 跳过一个字符串，新出现的字符串仍需登记，保证后续消息能解析
+     */
+    public void skip(ByteBuf in) {
+        int tag = SerializerUtil.readVarInt(in);
+        if (tag == 0 || (tag & 1) == 1) {
+            return;
+        }
+        int id = literalId(tag);
+        if (id == 0 || readOnly) {
+            SerializerUtil.skipString(in);
+            return;
+        }
+        add(id, SerializerUtil.readString(in));
+    }
+
+    /**
+     * 字面量的标记从2开始，不入表的字面量不能和null的标记0混淆
+     */
+    private static int literalTag(int id) {
+        return (id + 1) << 1;
+    }
+
+    private static int literalId(int tag) {
+        return (tag >>> 1) - 1;
+    }
+
+    /**
+     * 只读视图，和本表共享已登记的字符串，供其他线程按需解析保留下来的消息体
+     * 字符串只会追加，视图创建之前登记的id之后不会再变化
+     */
+    public StringTable reader() {
+        return new StringTable(strings());
+    }
+
+    /**
+     * 只包含部分id的只读表，用于转发时带上消息体引用到的字符串
+     */
+    public static StringTable readOnly(String[] strings) {
+        return new StringTable(strings);
+    }
+
+    /**
+     * @return id对应的字符串，不存在时返回null
+     */
+    public String lookup(int id) {
+        String[] strings = this.strings;
+        if (id < 1 || strings == null || id > strings.length) {
+            return null;
+        }
+        return strings[id - 1];
+    }
+
+    private String get(int id) {
+        String value = lookup(id);
+        if (value == null) {
+            throw new CorruptedFrameException("unknown string table id " + id);
+        }
+        return value;
+    }
+
+    private String add(int id, String value) {
+        if (id != size + 1 || id > MAX_SIZE || value == null) {
+            throw new CorruptedFrameException("invalid string table id " + id + ", size " + size);
+        }
+        value = value.intern();
+        strings()[size++] = value;
+        return value;
+    }
+
+    private String[] strings() {
+        if (strings == null) {
+            strings = new String[MAX_SIZE];
+        }
+        return strings;
+    }
+
+    /**
+     * 消息已完整编码，本条消息新加入的字符串生效
+     */
+    public void commit() {
+        pending.clear();
+    }
+
+    /**
+     * 消息没有发出去，对端看不到新加入的字符串，撤销
+     */
+    public void rollback() {
+        for (String value : pending) {
+            ids.remove(value);
+        }
+        pending.clear();
+    }
+}
@@ -0,0 +1,257 @@
+package cn.heimdall.core.message.serializer;
+
+import cn.heimdall.core.message.body.origin.MessageTreeRequest;
+import io.netty.buffer.ByteBuf;
+
+import java.util.BitSet;
+
+/**
+ * 消息树的flyweight读取方式，直接从保留的消息体buffer中读取顶层span或event的字段
+ * 每次next()只记录字段位置，字符串在调用getter时才解析，不创建SpanLog、EventLog对象
+ * 非线程安全，每个分析线程各自创建
+ */
+public class TraceLogCursor {
+
+    private final ByteBuf buf;
+
+    private final StringTable table;
+
+    private final boolean span;
+
+    private int remaining;
+
+    private int domainIndex;
+    private int ipAddressIndex;
+    private int parentTraceIdIndex;
+    private int traceIdIndex;
+    private int logIdIndex;
+    private int typeIndex;
+    private int nameIndex;
+    private int contentIndex;
+    private boolean errorTag;
+
+    private long startTime;
+    private long endTime;
+    private long costInMillis;
+    private boolean completed;
+    private long eventTime;
+
+    private TraceLogCursor(ByteBuf traceBytes, StringTable table, boolean span) {
+        this.buf = traceBytes.duplicate();
+        this.table = table;
+        this.span = span;
+        if (span) {
+            skipEventLogs(buf, table);
+        }
+        this.remaining = SerializerUtil.readVarInt(buf) - 1;
+    }
+
+    /**
+     * 遍历消息树的顶层span
+     */
+    public static TraceLogCursor spans(MessageTreeRequest request) {
+        return spans(request.getByteBuf(), request.getStringTable());
+    }
+
+    /**
+     * 遍历消息树的顶层event
+     */
+    public static TraceLogCursor events(MessageTreeRequest request) {
+        return events(request.getByteBuf(), request.getStringTable());
+    }
+
+    /**
+     * @param traceBytes 消息树中event列表和span列表的原始字节
+     * @param table 为null时字符串没有使用字符串表
+     */
+    public static TraceLogCursor spans(ByteBuf traceBytes, StringTable table) {
+        return new TraceLogCursor(traceBytes, table, true);
+    }
+
+    public static TraceLogCursor events(ByteBuf traceBytes, StringTable table) {
+        return new TraceLogCursor(traceBytes, table, false);
+    }
+
+    public boolean next() {
+        if (remaining <= 0) {
+            return false;
+        }
+        remaining--;
+        domainIndex = buf.readerIndex();
+        SerializerUtil.skipTableString(buf, table);
+        ipAddressIndex = buf.readerIndex();
+        SerializerUtil.skipTableString(buf, table);
+        parentTraceIdIndex = buf.readerIndex();
+        SerializerUtil.skipString(buf);
+        traceIdIndex = buf.readerIndex();
+        SerializerUtil.skipString(buf);
+        logIdIndex = buf.readerIndex();
+        SerializerUtil.skipString(buf);
+        typeIndex = buf.readerIndex();
+        SerializerUtil.skipTableString(buf, table);
+        nameIndex = buf.readerIndex();
+        SerializerUtil.skipTableString(buf, table);
+        errorTag = SerializerUtil.readBoolean(buf);
+        contentIndex = buf.readerIndex();
+        SerializerUtil.skipTableString(buf, table);
+        if (span) {
+            startTime = SerializerUtil.readVarLong(buf);
+            endTime = SerializerUtil.readVarLong(buf);
+            costInMillis = SerializerUtil.readVarLong(buf);
+            completed = SerializerUtil.readBoolean(buf);
+            skipSpanLogs(buf, table);
+            skipEventLogs(buf, table);
+        } else {
+            eventTime = SerializerUtil.readVarLong(buf);
+        }
+        return true;
+    }
+
+    public String getDomain() {
+        return tableStringAt(domainIndex);
+    }
+
+    public String getIpAddress() {
+        return tableStringAt(ipAddressIndex);
+    }
+
+    public String getParentTraceId() {
+        return stringAt(parentTraceIdIndex);
+    }
+
+    public String getTraceId() {
+        return stringAt(traceIdIndex);
+    }
+
+    public String getLogId() {
+        return stringAt(logIdIndex);
+    }
+
+    public String getType() {
+        return tableStringAt(typeIndex);
+    }
+
+    public String getName() {
+        return tableStringAt(nameIndex);
+    }
+
+    public String getContent() {
+        return tableStringAt(contentIndex);
+    }
+
+    public boolean isErrorTag() {
+        return errorTag;
+    }
+
+    public long getStartTime() {
+        return startTime;
+    }
+
+    public long getEndTime() {
+        return endTime;
+    }
+
+    public long getCostInMillis() {
+        return costInMillis;
+    }
+
+    public boolean isCompleted() {
+        return completed;
+    }
+
+    public long getEventTime() {
+        return eventTime;
+    }
+
+    private String tableStringAt(int index) {
+        int readerIndex = buf.readerIndex();
+        buf.readerIndex(index);
+        try {
+            return table == null ? SerializerUtil.readString(buf) : table.read(buf);
+        } finally {
+            buf.readerIndex(readerIndex);
+        }
+    }
+
+    private String stringAt(int index) {
+        int readerIndex = buf.readerIndex();
+        buf.readerIndex(index);
+        try {
+            return SerializerUtil.readString(buf);
+        } finally {
+            buf.readerIndex(readerIndex);
+        }
+    }
+
+    /**
+     * 跳过event列表，table为连接的字符串表时会登记新出现的字符串
+     */
+    static void skipEventLogs(ByteBuf in, StringTable table) {
+        skipEventLogs(in, table, null);
+    }
+
+    static void skipSpanLogs(ByteBuf in, StringTable table) {
+        skipSpanLogs(in, table, null);
+    }
+
+    /**
+     * 收集原始字节中引用到的字符串表id
+     */
+    static void collectReferences(ByteBuf traceBytes, StringTable table, BitSet references) {
+        ByteBuf in = traceBytes.duplicate();
+        skipEventLogs(in, table, references);
+        skipSpanLogs(in, table, references);
+    }
+
+    private static void skipEventLogs(ByteBuf in, StringTable table, BitSet references) {
+        int size = SerializerUtil.readVarInt(in) - 1;
+        for (int i = 0; i < size; i++) {
+            skipTraceLog(in, table, references);
+            SerializerUtil.readVarLong(in);
+        }
+    }
+
+    private static void skipSpanLogs(ByteBuf in, StringTable table, BitSet references) {
+        int size = SerializerUtil.readVarInt(in) - 1;
+        for (int i = 0; i < size; i++) {
+            skipTraceLog(in, table, references);
+            SerializerUtil.readVarLong(in);
+            SerializerUtil.readVarLong(in);
+            SerializerUtil.readVarLong(in);
+            SerializerUtil.readBoolean(in);
+            skipSpanLogs(in, table, references);
+            skipEventLogs(in, table, references);
+        }
+    }
+
+    private static void skipTraceLog(ByteBuf in, StringTable table, BitSet references) {
+        skipTableString(in, table, references);
+        skipTableString(in, table, references);
+        SerializerUtil.skipString(in);
+        SerializerUtil.skipString(in);
+        SerializerUtil.skipString(in);
+        skipTableString(in, table, references);
+        skipTableString(in, table, references);
+        SerializerUtil.readBoolean(in);
+        skipTableString(in, table, references);
+    }
+
+    private static void skipTableString(ByteBuf in, StringTable table, BitSet references) {
+        if (references != null && table != null) {
+            int tag = peekVarInt(in);
+            if ((tag & 1) == 1) {
+                references.set(tag >>> 1);
+            }
+        }
+        SerializerUtil.skipTableString(in, table);
+    }
+
+    private static int peekVarInt(ByteBuf in) {
+        int readerIndex = in.readerIndex();
+        try {
+            return SerializerUtil.readVarInt(in);
+        } finally {
+            in.readerIndex(readerIndex);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package cn.heimdall.core.message;
+
+import cn.heimdall.core.message.body.AckMessage;
+import cn.heimdall.core.message.body.PingMessage;
+import cn.heimdall.core.message.body.heartbeat.NodeHeartbeatRequest;
+import cn.heimdall.core.utils.enums.NodeRole;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MessageCodecTest {
+
+    @Test
+    public void fixedHeaderRoundTrip() {
+        NodeHeartbeatRequest request = new NodeHeartbeatRequest();
+        request.setNodeRoles(Arrays.asList(NodeRole.COMPUTE, NodeRole.STORAGE));
+        request.setIp("10.0.0.1");
+        request.setPort(7000);
+        RpcMessage message = RpcMessage.onewayWithAck(request);
+        message.setMessageId(42);
+
+        ByteBuf buf = Unpooled.buffer();
+        message.encode(buf);
+        assertEquals(MessageHeader.MAGIC, buf.getShort(0));
+
+        RpcMessage decoded = new RpcMessage();
+        decoded.decodeHeader(buf);
+        assertEquals(MessageHeader.HEADER_LENGTH, buf.readerIndex());
+        assertEquals(buf.readableBytes(), decoded.getMessageHeader().getBodyLength());
+        decoded.decodeBody(buf);
+
+        assertEquals(42, decoded.getMessageId());
+        assertTrue(decoded.isOneway());
+        assertTrue(decoded.isAckRequested());
+        assertFalse(decoded.isResponse());
+        assertEquals(MessageType.NODE_HEARTBEAT_REQUEST.getTypeCode(), decoded.getMessageHeader().getTypeCode());
+        NodeHeartbeatRequest body = (NodeHeartbeatRequest) decoded.getMessageBody();
+        assertEquals(Arrays.asList(NodeRole.COMPUTE, NodeRole.STORAGE), body.getNodeRoles());
+        assertEquals("10.0.0.1", body.getIp());
+        assertEquals(7000, body.getPort());
+        assertFalse(buf.isReadable());
+    }
+
+    @Test
+    public void responseKeepsRequestId() {
+        RpcMessage request = new RpcMessage(PingMessage.PING);
+        request.setMessageId(7);
+        RpcMessage response = RpcMessage.response(request, PingMessage.PONG);
+
+        ByteBuf buf = Unpooled.buffer();
+        response.encode(buf);
+        RpcMessage decoded = new RpcMessage();
+        decoded.decode(buf);
+
+        assertEquals(7, decoded.getMessageId());
+        assertTrue(decoded.isResponse());
+        assertFalse(((PingMessage) decoded.getMessageBody()).isPing());
+    }
+
+    @Test
+    public void legacyHeaderRoundTrip() {
+        RpcMessage message = new RpcMessage(new AckMessage(9));
+        message.getMessageHeader().setVersion(MessageHeader.VERSION_LEGACY);
+
+        ByteBuf buf = Unpooled.buffer();
+        message.encode(buf);
+        //老协议以int类型的version开头，没有magic
+        assertEquals(MessageHeader.VERSION_LEGACY, buf.getInt(0));
+
+        RpcMessage decoded = new RpcMessage();
+        decoded.decode(buf);
+        assertEquals(MessageHeader.VERSION_LEGACY, decoded.getMessageHeader().getVersion());
+        assertEquals(SerializerType.JSON.getCode(), decoded.getMessageHeader().getSerializer());
+        assertEquals(9, ((AckMessage) decoded.getMessageBody()).getWatermark());
+    }
+
+    @Test
+    public void retainedBodyDecodesOnFirstAccess() {
+        RpcMessage message = new RpcMessage(new AckMessage(5));
+        ByteBuf buf = Unpooled.buffer();
+        message.encode(buf);
+
+        RpcMessage decoded = new RpcMessage();
+        decoded.decodeHeader(buf);
+        decoded.retainBody(buf);
+        buf.release();
+        assertEquals(1, buf.refCnt());
+        assertEquals(5, ((AckMessage) decoded.getMessageBody()).getWatermark());
+        assertEquals(0, buf.refCnt());
+    }
+}
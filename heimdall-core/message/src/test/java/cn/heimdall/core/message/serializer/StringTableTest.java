@@ -0,0 +1,154 @@
+package cn.heimdall.core.message.serializer;
+
+import cn.heimdall.core.message.RpcMessage;
+import cn.heimdall.core.message.body.origin.AppStateRequest;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class StringTableTest {
+
+    @Test
+    public void repeatedStringIsSentAsReference() {
+        StringTable encoder = new StringTable();
+        StringTable decoder = new StringTable();
+        ByteBuf first = Unpooled.buffer();
+        encoder.write(first, "order-service");
+        encoder.commit();
+        ByteBuf second = Unpooled.buffer();
+        encoder.write(second, "order-service");
+        encoder.commit();
+
+        assertEquals(1, second.readableBytes());
+        assertEquals("order-service", decoder.read(first));
+        assertEquals("order-service", decoder.read(second));
+        assertFalse(first.isReadable());
+        assertFalse(second.isReadable());
+    }
+
+    @Test
+    public void unindexedLiteralIsNotMistakenForNull() {
+        StringTable encoder = new StringTable(0);
+        StringTable decoder = new StringTable();
+        ByteBuf buf = Unpooled.buffer();
+        encoder.write(buf, null);
+        encoder.write(buf, "");
+        encoder.write(buf, "10.0.0.1");
+        encoder.write(buf, null);
+
+        assertNull(decoder.read(buf));
+        assertEquals("", decoder.read(buf));
+        assertEquals("10.0.0.1", decoder.read(buf));
+        assertNull(decoder.read(buf));
+        assertFalse(buf.isReadable());
+    }
+
+    @Test
+    public void literalsBeyondTableLimitsStayReadable() {
+        StringTable encoder = new StringTable(1);
+        StringTable decoder = new StringTable();
+        StringBuilder longValue = new StringBuilder();
+        for (int i = 0; i < 300; i++) {
+            longValue.append('x');
+        }
+        ByteBuf buf = Unpooled.buffer();
+        encoder.write(buf, "a");
+        //表已满
+        encoder.write(buf, "b");
+        //过长不入表
+        encoder.write(buf, longValue.toString());
+        encoder.write(buf, "a");
+        encoder.write(buf, "b");
+
+        assertEquals("a", decoder.read(buf));
+        assertEquals("b", decoder.read(buf));
+        assertEquals(longValue.toString(), decoder.read(buf));
+        assertEquals("a", decoder.read(buf));
+        assertEquals("b", decoder.read(buf));
+        assertFalse(buf.isReadable());
+    }
+
+    @Test
+    public void skipRegistersNewStrings() {
+        StringTable encoder = new StringTable();
+        StringTable decoder = new StringTable();
+        ByteBuf buf = Unpooled.buffer();
+        encoder.write(buf, "trace");
+        encoder.write(buf, "literal-only");
+        encoder.write(buf, "trace");
+
+        decoder.skip(buf);
+        decoder.skip(buf);
+        assertEquals("trace", decoder.read(buf));
+        assertEquals("trace", decoder.lookup(1));
+    }
+
+    @Test
+    public void rolledBackStringIsSentAgainAsLiteral() {
+        StringTable encoder = new StringTable();
+        StringTable decoder = new StringTable();
+        ByteBuf lost = Unpooled.buffer();
+        encoder.write(lost, "order-service");
+        encoder.rollback();
+
+        ByteBuf buf = Unpooled.buffer();
+        encoder.write(buf, "order-service");
+        encoder.commit();
+        assertEquals("order-service", decoder.read(buf));
+    }
+
+    @Test
+    public void messagesOnOneConnectionShareTheTable() {
+        StringTable encoder = new StringTable();
+        StringTable decoder = new StringTable();
+        ByteBuf first = encode(appState("order-service"), encoder);
+        ByteBuf second = encode(appState("order-service"), encoder);
+        assertTrue(second.readableBytes() < first.readableBytes());
+
+        assertEquals("order-service", decode(first, decoder).getDomain());
+        AppStateRequest decoded = decode(second, decoder);
+        assertEquals("order-service", decoded.getDomain());
+        assertEquals("10.0.0.1", decoded.getIp());
+        assertEquals("{\"young\":3}", decoded.getGcJson());
+        assertNull(decoded.getThreadJson());
+    }
+
+    @Test
+    public void messageWithoutTableRoundTrips() {
+        ByteBuf buf = Unpooled.buffer();
+        new RpcMessage(appState("order-service")).encode(buf);
+        RpcMessage decoded = new RpcMessage();
+        decoded.decode(buf);
+        AppStateRequest body = (AppStateRequest) decoded.getMessageBody();
+        assertEquals("order-service", body.getDomain());
+        assertEquals("10.0.0.1", body.getIp());
+        assertFalse(buf.isReadable());
+    }
+
+    private static AppStateRequest appState(String domain) {
+        AppStateRequest request = new AppStateRequest();
+        request.setDomain(domain);
+        request.setIp("10.0.0.1");
+        request.setGcJson("{\"young\":3}");
+        request.setSysJson("{}");
+        return request;
+    }
+
+    private static ByteBuf encode(AppStateRequest request, StringTable table) {
+        ByteBuf buf = Unpooled.buffer();
+        new RpcMessage(request).encode(buf, 0, table);
+        return buf;
+    }
+
+    private static AppStateRequest decode(ByteBuf buf, StringTable table) {
+        RpcMessage decoded = new RpcMessage();
+        decoded.decodeHeader(buf);
+        decoded.decodeBody(buf, table);
+        return (AppStateRequest) decoded.getMessageBody();
+    }
+}
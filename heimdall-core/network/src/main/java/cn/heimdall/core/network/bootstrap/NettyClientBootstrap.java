@@ -1,12 +1,12 @@
 package cn.heimdall.core.network.bootstrap;
 
 import cn.heimdall.core.config.NetworkConfig;
+import cn.heimdall.core.message.MessageHeader;
 import cn.heimdall.core.network.codec.FrameDecoder;
 import cn.heimdall.core.network.codec.FrameEncoder;
 import cn.heimdall.core.network.codec.ProtocolDecoder;
 import cn.heimdall.core.network.codec.ProtocolEncoder;
 import cn.heimdall.core.utils.exception.NetworkException;
-import cn.heimdall.core.utils.thread.NamedThreadFactory;
 import io.netty.bootstrap.Bootstrap;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
@@ -17,16 +17,15 @@ import io.netty.channel.ChannelPipeline;
 import io.netty.channel.EventLoopGroup;
 import io.netty.channel.epoll.EpollChannelOption;
 import io.netty.channel.epoll.EpollMode;
-import io.netty.channel.nio.NioEventLoopGroup;
-import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.unix.DomainSocketAddress;
+import io.netty.handler.flush.FlushConsolidationHandler;
 import io.netty.handler.timeout.IdleStateHandler;
-import io.netty.util.concurrent.DefaultEventExecutorGroup;
 import io.netty.util.concurrent.EventExecutorGroup;
-import io.netty.util.internal.PlatformDependent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.net.InetSocketAddress;
+import java.net.SocketAddress;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -34,19 +33,22 @@ public class NettyClientBootstrap implements RemotingBootstrap {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(NettyClientBootstrap.class);
     private final Bootstrap bootstrap = new Bootstrap();
+    //连接同机unix domain socket地址用，只有epoll支持
+    private final Bootstrap domainBootstrap = new Bootstrap();
+    //控制连接使用独立的io线程，连接服务端的控制端口
+    private final Bootstrap controlBootstrap = new Bootstrap();
     private final EventLoopGroup eventLoopGroupWorker;
     private EventExecutorGroup defaultEventExecutorGroup;
     private final AtomicBoolean initialized = new AtomicBoolean(false);
-    private static final String THREAD_PREFIX_SPLIT_CHAR = "_";
     private ChannelHandler[] channelHandlers;
     private NetworkConfig networkConfig;
+    private final TransportType transportType;
 
     public NettyClientBootstrap(NetworkConfig networkConfig, final EventExecutorGroup eventExecutorGroup) {
         this.networkConfig = networkConfig;
-        int selectorThreadSizeThreadSize = networkConfig.getClientSelectorThreadSize();
-        this.eventLoopGroupWorker = new NioEventLoopGroup(selectorThreadSizeThreadSize,
-                new NamedThreadFactory(getThreadPrefix(networkConfig.getClientSelectorThreadPrefix()),
-                        selectorThreadSizeThreadSize));
+        this.transportType = TransportType.select(networkConfig.getTransportType());
+        //和server共用worker，不再每个client单独创建selector
+        this.eventLoopGroupWorker = NetworkResourceManager.getInstance().getWorkerGroup(transportType);
         this.defaultEventExecutorGroup = eventExecutorGroup;
     }
 
@@ -64,54 +66,46 @@ public class NettyClientBootstrap implements RemotingBootstrap {
 
     @Override
     public void start() {
-        if (this.defaultEventExecutorGroup == null) {
-            this.defaultEventExecutorGroup = new DefaultEventExecutorGroup(networkConfig.getClientWorkerThreads(),
-                    new NamedThreadFactory(getThreadPrefix(networkConfig.getClientWorkerThreadPrefix()),
-                            networkConfig.getClientWorkerThreads()));
-        }
         this.bootstrap.group(this.eventLoopGroupWorker).channel(
-                networkConfig.getClientChannelClazz()).option(
+                transportType.getClientChannelClass()).option(
                 ChannelOption.TCP_NODELAY, true).option(ChannelOption.SO_KEEPALIVE, true).option(
                 ChannelOption.CONNECT_TIMEOUT_MILLIS, networkConfig.getConnectTimeoutMillis()).option(
                 ChannelOption.SO_SNDBUF, networkConfig.getClientSocketSndBufSize()).option(ChannelOption.SO_RCVBUF,
                 networkConfig.getClientSocketRcvBufSize());
 
-        if (networkConfig.enableNative()) {
-            if (PlatformDependent.isOsx()) {
-                if (LOGGER.isInfoEnabled()) {
-                    LOGGER.info("client run on macOS");
-                }
-            } else {
-                bootstrap.option(EpollChannelOption.EPOLL_MODE, EpollMode.EDGE_TRIGGERED)
-                        .option(EpollChannelOption.TCP_QUICKACK, true);
-            }
+        //epoll专有的选项只能设置在epoll的channel上
+        if (transportType == TransportType.EPOLL) {
+            bootstrap.option(EpollChannelOption.EPOLL_MODE, EpollMode.EDGE_TRIGGERED)
+                    .option(EpollChannelOption.TCP_QUICKACK, true);
         }
 
-        bootstrap.handler( new ChannelInitializer<SocketChannel>() {
-                    @Override
-                    public void initChannel(SocketChannel ch) {
-                        ChannelPipeline pipeline = ch.pipeline();
-                        pipeline.addLast(
-                                new IdleStateHandler(networkConfig.getChannelMaxReadIdleSeconds(),
-                                        networkConfig.getChannelMaxWriteIdleSeconds(),
-                                        networkConfig.getChannelMaxAllIdleSeconds()))
-                                .addLast(new FrameDecoder())
-                                .addLast(new FrameEncoder())
-                                .addLast("protocolDecoder", new ProtocolEncoder())
-                                .addLast("protocolEncoder", new ProtocolDecoder());
-                        addChannelPipelineLast(ch, channelHandlers);
-                    }
-                });
+        bootstrap.handler(newChannelInitializer());
+
+        if (NetworkConfig.isControlPlaneEnabled()) {
+            controlBootstrap.group(NetworkResourceManager.getInstance().getControlGroup(transportType))
+                    .channel(transportType.getClientChannelClass())
+                    .option(ChannelOption.TCP_NODELAY, true)
+                    .option(ChannelOption.SO_KEEPALIVE, true)
+                    .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, networkConfig.getConnectTimeoutMillis())
+                    .handler(newChannelInitializer());
+        }
+
+        if (transportType.supportsDomainSocket()) {
+            domainBootstrap.group(this.eventLoopGroupWorker).channel(transportType.getDomainClientChannelClass())
+                    .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, networkConfig.getConnectTimeoutMillis())
+                    .option(ChannelOption.SO_SNDBUF, networkConfig.getClientSocketSndBufSize())
+                    .option(ChannelOption.SO_RCVBUF, networkConfig.getClientSocketRcvBufSize())
+                    .handler(newChannelInitializer());
+        }
 
         if (initialized.compareAndSet(false, true) && LOGGER.isInfoEnabled()) {
-            LOGGER.info("NettyClientBootstrap has started");
+            LOGGER.info("NettyClientBootstrap has started, transport: {}", transportType);
         }
     }
 
     @Override
     public void shutdown() {
         try {
-            this.eventLoopGroupWorker.shutdownGracefully();
             if (this.defaultEventExecutorGroup != null) {
                 this.defaultEventExecutorGroup.shutdownGracefully();
             }
@@ -120,17 +114,64 @@ public class NettyClientBootstrap implements RemotingBootstrap {
         }
     }
 
-    private String getThreadPrefix(String threadPrefix) {
-        return threadPrefix + THREAD_PREFIX_SPLIT_CHAR;
+    private ChannelInitializer<Channel> newChannelInitializer() {
+        return new ChannelInitializer<Channel>() {
+            @Override
+            public void initChannel(Channel ch) {
+                ChannelPipeline pipeline = ch.pipeline();
+                //老版本服务端不认识新帧格式和magic，连接建立前就按老协议发送
+                if (NetworkConfig.isClientLegacyFramingEnabled()) {
+                    FrameDecoder.useLegacyFraming(ch);
+                    ch.attr(ProtocolDecoder.PEER_PROTOCOL_VERSION).set(MessageHeader.VERSION_LEGACY);
+                }
+                pipeline.addLast(
+                        new IdleStateHandler(networkConfig.getChannelMaxReadIdleSeconds(),
+                                networkConfig.getChannelMaxWriteIdleSeconds(),
+                                networkConfig.getChannelMaxAllIdleSeconds()))
+                        .addLast(new FrameDecoder(networkConfig))
+                        .addLast(new FrameEncoder(networkConfig))
+                        .addLast("protocolDecoder", new ProtocolEncoder())
+                        .addLast("protocolEncoder", new ProtocolDecoder());
+                //合并读事件和业务线程中的多次flush，减少系统调用
+                if (NetworkConfig.getFlushConsolidation() > 0) {
+                    pipeline.addLast("flushConsolidation",
+                            new FlushConsolidationHandler(NetworkConfig.getFlushConsolidation(), true));
+                }
+                addChannelPipelineLast(ch, channelHandlers);
+            }
+        };
     }
 
 
     /**
      * 获取netty中channel
      */
-    public Channel getNewChannel(InetSocketAddress address) {
+    public Channel getNewChannel(SocketAddress address) {
+        return getNewChannel(address, false);
+    }
+
+    /**
+     * @param control 是否为控制连接，控制连接连到服务端的控制端口
+     */
+    public Channel getNewChannel(SocketAddress address, boolean control) {
         Channel channel;
-        ChannelFuture f = this.bootstrap.connect(address);
+        Bootstrap target = this.bootstrap;
+        if (control) {
+            if (!(address instanceof InetSocketAddress) || !NetworkConfig.isControlPlaneEnabled()) {
+                throw new NetworkException("control channel is not supported for " + address);
+            }
+            InetSocketAddress inetAddress = (InetSocketAddress) address;
+            address = new InetSocketAddress(inetAddress.getHostString(),
+                    inetAddress.getPort() + NetworkConfig.getControlPortOffset());
+            target = this.controlBootstrap;
+        } else if (address instanceof DomainSocketAddress) {
+            if (!transportType.supportsDomainSocket()) {
+                throw new NetworkException("transport " + transportType + " does not support unix domain socket "
+                        + address);
+            }
+            target = this.domainBootstrap;
+        }
+        ChannelFuture f = target.connect(address);
         try {
             f.await(this.networkConfig.getConnectTimeoutMillis(), TimeUnit.MILLISECONDS);
             if (f.isCancelled()) {
@@ -5,53 +5,66 @@ import cn.heimdall.core.network.codec.FrameDecoder;
 import cn.heimdall.core.network.codec.FrameEncoder;
 import cn.heimdall.core.network.codec.ProtocolDecoder;
 import cn.heimdall.core.network.codec.ProtocolEncoder;
+import cn.heimdall.core.utils.exception.NetworkException;
 import cn.heimdall.core.utils.thread.NamedThreadFactory;
+import io.netty.bootstrap.Bootstrap;
 import io.netty.bootstrap.ServerBootstrap;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.EventLoopGroup;
 import io.netty.channel.WriteBufferWaterMark;
-import io.netty.channel.epoll.EpollEventLoopGroup;
-import io.netty.channel.nio.NioEventLoopGroup;
-import io.netty.channel.socket.SocketChannel;
-import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.unix.DomainSocketAddress;
+import io.netty.handler.flush.FlushConsolidationHandler;
 import io.netty.handler.timeout.IdleStateHandler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 public class NettyServerBootstrap implements RemotingBootstrap {
     private static final Logger LOGGER = LoggerFactory.getLogger(NettyServerBootstrap.class);
+    //检查已有的unix domain socket是否还有进程在监听
+    private static final int STALE_SOCKET_CONNECT_TIMEOUT_MILLIS = 1000;
     private final ServerBootstrap serverBootstrap = new ServerBootstrap();
+    //同机的agent通过unix domain socket连接，和tcp共用event loop和编解码
+    private final ServerBootstrap domainBootstrap = new ServerBootstrap();
+    //控制连接单独监听，接入后使用独立的io线程，不和数据连接争用worker
+    private final ServerBootstrap controlBootstrap = new ServerBootstrap();
     private final EventLoopGroup eventLoopGroupWorker;
     private final EventLoopGroup eventLoopGroupBoss;
     private final NetworkConfig networkConfig;
+    private final TransportType transportType;
+    //绑定次数，开启SO_REUSEPORT时每个boss线程绑定一次
+    private final int acceptors;
     private ChannelHandler[] channelHandlers;
     private int listenPort;
-    private volatile ChannelFuture channelFuture;
+    private final List<ChannelFuture> channelFutures = new ArrayList<>();
     private final AtomicBoolean initialized = new AtomicBoolean(false);
 
 
     public NettyServerBootstrap(NetworkConfig networkConfig) {
         this.networkConfig = networkConfig;
-        if (networkConfig.enableEpoll()) {
-            this.eventLoopGroupBoss = new EpollEventLoopGroup(networkConfig.getBossThreadSize(),
-                    new NamedThreadFactory(networkConfig.getBossThreadPrefix(), networkConfig.getBossThreadSize()));
-            this.eventLoopGroupWorker = new EpollEventLoopGroup(networkConfig.getServerWorkerThreads(),
-                    new NamedThreadFactory(networkConfig.getWorkerThreadPrefix(),
-                            networkConfig.getServerWorkerThreads()));
-        } else {
-            this.eventLoopGroupBoss = new NioEventLoopGroup(networkConfig.getBossThreadSize(),
-                    new NamedThreadFactory(networkConfig.getBossThreadPrefix(), networkConfig.getBossThreadSize()));
-            this.eventLoopGroupWorker = new NioEventLoopGroup(networkConfig.getServerWorkerThreads(),
-                    new NamedThreadFactory(networkConfig.getWorkerThreadPrefix(),
-                            networkConfig.getServerWorkerThreads()));
-        }
+        this.transportType = TransportType.select(networkConfig.getTransportType());
+        boolean reusePort = networkConfig.isReusePort() && transportType.supportsReusePort();
+        int bossThreadSize = reusePort ? Math.max(networkConfig.getBossThreadSize(), 1) : 1;
+        this.acceptors = reusePort ? bossThreadSize : 1;
+        this.eventLoopGroupBoss = transportType.newEventLoopGroup(bossThreadSize,
+                new NamedThreadFactory(networkConfig.getBossThreadPrefix(), bossThreadSize));
+        //worker所有server和client共用，boss每个server各自一组
+        this.eventLoopGroupWorker = NetworkResourceManager.getInstance().getWorkerGroup(transportType);
     }
 
     public void setChannelHandlers(final ChannelHandler... handlers) {
@@ -81,45 +94,161 @@ public class NettyServerBootstrap implements RemotingBootstrap {
     @Override
     public void start() {
         this.serverBootstrap.group(this.eventLoopGroupBoss, this.eventLoopGroupWorker)
-                .channel(NioServerSocketChannel.class)
+                .channel(transportType.getServerChannelClass())
                 .option(ChannelOption.SO_BACKLOG, networkConfig.getSoBackLogSize())
                 .option(ChannelOption.SO_REUSEADDR, true)
                 .childOption(ChannelOption.SO_KEEPALIVE, true)
                 .childOption(ChannelOption.TCP_NODELAY, true)
-                .childOption(ChannelOption.SO_SNDBUF, networkConfig.getServerSocketSendBufSize())
+                .localAddress(new InetSocketAddress(listenPort))
+                .childHandler(newChildInitializer());
+        applyBufferOptions(this.serverBootstrap);
+        if (acceptors > 1) {
+            this.serverBootstrap.option(transportType.getReusePortOption(), true);
+        }
+
+        try {
+            //SO_REUSEPORT 下每次绑定生成一个独立的监听socket，注册到不同的boss线程
+            for (int i = 0; i < acceptors; i++) {
+                channelFutures.add(this.serverBootstrap.bind(listenPort));
+            }
+            LOGGER.info("Server started, listen port: {}, transport: {}, acceptors: {}", listenPort, transportType, acceptors);
+            NetworkResourceManager.getInstance().registerThreads("NettyServer:" + listenPort, "boss", acceptors);
+        } catch (Exception exx) {
+            throw new RuntimeException(exx);
+        }
+        bindControlPort();
+        bindDomainSocket();
+    }
+
+    /**
+     * 接入连接的收发缓冲和写缓冲高低水位，数据、控制和unix domain socket连接一致
+     */
+    private void applyBufferOptions(ServerBootstrap bootstrap) {
+        bootstrap.childOption(ChannelOption.SO_SNDBUF, networkConfig.getServerSocketSendBufSize())
                 .childOption(ChannelOption.SO_RCVBUF, networkConfig.getServerSocketResvBufSize())
                 .childOption(ChannelOption.WRITE_BUFFER_WATER_MARK,
                         new WriteBufferWaterMark(networkConfig.getWriteBufferLowWaterMark(),
-                                networkConfig.getWriteBufferHighWaterMark()))
-                .localAddress(new InetSocketAddress(listenPort))
-                .childHandler(new ChannelInitializer<SocketChannel>() {
-                    @Override
-                    public void initChannel(SocketChannel ch) {
-                        ch.pipeline().addLast(new IdleStateHandler(networkConfig.getChannelMaxReadIdleSeconds(), networkConfig.getChannelMaxWriteIdleSeconds(),
-                                networkConfig.getChannelMaxAllIdleSeconds()))
-                                .addLast(new FrameDecoder())
-                                .addLast(new FrameEncoder())
-                                .addLast("protocolDecoder", new ProtocolDecoder())
-                                .addLast("protocolEncoder", new ProtocolEncoder());
-
-                        if (channelHandlers != null) {
-                            addChannelPipelineLast(ch, channelHandlers);
-                        }
-
-                    }
-                });
+                                networkConfig.getWriteBufferHighWaterMark()));
+    }
+
+    private ChannelInitializer<Channel> newChildInitializer() {
+        return new ChannelInitializer<Channel>() {
+            @Override
+            public void initChannel(Channel ch) {
+                ch.pipeline().addLast(new IdleStateHandler(networkConfig.getChannelMaxReadIdleSeconds(), networkConfig.getChannelMaxWriteIdleSeconds(),
+                        networkConfig.getChannelMaxAllIdleSeconds()))
+                        .addLast(new FrameDecoder(networkConfig))
+                        .addLast(new FrameEncoder(networkConfig))
+                        .addLast("protocolDecoder", new ProtocolDecoder())
+                        .addLast("protocolEncoder", new ProtocolEncoder());
+                //合并读事件和业务线程中的多次flush，减少系统调用
+                if (NetworkConfig.getFlushConsolidation() > 0) {
+                    ch.pipeline().addLast("flushConsolidation",
+                            new FlushConsolidationHandler(NetworkConfig.getFlushConsolidation(), true));
+                }
 
+                if (channelHandlers != null) {
+                    addChannelPipelineLast(ch, channelHandlers);
+                }
+
+            }
+        };
+    }
+
+    /**
+     * 控制端口为数据端口加偏移，客户端按同样的规则连接
+     */
+    private void bindControlPort() {
+        if (!NetworkConfig.isControlPlaneEnabled()) {
+            return;
+        }
+        int controlPort = listenPort + NetworkConfig.getControlPortOffset();
+        this.controlBootstrap.group(this.eventLoopGroupBoss,
+                NetworkResourceManager.getInstance().getControlGroup(transportType))
+                .channel(transportType.getServerChannelClass())
+                .option(ChannelOption.SO_BACKLOG, networkConfig.getSoBackLogSize())
+                .option(ChannelOption.SO_REUSEADDR, true)
+                .childOption(ChannelOption.SO_KEEPALIVE, true)
+                .childOption(ChannelOption.TCP_NODELAY, true)
+                .childHandler(newChildInitializer());
+        applyBufferOptions(this.controlBootstrap);
+        //绑定失败时启动失败，否则客户端要等控制连接超时后才回退到数据连接
         try {
-            channelFuture = this.serverBootstrap.bind(listenPort);
-            LOGGER.info("Server started, listen port: {}", listenPort);
+            channelFutures.add(this.controlBootstrap.bind(controlPort).sync());
+            LOGGER.info("Server started, listen control port: {}", controlPort);
         } catch (Exception exx) {
-            throw new RuntimeException(exx);
+            throw new RuntimeException("bind control port " + controlPort + " failed", exx);
         }
     }
 
+    /**
+     * 配置了unix domain socket路径时额外监听，只有epoll支持
+     */
+    private void bindDomainSocket() {
+        String path = networkConfig.getDomainSocketPath();
+        if (path == null || path.isEmpty()) {
+            return;
+        }
+        if (!transportType.supportsDomainSocket()) {
+            LOGGER.warn("transport {} does not support unix domain socket, {} is not listened", transportType, path);
+            return;
+        }
+        removeStaleSocketFile(path);
+        this.domainBootstrap.group(this.eventLoopGroupBoss, this.eventLoopGroupWorker)
+                .channel(transportType.getDomainServerChannelClass())
+                .option(ChannelOption.SO_BACKLOG, networkConfig.getSoBackLogSize())
+                .childHandler(newChildInitializer());
+        applyBufferOptions(this.domainBootstrap);
+        try {
+            channelFutures.add(this.domainBootstrap.bind(new DomainSocketAddress(path)).sync());
+            LOGGER.info("Server started, listen unix domain socket: {}", path);
+        } catch (Exception exx) {
+            throw new RuntimeException("bind unix domain socket " + path + " failed", exx);
+        }
+    }
+
+    /**
+     * 上次进程退出时留下的socket文件会导致绑定失败，只删除没有进程监听的socket文件，
+     * 路径上是普通文件、目录或仍有进程在监听时启动失败
+     */
+    private void removeStaleSocketFile(String path) {
+        Path socketPath = Paths.get(path);
+        try {
+            if (!Files.exists(socketPath, LinkOption.NOFOLLOW_LINKS)) {
+                return;
+            }
+            //socket文件既不是普通文件、目录也不是链接
+            if (!Files.readAttributes(socketPath, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS).isOther()) {
+                throw new NetworkException("unix domain socket path " + path + " is not a socket file");
+            }
+            if (isListening(path)) {
+                throw new NetworkException("unix domain socket " + path + " is in use by another process");
+            }
+            Files.delete(socketPath);
+            LOGGER.info("delete stale unix domain socket file {}", path);
+        } catch (IOException e) {
+            throw new NetworkException(e, "can not delete stale unix domain socket file " + path);
+        }
+    }
+
+    private boolean isListening(String path) {
+        ChannelFuture future = new Bootstrap().group(this.eventLoopGroupBoss)
+                .channel(transportType.getDomainClientChannelClass())
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, STALE_SOCKET_CONNECT_TIMEOUT_MILLIS)
+                .handler(new ChannelInboundHandlerAdapter())
+                .connect(new DomainSocketAddress(path));
+        boolean listening = future.awaitUninterruptibly().isSuccess();
+        if (listening) {
+            future.channel().close();
+        }
+        return listening;
+    }
+
     public void closeFutureSync() {
         try {
-            this.channelFuture.sync().channel().closeFuture().sync();
+            for (ChannelFuture channelFuture : channelFutures) {
+                channelFuture.sync().channel().closeFuture().sync();
+            }
         } catch (InterruptedException e) {
             LOGGER.error("closeFutureSync error, port is {}", this.listenPort);
         }
@@ -131,8 +260,8 @@ public class NettyServerBootstrap implements RemotingBootstrap {
             if (LOGGER.isDebugEnabled()) {
                 LOGGER.debug("Shutting server down. ");
             }
+            //共用的worker由NetworkResourceManager关闭
             this.eventLoopGroupBoss.shutdownGracefully();
-            this.eventLoopGroupWorker.shutdownGracefully();
         } catch (Exception exx) {
             LOGGER.error(exx.getMessage());
         }
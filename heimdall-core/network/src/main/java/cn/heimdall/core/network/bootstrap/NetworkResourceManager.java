@@ -0,0 +1,199 @@
+package cn.heimdall.core.network.bootstrap;
+
+import cn.heimdall.core.config.NetworkConfig;
+import cn.heimdall.core.utils.thread.NamedThreadFactory;
+import io.netty.channel.EventLoopGroup;
+import io.netty.util.HashedWheelTimer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 进程内所有server和client共用的网络资源：一个io worker组、一个定时线程池、一个超时时间轮
+ * 处理消息的线程池按配置共用一个或每个server/client各自一个
+ * 控制类消息另有独立的io线程和处理线程，数据流量打满时心跳和注册不受影响
+ * 启动时打印线程拓扑，各server/client销毁时不关闭共用的资源，由shutdown统一关闭
+ */
+public class NetworkResourceManager {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(NetworkResourceManager.class);
+
+    private static volatile NetworkResourceManager instance;
+
+    private final Map<TransportType, EventLoopGroup> workerGroups = new EnumMap<>(TransportType.class);
+
+    private final int workerThreads = NetworkConfig.getSharedWorkerThreads();
+
+    private final Map<TransportType, EventLoopGroup> controlGroups = new EnumMap<>(TransportType.class);
+
+    private final int controlThreads = NetworkConfig.getControlThreads();
+
+    private volatile ThreadPoolExecutor controlExecutor;
+
+    private final ScheduledExecutorService scheduler;
+
+    //所有请求的超时共用一个时间轮
+    private final HashedWheelTimer timeoutTimer = new HashedWheelTimer(
+            new NamedThreadFactory("rpcTimeoutTimer", 1, true), 10, TimeUnit.MILLISECONDS, 1024);
+
+    private final boolean shareMessageExecutor = NetworkConfig.isShareMessageExecutor();
+
+    private volatile ThreadPoolExecutor sharedMessageExecutor;
+
+    //各server/client独占的线程，打印拓扑用
+    private final List<String> dedicatedThreads = new ArrayList<>();
+
+    private NetworkResourceManager() {
+        int timerThreads = NetworkConfig.getSharedTimerThreads();
+        this.scheduler = new ScheduledThreadPoolExecutor(timerThreads,
+                new NamedThreadFactory("networkTimer", timerThreads, true));
+    }
+
+    public static NetworkResourceManager getInstance() {
+        if (instance == null) {
+            synchronized (NetworkResourceManager.class) {
+                if (instance == null) {
+                    instance = new NetworkResourceManager();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * server的worker和client的selector共用，同一种传输实现只有一个
+     */
+    public synchronized EventLoopGroup getWorkerGroup(TransportType transportType) {
+        EventLoopGroup group = workerGroups.get(transportType);
+        if (group == null) {
+            group = transportType.newEventLoopGroup(workerThreads,
+                    new NamedThreadFactory("NettyWorker", workerThreads));
+            workerGroups.put(transportType, group);
+        }
+        return group;
+    }
+
+    /**
+     * 控制连接专用，只处理心跳、注册等小消息
+     */
+    public synchronized EventLoopGroup getControlGroup(TransportType transportType) {
+        EventLoopGroup group = controlGroups.get(transportType);
+        if (group == null) {
+            group = transportType.newEventLoopGroup(controlThreads,
+                    new NamedThreadFactory("NettyControl", controlThreads));
+            controlGroups.put(transportType, group);
+        }
+        return group;
+    }
+
+    /**
+     * 控制类消息的处理线程池，排队数由控制类的份额限制，见MessageLanes
+     */
+    public ThreadPoolExecutor getControlExecutor() {
+        if (controlExecutor == null) {
+            synchronized (this) {
+                if (controlExecutor == null) {
+                    int threads = NetworkConfig.getControlExecutorThreads();
+                    controlExecutor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                            new LinkedBlockingQueue<>(), new NamedThreadFactory("NetworkControlExecutor", threads),
+                            new ThreadPoolExecutor.AbortPolicy());
+                }
+            }
+        }
+        return controlExecutor;
+    }
+
+    /**
+     * 定时任务中不能有阻塞操作，建连等放到各client自己的线程中
+     */
+    public ScheduledExecutorService getScheduler() {
+        return scheduler;
+    }
+
+    public HashedWheelTimer getTimeoutTimer() {
+        return timeoutTimer;
+    }
+
+    /**
+     * 开启共用时所有server/client使用同一个处理线程池，否则使用各自创建的
+     * @param owner server/client名称，打印拓扑用
+     */
+    public ThreadPoolExecutor getMessageExecutor(String owner, Supplier<ThreadPoolExecutor> dedicated) {
+        if (!shareMessageExecutor) {
+            ThreadPoolExecutor executor = dedicated.get();
+            registerThreads(owner, "messageExecutor", executor.getMaximumPoolSize());
+            return executor;
+        }
+        if (sharedMessageExecutor == null) {
+            synchronized (this) {
+                if (sharedMessageExecutor == null) {
+                    int threads = NetworkConfig.getSharedExecutorThreads();
+                    sharedMessageExecutor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                            new LinkedBlockingQueue<>(NetworkConfig.getSharedExecutorQueueSize()),
+                            new NamedThreadFactory("NetworkMessageExecutor", threads),
+                            new ThreadPoolExecutor.AbortPolicy());
+                }
+            }
+        }
+        return sharedMessageExecutor;
+    }
+
+    public boolean isShared(Object resource) {
+        return resource == scheduler || resource == timeoutTimer || resource == sharedMessageExecutor
+                || resource == controlExecutor || workerGroups.containsValue(resource)
+                || controlGroups.containsValue(resource);
+    }
+
+    /**
+     * 登记server/client独占的线程
+     */
+    public synchronized void registerThreads(String owner, String name, int threads) {
+        dedicatedThreads.add(owner + "." + name + ": " + threads);
+    }
+
+    public synchronized void shutdown() {
+        workerGroups.values().forEach(EventLoopGroup::shutdownGracefully);
+        workerGroups.clear();
+        controlGroups.values().forEach(EventLoopGroup::shutdownGracefully);
+        controlGroups.clear();
+        if (controlExecutor != null) {
+            controlExecutor.shutdown();
+        }
+        scheduler.shutdown();
+        timeoutTimer.stop();
+        if (sharedMessageExecutor != null) {
+            sharedMessageExecutor.shutdown();
+        }
+    }
+
+    public synchronized void logTopology() {
+        if (!LOGGER.isInfoEnabled()) {
+            return;
+        }
+        StringBuilder builder = new StringBuilder("network thread topology:");
+        workerGroups.keySet().forEach(type -> builder.append("\n  shared worker group(").append(type)
+                .append("): ").append(workerThreads));
+        controlGroups.keySet().forEach(type -> builder.append("\n  control group(").append(type)
+                .append("): ").append(controlThreads));
+        if (controlExecutor != null) {
+            builder.append("\n  control executor: ").append(controlExecutor.getMaximumPoolSize());
+        }
+        builder.append("\n  shared timer: ").append(((ScheduledThreadPoolExecutor) scheduler).getCorePoolSize())
+                .append("\n  shared timeout wheel: 1");
+        if (sharedMessageExecutor != null) {
+            builder.append("\n  shared message executor: ").append(sharedMessageExecutor.getMaximumPoolSize());
+        }
+        dedicatedThreads.forEach(line -> builder.append("\n  ").append(line));
+        LOGGER.info(builder.toString());
+    }
+}
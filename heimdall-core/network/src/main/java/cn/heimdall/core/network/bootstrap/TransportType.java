@@ -0,0 +1,215 @@
+package cn.heimdall.core.network.bootstrap;
+
+import cn.heimdall.core.utils.exception.NetworkException;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.ServerChannel;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollChannelOption;
+import io.netty.channel.epoll.EpollDomainSocketChannel;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerDomainSocketChannel;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * 网络传输实现，event loop和channel类型必须成套使用
+ */
+public enum TransportType {
+
+    /**
+     * io_uring在netty incubator中，classpath中存在且内核支持时才可用，通过反射加载避免编译期依赖
+     */
+    IO_URING {
+        private static final String PACKAGE = "io.netty.incubator.channel.uring.";
+
+        @Override
+        public boolean isAvailable() {
+            try {
+                return (Boolean) Class.forName(PACKAGE + "IOUring").getMethod("isAvailable").invoke(null);
+            } catch (Throwable e) {
+                return false;
+            }
+        }
+
+        @Override
+        public EventLoopGroup newEventLoopGroup(int threads, ThreadFactory threadFactory) {
+            try {
+                return (EventLoopGroup) Class.forName(PACKAGE + "IOUringEventLoopGroup")
+                        .getConstructor(int.class, ThreadFactory.class).newInstance(threads, threadFactory);
+            } catch (ReflectiveOperationException e) {
+                throw new NetworkException(e, "create io_uring event loop group failed");
+            }
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Class<? extends ServerChannel> getServerChannelClass() {
+            return (Class<? extends ServerChannel>) loadClass(PACKAGE + "IOUringServerSocketChannel");
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Class<? extends Channel> getClientChannelClass() {
+            return (Class<? extends Channel>) loadClass(PACKAGE + "IOUringSocketChannel");
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public ChannelOption<Boolean> getReusePortOption() {
+            try {
+                return (ChannelOption<Boolean>) loadClass(PACKAGE + "IOUringChannelOption")
+                        .getField("SO_REUSEPORT").get(null);
+            } catch (ReflectiveOperationException e) {
+                return null;
+            }
+        }
+    },
+
+    EPOLL {
+        @Override
+        public boolean isAvailable() {
+            try {
+                return Epoll.isAvailable();
+            } catch (Throwable e) {
+                return false;
+            }
+        }
+
+        @Override
+        public EventLoopGroup newEventLoopGroup(int threads, ThreadFactory threadFactory) {
+            return new EpollEventLoopGroup(threads, threadFactory);
+        }
+
+        @Override
+        public Class<? extends ServerChannel> getServerChannelClass() {
+            return EpollServerSocketChannel.class;
+        }
+
+        @Override
+        public Class<? extends Channel> getClientChannelClass() {
+            return EpollSocketChannel.class;
+        }
+
+        @Override
+        public ChannelOption<Boolean> getReusePortOption() {
+            return EpollChannelOption.SO_REUSEPORT;
+        }
+
+        @Override
+        public Class<? extends ServerChannel> getDomainServerChannelClass() {
+            return EpollServerDomainSocketChannel.class;
+        }
+
+        @Override
+        public Class<? extends Channel> getDomainClientChannelClass() {
+            return EpollDomainSocketChannel.class;
+        }
+    },
+
+    NIO {
+        @Override
+        public boolean isAvailable() {
+            return true;
+        }
+
+        @Override
+        public EventLoopGroup newEventLoopGroup(int threads, ThreadFactory threadFactory) {
+            return new NioEventLoopGroup(threads, threadFactory);
+        }
+
+        @Override
+        public Class<? extends ServerChannel> getServerChannelClass() {
+            return NioServerSocketChannel.class;
+        }
+
+        @Override
+        public Class<? extends Channel> getClientChannelClass() {
+            return NioSocketChannel.class;
+        }
+
+        @Override
+        public ChannelOption<Boolean> getReusePortOption() {
+            return null;
+        }
+    };
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TransportType.class);
+
+    public abstract boolean isAvailable();
+
+    public abstract EventLoopGroup newEventLoopGroup(int threads, ThreadFactory threadFactory);
+
+    public abstract Class<? extends ServerChannel> getServerChannelClass();
+
+    public abstract Class<? extends Channel> getClientChannelClass();
+
+    /**
+     * @return SO_REUSEPORT选项，不支持时返回null
+     */
+    public abstract ChannelOption<Boolean> getReusePortOption();
+
+    public boolean supportsReusePort() {
+        return getReusePortOption() != null;
+    }
+
+    /**
+     * @return unix domain socket的服务端channel类型，不支持时返回null
+     */
+    public Class<? extends ServerChannel> getDomainServerChannelClass() {
+        return null;
+    }
+
+    /**
+     * @return unix domain socket的客户端channel类型，不支持时返回null
+     */
+    public Class<? extends Channel> getDomainClientChannelClass() {
+        return null;
+    }
+
+    public boolean supportsDomainSocket() {
+        return getDomainClientChannelClass() != null;
+    }
+
+    /**
+     * 按配置选择传输实现，auto 按 io_uring、epoll、nio 的顺序取第一个可用的
+     * 指定的实现不可用时退回nio
+     */
+    public static TransportType select(String name) {
+        if (name == null || "auto".equalsIgnoreCase(name)) {
+            for (TransportType type : values()) {
+                if (type.isAvailable()) {
+                    return type;
+                }
+            }
+            return NIO;
+        }
+        TransportType type;
+        try {
+            type = valueOf(name.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("unknown transport type:" + name);
+        }
+        if (!type.isAvailable()) {
+            LOGGER.warn("transport {} is not available, fall back to nio", type);
+            return NIO;
+        }
+        return type;
+    }
+
+    private static Class<?> loadClass(String className) {
+        try {
+            return Class.forName(className);
+        } catch (ClassNotFoundException e) {
+            throw new NetworkException(e, "transport class not found: " + className);
+        }
+    }
+}
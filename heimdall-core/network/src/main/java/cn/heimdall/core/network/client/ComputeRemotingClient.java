@@ -1,18 +1,24 @@
 package cn.heimdall.core.network.client;
 
+import cn.heimdall.core.cluster.ClusterInfo;
+import cn.heimdall.core.cluster.ClusterInfoManager;
 import cn.heimdall.core.cluster.NodeInfo;
 import cn.heimdall.core.cluster.NodeInfoManager;
+import cn.heimdall.core.config.HeimdallConfig;
 import cn.heimdall.core.config.NetworkConfig;
 import cn.heimdall.core.config.NetworkManageConfig;
 import cn.heimdall.core.message.MessageBody;
 import cn.heimdall.core.message.MessageType;
+import cn.heimdall.core.network.bootstrap.NetworkResourceManager;
 import cn.heimdall.core.network.processor.ClientProcessor;
 import cn.heimdall.core.network.remote.AbstractRemotingClient;
 import cn.heimdall.core.network.remote.ClientPoolKey;
+import cn.heimdall.core.utils.enums.NodeRole;
 import cn.heimdall.core.utils.thread.NamedThreadFactory;
 import io.netty.channel.Channel;
 
 import java.net.InetSocketAddress;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
@@ -28,6 +34,8 @@ public class ComputeRemotingClient extends AbstractRemotingClient {
 
     private NodeInfo nodeInfo;
 
+    private ClusterInfo clusterInfo;
+
     public ComputeRemotingClient(NetworkConfig networkConfig, ThreadPoolExecutor executor) {
         //TODO
         super(networkConfig, executor, null);
@@ -36,6 +44,7 @@ public class ComputeRemotingClient extends AbstractRemotingClient {
     @Override
     public void init() {
         nodeInfo = NodeInfoManager.getInstance().getNodeInfo();
+        clusterInfo = ClusterInfoManager.getInstance().getClusterInfo();
         super.init();
     }
 
@@ -64,11 +73,12 @@ public class ComputeRemotingClient extends AbstractRemotingClient {
                 if (instance == null) {
                     NetworkManageConfig networkManageConfig = new NetworkManageConfig();
                     //发送消息线程池
-                    final ThreadPoolExecutor messageExecutor = new ThreadPoolExecutor(
-                            NetworkManageConfig.MANAGE_WORK_THREAD_SIZE, NetworkManageConfig.MANAGE_WORK_THREAD_SIZE,
-                            KEEP_ALIVE_TIME, TimeUnit.SECONDS, new LinkedBlockingQueue<>(MAX_QUEUE_SIZE),
-                            new NamedThreadFactory("manage:", true),
-                            new ThreadPoolExecutor.CallerRunsPolicy());
+                    final ThreadPoolExecutor messageExecutor = NetworkResourceManager.getInstance().getMessageExecutor("ComputeRemotingClient",
+                            () -> new ThreadPoolExecutor(
+                                NetworkManageConfig.MANAGE_WORK_THREAD_SIZE, NetworkManageConfig.MANAGE_WORK_THREAD_SIZE,
+                                KEEP_ALIVE_TIME, TimeUnit.SECONDS, new LinkedBlockingQueue<>(MAX_QUEUE_SIZE),
+                                new NamedThreadFactory("manage:", true),
+                                new ThreadPoolExecutor.AbortPolicy()));
                     instance = new ComputeRemotingClient(networkManageConfig,  messageExecutor);
                 }
             }
@@ -77,8 +87,13 @@ public class ComputeRemotingClient extends AbstractRemotingClient {
     }
 
     @Override
-    public String loadBalance() {
-        return null;
+    protected NodeRole getServerRole() {
+        return NodeRole.COMPUTE;
+    }
+
+    @Override
+    protected List<InetSocketAddress> getActivePeers() {
+        return clusterInfo.getActivePeers(NodeRole.COMPUTE, HeimdallConfig.NODE_HEART_BEAT_EXPIRE_TIME);
     }
 
     @Override
@@ -12,8 +12,14 @@ import cn.heimdall.core.config.NetworkManageConfig;
 import cn.heimdall.core.message.MessageBody;
 import cn.heimdall.core.message.MessageType;
 import cn.heimdall.core.message.ResultCode;
-import cn.heimdall.core.message.body.register.AppRegisterResponse;
+import cn.heimdall.core.message.RpcMessage;
+import cn.heimdall.core.message.body.DictionaryMessage;
 import cn.heimdall.core.message.body.register.NodeRegisterRequest;
+import cn.heimdall.core.message.body.register.NodeRegisterResponse;
+import cn.heimdall.core.message.compress.CompressionDictionary;
+import cn.heimdall.core.message.compress.CompressorNegotiator;
+import cn.heimdall.core.message.compress.DictionaryRegistry;
+import cn.heimdall.core.network.bootstrap.NetworkResourceManager;
 import cn.heimdall.core.network.processor.ClientProcessor;
 import cn.heimdall.core.network.remote.AbstractRemotingClient;
 import cn.heimdall.core.network.remote.ClientPoolKey;
@@ -28,9 +34,10 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.net.InetSocketAddress;
+import java.net.SocketAddress;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.Random;
 import java.util.Set;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
@@ -55,7 +62,8 @@ public class GuarderRemotingClient extends AbstractRemotingClient {
     private ClusterInfo clusterInfo;
     private NodeInfo nodeInfo;
     private Configuration configuration;
-    private Set<InetSocketAddress> seekAddresses;
+    private Set<SocketAddress> seekAddresses;
+    private List<SocketAddress> seekPeers;
 
     public GuarderRemotingClient(NetworkConfig networkConfig, ThreadPoolExecutor executor) {
         //TODO
@@ -72,12 +80,13 @@ public class GuarderRemotingClient extends AbstractRemotingClient {
             super.init();
             String[] ips = this.configuration.getConfigFromSys(ConfigurationKeys.GUARDER_SEED_HOSTS).split(",");
             this.seekAddresses = Stream.of(ips).
-                    map(ip -> NetUtil.toInetSocketAddress(ip)).collect(Collectors.toSet());
+                    map(ip -> NetUtil.toSocketAddress(ip)).collect(Collectors.toSet());
+            this.seekPeers = Collections.unmodifiableList(new ArrayList<>(this.seekAddresses));
         }
     }
 
     @Override
-    protected Set<InetSocketAddress> getAvailableAddress() {
+    protected Set<? extends SocketAddress> getAvailableAddress() {
         //如果动态变更信息中没有有效数据
         Set<InetSocketAddress> addresses = this.clusterInfo.
                 getActiveInetSocketAddress(NodeRole.GUARDER, HeimdallConfig.NODE_HEART_BEAT_EXPIRE_TIME);
@@ -109,11 +118,12 @@ public class GuarderRemotingClient extends AbstractRemotingClient {
                 if (instance == null) {
                     NetworkManageConfig networkManageConfig = new NetworkManageConfig();
                     //发送消息线程池
-                    final ThreadPoolExecutor messageExecutor = new ThreadPoolExecutor(
-                            NetworkManageConfig.MANAGE_WORK_THREAD_SIZE, NetworkManageConfig.MANAGE_WORK_THREAD_SIZE,
-                            KEEP_ALIVE_TIME, TimeUnit.SECONDS, new LinkedBlockingQueue<>(MAX_QUEUE_SIZE),
-                            new NamedThreadFactory("app-manage-remoting-client:", true),
-                            new ThreadPoolExecutor.CallerRunsPolicy());
+                    final ThreadPoolExecutor messageExecutor = NetworkResourceManager.getInstance().getMessageExecutor("GuarderRemotingClient",
+                            () -> new ThreadPoolExecutor(
+                                NetworkManageConfig.MANAGE_WORK_THREAD_SIZE, NetworkManageConfig.MANAGE_WORK_THREAD_SIZE,
+                                KEEP_ALIVE_TIME, TimeUnit.SECONDS, new LinkedBlockingQueue<>(MAX_QUEUE_SIZE),
+                                new NamedThreadFactory("app-manage-remoting-client:", true),
+                                new ThreadPoolExecutor.AbortPolicy()));
                     instance = new GuarderRemotingClient(networkManageConfig, messageExecutor);
                     instance.init();
                 }
@@ -123,28 +133,25 @@ public class GuarderRemotingClient extends AbstractRemotingClient {
     }
 
     @Override
-    public String loadBalance() {
-        //TODO 负载均衡
-        Set<InetSocketAddress> addresses = getAvailableAddress();
-        ArrayList<InetSocketAddress> ipArrayList = new ArrayList<>();
-        ipArrayList.addAll(addresses);
-        //循环随机数
-        Random random = new Random();
-        //随机数在list数量中取（1-list.size）
-        int pos = random.nextInt(ipArrayList.size());
-        InetSocketAddress serverNameReturn = ipArrayList.get(pos);
-        return NetUtil.toStringAddress(serverNameReturn);
+    protected List<? extends SocketAddress> getActivePeers() {
+        List<InetSocketAddress> peers = this.clusterInfo.
+                getActivePeers(NodeRole.GUARDER, HeimdallConfig.NODE_HEART_BEAT_EXPIRE_TIME);
+        return peers.isEmpty() ? this.seekPeers : peers;
     }
 
     @Override
     protected Function<String, ClientPoolKey> getPoolKeyFunction() {
-        return addressIp -> new ClientPoolKey(selfRoles, addressIp, new NodeRegisterRequest(selfRoles, addressIp));
+        return addressIp -> {
+            NodeRegisterRequest request = new NodeRegisterRequest(selfRoles, addressIp);
+            request.setCompressors(CompressorNegotiator.getInstance().getSupportedCompressors());
+            return new ClientPoolKey(selfRoles, addressIp, request);
+        };
     }
 
     @Override
     protected boolean isRegisterSuccess(MessageBody body) {
-        AppRegisterResponse appRegisterResponse = (AppRegisterResponse) body;
-        return appRegisterResponse.getResultCode() == ResultCode.SUCCESS.getCode();
+        NodeRegisterResponse nodeRegisterResponse = (NodeRegisterResponse) body;
+        return nodeRegisterResponse.getResultCode() == ResultCode.SUCCESS.getCode();
     }
 
     @Override
@@ -155,7 +162,30 @@ public class GuarderRemotingClient extends AbstractRemotingClient {
             LOGGER.info("register client manager success. client version:{}, server version:{},channel:{}", requestBody,
                     responseBody, channel);
         }
+        NodeRegisterResponse registerResponse = (NodeRegisterResponse) responseBody;
+        CompressorNegotiator.getInstance().onNegotiated(registerResponse.getCompressor());
+        DictionaryRegistry.getInstance().register(registerResponse.getDictionaries());
         getClientChannelManager().registerChannel(serverAddress, channel);
+        pushDictionaries(channel, registerResponse.getDictionaries());
+    }
+
+    /**
+     * guarder重启后字典表为空，把本节点有而guarder没有的字典补发过去，再由guarder下发给客户端
+     */
+    private void pushDictionaries(Channel channel, List<CompressionDictionary> known) {
+        Set<Integer> knownIds = known == null ? Collections.emptySet()
+                : known.stream().map(CompressionDictionary::getId).collect(Collectors.toSet());
+        for (CompressionDictionary dictionary : DictionaryRegistry.getInstance().getAll()) {
+            if (knownIds.contains(dictionary.getId())) {
+                continue;
+            }
+            sendAsyncRequest(channel, new RpcMessage(new DictionaryMessage(dictionary)), NetworkConfig.getRpcRequestTimeout())
+                    .whenComplete((body, e) -> {
+                        if (e != null && LOGGER.isWarnEnabled()) {
+                            LOGGER.warn("push compression dictionary {} failed, channel:{}", dictionary, channel, e);
+                        }
+                    });
+        }
     }
 
     @Override
@@ -6,19 +6,24 @@ import cn.heimdall.core.cluster.NodeInfo;
 import cn.heimdall.core.cluster.NodeInfoManager;
 import cn.heimdall.core.config.Configuration;
 import cn.heimdall.core.config.ConfigurationFactory;
+import cn.heimdall.core.config.HeimdallConfig;
 import cn.heimdall.core.config.NetworkConfig;
 import cn.heimdall.core.config.NetworkManageConfig;
 import cn.heimdall.core.message.MessageBody;
 import cn.heimdall.core.message.MessageType;
+import cn.heimdall.core.network.bootstrap.NetworkResourceManager;
 import cn.heimdall.core.network.processor.ClientProcessor;
 import cn.heimdall.core.network.remote.AbstractRemotingClient;
 import cn.heimdall.core.network.remote.ClientPoolKey;
 import cn.heimdall.core.utils.common.NetUtil;
 import cn.heimdall.core.utils.constants.ConfigurationKeys;
+import cn.heimdall.core.utils.enums.NodeRole;
 import cn.heimdall.core.utils.thread.NamedThreadFactory;
 import io.netty.channel.Channel;
 
 import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
@@ -35,7 +40,7 @@ public class StorageRemotingClient extends AbstractRemotingClient {
     private NodeInfo nodeInfo;
     private ClusterInfo clusterInfo;
     private Configuration configuration;
-    private Set<InetSocketAddress> seekAddresses;
+    private Set<SocketAddress> seekAddresses;
 
     public StorageRemotingClient(NetworkConfig networkConfig, ThreadPoolExecutor executor) {
         //TODO
@@ -51,7 +56,7 @@ public class StorageRemotingClient extends AbstractRemotingClient {
             super.init();
             String[] ips = this.configuration.getConfigFromSys(ConfigurationKeys.COMPUTE_HOSTS).split(",");
             this.seekAddresses = Stream.of(ips).
-                    map(ip -> NetUtil.toInetSocketAddress(ip)).collect(Collectors.toSet());
+                    map(ip -> NetUtil.toSocketAddress(ip)).collect(Collectors.toSet());
         }
     }
 
@@ -78,11 +83,12 @@ public class StorageRemotingClient extends AbstractRemotingClient {
             synchronized (StorageRemotingClient.class) {
                 if (instance == null) {
                     NetworkManageConfig networkManageConfig = new NetworkManageConfig();
-                    final ThreadPoolExecutor messageExecutor = new ThreadPoolExecutor(
-                            NetworkManageConfig.MANAGE_WORK_THREAD_SIZE, NetworkManageConfig.MANAGE_WORK_THREAD_SIZE,
-                            KEEP_ALIVE_TIME, TimeUnit.SECONDS, new LinkedBlockingQueue<>(MAX_QUEUE_SIZE),
-                            new NamedThreadFactory("StorageRemotingClient:", true),
-                            new ThreadPoolExecutor.CallerRunsPolicy());
+                    final ThreadPoolExecutor messageExecutor = NetworkResourceManager.getInstance().getMessageExecutor("StorageRemotingClient",
+                            () -> new ThreadPoolExecutor(
+                                NetworkManageConfig.MANAGE_WORK_THREAD_SIZE, NetworkManageConfig.MANAGE_WORK_THREAD_SIZE,
+                                KEEP_ALIVE_TIME, TimeUnit.SECONDS, new LinkedBlockingQueue<>(MAX_QUEUE_SIZE),
+                                new NamedThreadFactory("StorageRemotingClient:", true),
+                                new ThreadPoolExecutor.AbortPolicy()));
                     instance = new StorageRemotingClient(networkManageConfig, messageExecutor);
                 }
             }
@@ -91,8 +97,13 @@ public class StorageRemotingClient extends AbstractRemotingClient {
     }
 
     @Override
-    public String loadBalance() {
-        return null;
+    protected NodeRole getServerRole() {
+        return NodeRole.STORAGE;
+    }
+
+    @Override
+    protected List<InetSocketAddress> getActivePeers() {
+        return clusterInfo.getActivePeers(NodeRole.STORAGE, HeimdallConfig.NODE_HEART_BEAT_EXPIRE_TIME);
     }
 
     @Override
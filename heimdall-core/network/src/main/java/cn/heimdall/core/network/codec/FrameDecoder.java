@@ -1,10 +1,127 @@
 package cn.heimdall.core.network.codec;
 
 
-import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
+import cn.heimdall.core.config.NetworkConfig;
+import cn.heimdall.core.message.MessageHeader;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.ByteToMessageDecoder;
+import io.netty.handler.codec.TooLongFrameException;
+import io.netty.util.AttributeKey;
 
-public class FrameDecoder extends LengthFieldBasedFrameDecoder {
-    public FrameDecoder() {
-        super(Integer.MAX_VALUE, 0, 2, 0, 2);
+import java.util.List;
+
+/**
+ * 帧格式：length(4) + payload，length最高位表示后面还有续帧
+ * 续帧以CompositeByteBuf拼接，不会拷贝成一个大的连续buffer
+ */
+public class FrameDecoder extends ByteToMessageDecoder {
+
+    //对端使用老的2字节长度帧，编码时需保持一致，客户端连接老版本服务端时预先设置
+    public static final AttributeKey<Boolean> LEGACY_FRAMING = AttributeKey.valueOf("legacyFraming");
+
+    static final int LENGTH_FIELD_LENGTH = 4;
+    static final int LEGACY_LENGTH_FIELD_LENGTH = 2;
+    static final int CONTINUATION_FLAG = 0x80000000;
+
+    private final int maxFrameLength;
+    private final int maxMessageLength;
+    //0表示还未确定帧格式
+    private int lengthFieldLength;
+    private CompositeByteBuf pending;
+
+    public FrameDecoder(NetworkConfig networkConfig) {
+        this(networkConfig.getMaxFrameLength(), NetworkConfig.getMaxMessageLength());
+    }
+
+    public FrameDecoder(int maxFrameLength, int maxMessageLength) {
+        this.maxFrameLength = maxFrameLength;
+        this.maxMessageLength = maxMessageLength;
+    }
+
+    @Override
+    protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) throws Exception {
+        if (lengthFieldLength == 0 && !detectFraming(ctx, in)) {
+            return;
+        }
+        while (in.readableBytes() >= lengthFieldLength) {
+            int readerIndex = in.readerIndex();
+            boolean continuation = false;
+            long frameLength;
+            if (lengthFieldLength == LENGTH_FIELD_LENGTH) {
+                int field = in.getInt(readerIndex);
+                continuation = (field & CONTINUATION_FLAG) != 0;
+                frameLength = field & ~CONTINUATION_FLAG;
+            } else {
+                frameLength = in.getUnsignedShort(readerIndex);
+            }
+            if (frameLength > maxFrameLength) {
+                in.skipBytes(in.readableBytes());
+                throw new TooLongFrameException("frame length " + frameLength + " exceeds " + maxFrameLength);
+            }
+            if (in.readableBytes() < lengthFieldLength + frameLength) {
+                return;
+            }
+            in.skipBytes(lengthFieldLength);
+            ByteBuf frame = in.readRetainedSlice((int) frameLength);
+            if (pending == null && !continuation) {
+                out.add(frame);
+                continue;
+            }
+            if (pending == null) {
+                pending = ctx.alloc().compositeBuffer(Integer.MAX_VALUE);
+            }
+            if ((long) pending.readableBytes() + frameLength > maxMessageLength) {
+                frame.release();
+                releasePending();
+                throw new TooLongFrameException("message length exceeds " + maxMessageLength);
+            }
+            pending.addComponent(true, frame);
+            if (!continuation) {
+                out.add(pending);
+                pending = null;
+            }
+        }
+    }
+
+    /**
+     * 在发出第一帧之前指定使用老的帧格式，收发都不再探测
+     */
+    public static void useLegacyFraming(Channel channel) {
+        channel.attr(LEGACY_FRAMING).set(Boolean.TRUE);
+    }
+
+    /**
+     * 新协议帧头之后紧跟magic，老协议2字节长度之后是int类型的version
+     */
+    private boolean detectFraming(ChannelHandlerContext ctx, ByteBuf in) {
+        if (Boolean.TRUE.equals(ctx.channel().attr(LEGACY_FRAMING).get())) {
+            lengthFieldLength = LEGACY_LENGTH_FIELD_LENGTH;
+            return true;
+        }
+        if (in.readableBytes() < LENGTH_FIELD_LENGTH + 2) {
+            return false;
+        }
+        if (in.getShort(in.readerIndex() + LENGTH_FIELD_LENGTH) == MessageHeader.MAGIC) {
+            lengthFieldLength = LENGTH_FIELD_LENGTH;
+        } else {
+            lengthFieldLength = LEGACY_LENGTH_FIELD_LENGTH;
+            ctx.channel().attr(LEGACY_FRAMING).set(Boolean.TRUE);
+        }
+        return true;
+    }
+
+    private void releasePending() {
+        if (pending != null) {
+            pending.release();
+            pending = null;
+        }
+    }
+
+    @Override
+    protected void handlerRemoved0(ChannelHandlerContext ctx) throws Exception {
+        releasePending();
     }
 }
@@ -1,10 +1,56 @@
 package cn.heimdall.core.network.codec;
 
 
-import io.netty.handler.codec.LengthFieldPrepender;
+import cn.heimdall.core.config.NetworkConfig;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.EncoderException;
+import io.netty.handler.codec.MessageToMessageEncoder;
 
-public class FrameEncoder extends LengthFieldPrepender {
-    public FrameEncoder() {
-        super(2);
+import java.util.List;
+
+/**
+ * 超过chunkSize的消息拆成多个续帧，各帧共享原buffer的切片
+ */
+public class FrameEncoder extends MessageToMessageEncoder<ByteBuf> {
+
+    private static final int LEGACY_MAX_FRAME_LENGTH = 0xFFFF;
+
+    private final int chunkSize;
+
+    public FrameEncoder(NetworkConfig networkConfig) {
+        this(networkConfig.getFrameChunkSize());
+    }
+
+    public FrameEncoder(int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize: " + chunkSize + " (expected: > 0)");
+        }
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    protected void encode(ChannelHandlerContext ctx, ByteBuf msg, List<Object> out) throws Exception {
+        int length = msg.readableBytes();
+        if (Boolean.TRUE.equals(ctx.channel().attr(FrameDecoder.LEGACY_FRAMING).get())) {
+            if (length > LEGACY_MAX_FRAME_LENGTH) {
+                throw new EncoderException("legacy peer can not accept frame length " + length);
+            }
+            out.add(ctx.alloc().buffer(FrameDecoder.LEGACY_LENGTH_FIELD_LENGTH).writeShort(length));
+            out.add(msg.retain());
+            return;
+        }
+        if (length <= chunkSize) {
+            out.add(ctx.alloc().buffer(FrameDecoder.LENGTH_FIELD_LENGTH).writeInt(length));
+            out.add(msg.retain());
+            return;
+        }
+        while (msg.isReadable()) {
+            int size = Math.min(chunkSize, msg.readableBytes());
+            boolean last = size == msg.readableBytes();
+            int field = last ? size : size | FrameDecoder.CONTINUATION_FLAG;
+            out.add(ctx.alloc().buffer(FrameDecoder.LENGTH_FIELD_LENGTH).writeInt(field));
+            out.add(msg.readRetainedSlice(size));
+        }
     }
 }
@@ -1,18 +1,84 @@
 package cn.heimdall.core.network.codec;
 
+import cn.heimdall.core.message.DecodeMode;
 import cn.heimdall.core.message.Message;
+import cn.heimdall.core.message.MessageHeader;
+import cn.heimdall.core.message.MessageType;
 import cn.heimdall.core.message.RpcMessage;
+import cn.heimdall.core.message.SerializerType;
+import cn.heimdall.core.message.compress.CompressorType;
+import cn.heimdall.core.message.serializer.StringTable;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.CorruptedFrameException;
 import io.netty.handler.codec.MessageToMessageDecoder;
+import io.netty.util.AttributeKey;
 
 import java.util.List;
 
 public class ProtocolDecoder extends MessageToMessageDecoder<ByteBuf> {
+
+    //对端使用的协议版本，老版本的对端回复时需要降级
+    public static final AttributeKey<Integer> PEER_PROTOCOL_VERSION = AttributeKey.valueOf("peerProtocolVersion");
+
+    //对端发来过的压缩方式，说明对端能解压，回复时沿用
+    public static final AttributeKey<Byte> PEER_COMPRESSOR = AttributeKey.valueOf("peerCompressor");
+
+    //对端发来的字符串表，消息体需在channel的eventLoop中按顺序解码
+    private static final AttributeKey<StringTable> DECODE_STRING_TABLE = AttributeKey.valueOf("decodeStringTable");
+
     @Override
     protected void decode(ChannelHandlerContext ctx, ByteBuf byteBuf, List<Object> out) throws Exception {
         Message requestMessage = new RpcMessage();
-        requestMessage.decode(byteBuf);
+        requestMessage.decodeHeader(byteBuf);
+        MessageHeader header = requestMessage.getMessageHeader();
+        if (header.getBodyLength() < 0 || header.getBodyLength() > byteBuf.readableBytes()) {
+            throw new CorruptedFrameException("body length " + header.getBodyLength()
+                    + " exceeds frame, readable " + byteBuf.readableBytes());
+        }
+        if (decodeInline(header)) {
+            requestMessage.decodeBody(byteBuf, stringTable(ctx));
+        } else {
+            requestMessage.retainBody(byteBuf);
+        }
+        ctx.channel().attr(PEER_PROTOCOL_VERSION).set(header.getVersion());
+        if (requestMessage.getCompressorType() != CompressorType.NONE.getCode()) {
+            ctx.channel().attr(PEER_COMPRESSOR).set((byte) requestMessage.getCompressorType());
+        }
         out.add(requestMessage);
     }
+
+    /**
+     * 大的消息体交给处理器的线程池解码，避免阻塞同一个eventLoop上的其他连接
+     */
+    private boolean decodeInline(MessageHeader header) {
+        //回复需要在io线程唤醒等待的请求
+        if (header.isResponse()) {
+            return true;
+        }
+        DecodeMode decodeMode = MessageType.fromTypeCode(header.getTypeCode()).getDecodeMode();
+        if (decodeMode == DecodeMode.AUTO) {
+            return header.getSerializer() == SerializerType.HEIMDALL.getCode() && usesStringTable(header);
+        }
+        return decodeMode == DecodeMode.INLINE;
+    }
+
+    /**
+     * 老版本的对端没有FLAG_STRING_TABLE，AUTO类型的消息体总是可能引用字符串表
+     */
+    private boolean usesStringTable(MessageHeader header) {
+        if (header.getVersion() < MessageHeader.VERSION_DICTIONARY) {
+            return header.getVersion() == MessageHeader.VERSION_STRING_TABLE;
+        }
+        return header.isStringTableUsed();
+    }
+
+    private StringTable stringTable(ChannelHandlerContext ctx) {
+        StringTable table = ctx.channel().attr(DECODE_STRING_TABLE).get();
+        if (table == null) {
+            table = new StringTable();
+            ctx.channel().attr(DECODE_STRING_TABLE).set(table);
+        }
+        return table;
+    }
 }
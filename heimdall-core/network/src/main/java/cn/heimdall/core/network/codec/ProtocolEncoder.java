@@ -1,18 +1,101 @@
 package cn.heimdall.core.network.codec;
 
+import cn.heimdall.core.config.NetworkConfig;
+import cn.heimdall.core.message.DecodeMode;
 import cn.heimdall.core.message.Message;
+import cn.heimdall.core.message.MessageType;
+import cn.heimdall.core.message.compress.CompressionDictionary;
+import cn.heimdall.core.message.compress.CompressorNegotiator;
+import cn.heimdall.core.message.compress.CompressorType;
+import cn.heimdall.core.message.compress.DictionaryRegistry;
+import cn.heimdall.core.message.serializer.StringTable;
 import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.MessageToMessageEncoder;
+import io.netty.util.AttributeKey;
+import io.netty.util.ReferenceCountUtil;
 
 import java.util.List;
 
 public class ProtocolEncoder extends MessageToMessageEncoder<Message> {
 
+    //发往对端的字符串表，只在channel的eventLoop中访问
+    private static final AttributeKey<StringTable> ENCODE_STRING_TABLE = AttributeKey.valueOf("encodeStringTable");
+
+    //对端已确认登记的压缩字典id，只有这个字典可以用于这条连接
+    public static final AttributeKey<Integer> PEER_DICTIONARY = AttributeKey.valueOf("peerDictionary");
+
+    private static final int COMPRESS_THRESHOLD = NetworkConfig.getCompressThreshold();
+
+    private static final boolean DATA_STRING_TABLE = NetworkConfig.isDataStringTableEnabled();
+
+    //字典里已有常见的字符串，几百字节的消息树也能压缩
+    private static final int DICTIONARY_COMPRESS_THRESHOLD = NetworkConfig.getDictionaryCompressThreshold();
+
     @Override
     protected void encode(ChannelHandlerContext ctx, Message message, List<Object> out) throws Exception {
-        ByteBuf buffer = ctx.alloc().buffer();
-        message.encode(buffer);
+        Integer peerVersion = ctx.channel().attr(ProtocolDecoder.PEER_PROTOCOL_VERSION).get();
+        if (peerVersion != null && peerVersion < message.getMessageHeader().getVersion()) {
+            message.getMessageHeader().setVersion(peerVersion);
+        }
+        message.setCompressorType(selectCompressor(ctx.channel()));
+        CompressionDictionary dictionary = selectDictionary(ctx.channel());
+        message.setDictionary(dictionary);
+        ByteBuf buffer = ctx.alloc().ioBuffer();
+        try {
+            message.encode(buffer, dictionary == null ? COMPRESS_THRESHOLD : DICTIONARY_COMPRESS_THRESHOLD,
+                    usesStringTable(message) ? stringTable(ctx.channel()) : null);
+        } catch (Throwable e) {
+            buffer.release();
+            throw e;
+        } finally {
+            //透传原始字节的消息体写出后由pipeline负责释放
+            ReferenceCountUtil.release(message.getMessageBody());
+        }
         out.add(buffer);
     }
+
+    /**
+     * trace等AUTO类型的消息体引用字符串表时对端必须在io线程解码，默认不使用，交给对端的处理线程解码
+     */
+    private boolean usesStringTable(Message message) {
+        return DATA_STRING_TABLE || message.isResponse()
+                || MessageType.fromTypeCode(message.getMessageHeader().getTypeCode()).getDecodeMode() != DecodeMode.AUTO;
+    }
+
+    private StringTable stringTable(Channel channel) {
+        StringTable table = channel.attr(ENCODE_STRING_TABLE).get();
+        if (table == null) {
+            table = new StringTable();
+            channel.attr(ENCODE_STRING_TABLE).set(table);
+        }
+        return table;
+    }
+
+    /**
+     * 当前字典还没有被对端确认时不使用字典，对端不认识的字典id会导致解压失败
+     */
+    private CompressionDictionary selectDictionary(Channel channel) {
+        CompressionDictionary dictionary = DictionaryRegistry.getInstance().getActive();
+        if (dictionary == null) {
+            return null;
+        }
+        Integer peerDictionary = channel.attr(PEER_DICTIONARY).get();
+        return peerDictionary != null && peerDictionary == dictionary.getId() ? dictionary : null;
+    }
+
+    /**
+     * 服务端只使用对端发来过的压缩方式，客户端使用注册时协商的压缩方式
+     */
+    private byte selectCompressor(Channel channel) {
+        Byte peerCompressor = channel.attr(ProtocolDecoder.PEER_COMPRESSOR).get();
+        if (peerCompressor != null) {
+            return peerCompressor;
+        }
+        if (channel.parent() != null) {
+            return CompressorType.NONE.getCode();
+        }
+        return CompressorNegotiator.getInstance().getNegotiated();
+    }
 }
@@ -0,0 +1,127 @@
+package cn.heimdall.core.network.loadbalance;
+
+import cn.heimdall.core.utils.annotation.LoadLevel;
+import cn.heimdall.core.utils.common.NetUtil;
+import cn.heimdall.core.utils.constants.LoadLevelConstants;
+
+import java.net.SocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 按应用名或traceId一致性哈希，同一个路由键落在同一个节点，节点增减时只影响相邻区间
+ * 哈希环只在节点快照变化时重建，共用本实例的各client按各自的快照分别缓存
+ */
+@LoadLevel(name = LoadLevelConstants.LOAD_BALANCE_CONSISTENT_HASH)
+public class ConsistentHashLoadBalancer implements LoadBalancer {
+
+    //每个节点在环上的虚拟节点数
+    private static final int VIRTUAL_NODES = 160;
+
+    //最多缓存的哈希环数，超出时淘汰最早建的
+    private static final int MAX_RINGS = 8;
+
+    private volatile Ring[] rings = new Ring[0];
+
+    @Override
+    public SocketAddress select(List<? extends SocketAddress> peers, Object routeKey) {
+        int size = peers.size();
+        if (size == 0) {
+            return null;
+        }
+        if (size == 1) {
+            return peers.get(0);
+        }
+        if (routeKey == null) {
+            return peers.get(ThreadLocalRandom.current().nextInt(size));
+        }
+        Ring current = findRing(peers);
+        if (current == null) {
+            current = addRing(new Ring(peers));
+        }
+        return current.select(hash(routeKey.toString()));
+    }
+
+    /**
+     * 节点快照不变时是同一个对象，按引用查找
+     */
+    private Ring findRing(List<? extends SocketAddress> peers) {
+        for (Ring ring : rings) {
+            if (ring.peers == peers) {
+                return ring;
+            }
+        }
+        return null;
+    }
+
+    private synchronized Ring addRing(Ring ring) {
+        Ring existing = findRing(ring.peers);
+        if (existing != null) {
+            return existing;
+        }
+        Ring[] old = rings;
+        Ring[] updated = new Ring[Math.min(old.length + 1, MAX_RINGS)];
+        updated[0] = ring;
+        System.arraycopy(old, 0, updated, 1, updated.length - 1);
+        rings = updated;
+        return ring;
+    }
+
+    /**
+     * FNV-1a后再做一次murmur3的混淆，让相近的字符串分散开
+     */
+    private static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private static class Ring {
+        private final List<? extends SocketAddress> peers;
+        private final long[] hashes;
+        private final SocketAddress[] nodes;
+
+        Ring(List<? extends SocketAddress> peers) {
+            this.peers = peers;
+            int size = peers.size() * VIRTUAL_NODES;
+            long[] points = new long[size];
+            int[] owners = new int[size];
+            Long[] order = new Long[size];
+            for (int i = 0; i < peers.size(); i++) {
+                String address = NetUtil.toStringAddress(peers.get(i));
+                for (int j = 0; j < VIRTUAL_NODES; j++) {
+                    int index = i * VIRTUAL_NODES + j;
+                    points[index] = hash(address + "#" + j);
+                    owners[index] = i;
+                    order[index] = (long) index;
+                }
+            }
+            Arrays.sort(order, (a, b) -> Long.compare(points[a.intValue()], points[b.intValue()]));
+            this.hashes = new long[size];
+            this.nodes = new SocketAddress[size];
+            for (int i = 0; i < size; i++) {
+                int index = order[i].intValue();
+                hashes[i] = points[index];
+                nodes[i] = peers.get(owners[index]);
+            }
+        }
+
+        SocketAddress select(long hash) {
+            int index = Arrays.binarySearch(hashes, hash);
+            if (index < 0) {
+                index = -index - 1;
+            }
+            return nodes[index == hashes.length ? 0 : index];
+        }
+    }
+}
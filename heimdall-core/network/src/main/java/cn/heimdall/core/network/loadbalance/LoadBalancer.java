@@ -0,0 +1,17 @@
+package cn.heimdall.core.network.loadbalance;
+
+import java.net.SocketAddress;
+import java.util.List;
+
+/**
+ * 客户端选择服务端节点，通过EnhancedServiceLoader按名称加载
+ */
+public interface LoadBalancer {
+
+    /**
+     * @param peers 可用节点的快照，节点不变时是同一个列表，不能修改
+     * @param routeKey 路由键，如应用名或traceId，只有一致性哈希使用，可以为null
+     * @return 没有可用节点时返回null
+     */
+    SocketAddress select(List<? extends SocketAddress> peers, Object routeKey);
+}
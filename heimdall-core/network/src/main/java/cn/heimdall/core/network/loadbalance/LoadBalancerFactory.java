@@ -0,0 +1,17 @@
+package cn.heimdall.core.network.loadbalance;
+
+import cn.heimdall.core.utils.common.CollectionUtil;
+import cn.heimdall.core.utils.spi.EnhancedServiceLoader;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class LoadBalancerFactory {
+
+    private static final Map<String, LoadBalancer> LOAD_BALANCER_MAP = new ConcurrentHashMap<>();
+
+    public static LoadBalancer getLoadBalancer(String name) {
+        return CollectionUtil.computeIfAbsent(LOAD_BALANCER_MAP, name,
+            key -> EnhancedServiceLoader.load(LoadBalancer.class, key));
+    }
+}
@@ -0,0 +1,37 @@
+package cn.heimdall.core.network.loadbalance;
+
+import cn.heimdall.core.utils.annotation.LoadLevel;
+import cn.heimdall.core.utils.constants.LoadLevelConstants;
+
+import java.net.SocketAddress;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 随机取两个节点，选响应耗时EWMA较低的一个
+ * 变慢但还活着的节点会逐渐少分流量，耗时随空闲时间衰减，慢节点恢复后还会被选中
+ */
+@LoadLevel(name = LoadLevelConstants.LOAD_BALANCE_P2C_EWMA)
+public class P2cEwmaLoadBalancer implements LoadBalancer {
+
+    @Override
+    public SocketAddress select(List<? extends SocketAddress> peers, Object routeKey) {
+        int size = peers.size();
+        if (size == 0) {
+            return null;
+        }
+        if (size == 1) {
+            return peers.get(0);
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(size);
+        int second = random.nextInt(size - 1);
+        if (second >= first) {
+            second++;
+        }
+        PeerLatencyStats stats = PeerLatencyStats.getInstance();
+        SocketAddress a = peers.get(first);
+        SocketAddress b = peers.get(second);
+        return stats.getCost(b) < stats.getCost(a) ? b : a;
+    }
+}
@@ -0,0 +1,64 @@
+package cn.heimdall.core.network.loadbalance;
+
+import java.net.SocketAddress;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 按对端地址统计的请求耗时peak EWMA，回复和超时时由remoting记录
+ * 变慢时立即取峰值，变快时按时间衰减，读取时按空闲时间向0衰减
+ */
+public class PeerLatencyStats {
+
+    private static volatile PeerLatencyStats instance;
+
+    //衰减时间常数，毫秒
+    private static final double DECAY_MILLIS = 10 * 1000D;
+
+    private final ConcurrentHashMap<SocketAddress, Ewma> peers = new ConcurrentHashMap<>();
+
+    public static PeerLatencyStats getInstance() {
+        if (instance == null) {
+            synchronized (PeerLatencyStats.class) {
+                if (instance == null) {
+                    instance = new PeerLatencyStats();
+                }
+            }
+        }
+        return instance;
+    }
+
+    public void record(SocketAddress address, long costMillis) {
+        if (address == null) {
+            return;
+        }
+        peers.computeIfAbsent(address, key -> new Ewma()).update(costMillis);
+    }
+
+    /**
+     * @return 没有记录的节点返回0，新节点优先被试探
+     */
+    public double getCost(SocketAddress address) {
+        Ewma ewma = peers.get(address);
+        return ewma == null ? 0 : ewma.get();
+    }
+
+    private static class Ewma {
+        private double value;
+        private long lastTime = System.currentTimeMillis();
+
+        synchronized void update(long cost) {
+            long now = System.currentTimeMillis();
+            if (cost > value) {
+                value = cost;
+            } else {
+                double weight = Math.exp(-(now - lastTime) / DECAY_MILLIS);
+                value = value * weight + cost * (1 - weight);
+            }
+            lastTime = now;
+        }
+
+        synchronized double get() {
+            return value * Math.exp(-(System.currentTimeMillis() - lastTime) / DECAY_MILLIS);
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package cn.heimdall.core.network.loadbalance;
+
+import cn.heimdall.core.utils.annotation.LoadLevel;
+import cn.heimdall.core.utils.constants.LoadLevelConstants;
+
+import java.net.SocketAddress;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+@LoadLevel(name = LoadLevelConstants.LOAD_BALANCE_RANDOM)
+public class RandomLoadBalancer implements LoadBalancer {
+
+    @Override
+    public SocketAddress select(List<? extends SocketAddress> peers, Object routeKey) {
+        int size = peers.size();
+        if (size == 0) {
+            return null;
+        }
+        return size == 1 ? peers.get(0) : peers.get(ThreadLocalRandom.current().nextInt(size));
+    }
+}
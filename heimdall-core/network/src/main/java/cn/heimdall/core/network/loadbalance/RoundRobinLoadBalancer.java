@@ -0,0 +1,23 @@
+package cn.heimdall.core.network.loadbalance;
+
+import cn.heimdall.core.utils.annotation.LoadLevel;
+import cn.heimdall.core.utils.constants.LoadLevelConstants;
+
+import java.net.SocketAddress;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@LoadLevel(name = LoadLevelConstants.LOAD_BALANCE_ROUND_ROBIN)
+public class RoundRobinLoadBalancer implements LoadBalancer {
+
+    private final AtomicInteger sequence = new AtomicInteger();
+
+    @Override
+    public SocketAddress select(List<? extends SocketAddress> peers, Object routeKey) {
+        int size = peers.size();
+        if (size == 0) {
+            return null;
+        }
+        return peers.get((sequence.getAndIncrement() & Integer.MAX_VALUE) % size);
+    }
+}
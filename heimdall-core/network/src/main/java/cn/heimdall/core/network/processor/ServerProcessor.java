@@ -20,6 +20,6 @@ public abstract class ServerProcessor implements RemoteProcessor{
     public void process(ChannelHandlerContext ctx, Message message) throws Exception {
         MessageBody messageBody = message.getMessageBody();
         MessageBody response = messageDoorway.onRequest(messageBody);
-        remotingServer.sendSyncRequest(ctx.channel(), response);
+        remotingServer.sendResponse(ctx.channel(), message, response);
     }
 }
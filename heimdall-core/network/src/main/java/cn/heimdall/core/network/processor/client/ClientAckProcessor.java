@@ -0,0 +1,21 @@
+package cn.heimdall.core.network.processor.client;
+
+import cn.heimdall.core.message.Message;
+import cn.heimdall.core.message.body.AckMessage;
+import cn.heimdall.core.network.processor.ClientProcessor;
+import cn.heimdall.core.network.remote.UnackedWindow;
+import io.netty.channel.ChannelHandlerContext;
+
+/**
+ * 处理服务端的累计确认，释放窗口中已处理的单向消息
+ */
+public class ClientAckProcessor implements ClientProcessor {
+
+    @Override
+    public void process(ChannelHandlerContext ctx, Message message) throws Exception {
+        UnackedWindow window = UnackedWindow.peek(ctx.channel());
+        if (window != null) {
+            window.ack(((AckMessage) message.getMessageBody()).getWatermark());
+        }
+    }
+}
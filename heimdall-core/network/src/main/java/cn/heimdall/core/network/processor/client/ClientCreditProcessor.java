@@ -0,0 +1,18 @@
+package cn.heimdall.core.network.processor.client;
+
+import cn.heimdall.core.message.Message;
+import cn.heimdall.core.message.body.CreditMessage;
+import cn.heimdall.core.network.processor.ClientProcessor;
+import cn.heimdall.core.network.remote.CreditWindow;
+import io.netty.channel.ChannelHandlerContext;
+
+/**
+ * 更新服务端授予的发送额度，唤醒等待额度的发送线程
+ */
+public class ClientCreditProcessor implements ClientProcessor {
+
+    @Override
+    public void process(ChannelHandlerContext ctx, Message message) throws Exception {
+        CreditWindow.get(ctx.channel()).grant(((CreditMessage) message.getMessageBody()).getLimit());
+    }
+}
@@ -20,7 +20,7 @@ public class ServerIdleProcessor extends ServerProcessor {
     @Override
     public void process(ChannelHandlerContext ctx, Message message)  {
         try {
-            remotingServer.sendAsyncRequest(ctx.channel(), PingMessage.PONG);
+            remotingServer.sendResponse(ctx.channel(), message, PingMessage.PONG);
         } catch (Throwable throwable) {
             LOGGER.error("send response error: {}", throwable.getMessage(), throwable);
         }
@@ -2,36 +2,43 @@ package cn.heimdall.core.network.remote;
 
 import cn.heimdall.core.config.NetworkConfig;
 import cn.heimdall.core.message.Message;
+import cn.heimdall.core.message.MessageBody;
+import cn.heimdall.core.message.MessagePriority;
 import cn.heimdall.core.message.MessageType;
-import cn.heimdall.core.message.MessageTypeAware;
+import cn.heimdall.core.message.RpcMessage;
+import cn.heimdall.core.message.body.BatchMessage;
+import cn.heimdall.core.message.body.BusyResponse;
+import cn.heimdall.core.network.bootstrap.NetworkResourceManager;
+import cn.heimdall.core.network.loadbalance.PeerLatencyStats;
 import cn.heimdall.core.network.processor.RemoteProcessor;
 import cn.heimdall.core.utils.exception.NetworkException;
+import cn.heimdall.core.utils.exception.ServerBusyException;
 import cn.heimdall.core.utils.spi.ServiceLoaderUtil;
-import cn.heimdall.core.utils.thread.IncrAtomicCounter;
-import cn.heimdall.core.utils.thread.NamedThreadFactory;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandlerContext;
-import javafx.util.Pair;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.ReferenceCountUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.MDC;
 import sun.rmi.runtime.Log;
 
-import java.io.IOException;
-import java.lang.management.ManagementFactory;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Random;
 import java.util.ServiceLoader;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
 
 public abstract class AbstractRemoting {
 
@@ -39,25 +46,38 @@ public abstract class AbstractRemoting {
 
     protected final ServiceLoader<RemoteHook> rpcHooks = ServiceLoaderUtil.getServiceLoader(RemoteHook.class);
 
-    protected final ConcurrentHashMap<Integer, MessageFuture> futures = new ConcurrentHashMap<>();
+    //定时任务使用共用的定时线程，任务中不能有阻塞操作
+    protected final ScheduledExecutorService timerExecutor = NetworkResourceManager.getInstance().getScheduler();
 
-    protected final ScheduledExecutorService timerExecutor = new ScheduledThreadPoolExecutor(1,
-            new NamedThreadFactory("timeoutChecker", 1, true));
+    //本实例提交到共用定时线程的任务，销毁时取消
+    private final List<ScheduledFuture<?>> scheduledTasks = new CopyOnWriteArrayList<>();
 
+    private volatile boolean destroyed;
 
-    protected final HashMap<Short/*MessageType*/, Pair<RemoteProcessor, ExecutorService>>
-            processorTable = new HashMap<>(32);
 
-    protected final IncrAtomicCounter idGenerator = new IncrAtomicCounter();
+    protected final HashMap<Short/*MessageType*/, ProcessorEntry>
+            processorTable = new HashMap<>(32);
 
     protected final ThreadPoolExecutor messageExecutor;
 
-    protected final Object lock = new Object();
+    //按优先级的排队上限
+    private final MessageLanes messageLanes;
+
+    //请求超时用时间轮处理，每个请求发出时登记，收到回复时取消，所有server和client共用一个
+    protected final HashedWheelTimer timeoutTimer = NetworkResourceManager.getInstance().getTimeoutTimer();
+
+    //按对端地址统计的超时次数
+    private final ConcurrentHashMap<String, LongAdder> timeoutCounters = new ConcurrentHashMap<>();
 
-    protected volatile long nowMills = 0;
+    //按对端地址统计的连接超过高水位变为不可写的次数
+    private final ConcurrentHashMap<String, LongAdder> unwritableCounters = new ConcurrentHashMap<>();
+
+    //按对端地址统计的因发送缓冲超过上限被拒绝的写入次数
+    private final ConcurrentHashMap<String, LongAdder> rejectedWriteCounters = new ConcurrentHashMap<>();
 
     public AbstractRemoting(ThreadPoolExecutor messageExecutor) {
         this.messageExecutor = messageExecutor;
+        this.messageLanes = new MessageLanes(messageExecutor);
     }
 
     /**
@@ -66,81 +86,218 @@ public abstract class AbstractRemoting {
      * @param processor
      */
     protected void registerProcessor(MessageType messageType, RemoteProcessor processor) {
-        Pair<RemoteProcessor, ExecutorService> pair = new Pair<>(processor, messageExecutor);
-        this.processorTable.put(messageType.getTypeCode(), pair);
+        registerProcessor(messageType, processor, messageExecutor);
     }
 
     protected void registerProcessor(MessageType messageType, RemoteProcessor processor, ThreadPoolExecutor messageExecutor) {
-        Pair<RemoteProcessor, ExecutorService> pair = new Pair<>(processor, messageExecutor);
-        this.processorTable.put(messageType.getTypeCode(), pair);
+        this.processorTable.put(messageType.getTypeCode(),
+                new ProcessorEntry(processor, selectExecutor(messageType, messageExecutor)));
+    }
+
+    /**
+     * 控制类消息交给独立的线程池处理，不和数据排在同一个队列，在io线程处理的不变
+     */
+    private ExecutorService selectExecutor(MessageType messageType, ThreadPoolExecutor executor) {
+        if (executor != null && NetworkConfig.isControlPlaneEnabled()
+                && messageType.getPriority() == MessagePriority.CONTROL) {
+            return NetworkResourceManager.getInstance().getControlExecutor();
+        }
+        return executor;
     }
 
     protected void processMessage(ChannelHandlerContext ctx, Message message) throws Exception {
+        MessageType messageType = MessageType.fromTypeCode(message.getMessageHeader().getTypeCode());
         if (LOGGER.isDebugEnabled()) {
-            LOGGER.debug(String.format("%s messageId:%s, body:%s", this, message.getMessageId(), message.getMessageBody()));
+            LOGGER.debug(String.format("%s messageId:%s, type:%s", this, message.getMessageId(), messageType));
         }
-        Object body = message.getMessageBody();
-        if (body instanceof MessageTypeAware) {
-            MessageTypeAware messageTypeAware = (MessageTypeAware) body;
-            MessageType messageType = messageTypeAware.getMessageType();
-            final Pair<RemoteProcessor, ExecutorService> pair = this.processorTable.get(messageType.getTypeCode());
-            if (pair != null) {
-                if (pair.getValue() != null) {
-                    try {
-                        //使用自己的线程池来处理
-                        pair.getValue().execute(() -> {
-                            try {
-                                pair.getKey().process(ctx, message);
-                            } catch (Throwable e) {
-                                LOGGER.error("processMessage error, message type {}", messageType.getTypeCode(), e);
-                            } finally {
-                               //TODO do nothing
-                            }
-                        });
-                    } catch (RejectedExecutionException e) {
-                        LOGGER.error("thread pool is full, current max pool size is " + messageExecutor.getActiveCount());
-                        String name = ManagementFactory.getRuntimeMXBean().getName();
-                        String pid = name.split("@")[0];
-                        int idx = new Random().nextInt(100);
-                        try {
-                            Runtime.getRuntime().exec("jstack " + pid + " >d:/" + idx + ".log");
-                        } catch (IOException exx) {
-                            LOGGER.error(exx.getMessage());
-                        }
+        boolean matched = false;
+        if (message.isResponse()) {
+            //按messageId匹配本连接上发出的请求，回复可以乱序到达，回复的消息体总是在io线程解码
+            InFlightTable table = InFlightTable.peek(ctx.channel());
+            MessageFuture messageFuture = table == null ? null : table.remove(message.getMessageId());
+            if (messageFuture != null) {
+                Object result = message.getMessageBody();
+                //同步请求设置结果后可能马上被回收，先记录耗时
+                if (result instanceof BusyResponse) {
+                    //对端过载，按建议的等待时间计入耗时，负载均衡暂时避开它
+                    int retryAfter = ((BusyResponse) result).getRetryAfterMillis();
+                    PeerLatencyStats.getInstance().record(ctx.channel().remoteAddress(), retryAfter);
+                    result = new ServerBusyException(ChannelHelper.getAddressFromChannel(ctx.channel()), retryAfter);
+                    //整批被丢弃时服务端不为其中的子消息计数，退回整批占用的额度
+                    if (messageFuture.getRequestMessage().getMessageBody() instanceof BatchMessage) {
+                        releaseCredit(ctx.channel(), messageFuture.getRequestMessage());
                     }
                 } else {
-                    try {
-                        pair.getKey().process(ctx, message);
-                    } catch (Throwable th) {
-                        LOGGER.error("process error, message info is {}", th.getMessage(), th);
-                    }
+                    PeerLatencyStats.getInstance().record(ctx.channel().remoteAddress(),
+                            System.currentTimeMillis() - messageFuture.getStart());
                 }
-            } else {
+                messageFuture.setResultMessage(result);
+                matched = true;
+            }
+        }
+        //重发的消息在分发前去重，已处理过的只再次确认
+        if (message.isAckRequested() && !onAckRequestReceived(ctx.channel(), message)) {
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("skip duplicate or out of window message {}, channel {}", message.getMessageId(),
+                        ctx.channel());
+            }
+            message.releaseBody();
+            onRequestFinished(ctx.channel(), message, messageType);
+            return;
+        }
+        final ProcessorEntry entry = this.processorTable.get(messageType.getTypeCode());
+        if (entry == null) {
+            message.releaseBody();
+            onRequestFinished(ctx.channel(), message, messageType);
+            if (!matched) {
                 LOGGER.error("This message type [{}] has no processor.", messageType.getTypeCode());
             }
-        } else {
-            LOGGER.error("This rpcMessage body[{}] is not MessageTypeAware type.", message);
+            return;
         }
+        if (entry.getExecutor() == null) {
+            process(ctx, entry.getProcessor(), message, messageType);
+            return;
+        }
+        //按优先级限制交给线程池的消息数，超过份额时丢弃并回复繁忙，控制类消息改在io线程处理
+        if (!messageLanes.tryAcquire(messageType)) {
+            if (messageType.getPriority() == MessagePriority.CONTROL) {
+                process(ctx, entry.getProcessor(), message, messageType);
+            } else {
+                shed(ctx, message, messageType);
+            }
+            return;
+        }
+        try {
+            //使用自己的线程池来处理，延迟解码的消息体在处理器第一次获取时解码
+            entry.getExecutor().execute(() -> {
+                try {
+                    process(ctx, entry.getProcessor(), message, messageType);
+                } finally {
+                    messageLanes.release(messageType);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            messageLanes.release(messageType);
+            if (messageType.getPriority() == MessagePriority.CONTROL) {
+                process(ctx, entry.getProcessor(), message, messageType);
+            } else {
+                shed(ctx, message, messageType);
+            }
+        }
+    }
+
+    private void process(ChannelHandlerContext ctx, RemoteProcessor processor, Message message,
+                         MessageType messageType) {
+        try {
+            processor.process(ctx, message);
+        } catch (Throwable th) {
+            LOGGER.error("process error, message type {}", message.getMessageHeader().getTypeCode(), th);
+        } finally {
+            if (message.isAckRequested()) {
+                onAckRequestProcessed(ctx.channel(), message);
+            }
+            message.releaseBody();
+            onRequestFinished(ctx.channel(), message, messageType);
+        }
+    }
+
+    /**
+     * 批中的子消息处理完成或被丢弃时各自计数，批本身不计数
+     */
+    private void onRequestFinished(Channel channel, Message message, MessageType messageType) {
+        if (!message.isResponse() && messageType.getPriority() == MessagePriority.DATA
+                && messageType != MessageType.BATCH_REQUEST) {
+            onDataRequestFinished(channel);
+        }
+    }
+
+    /**
+     * 过载丢弃，需要回复的请求回复繁忙，需要确认的单向消息不确认，由发送端超时重发
+     */
+    private void shed(ChannelHandlerContext ctx, Message message, MessageType messageType) {
+        messageLanes.onShed(messageType);
+        if (message.isAckRequested()) {
+            onAckRequestShed(ctx.channel(), message);
+        }
+        onRequestFinished(ctx.channel(), message, messageType);
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("shed message type {}, messageId {}, channel {}", messageType, message.getMessageId(),
+                    ctx.channel());
+        }
+        message.releaseBody();
+        if (message.isResponse() || message.isOneway()) {
+            return;
+        }
+        try {
+            sendAsync(ctx.channel(), RpcMessage.response(message,
+                    new BusyResponse(NetworkConfig.getBusyRetryAfterMillis())));
+        } catch (NetworkException e) {
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("send busy response failed, channel {}", ctx.channel(), e);
+            }
+        }
+    }
+
+    /**
+     * 占用一个处理份额，超过丢弃线时返回false，用于批中的子消息逐条计入排队深度
+     */
+    protected boolean tryAcquireLane(MessageType messageType) {
+        return messageLanes.tryAcquire(messageType);
+    }
+
+    protected void releaseLane(MessageType messageType) {
+        messageLanes.release(messageType);
+    }
+
+    /**
+     * 没有占到份额的子消息计入丢弃数
+     */
+    protected void onLaneShed(MessageType messageType) {
+        messageLanes.onShed(messageType);
+    }
+
+    /**
+     * 因过载被丢弃的消息数
+     */
+    public long getShedCount(MessageType messageType) {
+        return messageLanes.getShedCount(messageType);
+    }
+
+    /**
+     * 某个优先级当前排队和处理中的消息数
+     */
+    public int getQueuedCount(MessagePriority priority) {
+        return messageLanes.getQueued(priority);
+    }
+
+    /**
+     * 某个优先级允许交给线程池的消息数
+     */
+    public int getLaneCapacity(MessagePriority priority) {
+        return messageLanes.getCapacity(priority);
     }
 
     public void init() {
-        timerExecutor.scheduleAtFixedRate(() -> {
-                for (Map.Entry<Integer, MessageFuture> entry : futures.entrySet()) {
-                    if (entry.getValue().isTimeout()) {
-                        futures.remove(entry.getKey());
-                        entry.getValue().setResultMessage(null);
-                        if (LOGGER.isDebugEnabled()) {
-                            LOGGER.debug("timeout clear future: {}", entry.getValue().getRequestMessage().getMessageBody());
-                        }
-                    }
-                }
-                nowMills = System.currentTimeMillis();
-            }, 3000, 3000, TimeUnit.MILLISECONDS);
     }
 
+    /**
+     * 共用的定时线程和时间轮不在这里关闭，只取消本实例的定时任务
+     */
     public void destroy() {
-        timerExecutor.shutdown();
-        messageExecutor.shutdown();
+        destroyed = true;
+        scheduledTasks.forEach(task -> task.cancel(false));
+        scheduledTasks.clear();
+        if (!NetworkResourceManager.getInstance().isShared(messageExecutor)) {
+            messageExecutor.shutdown();
+        }
+    }
+
+    protected boolean isDestroyed() {
+        return destroyed;
+    }
+
+    protected void scheduleAtFixedRate(Runnable task, long initialDelay, long period, TimeUnit unit) {
+        scheduledTasks.add(timerExecutor.scheduleAtFixedRate(task, initialDelay, period, unit));
     }
 
     protected Object sendSync(Channel channel, Message message, long timeoutMillis) throws TimeoutException {
@@ -151,23 +308,11 @@ public abstract class AbstractRemoting {
             LOGGER.warn("sendSync nothing, caused by null channel.");
             return null;
         }
-        message.setMessageId(idGenerator.get());
-        MessageFuture messageFuture = new MessageFuture();
-        messageFuture.setRequestMessage(message);
-        messageFuture.setTimeout(timeoutMillis);
-        futures.put(message.getMessageId(), messageFuture);
-        channelWritableCheck(channel, message.getMessageBody());
         String remoteAddr = ChannelHelper.getAddressFromChannel(channel);
-        doBeforeRpcHooks(remoteAddr, message);
-        channel.writeAndFlush(message).addListener((ChannelFutureListener) future -> {
-            if (!future.isSuccess()) {
-                MessageFuture messageFuture1 = futures.remove(message.getMessageId());
-                if (messageFuture1 != null) {
-                    messageFuture1.setResultMessage(future.cause());
-                }
-                destroyChannel(future.channel());
-            }
-        });
+        InFlightTable table = InFlightTable.get(channel);
+        MessageFuture messageFuture = writeRequest(channel, table, remoteAddr, message, timeoutMillis, false);
+        int messageId = messageFuture.getMessageId();
+        boolean timedOut = false;
         try {
             Object result = messageFuture.get(timeoutMillis, TimeUnit.MILLISECONDS);
             doAfterRpcHooks(remoteAddr, message, result);
@@ -176,31 +321,293 @@ public abstract class AbstractRemoting {
             LOGGER.error("wait response error:{},ip:{},request:{}", exx.getMessage(), channel.remoteAddress(),
                     message.getMessageBody());
             if (exx instanceof TimeoutException) {
+                timedOut = true;
                 throw (TimeoutException) exx;
+            } else if (exx instanceof RuntimeException) {
+                //对端繁忙等异常原样抛出，调用方据此退避
+                throw (RuntimeException) exx;
             } else {
                 throw new RuntimeException(exx);
             }
+        } finally {
+            //等待超时时和时间轮竞争移除，谁移除成功谁计数，正在被其他线程结束的future不回收
+            if (messageFuture.isDone()) {
+                messageFuture.recycle();
+            } else if (table.remove(messageId, messageFuture)) {
+                if (timedOut) {
+                    increment(timeoutCounters, remoteAddr);
+                }
+                messageFuture.recycle();
+            }
         }
     }
 
-    private void channelWritableCheck(Channel channel, Object msg) {
-        int tryTimes = 0;
-        synchronized (lock) {
-            while (!channel.isWritable()) {
-                try {
-                    tryTimes++;
-                    if (tryTimes > NetworkConfig.getMaxNotWriteableRetry()) {
-                        destroyChannel(channel);
-                        throw new NetworkException("ChannelIsNotWritable, msg:" + ((msg == null) ? "null" : msg.toString()));
+    /**
+     * 发送请求不等待回复，回复到达、超时或发送失败时结束返回的future
+     * 未能写出的请求消息体在这里释放
+     */
+    protected CompletableFuture<MessageBody> sendAsyncRequest(Channel channel, Message message, long timeoutMillis) {
+        if (timeoutMillis <= 0) {
+            throw new NetworkException("timeout should more than 0ms");
+        }
+        if (channel == null) {
+            ReferenceCountUtil.release(message.getMessageBody());
+            return failedFuture(new NetworkException("sendAsyncRequest nothing, caused by null channel."));
+        }
+        String remoteAddr = ChannelHelper.getAddressFromChannel(channel);
+        MessageFuture messageFuture;
+        try {
+            messageFuture = writeRequest(channel, InFlightTable.get(channel), remoteAddr, message, timeoutMillis, true);
+        } catch (NetworkException e) {
+            ReferenceCountUtil.release(message.getMessageBody());
+            return failedFuture(e);
+        }
+        return messageFuture.getCallback().whenComplete((body, e) ->
+            doAfterRpcHooks(remoteAddr, message, e == null ? body : e));
+    }
+
+    private MessageFuture writeRequest(Channel channel, InFlightTable table, String remoteAddr, Message message,
+                                       long timeoutMillis, boolean async) {
+        ChannelWriteGate gate = ChannelWriteGate.get(channel);
+        if (!async) {
+            checkWritable(channel, gate, remoteAddr, message.getMessageBody());
+        }
+        acquireCredit(channel, message, timeoutMillis);
+        MessageFuture messageFuture = MessageFuture.newInstance(message, timeoutMillis, async);
+        int messageId;
+        try {
+            messageId = table.put(messageFuture);
+        } catch (NetworkException e) {
+            messageFuture.recycle();
+            releaseCredit(channel, message);
+            throw e;
+        }
+        message.setMessageId(messageId);
+        messageFuture.setTimeoutTask(timeoutTimer.newTimeout(
+            timeout -> expire(channel, table, remoteAddr, messageId, messageFuture), timeoutMillis, TimeUnit.MILLISECONDS));
+        Runnable write = () -> {
+            //排队等待可写期间已经超时的请求不再发送
+            if (async && messageFuture.isDone()) {
+                releaseCredit(channel, message);
+                ReferenceCountUtil.release(message.getMessageBody());
+                return;
+            }
+            doBeforeRpcHooks(remoteAddr, message);
+            channel.writeAndFlush(message).addListener((ChannelFutureListener) future -> {
+                if (!future.isSuccess()) {
+                    if (table.remove(messageId, messageFuture)) {
+                        messageFuture.setResultMessage(future.cause());
                     }
-                    lock.wait(NetworkConfig.getNotWriteableCheckMills());
-                } catch (InterruptedException exx) {
-                    LOGGER.error(exx.getMessage());
+                    destroyChannel(future.channel());
                 }
+            });
+        };
+        //异步请求在发送缓冲超过上限时排队等待，不阻塞调用线程
+        if (async) {
+            gate.whenWritable(write);
+        } else {
+            write.run();
+        }
+        return messageFuture;
+    }
+
+    private void expire(Channel channel, InFlightTable table, String remoteAddr, int messageId,
+                        MessageFuture messageFuture) {
+        //回复已经到达或发送失败时future已被移除
+        if (!table.remove(messageId, messageFuture)) {
+            return;
+        }
+        increment(timeoutCounters, remoteAddr);
+        //超时按超时时间计入耗时，负载均衡避开变慢的节点
+        PeerLatencyStats.getInstance().record(channel.remoteAddress(), messageFuture.getTimeout());
+        messageFuture.setResultMessage(null);
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("timeout clear future: {}", messageFuture.getRequestMessage().getMessageBody());
+        }
+    }
+
+    private static void increment(ConcurrentHashMap<String, LongAdder> counters, String remoteAddr) {
+        if (remoteAddr != null) {
+            counters.computeIfAbsent(remoteAddr, key -> new LongAdder()).increment();
+        }
+    }
+
+    private static long sum(ConcurrentHashMap<String, LongAdder> counters, String remoteAddr) {
+        LongAdder counter = remoteAddr == null ? null : counters.get(remoteAddr);
+        return counter == null ? 0 : counter.sum();
+    }
+
+    private static Map<String, Long> sumAll(ConcurrentHashMap<String, LongAdder> counters) {
+        Map<String, Long> counts = new HashMap<>(counters.size());
+        counters.forEach((remoteAddr, counter) -> counts.put(remoteAddr, counter.sum()));
+        return counts;
+    }
+
+    /**
+     * 对端的累计超时次数
+     */
+    public long getTimeoutCount(String remoteAddr) {
+        return sum(timeoutCounters, remoteAddr);
+    }
+
+    public Map<String, Long> getTimeoutCounts() {
+        return sumAll(timeoutCounters);
+    }
+
+    /**
+     * 对端连接超过高水位变为不可写的累计次数
+     */
+    public long getUnwritableCount(String remoteAddr) {
+        return sum(unwritableCounters, remoteAddr);
+    }
+
+    public Map<String, Long> getUnwritableCounts() {
+        return sumAll(unwritableCounters);
+    }
+
+    /**
+     * 对端因发送缓冲超过上限被拒绝的累计写入次数
+     */
+    public long getRejectedWriteCount(String remoteAddr) {
+        return sum(rejectedWriteCounters, remoteAddr);
+    }
+
+    public Map<String, Long> getRejectedWriteCounts() {
+        return sumAll(rejectedWriteCounters);
+    }
+
+    /**
+     * 连接发送缓冲中还没写到socket的字节数
+     */
+    public long getPendingWriteBytes(Channel channel) {
+        return ChannelWriteGate.get(channel).getPendingBytes();
+    }
+
+    /**
+     * 连接当前已连续不可写的毫秒数，可写时为0
+     */
+    public long getUnwritableMillis(Channel channel) {
+        ChannelWriteGate gate = ChannelWriteGate.peek(channel);
+        return gate == null ? 0 : gate.getUnwritableMillis();
+    }
+
+    protected static <T> CompletableFuture<T> failedFuture(Throwable cause) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(cause);
+        return future;
+    }
+
+    /**
+     * 同步发送时发送缓冲超过上限直接失败，只影响这一个连接
+     */
+    private void checkWritable(Channel channel, ChannelWriteGate gate, String remoteAddr, Object msg) {
+        if (gate.isOverLimit()) {
+            increment(rejectedWriteCounters, remoteAddr);
+            throw new NetworkException("ChannelIsNotWritable, pending " + gate.getPendingBytes() + " bytes, channel:"
+                    + channel + ", msg:" + ((msg == null) ? "null" : msg.toString()));
+        }
+    }
+
+    /**
+     * 连接可写状态变化时由handler在io线程调用，可写时发出排队的异步请求
+     */
+    protected void onChannelWritabilityChanged(Channel channel) {
+        ChannelWriteGate gate = ChannelWriteGate.peek(channel);
+        if (gate != null && gate.onWritabilityChanged()) {
+            String remoteAddr = ChannelHelper.getAddressFromChannel(channel);
+            increment(unwritableCounters, remoteAddr);
+            if (LOGGER.isInfoEnabled()) {
+                LOGGER.info("channel {} is not writable, pending {} bytes", channel, gate.getPendingBytes());
             }
         }
     }
 
+    protected void onChannelInactive(Channel channel) {
+        ChannelWriteGate gate = ChannelWriteGate.peek(channel);
+        if (gate != null) {
+            gate.onInactive();
+        }
+        CreditWindow window = CreditWindow.peek(channel);
+        if (window != null) {
+            window.close();
+        }
+    }
+
+    /**
+     * 数据类请求按对端授予的额度发送，额度用完时在调用线程等待
+     * @param timeoutMillis 不大于0时不等待，用于重发和io线程
+     */
+    protected void acquireCredit(Channel channel, Message message, long timeoutMillis) {
+        if (!isDataRequest(message)) {
+            return;
+        }
+        CreditWindow window = CreditWindow.get(channel);
+        int permits = creditPermits(message);
+        if (timeoutMillis <= 0 || channel.eventLoop().inEventLoop()) {
+            window.forceAcquire(permits);
+            return;
+        }
+        try {
+            if (!window.acquire(permits, timeoutMillis)) {
+                throw new NetworkException("wait credit timeout, channel " + channel);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new NetworkException(e, "wait credit interrupted");
+        }
+    }
+
+    /**
+     * 获取过额度的请求没有写出时调用，额度是累计值，不退回会永久缩小窗口
+     */
+    protected void releaseCredit(Channel channel, Message message) {
+        if (!isDataRequest(message)) {
+            return;
+        }
+        CreditWindow window = CreditWindow.peek(channel);
+        if (window != null) {
+            window.release(creditPermits(message));
+        }
+    }
+
+    /**
+     * 一批消息按其中的条数占用额度，服务端逐条计数授予
+     */
+    private static int creditPermits(Message message) {
+        Object body = message.getMessageBody();
+        return body instanceof BatchMessage ? Math.max(((BatchMessage) body).size(), 1) : 1;
+    }
+
+    private static boolean isDataRequest(Message message) {
+        return !message.isResponse() && MessageType.fromTypeCode(message.getMessageHeader().getTypeCode())
+                .getPriority() == MessagePriority.DATA;
+    }
+
+    /**
+     * 收到的数据类请求处理完成或被丢弃，服务端据此授予额度
+     */
+    protected void onDataRequestFinished(Channel channel) {
+    }
+
+    /**
+     * 需要累计确认的单向消息处理完成，处理器抛出异常也算处理完成，避免对端无限重发
+     */
+    protected void onAckRequestProcessed(Channel channel, Message message) {
+    }
+
+    /**
+     * 需要累计确认的单向消息分发前调用，返回false表示是重发的或超出窗口的消息，不再处理
+     */
+    protected boolean onAckRequestReceived(Channel channel, Message message) {
+        return true;
+    }
+
+    /**
+     * 需要累计确认的单向消息因过载被丢弃，不确认，等发送端重发
+     */
+    protected void onAckRequestShed(Channel channel, Message message) {
+    }
+
     protected void doBeforeRpcHooks(String remoteAddr, Message request) {
         for (RemoteHook remoteHook: rpcHooks) {
             remoteHook.doBeforeRequest(remoteAddr, request);
@@ -216,13 +623,18 @@ public abstract class AbstractRemoting {
     public abstract void destroyChannel(Channel channel);
 
     protected void sendAsync(Channel channel, Message message) {
-        channelWritableCheck(channel, message.getMessageBody());
+        //需要累计确认的单向消息使用窗口分配的序号
+        if (!message.isResponse() && !message.isAckRequested()) {
+            message.setMessageId(InFlightTable.get(channel).nextId());
+        }
+        String remoteAddr = ChannelHelper.getAddressFromChannel(channel);
+        checkWritable(channel, ChannelWriteGate.get(channel), remoteAddr, message.getMessageBody());
         if (LOGGER.isDebugEnabled()) {
             LOGGER.debug("write message:" + message.getMessageBody() + ", channel:" + channel + ",active?"
                     + channel.isActive() + ",writable?" + channel.isWritable() + ",isopen?" + channel.isOpen());
         }
 
-        doBeforeRpcHooks(ChannelHelper.getAddressFromChannel(channel), message);
+        doBeforeRpcHooks(remoteAddr, message);
 
         channel.writeAndFlush(message).addListener((ChannelFutureListener) future -> {
             if (!future.isSuccess()) {
@@ -231,7 +643,24 @@ public abstract class AbstractRemoting {
         });
     }
 
-    public ConcurrentHashMap<Integer, MessageFuture> getFutures() {
-        return futures;
+    /**
+     * 处理器和执行它的线程池，线程池为null时在io线程处理
+     */
+    protected static final class ProcessorEntry {
+        private final RemoteProcessor processor;
+        private final ExecutorService executor;
+
+        ProcessorEntry(RemoteProcessor processor, ExecutorService executor) {
+            this.processor = processor;
+            this.executor = executor;
+        }
+
+        public RemoteProcessor getProcessor() {
+            return processor;
+        }
+
+        public ExecutorService getExecutor() {
+            return executor;
+        }
     }
 }
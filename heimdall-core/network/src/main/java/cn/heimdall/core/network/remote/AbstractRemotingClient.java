@@ -3,14 +3,33 @@ package cn.heimdall.core.network.remote;
 import cn.heimdall.core.config.NetworkConfig;
 import cn.heimdall.core.message.Message;
 import cn.heimdall.core.message.MessageBody;
+import cn.heimdall.core.message.MessageHeader;
+import cn.heimdall.core.message.MessagePriority;
 import cn.heimdall.core.message.MessageType;
+import cn.heimdall.core.message.ResultCode;
+import cn.heimdall.core.message.body.DictionaryMessage;
+import cn.heimdall.core.message.body.MessageResponse;
+import cn.heimdall.core.message.compress.CompressionDictionary;
+import cn.heimdall.core.message.compress.CompressorNegotiator;
+import cn.heimdall.core.message.compress.CompressorType;
+import cn.heimdall.core.message.compress.DictionaryRegistry;
+import cn.heimdall.core.network.codec.ProtocolDecoder;
+import cn.heimdall.core.network.codec.ProtocolEncoder;
+import cn.heimdall.core.network.loadbalance.LoadBalancer;
+import cn.heimdall.core.network.loadbalance.LoadBalancerFactory;
 import cn.heimdall.core.network.processor.ClientProcessor;
 import cn.heimdall.core.network.processor.ServerProcessor;
+import cn.heimdall.core.network.processor.client.ClientAckProcessor;
+import cn.heimdall.core.network.processor.client.ClientCreditProcessor;
 import cn.heimdall.core.utils.enums.NodeRole;
 import cn.heimdall.core.message.RpcMessage;
 import cn.heimdall.core.message.body.PingMessage;
+import cn.heimdall.core.message.SerializerType;
 import cn.heimdall.core.network.bootstrap.NettyClientBootstrap;
+import cn.heimdall.core.network.bootstrap.NetworkResourceManager;
 import cn.heimdall.core.utils.common.NetUtil;
+import cn.heimdall.core.utils.exception.NetworkException;
+import cn.heimdall.core.utils.thread.NamedThreadFactory;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelDuplexHandler;
 import io.netty.channel.ChannelHandler;
@@ -18,16 +37,27 @@ import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelPromise;
 import io.netty.handler.timeout.IdleState;
 import io.netty.handler.timeout.IdleStateEvent;
+import io.netty.util.Attribute;
+import io.netty.util.AttributeKey;
+import io.netty.util.ReferenceCountUtil;
 import io.netty.util.concurrent.EventExecutorGroup;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.function.Function;
+import java.util.function.Supplier;
 
 public abstract class AbstractRemotingClient extends AbstractRemoting implements RemotingClient {
 
@@ -39,6 +69,23 @@ public abstract class AbstractRemotingClient extends AbstractRemoting implements
 
     protected final NetworkConfig networkConfig;
 
+    private final LoadBalancer loadBalancer;
+
+    //已发给对端但可能还未确认的压缩字典id
+    private static final AttributeKey<Integer> OFFERED_DICTIONARY = AttributeKey.valueOf("offeredDictionary");
+
+    //异步请求的在途上限，达到上限时调用线程最多等待一个请求超时时间，避免请求无限堆积
+    private final Semaphore inFlightPermits = new Semaphore(NetworkConfig.getRpcMaxInFlight());
+
+    //发过需要确认的单向消息的连接，定时检查确认超时
+    private final Set<Channel> ackChannels = ConcurrentHashMap.newKeySet();
+
+    //数据类请求按服务端合并成批发送，只有heimdall序列化支持批消息
+    private final MessageBatcher batcher;
+
+    //发送可能等待连接和额度，批的定时发送使用单独的线程，不占用共用的定时线程
+    private final ScheduledExecutorService batchFlusher;
+
     public AbstractRemotingClient(NetworkConfig networkConfig,ThreadPoolExecutor messageExecutor,
                                   EventExecutorGroup eventExecutorGroup) {
         super(messageExecutor);
@@ -46,43 +93,356 @@ public abstract class AbstractRemotingClient extends AbstractRemoting implements
         this.clientBootstrap = new NettyClientBootstrap(networkConfig, eventExecutorGroup);
         this.clientBootstrap.setChannelHandlers(new ClientHandler());
         this.networkConfig = networkConfig;
+        this.loadBalancer = LoadBalancerFactory.getLoadBalancer(networkConfig.getLoadBalance());
         this.clientChannelManager = new ClientChannelManager(
                 new NettyKeyPoolFactory(this, clientBootstrap), getPoolKeyFunction(), networkConfig);
+        NetworkResourceManager.getInstance().registerThreads(getClass().getSimpleName(), "channelGroupResizer", 1);
+        boolean batchEnabled = NetworkConfig.isBatchEnabled()
+                && SerializerType.getByName(NetworkConfig.getSerialization()) == SerializerType.HEIMDALL;
+        this.batcher = batchEnabled ? new MessageBatcher((serverAddress, body) ->
+                sendAsyncRequest(new RpcMessage(body), () -> serverAddress)) : null;
+        this.batchFlusher = batchEnabled ? new ScheduledThreadPoolExecutor(1,
+                new NamedThreadFactory("batchFlusher", 1, true)) : null;
+        if (batchEnabled) {
+            NetworkResourceManager.getInstance().registerThreads(getClass().getSimpleName(), "batchFlusher", 1);
+        }
     }
 
     @Override
     public void init() {
-        timerExecutor.scheduleAtFixedRate(() -> {
-            //TODO 连接
-            clientChannelManager.reconnect(getAvailableAddress());
-        }, 60 * 1000L, 10 * 1000L, TimeUnit.MILLISECONDS);
+        //建连会阻塞，在连接管理自己的线程中执行，不占用共用的定时线程
+        clientChannelManager.scheduleReconnect(this::getAvailableAddress, 60 * 1000L, 10 * 1000L);
+        //确认在io线程处理，只是释放窗口中的消息
+        registerProcessor(MessageType.CLIENT_ACK, new ClientAckProcessor(), null);
+        registerProcessor(MessageType.CREDIT_GRANT, new ClientCreditProcessor(), null);
+        long ackCheckPeriod = Math.max(NetworkConfig.getAckTimeoutMillis() / 2, 1000);
+        scheduleAtFixedRate(this::resendExpired, ackCheckPeriod, ackCheckPeriod, TimeUnit.MILLISECONDS);
+        if (batcher != null) {
+            long linger = Math.max(batcher.getLingerMillis(), 1);
+            batchFlusher.scheduleWithFixedDelay(this::flushExpiredBatches, linger, linger, TimeUnit.MILLISECONDS);
+        }
         super.init();
         clientBootstrap.start();
     }
 
+    private void flushExpiredBatches() {
+        //周期任务抛出异常后不会再执行，这里记录后继续
+        try {
+            batcher.flushExpired();
+        } catch (Throwable th) {
+            LOGGER.error("flush expired batches error", th);
+        }
+    }
+
     public abstract void doRegisterProcessor(MessageType messageType, ClientProcessor clientProcessor);
 
-    protected abstract Set<InetSocketAddress> getAvailableAddress();
+    protected abstract Set<? extends SocketAddress> getAvailableAddress();
 
 
     protected abstract long getResourceExpireTime();
 
-    public abstract String loadBalance();
+    /**
+     * 可用节点的快照，见ClusterInfo#getActivePeers
+     */
+    protected abstract List<? extends SocketAddress> getActivePeers();
+
+    /**
+     * 服务端的角色，该角色在本进程内时请求直接交给它的协调器处理，返回null表示总是走网络
+     */
+    protected NodeRole getServerRole() {
+        return null;
+    }
+
+    private boolean isServerLocal() {
+        return LocalTransport.getInstance().isLocal(getServerRole());
+    }
+
+    public String loadBalance() {
+        return loadBalance(null);
+    }
+
+    /**
+     * @param routeKey 一致性哈希的路由键，如应用名或traceId
+     */
+    public String loadBalance(Object routeKey) {
+        SocketAddress address = loadBalancer.select(getActivePeers(), routeKey);
+        if (address == null) {
+            throw new NetworkException("no available server");
+        }
+        return NetUtil.toStringAddress(address);
+    }
 
     @Override
     public Object sendSyncRequest(Object msg) throws TimeoutException {
-        Channel channel = clientChannelManager.acquireChannel(loadBalance());
+        if (isServerLocal()) {
+            return sendLocalSync((Message) msg);
+        }
         Message message = (Message) msg;
+        Channel channel = acquireChannel(loadBalance(), message);
         int timeoutMillis = NetworkConfig.getRpcRequestTimeout();
         return super.sendSync(channel, message, timeoutMillis);
     }
 
     @Override
-    public Object sendSyncRequest(Channel channel, Object msg) throws TimeoutException { ;
+    public Object sendSyncRequest(Channel channel, Object msg) throws TimeoutException {
         int timeoutMillis = NetworkConfig.getRpcRequestTimeout();
         return super.sendSync(channel, (Message) msg, timeoutMillis);
     }
 
+    @Override
+    public CompletableFuture<MessageBody> sendAsyncRequest(Object msg) {
+        return sendAsyncRequest(msg, null);
+    }
+
+    @Override
+    public CompletableFuture<MessageBody> sendAsyncRequest(Object msg, Object routeKey) {
+        Message message = (Message) msg;
+        if (isServerLocal()) {
+            return LocalTransport.getInstance().send(getServerRole(), message.getMessageBody());
+        }
+        return sendAsyncRequest(message, () -> loadBalance(routeKey));
+    }
+
+    /**
+     * 调用后消息体归本方法所有，先放入所选服务端的批中，批满或等待超过linger后整批发出
+     * 返回的是整批的回复，批中任一消息处理失败时异常完成
+     */
+    @Override
+    public CompletableFuture<MessageBody> sendBatchedRequest(Object msg, Object routeKey) {
+        Message message = (Message) msg;
+        if (batcher == null || isServerLocal() || isControl(message)) {
+            return sendAsyncRequest(msg, routeKey);
+        }
+        String serverAddress;
+        try {
+            serverAddress = loadBalance(routeKey);
+        } catch (RuntimeException e) {
+            ReferenceCountUtil.release(message.getMessageBody());
+            return failedFuture(e);
+        }
+        return batcher.add(serverAddress, message.getMessageBody());
+    }
+
+    private CompletableFuture<MessageBody> sendAsyncRequest(Message message, Supplier<String> serverAddress) {
+        //控制类请求不受数据请求的在途上限限制
+        boolean control = isControl(message);
+        if (!control) {
+            try {
+                //最多等待一个请求超时时间，等不到说明在途请求都卡住了，直接失败
+                if (!inFlightPermits.tryAcquire(NetworkConfig.getRpcRequestTimeout(), TimeUnit.MILLISECONDS)) {
+                    ReferenceCountUtil.release(message.getMessageBody());
+                    return failedFuture(new NetworkException("wait in flight permit timeout, max in flight "
+                            + NetworkConfig.getRpcMaxInFlight()));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                ReferenceCountUtil.release(message.getMessageBody());
+                return failedFuture(e);
+            }
+        }
+        CompletableFuture<MessageBody> response;
+        try {
+            Channel channel = acquireChannel(serverAddress.get(), message);
+            response = super.sendAsyncRequest(channel, message, NetworkConfig.getRpcRequestTimeout());
+        } catch (RuntimeException e) {
+            ReferenceCountUtil.release(message.getMessageBody());
+            response = failedFuture(e);
+        }
+        if (!control) {
+            response.whenComplete((body, e) -> inFlightPermits.release());
+        }
+        return response;
+    }
+
+    /**
+     * 调用后消息体归本方法所有，发送失败时释放
+     */
+    @Override
+    public void sendOneway(Object msg) {
+        sendOneway(msg, null);
+    }
+
+    @Override
+    public void sendOneway(Object msg, Object routeKey) {
+        sendOneway((Message) msg, routeKey, NetworkConfig.getRpcRequestTimeout());
+    }
+
+    /**
+     * @param creditTimeoutMillis 等待发送额度的时间，不大于0时不等待
+     */
+    private void sendOneway(Message message, Object routeKey, long creditTimeoutMillis) {
+        if (isServerLocal()) {
+            LocalTransport.getInstance().send(getServerRole(), message.getMessageBody());
+            return;
+        }
+        Channel channel = null;
+        boolean credited = false;
+        try {
+            channel = acquireChannel(loadBalance(routeKey), message);
+            acquireCredit(channel, message, creditTimeoutMillis);
+            credited = true;
+            if (!message.isAckRequested()) {
+                super.sendAsync(channel, message);
+                return;
+            }
+            UnackedWindow.get(channel, NetworkConfig.getMaxUnackedMessages()).add(message);
+        } catch (RuntimeException e) {
+            if (credited) {
+                releaseCredit(channel, message);
+            }
+            ReferenceCountUtil.release(message.getMessageBody());
+            throw e;
+        }
+        ackChannels.add(channel);
+        writeUnacked(channel, message);
+    }
+
+    /**
+     * 控制类消息走服务端的控制连接，不排在数据后面
+     */
+    private Channel acquireChannel(String serverAddress, Message message) {
+        if (isControl(message)) {
+            return clientChannelManager.acquireControlChannel(serverAddress);
+        }
+        Channel channel = clientChannelManager.acquireChannel(serverAddress);
+        if (channel != null) {
+            offerDictionary(channel);
+        }
+        return channel;
+    }
+
+    /**
+     * 连接上第一次用到当前字典前先把字典发给对端，对端确认后编码器才用它压缩，见ProtocolEncoder
+     * 对端的协议版本不支持字典同步时一直使用不带字典的压缩
+     */
+    private void offerDictionary(Channel channel) {
+        CompressionDictionary dictionary = DictionaryRegistry.getInstance().getActive();
+        if (dictionary == null || CompressorNegotiator.getInstance().getNegotiated() != CompressorType.ZSTD.getCode()) {
+            return;
+        }
+        Integer peerVersion = channel.attr(ProtocolDecoder.PEER_PROTOCOL_VERSION).get();
+        if (peerVersion == null || peerVersion < MessageHeader.VERSION_DICTIONARY) {
+            return;
+        }
+        Attribute<Integer> offered = channel.attr(OFFERED_DICTIONARY);
+        Integer offeredId = offered.get();
+        Integer dictionaryId = dictionary.getId();
+        if (dictionaryId.equals(offeredId) || !offered.compareAndSet(offeredId, dictionaryId)) {
+            return;
+        }
+        super.sendAsyncRequest(channel, new RpcMessage(new DictionaryMessage(dictionary)), NetworkConfig.getRpcRequestTimeout())
+                .whenComplete((body, e) -> {
+                    if (e == null && ((MessageResponse) body).getResultCode() == ResultCode.SUCCESS.getCode()) {
+                        channel.attr(ProtocolEncoder.PEER_DICTIONARY).set(dictionaryId);
+                        return;
+                    }
+                    //下次获取连接时重新发送
+                    offered.compareAndSet(dictionaryId, null);
+                    if (LOGGER.isWarnEnabled()) {
+                        LOGGER.warn("offer compression dictionary {} failed, channel:{}, response:{}", dictionary,
+                                channel, e == null ? body : e.getMessage());
+                    }
+                });
+    }
+
+    /**
+     * 把压缩字典发给所有可用的服务端，服务端在本进程内时共用同一个字典表，不需要发送
+     */
+    public void publishDictionary(CompressionDictionary dictionary) {
+        if (dictionary == null || isServerLocal()) {
+            return;
+        }
+        for (SocketAddress peer : getActivePeers()) {
+            String serverAddress = NetUtil.toStringAddress(peer);
+            sendAsyncRequest(new RpcMessage(new DictionaryMessage(dictionary)), () -> serverAddress)
+                    .whenComplete((body, e) -> {
+                        if (e != null && LOGGER.isWarnEnabled()) {
+                            LOGGER.warn("publish compression dictionary {} to {} failed", dictionary, serverAddress, e);
+                        }
+                    });
+        }
+    }
+
+    private boolean isControl(Message message) {
+        return NetworkConfig.isControlPlaneEnabled() && !message.isResponse()
+                && MessageType.fromTypeCode(message.getMessageHeader().getTypeCode()).getPriority()
+                == MessagePriority.CONTROL;
+    }
+
+    /**
+     * 窗口持有消息体的一个引用，每次写出前retain一次交给编码器释放
+     * 写失败不抛出，消息留在窗口中等待重发
+     */
+    private void writeUnacked(Channel channel, Message message) {
+        ReferenceCountUtil.retain(message.getMessageBody());
+        try {
+            super.sendAsync(channel, message);
+        } catch (RuntimeException e) {
+            //没有写出，重发时会重新获取额度
+            releaseCredit(channel, message);
+            ReferenceCountUtil.release(message.getMessageBody());
+            if (LOGGER.isWarnEnabled()) {
+                LOGGER.warn("write oneway message {} failed, will resend later, channel:{}", message.getMessageId(), channel, e);
+            }
+        }
+    }
+
+    /**
+     * 确认超时的消息按原序号在原连接上重发，服务端按序号去重
+     */
+    private void resendExpired() {
+        int ackTimeout = NetworkConfig.getAckTimeoutMillis();
+        for (Channel channel : ackChannels) {
+            if (!channel.isActive()) {
+                continue;
+            }
+            UnackedWindow window = UnackedWindow.peek(channel);
+            for (Message message : window.expired(ackTimeout)) {
+                //服务端对重发的消息同样计数，重发不等待额度但要计入已发送
+                acquireCredit(channel, message, 0);
+                writeUnacked(channel, message);
+            }
+        }
+    }
+
+    /**
+     * 连接断开后未确认的消息换连接重发，获取连接可能阻塞，不在io线程执行
+     */
+    private void resendUnacked(Channel channel) {
+        if (!ackChannels.remove(channel)) {
+            return;
+        }
+        List<Message> messages = UnackedWindow.peek(channel).drain();
+        if (messages.isEmpty() || isDestroyed()) {
+            return;
+        }
+        if (LOGGER.isInfoEnabled()) {
+            LOGGER.info("resend {} unacked oneway messages of channel {}", messages.size(), channel);
+        }
+        clientChannelManager.execute(() -> {
+            for (Message message : messages) {
+                try {
+                    sendOneway(message, null, 0);
+                } catch (Exception e) {
+                    LOGGER.error("resend oneway message failed, message dropped: {}", message.getMessageBody(), e);
+                }
+            }
+        });
+    }
+
+    private Object sendLocalSync(Message message) throws TimeoutException {
+        try {
+            return LocalTransport.getInstance().send(getServerRole(), message.getMessageBody())
+                    .get(NetworkConfig.getRpcRequestTimeout(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new NetworkException(e, "wait local response interrupted");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof RuntimeException ? (RuntimeException) cause : new RuntimeException(cause);
+        }
+    }
+
     public ClientChannelManager getClientChannelManager() {
         return clientChannelManager;
     }
@@ -94,7 +454,12 @@ public abstract class AbstractRemotingClient extends AbstractRemoting implements
 
     @Override
     public void destroy() {
+        if (batcher != null) {
+            batchFlusher.shutdownNow();
+            batcher.flushAll();
+        }
         clientBootstrap.shutdown();
+        clientChannelManager.destroy();
         super.destroy();
     }
 
@@ -120,17 +485,15 @@ public abstract class AbstractRemotingClient extends AbstractRemoting implements
 
         @Override
         public void channelWritabilityChanged(ChannelHandlerContext ctx) {
-            synchronized (lock) {
-                if (ctx.channel().isWritable()) {
-                    lock.notifyAll();
-                }
-            }
+            onChannelWritabilityChanged(ctx.channel());
             ctx.fireChannelWritabilityChanged();
         }
 
         @Override
         public void channelInactive(ChannelHandlerContext ctx) throws Exception {
-            if (messageExecutor.isShutdown()) {
+            onChannelInactive(ctx.channel());
+            resendUnacked(ctx.channel());
+            if (isDestroyed()) {
                 return;
             }
             if (LOGGER.isInfoEnabled()) {
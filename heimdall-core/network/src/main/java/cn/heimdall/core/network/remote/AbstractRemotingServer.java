@@ -3,8 +3,20 @@ package cn.heimdall.core.network.remote;
 import cn.heimdall.core.config.NetworkConfig;
 import cn.heimdall.core.message.Message;
 import cn.heimdall.core.message.MessageBody;
+import cn.heimdall.core.message.MessageHeader;
+import cn.heimdall.core.message.MessagePriority;
 import cn.heimdall.core.message.MessageType;
+import cn.heimdall.core.message.ResultCode;
 import cn.heimdall.core.message.RpcMessage;
+import cn.heimdall.core.message.body.AckMessage;
+import cn.heimdall.core.message.body.BatchMessage;
+import cn.heimdall.core.message.body.BatchResponse;
+import cn.heimdall.core.message.body.CreditMessage;
+import cn.heimdall.core.message.body.DictionaryMessage;
+import cn.heimdall.core.message.body.DictionaryResponse;
+import cn.heimdall.core.message.body.MessageResponse;
+import cn.heimdall.core.message.compress.CompressionDictionary;
+import cn.heimdall.core.message.compress.DictionaryRegistry;
 import cn.heimdall.core.network.bootstrap.NettyServerBootstrap;
 import cn.heimdall.core.network.processor.ServerProcessor;
 import cn.heimdall.core.utils.common.NetUtil;
@@ -15,10 +27,15 @@ import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelPromise;
 import io.netty.handler.timeout.IdleState;
 import io.netty.handler.timeout.IdleStateEvent;
+import io.netty.util.ReferenceCountUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
 public abstract class AbstractRemotingServer extends AbstractRemoting implements RemotingServer{
@@ -27,6 +44,12 @@ public abstract class AbstractRemotingServer extends AbstractRemoting implements
 
     private NettyServerBootstrap serverBootstrap;
 
+    //各连接上需要确认的单向消息的处理进度
+    private final ConcurrentHashMap<Channel, AckTracker> ackTrackers = new ConcurrentHashMap<>();
+
+    //各连接上数据类请求的处理进度和已授予的额度
+    private final ConcurrentHashMap<Channel, CreditLedger> creditLedgers = new ConcurrentHashMap<>();
+
     public AbstractRemotingServer(ThreadPoolExecutor executor, NetworkConfig networkConfig) {
         super(executor);
         serverBootstrap = new NettyServerBootstrap(networkConfig);
@@ -46,6 +69,12 @@ public abstract class AbstractRemotingServer extends AbstractRemoting implements
 
     @Override
     public void init() {
+        long ackInterval = NetworkConfig.getAckIntervalMillis();
+        scheduleAtFixedRate(this::flushAcks, ackInterval, ackInterval, TimeUnit.MILLISECONDS);
+        long creditInterval = NetworkConfig.getCreditIntervalMillis();
+        scheduleAtFixedRate(this::grantCredits, creditInterval, creditInterval, TimeUnit.MILLISECONDS);
+        registerProcessor(MessageType.BATCH_REQUEST, this::processBatch);
+        registerProcessor(MessageType.DICTIONARY_SYNC_REQUEST, this::processDictionary);
         super.init();
         serverBootstrap.start();
     }
@@ -78,6 +107,185 @@ public abstract class AbstractRemotingServer extends AbstractRemoting implements
         super.sendAsync(channel, new RpcMessage((MessageBody) msg));
     }
 
+    @Override
+    public void sendResponse(Channel channel, Message request, Object msg) {
+        if (channel == null) {
+            throw new RuntimeException("client is not connected");
+        }
+        //批中子消息的回复不发送，留给整批的回复汇总
+        if (request instanceof BatchChildMessage) {
+            ((BatchChildMessage) request).setResponse(msg);
+            return;
+        }
+        if (request.isOneway() || msg == null) {
+            return;
+        }
+        super.sendAsync(channel, RpcMessage.response(request, (MessageBody) msg));
+    }
+
+    /**
+     * 批中的消息在当前线程依次交给各自类型的处理器，消息体归处理器所有
+     * 子消息逐条占用处理份额和额度，超过丢弃线的、处理器抛出异常或没有返回成功回复的都算失败，整批只回复一次
+     */
+    private void processBatch(ChannelHandlerContext ctx, Message message) {
+        BatchMessage batch = (BatchMessage) message.getMessageBody();
+        List<MessageBody> bodies = batch.getBodies();
+        //先按条数占用份额，排队深度反映整批的处理量
+        boolean[] acquired = new boolean[bodies.size()];
+        for (int i = 0; i < bodies.size(); i++) {
+            acquired[i] = tryAcquireLane(bodies.get(i).getMessageType());
+        }
+        List<Integer> failedIndexes = new ArrayList<>();
+        for (int i = 0; i < bodies.size(); i++) {
+            MessageBody body = bodies.get(i);
+            MessageType messageType = body.getMessageType();
+            try {
+                if (!acquired[i]) {
+                    onLaneShed(messageType);
+                    ReferenceCountUtil.release(body);
+                    failedIndexes.add(i);
+                    continue;
+                }
+                if (!processBatchChild(ctx, message, body)) {
+                    failedIndexes.add(i);
+                }
+            } finally {
+                if (acquired[i]) {
+                    releaseLane(messageType);
+                }
+                if (messageType.getPriority() == MessagePriority.DATA) {
+                    onDataRequestFinished(ctx.channel());
+                }
+            }
+        }
+        BatchResponse response = new BatchResponse();
+        if (failedIndexes.isEmpty()) {
+            response.setResultCode(ResultCode.SUCCESS.getCode());
+        } else {
+            response.setResultCode(ResultCode.FAILED.getCode());
+            response.setMsg(failedIndexes.size() + " of " + bodies.size() + " failed");
+            response.setFailedIndexes(failedIndexes);
+        }
+        sendResponse(ctx.channel(), message, response);
+    }
+
+    /**
+     * @return 处理器返回成功回复时返回true
+     */
+    private boolean processBatchChild(ChannelHandlerContext ctx, Message message, MessageBody body) {
+        ProcessorEntry entry = processorTable.get(body.getMessageType().getTypeCode());
+        if (entry == null) {
+            ReferenceCountUtil.release(body);
+            return false;
+        }
+        BatchChildMessage child = new BatchChildMessage(body);
+        child.setMessageId(message.getMessageId());
+        try {
+            entry.getProcessor().process(ctx, child);
+        } catch (Throwable th) {
+            LOGGER.error("process batch error, message type {}", body.getMessageType().getTypeCode(), th);
+            return false;
+        }
+        return child.isSucceeded();
+    }
+
+    /**
+     * 对端发来的压缩字典登记到本节点，之后按帧里的字典id解压
+     */
+    private void processDictionary(ChannelHandlerContext ctx, Message message) {
+        DictionaryMessage request = (DictionaryMessage) message.getMessageBody();
+        DictionaryResponse response = new DictionaryResponse();
+        CompressionDictionary dictionary = request.getDictionary();
+        if (dictionary == null || dictionary.getId() == 0 || dictionary.getData() == null) {
+            response.setResultCode(ResultCode.FAILED.getCode());
+            response.setMsg("invalid dictionary");
+        } else {
+            DictionaryRegistry.getInstance().register(dictionary);
+            response.setResultCode(ResultCode.SUCCESS.getCode());
+        }
+        sendResponse(ctx.channel(), message, response);
+    }
+
+    @Override
+    protected void onAckRequestProcessed(Channel channel, Message message) {
+        getAckTracker(channel).complete(message.getMessageId());
+    }
+
+    @Override
+    protected boolean onAckRequestReceived(Channel channel, Message message) {
+        return getAckTracker(channel).accept(message.getMessageId());
+    }
+
+    @Override
+    protected void onAckRequestShed(Channel channel, Message message) {
+        getAckTracker(channel).reject(message.getMessageId());
+    }
+
+    private AckTracker getAckTracker(Channel channel) {
+        return ackTrackers.computeIfAbsent(channel, key -> new AckTracker(NetworkConfig.getMaxUnackedMessages()));
+    }
+
+    @Override
+    protected void onDataRequestFinished(Channel channel) {
+        creditLedgers.computeIfAbsent(channel, key -> new CreditLedger()).onFinished();
+    }
+
+    /**
+     * 按数据类消息的排队深度给每个连接授予额度，额度是累计值，丢失的授予由下一次覆盖
+     * 排队未超过丢弃线的份额时各连接平分该份额，超过后只平分剩余的空间，索引变慢时发送端随之放缓
+     */
+    private void grantCredits() {
+        if (creditLedgers.isEmpty()) {
+            return;
+        }
+        int capacity = getLaneCapacity(MessagePriority.DATA);
+        int target = (int) ((long) capacity * NetworkConfig.getLaneShedPercent() / 100);
+        int queued = getQueuedCount(MessagePriority.DATA);
+        int total = queued > target ? Math.max(capacity - queued, 0) : target;
+        int window = Math.min(total / creditLedgers.size(), NetworkConfig.getCreditMaxWindow());
+        creditLedgers.forEach((channel, ledger) -> {
+            if (!channel.isActive()) {
+                creditLedgers.remove(channel);
+                return;
+            }
+            long limit = ledger.nextGrant(window);
+            if (limit < 0) {
+                return;
+            }
+            try {
+                super.sendAsync(channel, RpcMessage.oneway(new CreditMessage(limit)));
+            } catch (Exception e) {
+                ledger.grantFailed();
+                if (LOGGER.isWarnEnabled()) {
+                    LOGGER.warn("send credit failed, channel:{}, cause:{}", channel, e.getMessage());
+                }
+            }
+        });
+    }
+
+    /**
+     * 每个连接一个累计确认，代替逐条回复
+     */
+    private void flushAcks() {
+        ackTrackers.forEach((channel, tracker) -> {
+            if (!channel.isActive()) {
+                ackTrackers.remove(channel);
+                return;
+            }
+            if (!tracker.pollAck()) {
+                return;
+            }
+            try {
+                super.sendAsync(channel, RpcMessage.oneway(new AckMessage(tracker.getWatermark())));
+            } catch (Exception e) {
+                tracker.ackFailed();
+                if (LOGGER.isWarnEnabled()) {
+                    LOGGER.warn("send ack failed, channel:{}, cause:{}", channel, e.getMessage());
+                }
+            }
+        });
+    }
+
     private void closeChannelHandlerContext(ChannelHandlerContext ctx) {
         if (LOGGER.isInfoEnabled()) {
             LOGGER.info("server, closeChannelHandlerContext channel:" + ctx.channel());
@@ -101,17 +309,16 @@ public abstract class AbstractRemotingServer extends AbstractRemoting implements
 
         @Override
         public void channelWritabilityChanged(ChannelHandlerContext ctx) {
-            synchronized (lock) {
-                if (ctx.channel().isWritable()) {
-                    lock.notifyAll();
-                }
-            }
+            onChannelWritabilityChanged(ctx.channel());
             ctx.fireChannelWritabilityChanged();
         }
 
         @Override
         public void channelInactive(ChannelHandlerContext ctx) throws Exception {
-            if (messageExecutor.isShutdown()) {
+            onChannelInactive(ctx.channel());
+            ackTrackers.remove(ctx.channel());
+            creditLedgers.remove(ctx.channel());
+            if (isDestroyed()) {
                 return;
             }
             handleDisconnect(ctx);
@@ -165,4 +372,34 @@ public abstract class AbstractRemotingServer extends AbstractRemoting implements
         }
 
     }
+
+    /**
+     * 批中的子消息，按单向消息处理，处理器的回复留在这里由整批汇总
+     */
+    private static class BatchChildMessage extends RpcMessage {
+
+        private boolean responded;
+
+        private Object response;
+
+        BatchChildMessage(MessageBody messageBody) {
+            super(messageBody, (byte) (MessageHeader.FLAG_REQUEST | MessageHeader.FLAG_ONEWAY));
+        }
+
+        void setResponse(Object response) {
+            this.responded = true;
+            this.response = response;
+        }
+
+        /**
+         * 存储等处理器失败时返回null，有结果码的回复按结果码判断
+         */
+        boolean isSucceeded() {
+            if (!responded || response == null) {
+                return false;
+            }
+            return !(response instanceof MessageResponse)
+                    || ((MessageResponse) response).getResultCode() == ResultCode.SUCCESS.getCode();
+        }
+    }
 }
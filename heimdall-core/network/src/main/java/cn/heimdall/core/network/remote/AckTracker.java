@@ -0,0 +1,93 @@
+package cn.heimdall.core.network.remote;
+
+import java.util.BitSet;
+
+/**
+ * 服务端单个连接上需要累计确认的单向消息的处理进度
+ * 消息按序号分发，处理可能乱序完成，watermark只推进到连续处理完成的最大序号
+ * 序号按int回绕比较，未确认的消息数由客户端窗口限制，超出窗口的序号直接拒绝
+ */
+class AckTracker {
+
+    //连续处理完成的最大序号，客户端每个连接的序号从1开始
+    private int watermark;
+
+    //第i位表示序号 watermark + 1 + i 已分发处理，重发的消息据此去重
+    private BitSet accepted = new BitSet();
+
+    //第i位表示序号 watermark + 1 + i 已处理
+    private BitSet completed = new BitSet();
+
+    //有新的处理进度或收到重发的消息，需要发送确认
+    private boolean dirty;
+
+    private final int window;
+
+    AckTracker(int window) {
+        this.window = window;
+    }
+
+    /**
+     * 分发前调用，返回false时消息不处理
+     * 已确认过或已处理完的重发消息只需再次确认，正在处理的等处理完后确认
+     */
+    synchronized boolean accept(int seq) {
+        int offset = seq - watermark - 1;
+        if (offset < 0 || completed.get(offset)) {
+            dirty = true;
+            return false;
+        }
+        if (offset >= window || accepted.get(offset)) {
+            return false;
+        }
+        accepted.set(offset);
+        return true;
+    }
+
+    /**
+     * 已分发的消息被丢弃，不确认，重发时重新处理
+     */
+    synchronized void reject(int seq) {
+        int offset = seq - watermark - 1;
+        if (offset >= 0 && offset < window) {
+            accepted.clear(offset);
+        }
+    }
+
+    synchronized void complete(int seq) {
+        int offset = seq - watermark - 1;
+        if (offset < 0 || offset >= window) {
+            return;
+        }
+        dirty = true;
+        completed.set(offset);
+        int advance = completed.nextClearBit(0);
+        if (advance > 0) {
+            watermark += advance;
+            completed = completed.get(advance, Math.max(advance, completed.length()));
+            accepted = accepted.get(advance, Math.max(advance, accepted.length()));
+        }
+    }
+
+    /**
+     * @return 需要发送确认时返回true，之后通过getWatermark获取确认的序号
+     */
+    synchronized boolean pollAck() {
+        if (!dirty) {
+            return false;
+        }
+        dirty = false;
+        return true;
+    }
+
+    /**
+     * 确认没有发出去，下次再发
+     */
+    synchronized void ackFailed() {
+        dirty = true;
+    }
+
+    synchronized int getWatermark() {
+        return watermark;
+    }
+}
@@ -0,0 +1,142 @@
+package cn.heimdall.core.network.remote;
+
+import io.netty.channel.Channel;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 客户端到同一个服务端的一组连接
+ * 发送时选在途请求最少的连接，在途请求相同时选发送缓冲堆积最少的
+ * 选中的连接也已经很忙时扩容，持续空闲后缩容到最小连接数
+ */
+class ChannelGroup {
+
+    private final String serverAddress;
+
+    private final int minSize;
+
+    private final int maxSize;
+
+    //单个连接的在途请求达到该值认为连接忙
+    private final int busyThreshold;
+
+    private final CopyOnWriteArrayList<Channel> channels = new CopyOnWriteArrayList<>();
+
+    //同一时间只有一个扩容中的连接
+    private final AtomicBoolean growing = new AtomicBoolean();
+
+    //最近一次所有连接都忙的时间
+    private volatile long lastBusyTime = System.currentTimeMillis();
+
+    ChannelGroup(String serverAddress, int minSize, int maxSize, int busyThreshold) {
+        this.serverAddress = serverAddress;
+        this.minSize = Math.max(minSize, 1);
+        this.maxSize = Math.max(maxSize, this.minSize);
+        this.busyThreshold = busyThreshold;
+    }
+
+    /**
+     * @return 负载最低的活跃连接，没有活跃连接时返回null
+     */
+    Channel select() {
+        Channel selected = null;
+        int selectedInFlight = Integer.MAX_VALUE;
+        long selectedPending = Long.MAX_VALUE;
+        for (Channel channel : channels) {
+            if (!channel.isActive()) {
+                continue;
+            }
+            int inFlight = getInFlight(channel);
+            if (inFlight > selectedInFlight) {
+                continue;
+            }
+            long pending = ChannelWriteGate.getPendingBytes(channel);
+            if (inFlight < selectedInFlight || pending < selectedPending) {
+                selected = channel;
+                selectedInFlight = inFlight;
+                selectedPending = pending;
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * 负载最低的连接也忙时需要扩容
+     */
+    boolean needGrow(Channel selected) {
+        if (getInFlight(selected) < busyThreshold && selected.isWritable()) {
+            return false;
+        }
+        lastBusyTime = System.currentTimeMillis();
+        return channels.size() < maxSize;
+    }
+
+    boolean needConnect() {
+        return getActiveSize() < minSize;
+    }
+
+    boolean tryStartGrow() {
+        return growing.compareAndSet(false, true);
+    }
+
+    void endGrow() {
+        growing.set(false);
+    }
+
+    /**
+     * 持续空闲超过idleMillis时摘除最后加入的连接，摘除的连接等在途请求结束后再关闭
+     */
+    Channel shrink(long idleMillis) {
+        if (channels.size() <= minSize || System.currentTimeMillis() - lastBusyTime < idleMillis) {
+            return null;
+        }
+        //连接关闭时会被并发移除，按快照选出后按对象移除，不用可能已失效的下标
+        Object[] snapshot = channels.toArray();
+        if (snapshot.length <= minSize) {
+            return null;
+        }
+        Channel channel = (Channel) snapshot[snapshot.length - 1];
+        if (!channels.remove(channel)) {
+            return null;
+        }
+        lastBusyTime = System.currentTimeMillis();
+        return channel;
+    }
+
+    void add(Channel channel) {
+        channels.addIfAbsent(channel);
+    }
+
+    boolean remove(Channel channel) {
+        return channels.remove(channel);
+    }
+
+    boolean contains(Channel channel) {
+        return channels.contains(channel);
+    }
+
+    int getActiveSize() {
+        int size = 0;
+        for (Channel channel : channels) {
+            if (channel.isActive()) {
+                size++;
+            }
+        }
+        return size;
+    }
+
+    List<Channel> getChannels() {
+        return channels;
+    }
+
+    String getServerAddress() {
+        return serverAddress;
+    }
+
+    static int getInFlight(Channel channel) {
+        InFlightTable table = InFlightTable.peek(channel);
+        return table == null ? 0 : table.size();
+    }
+}
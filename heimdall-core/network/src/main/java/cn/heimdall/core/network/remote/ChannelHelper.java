@@ -1,7 +1,9 @@
 package cn.heimdall.core.network.remote;
 
 import cn.heimdall.core.config.HeimdallConfig;
+import cn.heimdall.core.utils.common.NetUtil;
 import io.netty.channel.Channel;
+import io.netty.channel.unix.DomainSocketAddress;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -18,6 +20,10 @@ public class ChannelHelper {
 
     public static String getAddressFromChannel(Channel channel) {
         SocketAddress socketAddress = channel.remoteAddress();
+        //服务端accept的unix domain socket连接没有对端地址
+        if (socketAddress == null || socketAddress instanceof DomainSocketAddress) {
+            return NetUtil.toStringAddress(socketAddress);
+        }
         String address = socketAddress.toString();
         if (socketAddress.toString().indexOf(HeimdallConfig.ENDPOINT_BEGIN_CHAR) == 0) {
             address = socketAddress.toString().substring(HeimdallConfig.ENDPOINT_BEGIN_CHAR.length());
@@ -0,0 +1,122 @@
+package cn.heimdall.core.network.remote;
+
+import cn.heimdall.core.config.NetworkConfig;
+import io.netty.channel.Channel;
+import io.netty.util.Attribute;
+import io.netty.util.AttributeKey;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * 单个连接的写入背压，替代所有连接共用一把锁轮询等待可写
+ * 连接不可写时消息仍进入该连接自己的发送缓冲，缓冲超过字节上限后同步发送快速失败，异步请求排队等连接重新可写
+ */
+class ChannelWriteGate {
+
+    private static final AttributeKey<ChannelWriteGate> WRITE_GATE = AttributeKey.valueOf("writeGate");
+
+    private final Channel channel;
+
+    private final long maxPendingBytes;
+
+    //等待连接可写的异步写入
+    private final Queue<Runnable> waiters = new ConcurrentLinkedQueue<>();
+
+    //最近一次变为不可写的时间，可写时为0
+    private volatile long unwritableSince;
+
+    private ChannelWriteGate(Channel channel, long maxPendingBytes) {
+        this.channel = channel;
+        this.maxPendingBytes = maxPendingBytes;
+    }
+
+    static ChannelWriteGate get(Channel channel) {
+        Attribute<ChannelWriteGate> attr = channel.attr(WRITE_GATE);
+        ChannelWriteGate gate = attr.get();
+        if (gate == null) {
+            gate = new ChannelWriteGate(channel, NetworkConfig.getMaxPendingWriteBytes());
+            ChannelWriteGate old = attr.setIfAbsent(gate);
+            if (old != null) {
+                gate = old;
+            }
+        }
+        return gate;
+    }
+
+    static ChannelWriteGate peek(Channel channel) {
+        return channel.attr(WRITE_GATE).get();
+    }
+
+    /**
+     * 发送缓冲中还没写到socket的字节数
+     */
+    long getPendingBytes() {
+        return getPendingBytes(channel);
+    }
+
+    static long getPendingBytes(Channel channel) {
+        if (channel.isWritable()) {
+            return Math.max(channel.config().getWriteBufferHighWaterMark() - channel.bytesBeforeUnwritable(), 0);
+        }
+        return channel.config().getWriteBufferLowWaterMark() + channel.bytesBeforeWritable();
+    }
+
+    boolean isOverLimit() {
+        return !channel.isWritable() && getPendingBytes() >= maxPendingBytes;
+    }
+
+    /**
+     * 未超过上限时直接写，否则排队等连接重新可写或关闭后再写
+     */
+    void whenWritable(Runnable write) {
+        if (waiters.isEmpty() && !isOverLimit()) {
+            write.run();
+            return;
+        }
+        waiters.add(write);
+        //入队前连接可能刚好变为可写，避免丢失唤醒
+        if (!isOverLimit() || !channel.isActive()) {
+            channel.eventLoop().execute(this::drain);
+        }
+    }
+
+    /**
+     * io线程中调用
+     * @return 本次从可写变为不可写
+     */
+    boolean onWritabilityChanged() {
+        if (channel.isWritable()) {
+            unwritableSince = 0;
+            drain();
+            return false;
+        }
+        if (unwritableSince == 0) {
+            unwritableSince = System.currentTimeMillis();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 连接关闭后排队的写入照常执行，由写入失败结束对应的请求
+     */
+    void onInactive() {
+        drain();
+    }
+
+    /**
+     * @return 当前已连续不可写的毫秒数
+     */
+    long getUnwritableMillis() {
+        long since = unwritableSince;
+        return since == 0 ? 0 : System.currentTimeMillis() - since;
+    }
+
+    private void drain() {
+        Runnable write;
+        while ((!isOverLimit() || !channel.isActive()) && (write = waiters.poll()) != null) {
+            write.run();
+        }
+    }
+}
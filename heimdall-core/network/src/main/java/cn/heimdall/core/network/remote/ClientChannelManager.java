@@ -4,81 +4,88 @@ import cn.heimdall.core.config.NetworkConfig;
 import cn.heimdall.core.utils.common.CollectionUtil;
 import cn.heimdall.core.utils.common.NetUtil;
 import cn.heimdall.core.utils.exception.NetworkException;
+import cn.heimdall.core.utils.thread.NamedThreadFactory;
 import io.netty.channel.Channel;
-import org.apache.commons.pool2.impl.GenericKeyedObjectPool;
-import org.apache.commons.pool2.impl.GenericKeyedObjectPoolConfig;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.net.InetSocketAddress;
+import java.net.SocketAddress;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * netty client channel的管理
+ * 每个服务端地址一个连接组，发送时直接从组里选负载最低的连接，不再经过对象池借还
+ * 建连和注册由NettyKeyPoolFactory完成，扩容和缩容在后台线程进行
+ * 控制类消息走每个服务端单独的一个控制连接
  */
 public class ClientChannelManager {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(ClientChannelManager.class);
 
+    private static final String CONTROL_LOCK_PREFIX = "control:";
+
+    private static final long CONTROL_RETRY_INTERVAL = 30 * 1000L;
+
     private final ConcurrentMap<String, Object> channelLocks = new ConcurrentHashMap<>();
 
     private final ConcurrentMap<String, ClientPoolKey> poolKeyMap = new ConcurrentHashMap<>();
 
-    private final ConcurrentMap<String, Channel> channels = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, ChannelGroup> channelGroups = new ConcurrentHashMap<>();
+
+    //每个服务端一个控制连接，心跳、注册等控制类消息不和数据排在同一个连接上
+    private final ConcurrentMap<String, Channel> controlChannels = new ConcurrentHashMap<>();
+
+    //控制端口连不上的服务端和下次重试的时间，期间控制类消息走数据连接
+    private final ConcurrentMap<String, Long> controlRetryTimes = new ConcurrentHashMap<>();
+
+    //缩容摘下来的连接，在途请求结束后关闭
+    private final Set<Channel> drainingChannels = ConcurrentHashMap.newKeySet();
 
-    private final GenericKeyedObjectPool<ClientPoolKey, Channel> nettyClientKeyPool;
+    private final NettyKeyPoolFactory nettyKeyPoolFactory;
+
+    private final NetworkConfig clientConfig;
+
+    //扩缩容、重连等会阻塞的连接操作在这个线程执行
+    private final ScheduledExecutorService resizeExecutor = new ScheduledThreadPoolExecutor(1,
+            new NamedThreadFactory("channelGroupResizer", 1, true));
 
     private Function<String, ClientPoolKey> poolKeyFunction;
 
     public ClientChannelManager(final NettyKeyPoolFactory nettyKeyPoolFactory,
                                 final Function<String, ClientPoolKey> poolKeyFunction,
                                 final NetworkConfig clientConfig) {
-        nettyClientKeyPool = new GenericKeyedObjectPool<>(nettyKeyPoolFactory);
-        nettyClientKeyPool.setConfig(wrapNettyPoolConfig(clientConfig));
+        this.nettyKeyPoolFactory = nettyKeyPoolFactory;
         this.poolKeyFunction = poolKeyFunction;
+        this.clientConfig = clientConfig;
+        long shrinkCheckPeriod = Math.max(clientConfig.getChannelGroupShrinkIdleMillis() / 4, 1000);
+        resizeExecutor.scheduleAtFixedRate(this::shrink, shrinkCheckPeriod, shrinkCheckPeriod, TimeUnit.MILLISECONDS);
     }
 
-    /**
-     * 封装对象池配置
-     *
-     * @param clientConfig
-     * @return
-     */
-    private GenericKeyedObjectPoolConfig wrapNettyPoolConfig(final NetworkConfig clientConfig) {
-        //TODO 对象池配置
-        GenericKeyedObjectPoolConfig objectPoolConfig = new GenericKeyedObjectPoolConfig();
-        //objectPoolConfig.setMaxTotal(clientConfig.getMaxPoolActive());
-        // objectPoolConfig.setMinIdlePerKey(clientConfig.getMinPoolIdle());
-        objectPoolConfig.setMaxTotal(clientConfig.getMaxPoolActive());
-        objectPoolConfig.setMaxWaitMillis(clientConfig.getMaxAcquireConnMills());
-        objectPoolConfig.setTestOnBorrow(clientConfig.isPoolTestBorrow());
-        objectPoolConfig.setTestOnReturn(clientConfig.isPoolTestReturn());
-        objectPoolConfig.setLifo(clientConfig.isPoolLifo());
-        return objectPoolConfig;
-    }
-
-
-    ConcurrentMap<String, Channel> getChannels() {
-        return channels;
+    ConcurrentMap<String, ChannelGroup> getChannelGroups() {
+        return channelGroups;
     }
 
-
     Channel acquireChannel(String serverAddress) {
-        Channel channelToServer = channels.get(serverAddress);
-        if (channelToServer != null) {
-            channelToServer = getExistAliveChannel(channelToServer, serverAddress);
-            if (LOGGER.isDebugEnabled()) {
-                LOGGER.debug("getExistAliveChannel result is {}, serverAddress is {}", channelToServer, serverAddress);
-            }
-            if (channelToServer != null) {
-                return channelToServer;
+        ChannelGroup group = channelGroups.get(serverAddress);
+        if (group != null) {
+            Channel channel = group.select();
+            if (channel != null) {
+                if (group.needGrow(channel) && group.tryStartGrow()) {
+                    grow(group);
+                }
+                return channel;
             }
         }
         if (LOGGER.isInfoEnabled()) {
-            LOGGER.info("channelToServer is null, will connect to {}", serverAddress);
+            LOGGER.info("no active channel, will connect to {}", serverAddress);
         }
         Object lockObj = CollectionUtil.computeIfAbsent(channelLocks, serverAddress, key -> new Object());
         synchronized (lockObj) {
@@ -86,29 +93,53 @@ public class ClientChannelManager {
         }
     }
 
+    /**
+     * 控制连接不可用时退回数据连接，服务端没有开启控制端口时也能工作
+     */
+    Channel acquireControlChannel(String serverAddress) {
+        Channel channel = controlChannels.get(serverAddress);
+        if (channel != null && channel.isActive()) {
+            return channel;
+        }
+        if (NetUtil.isDomainSocketAddress(serverAddress)) {
+            return acquireChannel(serverAddress);
+        }
+        Long retryTime = controlRetryTimes.get(serverAddress);
+        if (retryTime != null && System.currentTimeMillis() < retryTime) {
+            return acquireChannel(serverAddress);
+        }
+        Object lockObj = CollectionUtil.computeIfAbsent(channelLocks, CONTROL_LOCK_PREFIX + serverAddress,
+                key -> new Object());
+        synchronized (lockObj) {
+            channel = controlChannels.get(serverAddress);
+            if (channel != null && channel.isActive()) {
+                return channel;
+            }
+            try {
+                channel = connect(serverAddress, true);
+            } catch (NetworkException e) {
+                LOGGER.warn("connect control port of {} failed, use data channel, cause:{}", serverAddress,
+                        e.getMessage());
+                controlRetryTimes.put(serverAddress, System.currentTimeMillis() + CONTROL_RETRY_INTERVAL);
+                return acquireChannel(serverAddress);
+            }
+            controlRetryTimes.remove(serverAddress);
+            controlChannels.put(serverAddress, channel);
+            return channel;
+        }
+    }
+
+    /**
+     * 连接断开、异常或读空闲时从连接组中移除
+     */
     void releaseChannel(Channel channel, String serverAddress) {
         if (channel == null || serverAddress == null) {
             return;
         }
-        try {
-            synchronized (channelLocks.get(serverAddress)) {
-                Channel ch = channels.get(serverAddress);
-                if (ch == null) {
-                    nettyClientKeyPool.returnObject(poolKeyMap.get(serverAddress), channel);
-                    return;
-                }
-                if (ch.compareTo(channel) == 0) {
-                    if (LOGGER.isInfoEnabled()) {
-                        LOGGER.info("return to pool, rm channel:{}", channel);
-                    }
-                    destroyChannel(serverAddress, channel);
-                } else {
-                    nettyClientKeyPool.returnObject(poolKeyMap.get(serverAddress), channel);
-                }
-            }
-        } catch (Exception exx) {
-            LOGGER.error(exx.getMessage());
+        if (LOGGER.isInfoEnabled()) {
+            LOGGER.info("release channel:{}", channel);
         }
+        destroyChannel(serverAddress, channel);
     }
 
     void destroyChannel(String serverAddress, Channel channel) {
@@ -116,84 +147,159 @@ public class ClientChannelManager {
             return;
         }
         try {
-            if (channel.equals(channels.get(serverAddress))) {
-                channels.remove(serverAddress);
+            ChannelGroup group = channelGroups.get(serverAddress);
+            if (group != null) {
+                group.remove(channel);
             }
-            ClientPoolKey key = poolKeyMap.get(serverAddress);
-            nettyClientKeyPool.returnObject(key, channel);
+            drainingChannels.remove(channel);
+            controlChannels.values().remove(channel);
+            closeChannel(channel);
         } catch (Exception exx) {
-            LOGGER.error("return channel to rmPool error, serverAddress {}, channel {}", serverAddress, channel, exx);
+            LOGGER.error("destroy channel error, serverAddress {}, channel {}", serverAddress, channel, exx);
         }
     }
 
-    void reconnect(Set<InetSocketAddress> availList) {
+    void reconnect(Set<? extends SocketAddress> availList) {
         if (CollectionUtil.isEmpty(availList)) {
             LOGGER.warn("ClientChannelManager reconnect availList is null");
             return;
         }
-        for (InetSocketAddress serverAddress : availList) {
+        for (SocketAddress serverAddress : availList) {
+            String address = NetUtil.toStringAddress(serverAddress);
             try {
-                acquireChannel(NetUtil.toStringAddress(serverAddress));
+                acquireChannel(address);
+                ChannelGroup group = channelGroups.get(address);
+                while (group != null && group.needConnect()) {
+                    group.add(connect(address));
+                }
             } catch (Exception e) {
                 LOGGER.error("reconnect error, ", e);
             }
         }
     }
 
+    void scheduleReconnect(Supplier<Set<? extends SocketAddress>> availListSupplier, long initialDelay,
+                           long period) {
+        resizeExecutor.scheduleAtFixedRate(() -> {
+            try {
+                reconnect(availListSupplier.get());
+            } catch (Throwable th) {
+                LOGGER.error("reconnect error, ", th);
+            }
+        }, initialDelay, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 会阻塞的连接操作，比如换连接重发
+     */
+    void execute(Runnable task) {
+        try {
+            resizeExecutor.execute(task);
+        } catch (RejectedExecutionException e) {
+            LOGGER.warn("channel manager is destroyed, task is dropped");
+        }
+    }
+
     void invalidateObject(final String serverAddress, final Channel channel) throws Exception {
-        nettyClientKeyPool.invalidateObject(poolKeyMap.get(serverAddress), channel);
+        destroyChannel(serverAddress, channel);
     }
 
     public void registerChannel(final String serverAddress, final Channel channel) {
-        Channel channelToServer = channels.get(serverAddress);
-        if (channelToServer != null && channelToServer.isActive()) {
-            return;
-        }
-        channels.put(serverAddress, channel);
+        getGroup(serverAddress).add(channel);
+    }
+
+    void destroy() {
+        resizeExecutor.shutdownNow();
+    }
+
+    private ChannelGroup getGroup(String serverAddress) {
+        return CollectionUtil.computeIfAbsent(channelGroups, serverAddress,
+                key -> new ChannelGroup(key, clientConfig.getMinChannelsPerPeer(),
+                        clientConfig.getMaxChannelsPerPeer(), clientConfig.getChannelBusyInFlight()));
     }
 
     private Channel doConnect(String serverAddress) {
-        Channel channelToServer = channels.get(serverAddress);
-        if (channelToServer != null && channelToServer.isActive()) {
+        ChannelGroup group = getGroup(serverAddress);
+        Channel channelToServer = group.select();
+        if (channelToServer != null) {
             return channelToServer;
         }
-        Channel channelFromPool;
+        channelToServer = connect(serverAddress);
+        group.add(channelToServer);
+        return channelToServer;
+    }
+
+    /**
+     * 建立连接并注册
+     */
+    private Channel connect(String serverAddress) {
+        return connect(serverAddress, false);
+    }
+
+    private Channel connect(String serverAddress, boolean control) {
+        Channel channel;
         try {
             ClientPoolKey currentPoolKey = poolKeyFunction.apply(serverAddress);
             poolKeyMap.putIfAbsent(serverAddress, currentPoolKey);
-            channelFromPool = nettyClientKeyPool.borrowObject(poolKeyMap.get(serverAddress));
-            channels.put(serverAddress, channelFromPool);
+            channel = nettyKeyPoolFactory.makeObject(poolKeyMap.get(serverAddress), control).getObject();
         } catch (Exception e) {
             LOGGER.error("ClientChannelManager doConnect is error {}", serverAddress, e);
             throw new NetworkException("can not register client, err:" + e.getMessage());
         }
-        return channelFromPool;
+        if (channel == null) {
+            throw new NetworkException("can not register client, server " + serverAddress + " rejected");
+        }
+        return channel;
     }
 
-
-    private Channel getExistAliveChannel(Channel rmChannel, String serverAddress) {
-        if (rmChannel.isActive()) {
-            return rmChannel;
-        } else {
-            int i = 0;
-            for (; i < NetworkConfig.getMaxCheckAliveRetry(); i++) {
+    private void grow(ChannelGroup group) {
+        try {
+            resizeExecutor.execute(() -> {
+                String serverAddress = group.getServerAddress();
                 try {
-                    Thread.sleep(NetworkConfig.getCheckAliveInternal());
-                } catch (InterruptedException exx) {
-                    LOGGER.error(exx.getMessage());
+                    group.add(connect(serverAddress));
+                    if (LOGGER.isInfoEnabled()) {
+                        LOGGER.info("channel group of {} grows to {}", serverAddress, group.getChannels().size());
+                    }
+                } catch (Exception e) {
+                    LOGGER.warn("channel group of {} grow failed, cause:{}", serverAddress, e.getMessage());
+                } finally {
+                    group.endGrow();
                 }
-                rmChannel = channels.get(serverAddress);
-                if (rmChannel != null && rmChannel.isActive()) {
-                    return rmChannel;
+            });
+        } catch (Exception e) {
+            group.endGrow();
+        }
+    }
+
+    private void shrink() {
+        //周期任务抛出异常后不会再执行，这里记录后继续
+        try {
+            long idleMillis = clientConfig.getChannelGroupShrinkIdleMillis();
+            for (ChannelGroup group : channelGroups.values()) {
+                Channel channel = group.shrink(idleMillis);
+                if (channel != null) {
+                    if (LOGGER.isInfoEnabled()) {
+                        LOGGER.info("channel group of {} shrinks to {}, drain channel {}", group.getServerAddress(),
+                                group.getChannels().size(), channel);
+                    }
+                    drainingChannels.add(channel);
                 }
             }
-            if (i == NetworkConfig.getMaxCheckAliveRetry()) {
-                LOGGER.warn("channel {} is not active after long wait, close it.", rmChannel);
-                releaseChannel(rmChannel, serverAddress);
-                return null;
+            for (Channel channel : drainingChannels) {
+                if (!channel.isActive() || ChannelGroup.getInFlight(channel) == 0) {
+                    drainingChannels.remove(channel);
+                    closeChannel(channel);
+                }
             }
+        } catch (Throwable th) {
+            LOGGER.error("shrink channel groups error", th);
         }
-        return null;
+    }
+
+    private void closeChannel(Channel channel) {
+        channel.disconnect();
+        channel.close();
     }
 
 }
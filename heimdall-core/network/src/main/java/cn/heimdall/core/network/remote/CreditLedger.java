@@ -0,0 +1,35 @@
+package cn.heimdall.core.network.remote;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 服务端单个连接上数据类请求的处理进度和已授予的额度
+ */
+class CreditLedger {
+
+    //处理完成或被丢弃的数据类请求数
+    private final AtomicLong finished = new AtomicLong();
+
+    //上次授予的额度，只在授予额度的定时线程中访问
+    private long granted = -1;
+
+    void onFinished() {
+        finished.incrementAndGet();
+    }
+
+    /**
+     * @return 额度有变化时返回新的额度，否则返回-1
+     */
+    long nextGrant(int window) {
+        long limit = finished.get() + window;
+        if (limit == granted) {
+            return -1;
+        }
+        granted = limit;
+        return limit;
+    }
+
+    void grantFailed() {
+        granted = -1;
+    }
+}
@@ -0,0 +1,103 @@
+package cn.heimdall.core.network.remote;
+
+import io.netty.channel.Channel;
+import io.netty.util.Attribute;
+import io.netty.util.AttributeKey;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 客户端单个连接上数据类请求的发送额度
+ * 收到服务端第一次授予额度之前不限制，兼容不发送额度的老版本服务端
+ */
+public class CreditWindow {
+
+    private static final AttributeKey<CreditWindow> CREDIT_WINDOW = AttributeKey.valueOf("creditWindow");
+
+    //已发送的数据类请求数
+    private long sent;
+
+    //服务端允许的累计发送数
+    private long limit = Long.MAX_VALUE;
+
+    private boolean closed;
+
+    public static CreditWindow get(Channel channel) {
+        Attribute<CreditWindow> attr = channel.attr(CREDIT_WINDOW);
+        CreditWindow window = attr.get();
+        if (window == null) {
+            window = new CreditWindow();
+            CreditWindow old = attr.setIfAbsent(window);
+            if (old != null) {
+                window = old;
+            }
+        }
+        return window;
+    }
+
+    static CreditWindow peek(Channel channel) {
+        return channel.attr(CREDIT_WINDOW).get();
+    }
+
+    /**
+     * 等待额度，超时返回false，连接关闭后直接返回，由写入失败结束请求
+     */
+    boolean acquire(long timeoutMillis) throws InterruptedException {
+        return acquire(1, timeoutMillis);
+    }
+
+    /**
+     * 一批消息按条数计数，只要还有额度就整批发送，超出的部分由后续请求等待抵消
+     */
+    synchronized boolean acquire(int permits, long timeoutMillis) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while (!closed && sent >= limit) {
+            long waitNanos = deadline - System.nanoTime();
+            if (waitNanos <= 0) {
+                return false;
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, waitNanos);
+        }
+        sent += permits;
+        return true;
+    }
+
+    /**
+     * 重发等不能阻塞的场景，不等待额度直接计数，超出的部分由后续请求等待抵消
+     */
+    void forceAcquire() {
+        forceAcquire(1);
+    }
+
+    synchronized void forceAcquire(int permits) {
+        sent += permits;
+    }
+
+    /**
+     * 已计数的请求最终没有写出，服务端不会为它授予额度，退回计数
+     */
+    void release() {
+        release(1);
+    }
+
+    synchronized void release(int permits) {
+        sent = Math.max(sent - permits, 0);
+        notifyAll();
+    }
+
+    public synchronized void grant(long limit) {
+        this.limit = limit;
+        if (sent < limit) {
+            notifyAll();
+        }
+    }
+
+    synchronized void close() {
+        closed = true;
+        notifyAll();
+    }
+
+    synchronized long getAvailable() {
+        return Math.max(limit - sent, 0);
+    }
+}
@@ -0,0 +1,103 @@
+package cn.heimdall.core.network.remote;
+
+import cn.heimdall.core.config.NetworkConfig;
+import cn.heimdall.core.utils.exception.NetworkException;
+import io.netty.channel.Channel;
+import io.netty.util.Attribute;
+import io.netty.util.AttributeKey;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 单个连接上的在途请求表，messageId由本表按连接分配，低位就是槽位下标
+ * 分配id时跳过仍被占用的槽位，查找和移除只需要比较一个槽位，不需要探测和删除标记
+ */
+class InFlightTable {
+
+    private static final AttributeKey<InFlightTable> IN_FLIGHT_TABLE = AttributeKey.valueOf("inFlightTable");
+
+    private final AtomicReferenceArray<MessageFuture> slots;
+
+    private final int mask;
+
+    private final AtomicInteger idGenerator = new AtomicInteger();
+
+    //在途请求数，连接组按它选择负载最低的连接
+    private final AtomicInteger size = new AtomicInteger();
+
+    InFlightTable(int capacity) {
+        int size = Integer.highestOneBit(Math.max(capacity - 1, 1)) << 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    static InFlightTable get(Channel channel) {
+        Attribute<InFlightTable> attr = channel.attr(IN_FLIGHT_TABLE);
+        InFlightTable table = attr.get();
+        if (table == null) {
+            table = new InFlightTable(NetworkConfig.getRpcInFlightTableSize());
+            InFlightTable old = attr.setIfAbsent(table);
+            if (old != null) {
+                table = old;
+            }
+        }
+        return table;
+    }
+
+    /**
+     * 只查不建，没有发过请求的连接返回null
+     */
+    static InFlightTable peek(Channel channel) {
+        return channel.attr(IN_FLIGHT_TABLE).get();
+    }
+
+    /**
+     * 不需要回复的消息也从本连接的序列取id，避免和在途请求的id重复
+     */
+    int nextId() {
+        return idGenerator.incrementAndGet();
+    }
+
+    /**
+     * 登记在途请求并分配messageId
+     */
+    int put(MessageFuture future) {
+        for (int i = 0; i <= mask; i++) {
+            int id = idGenerator.incrementAndGet();
+            int slot = id & mask;
+            if (slots.get(slot) != null) {
+                continue;
+            }
+            future.setMessageId(id);
+            if (slots.compareAndSet(slot, null, future)) {
+                size.incrementAndGet();
+                return id;
+            }
+        }
+        throw new NetworkException("too many in-flight requests on channel, max is " + (mask + 1));
+    }
+
+    MessageFuture remove(int messageId) {
+        int slot = messageId & mask;
+        MessageFuture future = slots.get(slot);
+        if (future != null && future.getMessageId() == messageId && slots.compareAndSet(slot, future, null)) {
+            size.decrementAndGet();
+            return future;
+        }
+        return null;
+    }
+
+    boolean remove(int messageId, MessageFuture future) {
+        int slot = messageId & mask;
+        if (future.getMessageId() == messageId && slots.compareAndSet(slot, future, null)) {
+            size.decrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    int size() {
+        return size.get();
+    }
+}
@@ -0,0 +1,125 @@
+package cn.heimdall.core.network.remote;
+
+import cn.heimdall.core.config.NetworkConfig;
+import cn.heimdall.core.message.MessageBody;
+import cn.heimdall.core.message.MessageDoorway;
+import cn.heimdall.core.utils.enums.NodeRole;
+import cn.heimdall.core.utils.exception.NetworkException;
+import cn.heimdall.core.utils.thread.NamedThreadFactory;
+import io.netty.util.ReferenceCountUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 进程内的角色间调用，目标角色和调用方在同一个进程时消息体直接交给目标角色的协调器处理
+ * 不经过编码、网络和在途请求表，消息体的所有权和走网络时一样交给处理方，由处理方释放
+ * 每个角色一个有界队列，队列满时在调用线程处理，调用方随之放缓
+ */
+public class LocalTransport {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LocalTransport.class);
+
+    private static volatile LocalTransport instance;
+
+    private final ConcurrentHashMap<NodeRole, Endpoint> endpoints = new ConcurrentHashMap<>();
+
+    private final boolean enabled = NetworkConfig.isLocalTransportEnabled();
+
+    public static LocalTransport getInstance() {
+        if (instance == null) {
+            synchronized (LocalTransport.class) {
+                if (instance == null) {
+                    instance = new LocalTransport();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 角色的协调器初始化后注册，之后同进程内发往该角色的请求不再走网络
+     */
+    public void register(NodeRole role, MessageDoorway doorway) {
+        if (!enabled) {
+            return;
+        }
+        Endpoint old = endpoints.put(role, new Endpoint(role, doorway));
+        if (old != null) {
+            old.executor.shutdown();
+        }
+        if (LOGGER.isInfoEnabled()) {
+            LOGGER.info("role {} is served in process", role);
+        }
+    }
+
+    public void unregister(NodeRole role) {
+        Endpoint endpoint = endpoints.remove(role);
+        if (endpoint != null) {
+            endpoint.executor.shutdown();
+        }
+    }
+
+    public boolean isLocal(NodeRole role) {
+        return role != null && endpoints.containsKey(role);
+    }
+
+    /**
+     * 调用后消息体归处理方所有，没能交给处理方时在这里释放
+     * @return 处理方的返回，处理方没有返回时为null
+     */
+    public CompletableFuture<MessageBody> send(NodeRole role, MessageBody request) {
+        CompletableFuture<MessageBody> future = new CompletableFuture<>();
+        Endpoint endpoint = endpoints.get(role);
+        if (endpoint == null) {
+            ReferenceCountUtil.release(request);
+            future.completeExceptionally(new NetworkException("role " + role + " is not served in process"));
+            return future;
+        }
+        try {
+            endpoint.executor.execute(() -> {
+                try {
+                    future.complete(endpoint.doorway.onRequest(request));
+                } catch (Throwable th) {
+                    LOGGER.error("process local request error, role {}, request type {}", role,
+                            request.getMessageType(), th);
+                    future.completeExceptionally(th);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            ReferenceCountUtil.release(request);
+            future.completeExceptionally(new NetworkException(e, "role " + role + " is shutting down"));
+        }
+        return future;
+    }
+
+    public void destroy() {
+        endpoints.keySet().forEach(this::unregister);
+    }
+
+    private static class Endpoint {
+        private final MessageDoorway doorway;
+        private final ThreadPoolExecutor executor;
+
+        Endpoint(NodeRole role, MessageDoorway doorway) {
+            int threads = NetworkConfig.getLocalWorkerThreads();
+            this.doorway = doorway;
+            this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(NetworkConfig.getLocalQueueSize()),
+                    new NamedThreadFactory("local-" + role.getName(), threads, true),
+                    (task, pool) -> {
+                        //CallerRunsPolicy在关闭后会直接丢弃任务，这里改为抛出，由调用方释放消息体
+                        if (pool.isShutdown()) {
+                            throw new RejectedExecutionException("local executor is shutdown");
+                        }
+                        task.run();
+                    });
+        }
+    }
+}
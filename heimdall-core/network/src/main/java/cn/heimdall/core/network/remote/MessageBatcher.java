@@ -0,0 +1,174 @@
+package cn.heimdall.core.network.remote;
+
+import cn.heimdall.core.config.NetworkConfig;
+import cn.heimdall.core.message.MessageBody;
+import cn.heimdall.core.message.ResultCode;
+import cn.heimdall.core.message.body.BatchMessage;
+import cn.heimdall.core.message.body.BatchResponse;
+import cn.heimdall.core.utils.common.CollectionUtil;
+import cn.heimdall.core.utils.exception.NetworkException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.BiFunction;
+
+/**
+ * 发送端按服务端地址合并数据类请求，条数或估算字节数达到上限时在调用线程发出，
+ * 否则由定时任务在等待超过linger后发出，一批作为一个BatchMessage请求发送，整批只有一个回复
+ */
+class MessageBatcher {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MessageBatcher.class);
+
+    private final ConcurrentMap<String, PendingBatch> pendingBatches = new ConcurrentHashMap<>();
+
+    //按服务端地址发送一个请求
+    private final BiFunction<String, MessageBody, CompletableFuture<MessageBody>> sender;
+
+    private final int maxCount;
+
+    private final int maxBytes;
+
+    private final long lingerMillis;
+
+    MessageBatcher(BiFunction<String, MessageBody, CompletableFuture<MessageBody>> sender) {
+        this(sender, NetworkConfig.getBatchMaxCount(), NetworkConfig.getBatchMaxBytes(),
+                NetworkConfig.getBatchLingerMillis());
+    }
+
+    MessageBatcher(BiFunction<String, MessageBody, CompletableFuture<MessageBody>> sender, int maxCount,
+                   int maxBytes, long lingerMillis) {
+        this.sender = sender;
+        this.maxCount = Math.max(maxCount, 1);
+        this.maxBytes = maxBytes;
+        this.lingerMillis = lingerMillis;
+    }
+
+    long getLingerMillis() {
+        return lingerMillis;
+    }
+
+    /**
+     * 调用后消息体归批所有，批发送失败时统一释放
+     * @return 整批的回复，有子消息处理失败时异常完成
+     */
+    CompletableFuture<MessageBody> add(String serverAddress, MessageBody body) {
+        CompletableFuture<MessageBody> future = new CompletableFuture<>();
+        PendingBatch pending = CollectionUtil.computeIfAbsent(pendingBatches, serverAddress,
+                key -> new PendingBatch());
+        PendingBatch full = null;
+        synchronized (pending) {
+            pending.add(body, future);
+            if (pending.bodies.size() >= maxCount || pending.bytes >= maxBytes) {
+                full = pending.drain();
+            }
+        }
+        if (full != null) {
+            send(serverAddress, full);
+        }
+        return future;
+    }
+
+    /**
+     * 定时检查，发出等待超过linger的批
+     */
+    void flushExpired() {
+        long now = System.currentTimeMillis();
+        for (Map.Entry<String, PendingBatch> entry : pendingBatches.entrySet()) {
+            PendingBatch pending = entry.getValue();
+            PendingBatch expired = null;
+            synchronized (pending) {
+                if (!pending.bodies.isEmpty() && now - pending.firstTime >= lingerMillis) {
+                    expired = pending.drain();
+                }
+            }
+            if (expired != null) {
+                send(entry.getKey(), expired);
+            }
+        }
+    }
+
+    void flushAll() {
+        for (Map.Entry<String, PendingBatch> entry : pendingBatches.entrySet()) {
+            PendingBatch pending = entry.getValue();
+            PendingBatch drained;
+            synchronized (pending) {
+                drained = pending.bodies.isEmpty() ? null : pending.drain();
+            }
+            if (drained != null) {
+                send(entry.getKey(), drained);
+            }
+        }
+    }
+
+    private void send(String serverAddress, PendingBatch batch) {
+        //只有一条时不需要包装
+        MessageBody request = batch.bodies.size() == 1 ? batch.bodies.get(0) : new BatchMessage(batch.bodies);
+        CompletableFuture<MessageBody> response;
+        try {
+            response = sender.apply(serverAddress, request);
+        } catch (RuntimeException e) {
+            response = new CompletableFuture<>();
+            response.completeExceptionally(e);
+        }
+        response.whenComplete((body, e) -> {
+            List<Integer> failedIndexes = null;
+            if (e == null && body instanceof BatchResponse
+                    && ((BatchResponse) body).getResultCode() != ResultCode.SUCCESS.getCode()) {
+                failedIndexes = ((BatchResponse) body).getFailedIndexes();
+                e = new NetworkException("batch to " + serverAddress + " failed: " + ((BatchResponse) body).getMsg());
+            }
+            if (e != null && LOGGER.isDebugEnabled()) {
+                LOGGER.debug("send batch of {} to {} failed", batch.bodies.size(), serverAddress, e);
+            }
+            for (int i = 0; i < batch.futures.size(); i++) {
+                CompletableFuture<MessageBody> future = batch.futures.get(i);
+                //带下标时只有对应的消息失败，老版本服务端不带下标时整批失败
+                boolean failed = e != null && (failedIndexes == null || failedIndexes.isEmpty()
+                        || failedIndexes.contains(i));
+                if (failed) {
+                    future.completeExceptionally(e);
+                } else {
+                    future.complete(body);
+                }
+            }
+        });
+    }
+
+    private static class PendingBatch {
+        private List<MessageBody> bodies = new ArrayList<>();
+        private List<CompletableFuture<MessageBody>> futures = new ArrayList<>();
+        private int bytes;
+        private long firstTime;
+
+        void add(MessageBody body, CompletableFuture<MessageBody> future) {
+            if (bodies.isEmpty()) {
+                firstTime = System.currentTimeMillis();
+            }
+            bodies.add(body);
+            futures.add(future);
+            bytes += body.estimateSize();
+        }
+
+        /**
+         * 取出已攒的消息，本对象清空后继续接收
+         */
+        PendingBatch drain() {
+            PendingBatch drained = new PendingBatch();
+            drained.bodies = bodies;
+            drained.futures = futures;
+            drained.bytes = bytes;
+            drained.firstTime = firstTime;
+            bodies = new ArrayList<>();
+            futures = new ArrayList<>();
+            bytes = 0;
+            return drained;
+        }
+    }
+}
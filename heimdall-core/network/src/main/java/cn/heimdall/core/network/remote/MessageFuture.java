@@ -1,33 +1,72 @@
 package cn.heimdall.core.network.remote;
 
 import cn.heimdall.core.message.Message;
-import cn.heimdall.core.utils.exception.ImpossibleException;
+import cn.heimdall.core.message.MessageBody;
+import io.netty.util.Recycler;
+import io.netty.util.Timeout;
 
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
 
-public class MessageFuture {
+public final class MessageFuture {
+
+    private static final Recycler<MessageFuture> RECYCLER = new Recycler<MessageFuture>() {
+        @Override
+        protected MessageFuture newObject(Handle<MessageFuture> handle) {
+            return new MessageFuture(handle);
+        }
+    };
+
+    private final Recycler.Handle<MessageFuture> handle;
+    private volatile int messageId;
     private Message requestMessage;
     private long timeout;
-    private long start = System.currentTimeMillis();
-    private transient CompletableFuture<Object> future = new CompletableFuture<>();
+    private long start;
+    //时间轮中的超时任务，收到回复时取消
+    private Timeout timeoutTask;
+    //异步请求的回调，同步请求为null
+    private CompletableFuture<MessageBody> callback;
+    private Object result;
+    private boolean done;
+
+    private MessageFuture(Recycler.Handle<MessageFuture> handle) {
+        this.handle = handle;
+    }
 
+    /**
+     * @param async 异步请求会创建回调future，调用方持有回调，因此异步请求的MessageFuture不回收
+     */
+    public static MessageFuture newInstance(Message requestMessage, long timeout, boolean async) {
+        MessageFuture messageFuture = RECYCLER.get();
+        messageFuture.requestMessage = requestMessage;
+        messageFuture.timeout = timeout;
+        messageFuture.start = System.currentTimeMillis();
+        messageFuture.callback = async ? new CompletableFuture<>() : null;
+        return messageFuture;
+    }
 
     public boolean isTimeout() {
         return System.currentTimeMillis() - start > timeout;
     }
 
+    public synchronized boolean isDone() {
+        return done;
+    }
+
     public Object get(long timeout, TimeUnit unit) throws TimeoutException, InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
         Object result;
-        try {
-            result = future.get(timeout, unit);
-        } catch (ExecutionException e) {
-            throw new ImpossibleException("MessageFuture get ExecutionException", e);
-        } catch (TimeoutException e) {
-            throw new TimeoutException("cost " + (System.currentTimeMillis() - start) + " ms");
+        synchronized (this) {
+            while (!done) {
+                long waitNanos = deadline - System.nanoTime();
+                if (waitNanos <= 0) {
+                    throw new TimeoutException("cost " + (System.currentTimeMillis() - start) + " ms");
+                }
+                TimeUnit.NANOSECONDS.timedWait(this, waitNanos);
+            }
+            result = this.result;
         }
         if (result instanceof RuntimeException) {
             throw (RuntimeException)result;
@@ -38,26 +77,89 @@ public class MessageFuture {
         return result;
     }
 
+    /**
+     * 异步请求的回调，超时或发送失败时异常结束
+     * 回调在设置结果的线程中执行，一般是io线程或时间轮线程，回调里不能做耗时操作
+     */
+    public CompletableFuture<MessageBody> getCallback() {
+        return callback;
+    }
+
     public void setResultMessage(Object obj) {
-        future.complete(obj);
+        CompletableFuture<MessageBody> callback;
+        long cost = System.currentTimeMillis() - start;
+        synchronized (this) {
+            if (done) {
+                return;
+            }
+            if (timeoutTask != null) {
+                timeoutTask.cancel();
+            }
+            result = obj;
+            done = true;
+            callback = this.callback;
+            notifyAll();
+        }
+        if (callback == null) {
+            return;
+        }
+        if (obj instanceof MessageBody) {
+            callback.complete((MessageBody) obj);
+        } else if (obj instanceof Throwable) {
+            callback.completeExceptionally((Throwable) obj);
+        } else {
+            //时间轮超时清理时设置的是null
+            callback.completeExceptionally(new TimeoutException("cost " + cost + " ms"));
+        }
     }
 
-    public Message getRequestMessage() {
-        return requestMessage;
+    public void setTimeoutTask(Timeout timeoutTask) {
+        synchronized (this) {
+            if (!done) {
+                this.timeoutTask = timeoutTask;
+                return;
+            }
+        }
+        //回复比登记超时任务先到
+        timeoutTask.cancel();
     }
 
+    /**
+     * 同步请求结束后由等待线程回收，回收前必须已从在途表中移除
+     */
+    public void recycle() {
+        synchronized (this) {
+            if (timeoutTask != null) {
+                timeoutTask.cancel();
+            }
+            messageId = 0;
+            requestMessage = null;
+            timeoutTask = null;
+            callback = null;
+            result = null;
+            done = false;
+        }
+        handle.recycle(this);
+    }
 
-    public void setRequestMessage(Message requestMessage) {
-        this.requestMessage = requestMessage;
+    public int getMessageId() {
+        return messageId;
     }
 
+    void setMessageId(int messageId) {
+        this.messageId = messageId;
+    }
 
-    public long getTimeout() {
-        return timeout;
+    public Message getRequestMessage() {
+        return requestMessage;
     }
 
 
-    public void setTimeout(long timeout) {
-        this.timeout = timeout;
+    public long getStart() {
+        return start;
+    }
+
+    public long getTimeout() {
+        return timeout;
     }
 }
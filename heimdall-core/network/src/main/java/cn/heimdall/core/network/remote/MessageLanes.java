@@ -0,0 +1,110 @@
+package cn.heimdall.core.network.remote;
+
+import cn.heimdall.core.config.NetworkConfig;
+import cn.heimdall.core.message.MessagePriority;
+import cn.heimdall.core.message.MessageType;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 按消息优先级限制交给处理线程池的消息数，排队和处理中的都算
+ * 各类消息只能占用自己的份额，数据洪峰不会挤掉心跳和查询
+ * 同类中可先丢弃的消息（如trace）超过份额的一定比例就丢弃，为指标等留出余量
+ */
+class MessageLanes {
+
+    private final Lane[] lanes;
+
+    private final Map<MessageType, LongAdder> shedCounters = new EnumMap<>(MessageType.class);
+
+    /**
+     * @param executor 处理消息的线程池，为null时不按它限制
+     */
+    MessageLanes(ThreadPoolExecutor executor) {
+        MessagePriority[] priorities = MessagePriority.values();
+        lanes = new Lane[priorities.length];
+        int shedPercent = NetworkConfig.getLaneShedPercent();
+        int[] capacities = new int[priorities.length];
+        long pooled = 0;
+        for (MessagePriority priority : priorities) {
+            capacities[priority.ordinal()] = NetworkConfig.getLaneCapacity(priority.name().toLowerCase(),
+                    priority.getDefaultCapacity());
+            if (isPooled(priority)) {
+                pooled += capacities[priority.ordinal()];
+            }
+        }
+        //同一个线程池中的份额之和超过它能容纳的任务数时按比例缩小，让丢弃发生在份额上而不是被线程池拒绝
+        //共用线程池时多个server/client的份额之和仍可能超过，被拒绝的消息同样按份额超出处理
+        long bound = executor == null ? Long.MAX_VALUE
+                : (long) executor.getQueue().remainingCapacity() + executor.getMaximumPoolSize();
+        for (MessagePriority priority : priorities) {
+            int capacity = capacities[priority.ordinal()];
+            if (pooled > bound && isPooled(priority)) {
+                capacity = (int) Math.max(capacity * bound / pooled, 1);
+            }
+            lanes[priority.ordinal()] = new Lane(capacity, (int) ((long) capacity * shedPercent / 100));
+        }
+        for (MessageType messageType : MessageType.values()) {
+            shedCounters.put(messageType, new LongAdder());
+        }
+    }
+
+    /**
+     * 控制类消息开启控制面时交给独立的线程池，不占用处理线程池
+     */
+    private static boolean isPooled(MessagePriority priority) {
+        return priority != MessagePriority.CONTROL || !NetworkConfig.isControlPlaneEnabled();
+    }
+
+    boolean tryAcquire(MessageType messageType) {
+        Lane lane = lanes[messageType.getPriority().ordinal()];
+        return lane.tryAcquire(messageType.isShedFirst() ? lane.shedLimit : lane.capacity);
+    }
+
+    void release(MessageType messageType) {
+        lanes[messageType.getPriority().ordinal()].count.decrementAndGet();
+    }
+
+    void onShed(MessageType messageType) {
+        shedCounters.get(messageType).increment();
+    }
+
+    long getShedCount(MessageType messageType) {
+        return shedCounters.get(messageType).sum();
+    }
+
+    int getCapacity(MessagePriority priority) {
+        return lanes[priority.ordinal()].capacity;
+    }
+
+    int getQueued(MessagePriority priority) {
+        return lanes[priority.ordinal()].count.get();
+    }
+
+    private static class Lane {
+        private final int capacity;
+        private final int shedLimit;
+        private final AtomicInteger count = new AtomicInteger();
+
+        Lane(int capacity, int shedLimit) {
+            this.capacity = capacity;
+            this.shedLimit = shedLimit;
+        }
+
+        boolean tryAcquire(int limit) {
+            for (;;) {
+                int current = count.get();
+                if (current >= limit) {
+                    return false;
+                }
+                if (count.compareAndSet(current, current + 1)) {
+                    return true;
+                }
+            }
+        }
+    }
+}
@@ -13,7 +13,7 @@ import org.apache.commons.pool2.impl.DefaultPooledObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.net.InetSocketAddress;
+import java.net.SocketAddress;
 
 /**
  * 对象池工厂
@@ -33,11 +33,18 @@ public class NettyKeyPoolFactory implements KeyedPooledObjectFactory<ClientPoolK
 
     @Override
     public PooledObject<Channel> makeObject(ClientPoolKey key) throws Exception {
-        InetSocketAddress address = NetUtil.toInetSocketAddress(key.getAddress());
+        return makeObject(key, false);
+    }
+
+    /**
+     * 控制连接同样需要注册，注册消息本身也是控制类消息
+     */
+    PooledObject<Channel> makeObject(ClientPoolKey key, boolean control) throws Exception {
+        SocketAddress address = NetUtil.toSocketAddress(key.getAddress());
         if (LOGGER.isInfoEnabled()) {
-            LOGGER.info("NettyPool create channel to " + key);
+            LOGGER.info("NettyPool create {} channel to {}", control ? "control" : "data", key);
         }
-        Channel tmpChannel = clientBootstrap.getNewChannel(address);
+        Channel tmpChannel = clientBootstrap.getNewChannel(address, control);
         long start = System.currentTimeMillis();
         MessageBody response;
         Channel channelToServer = null;
@@ -1,12 +1,23 @@
 package cn.heimdall.core.network.remote;
 
+import cn.heimdall.core.message.MessageBody;
 import io.netty.channel.Channel;
 
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeoutException;
 
 public interface RemotingClient {
     Object sendSyncRequest(Object msg) throws TimeoutException;
     Object sendSyncRequest(Channel channel, Object msg) throws TimeoutException;
+    //异步发送，不阻塞调用线程等待回复
+    CompletableFuture<MessageBody> sendAsyncRequest(Object msg);
+    //按路由键选择服务端节点后异步发送
+    CompletableFuture<MessageBody> sendAsyncRequest(Object msg, Object routeKey);
+    //数据类请求合并成批后异步发送，返回整批的回复
+    CompletableFuture<MessageBody> sendBatchedRequest(Object msg, Object routeKey);
+    //单向发送，不等待回复，消息要求确认时由服务端累计确认，未确认的消息会重发
+    void sendOneway(Object msg);
+    void sendOneway(Object msg, Object routeKey);
     //客户端注册成功
     void onRegisterMsgSuccess(String serverAddress, Channel channel, Object request, Object response);
     //客户端注册失败
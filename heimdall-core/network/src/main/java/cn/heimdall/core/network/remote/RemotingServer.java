@@ -1,5 +1,6 @@
 package cn.heimdall.core.network.remote;
 
+import cn.heimdall.core.message.Message;
 import io.netty.channel.Channel;
 
 import java.util.concurrent.TimeoutException;
@@ -13,5 +14,10 @@ public interface RemotingServer {
 
     void sendAsyncRequest(Channel channel, Object msg);
 
+    /**
+     * 回复请求，沿用请求的messageId，单向请求不回复
+     */
+    void sendResponse(Channel channel, Message request, Object msg);
+
     void destroy();
 }
@@ -0,0 +1,113 @@
+package cn.heimdall.core.network.remote;
+
+import cn.heimdall.core.message.Message;
+import cn.heimdall.core.utils.exception.NetworkException;
+import io.netty.channel.Channel;
+import io.netty.util.Attribute;
+import io.netty.util.AttributeKey;
+import io.netty.util.ReferenceCountUtil;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 客户端单个连接上已发出但未被累计确认的单向消息
+ * 窗口持有消息体的一个引用，确认后释放，连接断开或确认超时时取出重发
+ */
+public class UnackedWindow {
+
+    private static final AttributeKey<UnackedWindow> UNACKED_WINDOW = AttributeKey.valueOf("unackedWindow");
+
+    private final int capacity;
+
+    private final ArrayDeque<Pending> pending = new ArrayDeque<>();
+
+    private int nextSeq;
+
+    private UnackedWindow(int capacity) {
+        this.capacity = capacity;
+    }
+
+    static UnackedWindow get(Channel channel, int capacity) {
+        Attribute<UnackedWindow> attr = channel.attr(UNACKED_WINDOW);
+        UnackedWindow window = attr.get();
+        if (window == null) {
+            window = new UnackedWindow(capacity);
+            UnackedWindow old = attr.setIfAbsent(window);
+            if (old != null) {
+                window = old;
+            }
+        }
+        return window;
+    }
+
+    public static UnackedWindow peek(Channel channel) {
+        return channel.attr(UNACKED_WINDOW).get();
+    }
+
+    /**
+     * 登记消息并分配序号，窗口满时失败
+     */
+    synchronized int add(Message message) {
+        if (pending.size() >= capacity) {
+            throw new NetworkException("too many unacked oneway messages, max is " + capacity);
+        }
+        int seq = ++nextSeq;
+        message.setMessageId(seq);
+        pending.addLast(new Pending(message, System.currentTimeMillis()));
+        return seq;
+    }
+
+    /**
+     * 序号不超过watermark的消息都已处理
+     */
+    public void ack(int watermark) {
+        List<Message> acked = new ArrayList<>();
+        synchronized (this) {
+            while (!pending.isEmpty() && pending.peekFirst().message.getMessageId() - watermark <= 0) {
+                acked.add(pending.pollFirst().message);
+            }
+        }
+        for (Message message : acked) {
+            ReferenceCountUtil.release(message.getMessageBody());
+        }
+    }
+
+    /**
+     * 取出全部未确认的消息，消息体的引用一并转交给调用方
+     */
+    synchronized List<Message> drain() {
+        List<Message> messages = new ArrayList<>(pending.size());
+        for (Pending p : pending) {
+            messages.add(p.message);
+        }
+        pending.clear();
+        return messages;
+    }
+
+    /**
+     * 超过timeoutMillis仍未确认的消息，按原序号在同一连接上重发
+     */
+    synchronized List<Message> expired(long timeoutMillis) {
+        long now = System.currentTimeMillis();
+        List<Message> messages = new ArrayList<>();
+        for (Pending p : pending) {
+            if (now - p.sentAt >= timeoutMillis) {
+                p.sentAt = now;
+                messages.add(p.message);
+            }
+        }
+        return messages;
+    }
+
+    private static class Pending {
+        private final Message message;
+        private long sentAt;
+
+        Pending(Message message, long sentAt) {
+            this.message = message;
+            this.sentAt = sentAt;
+        }
+    }
+}
@@ -3,6 +3,7 @@ package cn.heimdall.core.network.server;
 import cn.heimdall.core.config.NetworkActionConfig;
 import cn.heimdall.core.config.NetworkConfig;
 import cn.heimdall.core.message.MessageType;
+import cn.heimdall.core.network.bootstrap.NetworkResourceManager;
 import cn.heimdall.core.network.processor.ServerProcessor;
 import cn.heimdall.core.network.remote.AbstractRemotingServer;
 import cn.heimdall.core.utils.thread.NamedThreadFactory;
@@ -48,11 +49,12 @@ public class ActionRemotingServer extends AbstractRemotingServer {
             synchronized (TransportRemotingServer.class) {
                 if (INSTANCE == null) {
                     final NetworkActionConfig networkTransportConfig = new NetworkActionConfig();
-                    final ThreadPoolExecutor workingThreads = new ThreadPoolExecutor(networkTransportConfig.getMinServerPoolSize(),
-                            networkTransportConfig.getMaxServerPoolSize(), networkTransportConfig.getKeepAliveTime(), TimeUnit.SECONDS,
-                            new LinkedBlockingQueue<>(networkTransportConfig.getMaxTaskQueueSize()),
-                            new NamedThreadFactory("ActionRemotingServer", networkTransportConfig.getMaxServerPoolSize()),
-                            new ThreadPoolExecutor.CallerRunsPolicy());
+                    final ThreadPoolExecutor workingThreads = NetworkResourceManager.getInstance().getMessageExecutor("ActionRemotingServer",
+                            () -> new ThreadPoolExecutor(networkTransportConfig.getMinServerPoolSize(),
+                                networkTransportConfig.getMaxServerPoolSize(), networkTransportConfig.getKeepAliveTime(), TimeUnit.SECONDS,
+                                new LinkedBlockingQueue<>(networkTransportConfig.getMaxTaskQueueSize()),
+                                new NamedThreadFactory("ActionRemotingServer", networkTransportConfig.getMaxServerPoolSize()),
+                                new ThreadPoolExecutor.AbortPolicy()));
                     INSTANCE = new ActionRemotingServer(workingThreads, networkTransportConfig);
                     INSTANCE.setListenPort(networkTransportConfig.getPort());
                     INSTANCE.init();
@@ -4,6 +4,7 @@ import cn.heimdall.core.cluster.NodeInfo;
 import cn.heimdall.core.cluster.NodeInfoManager;
 import cn.heimdall.core.config.NetworkManageConfig;
 import cn.heimdall.core.message.MessageType;
+import cn.heimdall.core.network.bootstrap.NetworkResourceManager;
 import cn.heimdall.core.network.processor.ServerProcessor;
 import cn.heimdall.core.network.remote.AbstractRemotingServer;
 import cn.heimdall.core.utils.thread.NamedThreadFactory;
@@ -52,10 +53,11 @@ public final class ManageRemotingServer extends AbstractRemotingServer {
             synchronized (ManageRemotingServer.class) {
                 if (INSTANCE == null) {
                     final NetworkManageConfig networkManageConfig = new NetworkManageConfig();
-                    final ThreadPoolExecutor workingThreads = new ThreadPoolExecutor(networkManageConfig.getMinServerPoolSize(),
-                            networkManageConfig.getMaxServerPoolSize(), networkManageConfig.getKeepAliveTime(), TimeUnit.SECONDS,
-                            new LinkedBlockingQueue<>(networkManageConfig.getMaxTaskQueueSize()),
-                            new NamedThreadFactory("ManageRemotingServer", networkManageConfig.getMaxServerPoolSize()), new ThreadPoolExecutor.CallerRunsPolicy());
+                    final ThreadPoolExecutor workingThreads = NetworkResourceManager.getInstance().getMessageExecutor("ManageRemotingServer",
+                            () -> new ThreadPoolExecutor(networkManageConfig.getMinServerPoolSize(),
+                                networkManageConfig.getMaxServerPoolSize(), networkManageConfig.getKeepAliveTime(), TimeUnit.SECONDS,
+                                new LinkedBlockingQueue<>(networkManageConfig.getMaxTaskQueueSize()),
+                                new NamedThreadFactory("ManageRemotingServer", networkManageConfig.getMaxServerPoolSize()), new ThreadPoolExecutor.AbortPolicy()));
                     INSTANCE = new ManageRemotingServer(workingThreads, networkManageConfig);
                     INSTANCE.setListenPort(networkManageConfig.getPort());
                     INSTANCE.init();
@@ -4,6 +4,7 @@ import cn.heimdall.core.cluster.NodeInfo;
 import cn.heimdall.core.cluster.NodeInfoManager;
 import cn.heimdall.core.config.NetworkTransportConfig;
 import cn.heimdall.core.message.MessageType;
+import cn.heimdall.core.network.bootstrap.NetworkResourceManager;
 import cn.heimdall.core.network.processor.ServerProcessor;
 import cn.heimdall.core.network.remote.AbstractRemotingServer;
 import cn.heimdall.core.utils.thread.NamedThreadFactory;
@@ -70,11 +71,12 @@ public final class TransportRemotingServer extends AbstractRemotingServer {
             synchronized (TransportRemotingServer.class) {
                 if (INSTANCE == null) {
                     final NetworkTransportConfig networkTransportConfig = new NetworkTransportConfig();
-                    final ThreadPoolExecutor workingThreads = new ThreadPoolExecutor(networkTransportConfig.getMinServerPoolSize(),
-                            networkTransportConfig.getMaxServerPoolSize(), networkTransportConfig.getKeepAliveTime(), TimeUnit.SECONDS,
-                            new LinkedBlockingQueue<>(networkTransportConfig.getMaxTaskQueueSize()),
-                            new NamedThreadFactory("TransportRemotingServer", networkTransportConfig.getMaxServerPoolSize()),
-                            new ThreadPoolExecutor.CallerRunsPolicy());
+                    final ThreadPoolExecutor workingThreads = NetworkResourceManager.getInstance().getMessageExecutor("TransportRemotingServer",
+                            () -> new ThreadPoolExecutor(networkTransportConfig.getMinServerPoolSize(),
+                                networkTransportConfig.getMaxServerPoolSize(), networkTransportConfig.getKeepAliveTime(), TimeUnit.SECONDS,
+                                new LinkedBlockingQueue<>(networkTransportConfig.getMaxTaskQueueSize()),
+                                new NamedThreadFactory("TransportRemotingServer", networkTransportConfig.getMaxServerPoolSize()),
+                                new ThreadPoolExecutor.AbortPolicy()));
                     INSTANCE = new TransportRemotingServer(workingThreads, networkTransportConfig);
                     INSTANCE.setListenPort(networkTransportConfig.getPort());
                     INSTANCE.init();
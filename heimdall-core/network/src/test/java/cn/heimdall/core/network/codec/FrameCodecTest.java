@@ -0,0 +1,141 @@
+package cn.heimdall.core.network.codec;
+
+import cn.heimdall.core.message.MessageHeader;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.DecoderException;
+import io.netty.handler.codec.TooLongFrameException;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class FrameCodecTest {
+
+    @Test
+    public void smallMessageIsOneFrame() {
+        ByteBuf payload = payload(32);
+        ByteBuf wire = encode(new FrameEncoder(64), payload.retainedDuplicate());
+        assertEquals(32, wire.getInt(0));
+
+        EmbeddedChannel decoder = new EmbeddedChannel(new FrameDecoder(1024, 4096));
+        assertTrue(decoder.writeInbound(wire));
+        ByteBuf frame = decoder.readInbound();
+        assertEquals(payload, frame);
+        assertNull(decoder.readInbound());
+        frame.release();
+        payload.release();
+        assertFalse(decoder.finish());
+    }
+
+    @Test
+    public void largeMessageSplitsIntoContinuationFrames() {
+        ByteBuf payload = payload(100);
+        ByteBuf wire = encode(new FrameEncoder(30), payload.retainedDuplicate());
+        //30 + 30 + 30 + 10，前三帧带续帧标记
+        assertTrue((wire.getInt(0) & FrameDecoder.CONTINUATION_FLAG) != 0);
+        assertEquals(100 + 4 * FrameDecoder.LENGTH_FIELD_LENGTH, wire.readableBytes());
+
+        EmbeddedChannel decoder = new EmbeddedChannel(new FrameDecoder(30, 4096));
+        //按字节逐个到达也能拼回完整消息
+        while (wire.isReadable()) {
+            decoder.writeInbound(wire.readRetainedSlice(1));
+        }
+        wire.release();
+        ByteBuf message = decoder.readInbound();
+        assertEquals(payload, message);
+        assertNull(decoder.readInbound());
+        message.release();
+        payload.release();
+        assertFalse(decoder.finish());
+    }
+
+    @Test
+    public void continuationFramesExceedingMessageLimitAreRejected() {
+        ByteBuf wire = encode(new FrameEncoder(30), payload(100));
+        EmbeddedChannel decoder = new EmbeddedChannel(new FrameDecoder(30, 64));
+        try {
+            decoder.writeInbound(wire);
+            fail("expected TooLongFrameException");
+        } catch (DecoderException e) {
+            assertTrue(e instanceof TooLongFrameException);
+        }
+        decoder.finishAndReleaseAll();
+    }
+
+    @Test
+    public void legacyPeerIsDetectedAndAnsweredWithShortLength() {
+        //老协议：2字节长度 + int版本号开头的消息
+        ByteBuf legacy = Unpooled.buffer();
+        legacy.writeInt(MessageHeader.VERSION_LEGACY).writeShort(100).writeBytes(new byte[]{'{', '}'});
+        ByteBuf wire = Unpooled.buffer();
+        wire.writeShort(legacy.readableBytes()).writeBytes(legacy);
+
+        EmbeddedChannel channel = new EmbeddedChannel(new FrameDecoder(1024, 4096), new FrameEncoder(64));
+        assertTrue(channel.writeInbound(wire));
+        ByteBuf frame = channel.readInbound();
+        assertEquals(legacy.resetReaderIndex(), frame);
+        frame.release();
+        assertEquals(Boolean.TRUE, channel.attr(FrameDecoder.LEGACY_FRAMING).get());
+
+        assertTrue(channel.writeOutbound(payload(10)));
+        ByteBuf out = readAll(channel);
+        assertEquals(10, out.getUnsignedShort(0));
+        assertEquals(12, out.readableBytes());
+        out.release();
+        assertFalse(channel.finish());
+    }
+
+    @Test
+    public void presetLegacyFramingIsUsedBeforeAnyFrameIsReceived() {
+        EmbeddedChannel channel = new EmbeddedChannel(new FrameDecoder(1024, 4096), new FrameEncoder(64));
+        FrameDecoder.useLegacyFraming(channel);
+
+        //客户端先发送，第一帧就使用2字节长度
+        assertTrue(channel.writeOutbound(payload(10)));
+        ByteBuf out = readAll(channel);
+        assertEquals(10, out.getUnsignedShort(0));
+        assertEquals(12, out.readableBytes());
+
+        //回复也按2字节长度解码
+        assertTrue(channel.writeInbound(out));
+        ByteBuf frame = channel.readInbound();
+        assertEquals(10, frame.readableBytes());
+        frame.release();
+        assertFalse(channel.finish());
+    }
+
+    /**
+     * 以magic开头的消息体，解码端据此识别新协议
+     */
+    private static ByteBuf payload(int length) {
+        ByteBuf buf = Unpooled.buffer(length);
+        buf.writeShort(MessageHeader.MAGIC);
+        for (int i = 2; i < length; i++) {
+            buf.writeByte(i);
+        }
+        return buf;
+    }
+
+    private static ByteBuf encode(FrameEncoder encoder, ByteBuf payload) {
+        EmbeddedChannel channel = new EmbeddedChannel(encoder);
+        assertTrue(channel.writeOutbound(payload));
+        ByteBuf wire = readAll(channel);
+        assertFalse(channel.finish());
+        return wire;
+    }
+
+    private static ByteBuf readAll(EmbeddedChannel channel) {
+        ByteBuf wire = Unpooled.buffer();
+        ByteBuf part;
+        while ((part = channel.readOutbound()) != null) {
+            wire.writeBytes(part);
+            part.release();
+        }
+        return wire;
+    }
+}
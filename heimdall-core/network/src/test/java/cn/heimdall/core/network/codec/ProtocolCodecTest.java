@@ -0,0 +1,142 @@
+package cn.heimdall.core.network.codec;
+
+import cn.heimdall.core.message.Message;
+import cn.heimdall.core.message.MessageHeader;
+import cn.heimdall.core.message.RpcMessage;
+import cn.heimdall.core.message.body.BatchMessage;
+import cn.heimdall.core.message.body.origin.MessageTreeRequest;
+import cn.heimdall.core.message.body.origin.AppStateRequest;
+import cn.heimdall.core.message.body.store.StoreAppStateRequest;
+import cn.heimdall.core.message.body.store.StoreTraceRequest;
+import cn.heimdall.core.message.compress.CompressionDictionary;
+import cn.heimdall.core.message.compress.DictionaryRegistry;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ProtocolCodecTest {
+
+    @Test
+    public void offloadedBodyDecodesAfterLaterMessagesOnTheSameConnection() {
+        EmbeddedChannel encoder = new EmbeddedChannel(new ProtocolEncoder());
+        EmbeddedChannel decoder = new EmbeddedChannel(new ProtocolDecoder());
+
+        transfer(encoder, decoder, new RpcMessage(appState("order-service")));
+        transfer(encoder, decoder, new RpcMessage(storeAppState("order-service")));
+        transfer(encoder, decoder, new RpcMessage(appState("order-service")));
+
+        Message first = decoder.readInbound();
+        Message offloaded = decoder.readInbound();
+        Message third = decoder.readInbound();
+        assertEquals("order-service", ((AppStateRequest) first.getMessageBody()).getDomain());
+        assertEquals("order-service", ((AppStateRequest) third.getMessageBody()).getDomain());
+        //延迟到后面的消息都解码之后再解码，和在处理线程中一样
+        StoreAppStateRequest body = (StoreAppStateRequest) offloaded.getMessageBody();
+        assertEquals("order-service", body.getAppName());
+        assertEquals("{\"young\":3}", body.getGcJson());
+        assertFalse(encoder.finish());
+        assertFalse(decoder.finish());
+    }
+
+    @Test
+    public void traceAndBatchBodiesAreOffloadedByDefault() {
+        EmbeddedChannel encoder = new EmbeddedChannel(new ProtocolEncoder());
+        EmbeddedChannel decoder = new EmbeddedChannel(new ProtocolDecoder());
+        MessageTreeRequest tree = new MessageTreeRequest();
+        tree.setDomain("order-service");
+        StoreTraceRequest trace = new StoreTraceRequest();
+        trace.setTraceId("trace-1");
+        BatchMessage batch = new BatchMessage(Arrays.asList(appState("order-service"), appState("order-service")));
+
+        transfer(encoder, decoder, new RpcMessage(tree));
+        transfer(encoder, decoder, new RpcMessage(trace));
+        transfer(encoder, decoder, new RpcMessage(batch));
+
+        Message decodedTree = decoder.readInbound();
+        Message decodedTrace = decoder.readInbound();
+        Message decodedBatch = decoder.readInbound();
+        //默认配置下这些消息体都留给处理线程解码
+        assertTrue(decodedTree.isBodyRetained());
+        assertTrue(decodedTrace.isBodyRetained());
+        assertTrue(decodedBatch.isBodyRetained());
+        assertEquals("order-service", ((MessageTreeRequest) decodedTree.getMessageBody()).getDomain());
+        assertEquals("trace-1", ((StoreTraceRequest) decodedTrace.getMessageBody()).getTraceId());
+        assertEquals(2, ((BatchMessage) decodedBatch.getMessageBody()).size());
+        ((MessageTreeRequest) decodedTree.getMessageBody()).release();
+        assertFalse(encoder.finish());
+        assertFalse(decoder.finish());
+    }
+
+    @Test
+    public void autoBodyFromStringTablePeerIsDecodedInline() {
+        EmbeddedChannel encoder = new EmbeddedChannel(new ProtocolEncoder());
+        EmbeddedChannel decoder = new EmbeddedChannel(new ProtocolDecoder());
+        StoreTraceRequest trace = new StoreTraceRequest();
+        trace.setTraceId("trace-1");
+        RpcMessage message = new RpcMessage(trace);
+        //版本4的对端没有字符串表标记，消息体可能引用字符串表
+        message.getMessageHeader().setVersion(MessageHeader.VERSION_STRING_TABLE);
+
+        transfer(encoder, decoder, message);
+        Message decoded = decoder.readInbound();
+        assertFalse(decoded.isBodyRetained());
+        assertEquals("trace-1", ((StoreTraceRequest) decoded.getMessageBody()).getTraceId());
+        assertFalse(encoder.finish());
+        assertFalse(decoder.finish());
+    }
+
+    @Test
+    public void dictionaryIsUsedOnlyAfterPeerConfirmedIt() {
+        EmbeddedChannel encoder = new EmbeddedChannel(new ProtocolEncoder());
+        CompressionDictionary dictionary = new CompressionDictionary(42, "order-service", new byte[]{1, 2, 3});
+        DictionaryRegistry.getInstance().activate(dictionary);
+        try {
+            RpcMessage unconfirmed = new RpcMessage(appState("order-service"));
+            assertTrue(encoder.writeOutbound(unconfirmed));
+            assertNull(unconfirmed.getDictionary());
+
+            encoder.attr(ProtocolEncoder.PEER_DICTIONARY).set(42);
+            RpcMessage confirmed = new RpcMessage(appState("order-service"));
+            assertTrue(encoder.writeOutbound(confirmed));
+            assertSame(dictionary, confirmed.getDictionary());
+
+            //对端确认的是旧字典时不使用新字典
+            DictionaryRegistry.getInstance().activate(new CompressionDictionary(43, "order-service", new byte[]{4}));
+            RpcMessage stale = new RpcMessage(appState("order-service"));
+            assertTrue(encoder.writeOutbound(stale));
+            assertNull(stale.getDictionary());
+        } finally {
+            DictionaryRegistry.getInstance().activate(null);
+            encoder.finishAndReleaseAll();
+        }
+    }
+
+    private static void transfer(EmbeddedChannel encoder, EmbeddedChannel decoder, RpcMessage message) {
+        assertTrue(encoder.writeOutbound(message));
+        ByteBuf wire = encoder.readOutbound();
+        assertTrue(decoder.writeInbound(wire));
+    }
+
+    private static AppStateRequest appState(String domain) {
+        AppStateRequest request = new AppStateRequest();
+        request.setDomain(domain);
+        request.setIp("10.0.0.1");
+        request.setGcJson("{\"young\":3}");
+        return request;
+    }
+
+    private static StoreAppStateRequest storeAppState(String appName) {
+        StoreAppStateRequest request = new StoreAppStateRequest();
+        request.setAppName(appName);
+        request.setGcJson("{\"young\":3}");
+        return request;
+    }
+}
@@ -0,0 +1,92 @@
+package cn.heimdall.core.network.remote;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AckTrackerTest {
+
+    @Test
+    public void watermarkAdvancesOverContiguousCompletions() {
+        AckTracker tracker = new AckTracker(16);
+        assertTrue(tracker.accept(1));
+        assertTrue(tracker.accept(2));
+        assertTrue(tracker.accept(3));
+        tracker.complete(2);
+        tracker.complete(3);
+        assertEquals(0, tracker.getWatermark());
+        tracker.complete(1);
+        assertEquals(3, tracker.getWatermark());
+        assertTrue(tracker.pollAck());
+        assertFalse(tracker.pollAck());
+    }
+
+    @Test
+    public void resentAckedMessageIsOnlyReacked() {
+        AckTracker tracker = new AckTracker(16);
+        assertTrue(tracker.accept(1));
+        tracker.complete(1);
+        assertTrue(tracker.pollAck());
+
+        assertFalse(tracker.accept(1));
+        assertTrue(tracker.pollAck());
+        assertEquals(1, tracker.getWatermark());
+    }
+
+    @Test
+    public void resentCompletedMessageAboveWatermarkIsSkipped() {
+        AckTracker tracker = new AckTracker(16);
+        assertTrue(tracker.accept(2));
+        tracker.complete(2);
+        tracker.pollAck();
+
+        assertFalse(tracker.accept(2));
+        assertTrue(tracker.pollAck());
+        assertEquals(0, tracker.getWatermark());
+    }
+
+    @Test
+    public void resentMessageInProgressIsSkippedWithoutAck() {
+        AckTracker tracker = new AckTracker(16);
+        assertTrue(tracker.accept(1));
+        assertFalse(tracker.accept(1));
+        assertFalse(tracker.pollAck());
+        tracker.complete(1);
+        assertTrue(tracker.pollAck());
+        assertEquals(1, tracker.getWatermark());
+    }
+
+    @Test
+    public void sequenceBeyondWindowIsRejected() {
+        AckTracker tracker = new AckTracker(4);
+        assertTrue(tracker.accept(4));
+        assertFalse(tracker.accept(5));
+        assertFalse(tracker.accept(Integer.MAX_VALUE));
+        tracker.complete(Integer.MAX_VALUE);
+        assertFalse(tracker.pollAck());
+
+        //窗口随watermark前移
+        for (int seq = 1; seq <= 3; seq++) {
+            assertTrue(tracker.accept(seq));
+            tracker.complete(seq);
+        }
+        tracker.complete(4);
+        assertEquals(4, tracker.getWatermark());
+        assertTrue(tracker.accept(5));
+        assertTrue(tracker.accept(8));
+        assertFalse(tracker.accept(9));
+    }
+
+    @Test
+    public void shedMessageIsProcessedWhenResent() {
+        AckTracker tracker = new AckTracker(16);
+        assertTrue(tracker.accept(1));
+        tracker.reject(1);
+        assertFalse(tracker.pollAck());
+        assertTrue(tracker.accept(1));
+        tracker.complete(1);
+        assertEquals(1, tracker.getWatermark());
+    }
+}
@@ -0,0 +1,39 @@
+package cn.heimdall.core.network.remote;
+
+import io.netty.channel.Channel;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class ChannelGroupTest {
+
+    @Test
+    public void shrinkRemovesLastChannelUntilMinSize() {
+        ChannelGroup group = new ChannelGroup("127.0.0.1:7300", 1, 3, 10);
+        Channel first = new EmbeddedChannel();
+        Channel second = new EmbeddedChannel();
+        Channel third = new EmbeddedChannel();
+        group.add(first);
+        group.add(second);
+        group.add(third);
+
+        assertSame(third, group.shrink(0));
+        //关闭回调先移除了一个连接，缩容按剩下的连接选择
+        group.remove(second);
+        assertNull(group.shrink(0));
+        assertEquals(1, group.getChannels().size());
+        assertSame(first, group.getChannels().get(0));
+    }
+
+    @Test
+    public void shrinkWaitsForIdlePeriod() {
+        ChannelGroup group = new ChannelGroup("127.0.0.1:7300", 1, 3, 10);
+        group.add(new EmbeddedChannel());
+        group.add(new EmbeddedChannel());
+        assertNull(group.shrink(60_000));
+        assertEquals(2, group.getChannels().size());
+    }
+}
@@ -0,0 +1,90 @@
+package cn.heimdall.core.network.remote;
+
+import cn.heimdall.core.message.MessageBody;
+import cn.heimdall.core.message.RpcMessage;
+import cn.heimdall.core.message.body.BatchMessage;
+import cn.heimdall.core.message.body.PingMessage;
+import cn.heimdall.core.message.body.store.StoreMetricRequest;
+import cn.heimdall.core.message.metric.MetricNode;
+import io.netty.channel.Channel;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.AttributeKey;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CreditWindowTest {
+
+    @Test
+    public void acquireWaitsForGrantedLimit() throws InterruptedException {
+        CreditWindow window = new CreditWindow();
+        window.grant(2);
+        assertTrue(window.acquire(0));
+        assertTrue(window.acquire(0));
+        assertEquals(0, window.getAvailable());
+        assertFalse(window.acquire(10));
+
+        //额度是累计值，授予新的上限后继续发送
+        window.grant(3);
+        assertTrue(window.acquire(0));
+        assertEquals(0, window.getAvailable());
+    }
+
+    @Test
+    public void releasedCreditCanBeAcquiredAgain() throws InterruptedException {
+        CreditWindow window = new CreditWindow();
+        window.grant(1);
+        assertTrue(window.acquire(0));
+        window.release();
+        assertEquals(1, window.getAvailable());
+        assertTrue(window.acquire(0));
+    }
+
+    @Test
+    public void batchTakesOneCreditPerMessage() {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        CreditWindow.get(channel).grant(5);
+        BatchMessage batch = new BatchMessage(Arrays.asList(new StoreMetricRequest(new MetricNode()),
+                new StoreMetricRequest(new MetricNode()), new StoreMetricRequest(new MetricNode())));
+        RpcMessage message = new RpcMessage(batch);
+        TestRemoting remoting = new TestRemoting();
+        remoting.acquireCredit(channel, message, 0);
+        assertEquals(2, CreditWindow.get(channel).getAvailable());
+        remoting.releaseCredit(channel, message);
+        assertEquals(5, CreditWindow.get(channel).getAvailable());
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    public void creditIsReturnedWhenInFlightTableIsFull() {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        //容量为2的在途请求表，先占满
+        InFlightTable table = new InFlightTable(2);
+        channel.attr(AttributeKey.<InFlightTable>valueOf("inFlightTable")).set(table);
+        table.put(MessageFuture.newInstance(new RpcMessage(PingMessage.PING), 1000, true));
+        table.put(MessageFuture.newInstance(new RpcMessage(PingMessage.PING), 1000, true));
+        CreditWindow.get(channel).grant(2);
+
+        CompletableFuture<MessageBody> future = new TestRemoting()
+                .sendAsyncRequest(channel, new RpcMessage(new StoreMetricRequest(new MetricNode())), 1000);
+        assertTrue(future.isCompletedExceptionally());
+        assertEquals(2, CreditWindow.get(channel).getAvailable());
+        channel.finishAndReleaseAll();
+    }
+
+    private static class TestRemoting extends AbstractRemoting {
+
+        TestRemoting() {
+            super(null);
+        }
+
+        @Override
+        public void destroyChannel(Channel channel) {
+        }
+    }
+}
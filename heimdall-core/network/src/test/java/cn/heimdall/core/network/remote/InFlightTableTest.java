@@ -0,0 +1,68 @@
+package cn.heimdall.core.network.remote;
+
+import cn.heimdall.core.message.RpcMessage;
+import cn.heimdall.core.message.body.PingMessage;
+import cn.heimdall.core.utils.exception.NetworkException;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class InFlightTableTest {
+
+    @Test
+    public void idSkipsOccupiedSlotsAndReusesFreedSlot() {
+        InFlightTable table = new InFlightTable(4);
+        MessageFuture[] futures = new MessageFuture[4];
+        for (int i = 0; i < futures.length; i++) {
+            futures[i] = newFuture();
+            assertEquals(i + 1, table.put(futures[i]));
+        }
+        assertEquals(4, table.size());
+
+        assertSame(futures[1], table.remove(2));
+        MessageFuture reused = newFuture();
+        //id 5落在仍被占用的槽位1上被跳过，id 6复用释放的槽位2
+        assertEquals(6, table.put(reused));
+        assertEquals(6, reused.getMessageId());
+        assertEquals(4, table.size());
+
+        //旧id的迟到回复不能取走复用槽位上的新请求
+        assertNull(table.remove(2));
+        assertFalse(table.remove(2, futures[1]));
+        assertSame(reused, table.remove(6));
+        assertEquals(3, table.size());
+    }
+
+    @Test
+    public void putFailsWhenAllSlotsAreOccupied() {
+        InFlightTable table = new InFlightTable(2);
+        table.put(newFuture());
+        table.put(newFuture());
+        try {
+            table.put(newFuture());
+            fail("expected NetworkException");
+        } catch (NetworkException e) {
+            assertEquals(2, table.size());
+        }
+    }
+
+    @Test
+    public void removeWithFutureOnlyMatchesSameRequest() {
+        InFlightTable table = new InFlightTable(2);
+        MessageFuture first = newFuture();
+        int id = table.put(first);
+        assertFalse(table.remove(id, newFuture()));
+        assertTrue(table.remove(id, first));
+        assertFalse(table.remove(id, first));
+        assertEquals(0, table.size());
+    }
+
+    private static MessageFuture newFuture() {
+        return MessageFuture.newInstance(new RpcMessage(PingMessage.PING), 1000, true);
+    }
+}
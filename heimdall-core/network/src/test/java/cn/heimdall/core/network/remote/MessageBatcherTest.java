@@ -0,0 +1,122 @@
+package cn.heimdall.core.network.remote;
+
+import cn.heimdall.core.message.MessageBody;
+import cn.heimdall.core.message.ResultCode;
+import cn.heimdall.core.message.body.BatchMessage;
+import cn.heimdall.core.message.body.BatchResponse;
+import cn.heimdall.core.message.body.store.StoreMetricRequest;
+import cn.heimdall.core.message.metric.MetricNode;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class MessageBatcherTest {
+
+    private static final String SERVER = "127.0.0.1:7300";
+
+    private final List<MessageBody> sent = new ArrayList<>();
+
+    private final CompletableFuture<MessageBody> response = new CompletableFuture<>();
+
+    @Test
+    public void flushesWhenCountReachesLimit() {
+        MessageBatcher batcher = newBatcher(3, Integer.MAX_VALUE, 60_000);
+        CompletableFuture<MessageBody> first = batcher.add(SERVER, newBody());
+        batcher.add(SERVER, newBody());
+        assertTrue(sent.isEmpty());
+
+        batcher.add(SERVER, newBody());
+        assertEquals(1, sent.size());
+        assertEquals(3, ((BatchMessage) sent.get(0)).size());
+        //整批只有一个回复，回复到达前各条消息都未结束
+        assertFalse(first.isDone());
+        response.complete(null);
+        assertTrue(first.isDone());
+    }
+
+    @Test
+    public void flushesWhenBytesReachLimit() {
+        //每条按默认的128字节估算
+        MessageBatcher batcher = newBatcher(100, 256, 60_000);
+        batcher.add(SERVER, newBody());
+        assertTrue(sent.isEmpty());
+        batcher.add(SERVER, newBody());
+        assertEquals(1, sent.size());
+        assertEquals(2, ((BatchMessage) sent.get(0)).size());
+    }
+
+    @Test
+    public void flushesAfterLinger() throws InterruptedException {
+        MessageBatcher batcher = newBatcher(100, Integer.MAX_VALUE, 20);
+        MessageBody body = newBody();
+        batcher.add(SERVER, body);
+        batcher.flushExpired();
+        assertTrue(sent.isEmpty());
+
+        Thread.sleep(30);
+        batcher.flushExpired();
+        //只有一条时不包装成批
+        assertEquals(1, sent.size());
+        assertSame(body, sent.get(0));
+        batcher.flushExpired();
+        assertEquals(1, sent.size());
+    }
+
+    @Test
+    public void failedSendCompletesEveryMessageExceptionally() {
+        MessageBatcher batcher = newBatcher(2, Integer.MAX_VALUE, 60_000);
+        CompletableFuture<MessageBody> first = batcher.add(SERVER, newBody());
+        CompletableFuture<MessageBody> second = batcher.add(SERVER, newBody());
+        response.completeExceptionally(new IllegalStateException("closed"));
+        assertTrue(first.isCompletedExceptionally());
+        assertTrue(second.isCompletedExceptionally());
+    }
+
+    @Test
+    public void onlyFailedChildrenCompleteExceptionally() {
+        MessageBatcher batcher = newBatcher(3, Integer.MAX_VALUE, 60_000);
+        CompletableFuture<MessageBody> first = batcher.add(SERVER, newBody());
+        CompletableFuture<MessageBody> second = batcher.add(SERVER, newBody());
+        CompletableFuture<MessageBody> third = batcher.add(SERVER, newBody());
+        BatchResponse batchResponse = new BatchResponse();
+        batchResponse.setResultCode(ResultCode.FAILED.getCode());
+        batchResponse.setFailedIndexes(Collections.singletonList(1));
+        response.complete(batchResponse);
+        assertFalse(first.isCompletedExceptionally());
+        assertTrue(second.isCompletedExceptionally());
+        assertFalse(third.isCompletedExceptionally());
+    }
+
+    @Test
+    public void failedBatchWithoutIndexesFailsEveryMessage() {
+        MessageBatcher batcher = newBatcher(2, Integer.MAX_VALUE, 60_000);
+        CompletableFuture<MessageBody> first = batcher.add(SERVER, newBody());
+        CompletableFuture<MessageBody> second = batcher.add(SERVER, newBody());
+        //老版本服务端只回复失败条数
+        BatchResponse batchResponse = new BatchResponse();
+        batchResponse.setResultCode(ResultCode.FAILED.getCode());
+        response.complete(batchResponse);
+        assertTrue(first.isCompletedExceptionally());
+        assertTrue(second.isCompletedExceptionally());
+    }
+
+    private MessageBatcher newBatcher(int maxCount, int maxBytes, long lingerMillis) {
+        return new MessageBatcher((server, body) -> {
+            assertEquals(SERVER, server);
+            sent.add(body);
+            return response;
+        }, maxCount, maxBytes, lingerMillis);
+    }
+
+    private static MessageBody newBody() {
+        return new StoreMetricRequest(new MetricNode());
+    }
+}
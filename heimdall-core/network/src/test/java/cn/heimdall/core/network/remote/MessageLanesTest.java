@@ -0,0 +1,56 @@
+package cn.heimdall.core.network.remote;
+
+import cn.heimdall.core.message.MessagePriority;
+import cn.heimdall.core.message.MessageType;
+import org.junit.Test;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MessageLanesTest {
+
+    @Test
+    public void lanesFitIntoExecutorQueue() {
+        //队列100加10个线程最多容纳110个任务，数据和查询默认份额10000 + 1000按比例缩小
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 10, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(100), new ThreadPoolExecutor.AbortPolicy());
+        try {
+            MessageLanes lanes = new MessageLanes(executor);
+            assertEquals(100, lanes.getCapacity(MessagePriority.DATA));
+            assertEquals(10, lanes.getCapacity(MessagePriority.QUERY));
+            //控制类消息使用独立的线程池，不缩小
+            assertEquals(MessagePriority.CONTROL.getDefaultCapacity(), lanes.getCapacity(MessagePriority.CONTROL));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void shedFirstMessagesStopAtShedLimit() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 10, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(100), new ThreadPoolExecutor.AbortPolicy());
+        try {
+            MessageLanes lanes = new MessageLanes(executor);
+            //默认丢弃线是份额的70%
+            for (int i = 0; i < 70; i++) {
+                assertTrue(lanes.tryAcquire(MessageType.STORE_TRANCE_LOG_REQUEST));
+            }
+            assertFalse(lanes.tryAcquire(MessageType.STORE_TRANCE_LOG_REQUEST));
+            assertTrue(lanes.tryAcquire(MessageType.STORE_METRIC_REQUEST));
+            assertEquals(71, lanes.getQueued(MessagePriority.DATA));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void unboundedExecutorKeepsConfiguredCapacity() {
+        MessageLanes lanes = new MessageLanes(null);
+        assertEquals(MessagePriority.DATA.getDefaultCapacity(), lanes.getCapacity(MessagePriority.DATA));
+    }
+}
@@ -1,5 +1,6 @@
 package cn.heimdall.core.utils.common;
 
+import io.netty.channel.unix.DomainSocketAddress;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -17,6 +18,9 @@ public class NetUtil {
 
     private static final String ANY_HOST = "0.0.0.0";
 
+    //unix domain socket地址的前缀，如unix:///var/run/heimdall.sock
+    public static final String UNIX_SCHEME = "unix://";
+
     private static volatile InetAddress LOCAL_ADDRESS = null;
 
     private static final Pattern IP_PATTERN = Pattern.compile("\\d{1,3}(\\.\\d{1,3}){3,5}$");
@@ -26,6 +30,9 @@ public class NetUtil {
         if (address == null) {
             return StringUtil.EMPTY;
         }
+        if (address instanceof DomainSocketAddress) {
+            return UNIX_SCHEME + ((DomainSocketAddress) address).path();
+        }
         return toStringAddress((InetSocketAddress) address);
     }
 
@@ -40,6 +47,20 @@ public class NetUtil {
     }
 
 
+    /**
+     * unix://开头的地址转为unix domain socket地址，其他按ip:port解析
+     */
+    public static SocketAddress toSocketAddress(String address) {
+        if (isDomainSocketAddress(address)) {
+            return new DomainSocketAddress(address.substring(UNIX_SCHEME.length()));
+        }
+        return toInetSocketAddress(address);
+    }
+
+    public static boolean isDomainSocketAddress(String address) {
+        return address != null && address.startsWith(UNIX_SCHEME);
+    }
+
     public static InetSocketAddress toInetSocketAddress(String address) {
         int i = address.indexOf(':');
         String host;
@@ -27,8 +27,18 @@ public interface ConfigurationKeys {
     String HTTP_PORT = "http.port";
     //监控数据传输端口
     String TRANSPORT_PORT = TRANSPORT_PREFIX + "port";
+    //传输实现 auto/io_uring/epoll/nio
+    String TRANSPORT_TYPE = TRANSPORT_PREFIX + "type";
+    //传输端口是否开启SO_REUSEPORT
+    String TRANSPORT_REUSE_PORT = TRANSPORT_PREFIX + "reuse.port";
+    //传输端口的acceptor线程数
+    String TRANSPORT_ACCEPTOR_THREADS = TRANSPORT_PREFIX + "acceptor.threads";
+    //传输端口额外监听的unix domain socket路径，供同机agent使用，需epoll
+    String TRANSPORT_DOMAIN_SOCKET = TRANSPORT_PREFIX + "domain.socket";
     //管理类端口
     String MANAGE_PORT = "manage.port";
+    //管理端口额外监听的unix domain socket路径
+    String MANAGE_DOMAIN_SOCKET = "manage.domain.socket";
 
     //节点
     String NODE_PREFIX = "node.";
@@ -48,6 +58,12 @@ public interface ConfigurationKeys {
     // compute
     String COMPUTE_PREFIX = "compute.";
     String COMPUTE_HOSTS = COMPUTE_PREFIX + "hosts";
+    //压缩字典训练：每N个消息树采样一个、训练周期、字典大小
+    String COMPUTE_DICTIONARY_SAMPLE_RATE = COMPUTE_PREFIX + "dictionary.sample.rate";
+    String COMPUTE_DICTIONARY_TRAIN_PERIOD = COMPUTE_PREFIX + "dictionary.train.period";
+    String COMPUTE_DICTIONARY_SIZE = COMPUTE_PREFIX + "dictionary.size";
+    //训练出的字典保存的目录，重启后重新加载
+    String COMPUTE_DICTIONARY_DIR = COMPUTE_PREFIX + "dictionary.dir";
 
     // storage
     String STORAGE_PREFIX = "storage.";
@@ -58,6 +74,96 @@ public interface ConfigurationKeys {
     String ACTION_PREFIX = "action.";
 
 
+    //消息体序列化方式 heimdall/json
+    String TRANSPORT_SERIALIZATION = TRANSPORT_PREFIX + "serialization";
+    //trace等数据类消息体使用连接的字符串表，开启后这些消息体需在io线程解码
+    String TRANSPORT_DATA_STRING_TABLE = TRANSPORT_PREFIX + "data.string.table";
+
+    //支持的压缩方式，按优先级逗号分隔，注册时与guarder协商
+    String TRANSPORT_COMPRESSOR = TRANSPORT_PREFIX + "compressor";
+    //消息体超过该字节数才压缩
+    String TRANSPORT_COMPRESS_THRESHOLD = TRANSPORT_PREFIX + "compress.threshold";
+    //使用字典压缩时的阈值，字典对小消息也有效，默认更低
+    String TRANSPORT_DICTIONARY_COMPRESS_THRESHOLD = TRANSPORT_PREFIX + "dictionary.compress.threshold";
+
+    //单帧最大长度，按server类型分别配置
+    String TRANSPORT_MAX_FRAME_LENGTH = TRANSPORT_PREFIX + "max.frame.length";
+    String MANAGE_MAX_FRAME_LENGTH = "manage.max.frame.length";
+    String HTTP_MAX_FRAME_LENGTH = "http.max.frame.length";
+    //连接老版本服务端时开启，客户端从第一帧起使用老的2字节长度帧和老的消息头
+    String TRANSPORT_CLIENT_LEGACY_FRAMING = TRANSPORT_PREFIX + "client.legacy.framing";
+    //续帧拼接后的消息最大长度
+    String TRANSPORT_MAX_MESSAGE_LENGTH = TRANSPORT_PREFIX + "max.message.length";
+    //超过该大小的消息拆成多个续帧发送
+    String TRANSPORT_FRAME_CHUNK_SIZE = TRANSPORT_PREFIX + "frame.chunk.size";
+
+    //每个客户端异步请求的在途上限
+    String TRANSPORT_RPC_MAX_IN_FLIGHT = TRANSPORT_PREFIX + "rpc.max.in.flight";
+    //每个连接在途请求表的槽位数，取2的幂
+    String TRANSPORT_RPC_IN_FLIGHT_TABLE_SIZE = TRANSPORT_PREFIX + "rpc.in.flight.table.size";
+    //连接不可写时发送缓冲允许堆积的字节数，超过后同步发送快速失败
+    String TRANSPORT_MAX_PENDING_WRITE_BYTES = TRANSPORT_PREFIX + "max.pending.write.bytes";
+    //服务端对单向消息发送累计确认的间隔，毫秒
+    String TRANSPORT_ACK_INTERVAL = TRANSPORT_PREFIX + "ack.interval";
+    //客户端单向消息未被确认时重发的超时时间，毫秒
+    String TRANSPORT_ACK_TIMEOUT = TRANSPORT_PREFIX + "ack.timeout";
+    //每个连接未被确认的单向消息上限
+    String TRANSPORT_MAX_UNACKED = TRANSPORT_PREFIX + "max.unacked";
+    //客户端到每个服务端的最小连接数
+    String TRANSPORT_CHANNEL_GROUP_MIN = TRANSPORT_PREFIX + "channel.group.min";
+    //客户端到每个服务端的最大连接数
+    String TRANSPORT_CHANNEL_GROUP_MAX = TRANSPORT_PREFIX + "channel.group.max";
+    //单个连接在途请求达到该值时认为连接忙，连接组扩容
+    String TRANSPORT_CHANNEL_BUSY_IN_FLIGHT = TRANSPORT_PREFIX + "channel.busy.in.flight";
+    //连接组持续空闲多久后缩容，毫秒
+    String TRANSPORT_CHANNEL_GROUP_SHRINK_IDLE = TRANSPORT_PREFIX + "channel.group.shrink.idle";
+    //客户端选择服务端节点的负载均衡 random/round_robin/consistent_hash/p2c_ewma
+    String TRANSPORT_LOAD_BALANCE = TRANSPORT_PREFIX + "load.balance";
+    //各优先级排队上限的前缀，后接control/data/query
+    String TRANSPORT_LANE_CAPACITY_PREFIX = TRANSPORT_PREFIX + "lane.capacity.";
+    //排队数超过上限的百分比后丢弃可先丢弃的消息
+    String TRANSPORT_LANE_SHED_PERCENT = TRANSPORT_PREFIX + "lane.shed.percent";
+    //过载回复中建议发送端等待的时间，毫秒
+    String TRANSPORT_BUSY_RETRY_AFTER = TRANSPORT_PREFIX + "busy.retry.after";
+    //服务端授予发送额度的间隔，毫秒
+    String TRANSPORT_CREDIT_INTERVAL = TRANSPORT_PREFIX + "credit.interval";
+    //每个连接的最大发送窗口
+    String TRANSPORT_CREDIT_MAX_WINDOW = TRANSPORT_PREFIX + "credit.max.window";
+    //目标角色在同一进程时直接调用，不经过网络
+    String TRANSPORT_LOCAL_ENABLED = TRANSPORT_PREFIX + "local.enabled";
+    //进程内调用的队列长度
+    String TRANSPORT_LOCAL_QUEUE_SIZE = TRANSPORT_PREFIX + "local.queue.size";
+    //进程内调用每个角色的处理线程数
+    String TRANSPORT_LOCAL_WORKER_THREADS = TRANSPORT_PREFIX + "local.worker.threads";
+    //所有server和client共用的io线程数
+    String TRANSPORT_WORKER_THREADS = TRANSPORT_PREFIX + "worker.threads";
+    //共用的定时线程数
+    String TRANSPORT_TIMER_THREADS = TRANSPORT_PREFIX + "timer.threads";
+    //所有server和client是否共用一个消息处理线程池
+    String TRANSPORT_SHARE_EXECUTOR = TRANSPORT_PREFIX + "share.executor";
+    //共用的消息处理线程数
+    String TRANSPORT_SHARED_EXECUTOR_THREADS = TRANSPORT_PREFIX + "shared.executor.threads";
+    //共用的消息处理线程池队列长度
+    String TRANSPORT_SHARED_EXECUTOR_QUEUE_SIZE = TRANSPORT_PREFIX + "shared.executor.queue.size";
+    //心跳、注册等控制类消息是否走独立的连接和线程
+    String TRANSPORT_CONTROL_ENABLED = TRANSPORT_PREFIX + "control.enabled";
+    //控制连接监听端口相对数据端口的偏移
+    String TRANSPORT_CONTROL_PORT_OFFSET = TRANSPORT_PREFIX + "control.port.offset";
+    //控制连接的io线程数
+    String TRANSPORT_CONTROL_THREADS = TRANSPORT_PREFIX + "control.threads";
+    //控制类消息的处理线程数
+    String TRANSPORT_CONTROL_EXECUTOR_THREADS = TRANSPORT_PREFIX + "control.executor.threads";
+    //数据类请求是否合并发送
+    String TRANSPORT_BATCH_ENABLED = TRANSPORT_PREFIX + "batch.enabled";
+    //一批最多的消息数
+    String TRANSPORT_BATCH_MAX_COUNT = TRANSPORT_PREFIX + "batch.max.count";
+    //一批最多的估算字节数
+    String TRANSPORT_BATCH_MAX_BYTES = TRANSPORT_PREFIX + "batch.max.bytes";
+    //一批最长的等待时间
+    String TRANSPORT_BATCH_LINGER = TRANSPORT_PREFIX + "batch.linger";
+    //连续多少次flush后才真正flush，不大于0时不合并
+    String TRANSPORT_FLUSH_CONSOLIDATION = TRANSPORT_PREFIX + "flush.consolidation";
+
     //停止等待
     String SHUTDOWN_WAIT = TRANSPORT_PREFIX + "shutdown.wait";
 
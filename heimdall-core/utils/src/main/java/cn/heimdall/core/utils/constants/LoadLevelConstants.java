@@ -15,4 +15,17 @@ public interface LoadLevelConstants {
     String STORE_DATA_TYPE_APP_STATE = "store_data_type_app_state";
     String STORE_DATA_TYPE_METRIC = "store_data_type_metric";
     String STORE_DATA_TYPE_TRACE = "store_data_type_trace";
+
+    String SERIALIZER_HEIMDALL = "heimdall";
+    String SERIALIZER_PROTOBUF = "protobuf";
+    String SERIALIZER_JSON = "json";
+
+    String COMPRESSOR_NONE = "none";
+    String COMPRESSOR_LZ4 = "lz4";
+    String COMPRESSOR_ZSTD = "zstd";
+
+    String LOAD_BALANCE_RANDOM = "random";
+    String LOAD_BALANCE_ROUND_ROBIN = "round_robin";
+    String LOAD_BALANCE_CONSISTENT_HASH = "consistent_hash";
+    String LOAD_BALANCE_P2C_EWMA = "p2c_ewma";
 }
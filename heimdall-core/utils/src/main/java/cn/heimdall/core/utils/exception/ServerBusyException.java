@@ -0,0 +1,18 @@
+package cn.heimdall.core.utils.exception;
+
+/**
+ * 对端过载丢弃了请求，调用方应等待retryAfterMillis后重试或换节点
+ */
+public class ServerBusyException extends NetworkException {
+
+    private final int retryAfterMillis;
+
+    public ServerBusyException(String remoteAddr, int retryAfterMillis) {
+        super("server " + remoteAddr + " is busy, retry after " + retryAfterMillis + " ms");
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    public int getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
+}
@@ -14,6 +14,8 @@ import cn.heimdall.core.message.body.register.AppRegisterRequest;
 import cn.heimdall.core.message.body.register.AppRegisterResponse;
 import cn.heimdall.core.message.body.register.NodeRegisterRequest;
 import cn.heimdall.core.message.body.register.NodeRegisterResponse;
+import cn.heimdall.core.message.compress.CompressorNegotiator;
+import cn.heimdall.core.message.compress.DictionaryRegistry;
 import cn.heimdall.core.message.hander.GuarderInboundHandler;
 import cn.heimdall.core.network.coordinator.Coordinator;
 import cn.heimdall.core.network.processor.server.ServerIdleProcessor;
@@ -73,6 +75,8 @@ public class GuarderCoordinator implements MessageDoorway, GuarderInboundHandler
         NodeRegisterResponse nodeRegisterResponse = new NodeRegisterResponse(true);
         Map<NodeRole, Map<InetSocketAddress, Long>> addresses = this.getNodeRoleMap();
         nodeRegisterResponse.setAddresses(addresses);
+        nodeRegisterResponse.setCompressor(CompressorNegotiator.getInstance().choose(request.getCompressors()));
+        nodeRegisterResponse.setDictionaries(DictionaryRegistry.getInstance().getAll());
         return nodeRegisterResponse;
     }
 
@@ -91,11 +95,13 @@ public class GuarderCoordinator implements MessageDoorway, GuarderInboundHandler
         if (LOGGER.isInfoEnabled()) {
             LOGGER.info("guarder received client register request, appName is {}, ip is {}", request.getAppName(), request.getIp());
         }
-        AppRegisterResponse nodeRegisterResponse = new AppRegisterResponse();
+        AppRegisterResponse appRegisterResponse = new AppRegisterResponse();
         Map<NodeRole, Map<InetSocketAddress, Long>> addresses = this.getNodeRoleMap();
-        nodeRegisterResponse.setAddresses(addresses);
-        nodeRegisterResponse.setMsg("guarder success response");
-        return nodeRegisterResponse;
+        appRegisterResponse.setAddresses(addresses);
+        appRegisterResponse.setMsg("guarder success response");
+        appRegisterResponse.setCompressor(CompressorNegotiator.getInstance().choose(request.getCompressors()));
+        appRegisterResponse.setDictionary(DictionaryRegistry.getInstance().getByDomain(request.getAppName()));
+        return appRegisterResponse;
     }
 
     @Override
@@ -103,11 +109,13 @@ public class GuarderCoordinator implements MessageDoorway, GuarderInboundHandler
         if (LOGGER.isInfoEnabled()) {
             LOGGER.info("guarder received client heartbeat request, appName is {}, ip is {}", request.getAppName(), request.getIp());
         }
-        ClientHeartbeatResponse nodeHeartbeatResponse = new ClientHeartbeatResponse();
+        ClientHeartbeatResponse clientHeartbeatResponse = new ClientHeartbeatResponse();
         Map<NodeRole, Map<InetSocketAddress, Long>> addresses = this.getNodeRoleMap();
-        nodeHeartbeatResponse.setAddresses(addresses);
-        nodeHeartbeatResponse.setMsg("guarder success response");
-        return nodeHeartbeatResponse;
+        clientHeartbeatResponse.setAddresses(addresses);
+        clientHeartbeatResponse.setMsg("guarder success response");
+        //注册之后训练出的字典随心跳下发
+        clientHeartbeatResponse.setDictionary(DictionaryRegistry.getInstance().getByDomain(request.getAppName()));
+        return clientHeartbeatResponse;
     }
 
     private Map<NodeRole, Map<InetSocketAddress, Long>> getNodeRoleMap() {
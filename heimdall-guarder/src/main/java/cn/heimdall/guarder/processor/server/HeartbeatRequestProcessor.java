@@ -19,6 +19,6 @@ public class HeartbeatRequestProcessor extends ServerProcessor {
     public void process(ChannelHandlerContext ctx, Message message) throws TimeoutException {
         MessageBody messageBody = message.getMessageBody();
         MessageBody messageResponse = messageDoorway.onRequest(messageBody);
-        remotingServer.sendAsyncRequest(ctx.channel(), messageResponse);
+        remotingServer.sendResponse(ctx.channel(), message, messageResponse);
     }
 }
@@ -1,6 +1,7 @@
 package cn.heimdall.server;
 
 import cn.heimdall.core.config.Configuration;
+import cn.heimdall.core.network.bootstrap.NetworkResourceManager;
 import cn.heimdall.core.network.coordinator.Coordinator;
 import cn.heimdall.core.network.remote.AbstractRemotingServer;
 import cn.heimdall.core.utils.common.CollectionUtil;
@@ -34,6 +35,8 @@ public final class NettyServer {
         try {
             servers = coordinators.stream().
                     map(Coordinator::generateServerRemoteInstance).collect(Collectors.toList());
+            //所有server启动后打印线程拓扑
+            NetworkResourceManager.getInstance().logTopology();
         } catch (Throwable e) {
             LOGGER.error("multiNettyServerStart error, ", e);
         } finally {
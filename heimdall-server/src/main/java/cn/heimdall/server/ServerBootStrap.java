@@ -1,5 +1,6 @@
 package cn.heimdall.server;
 
+import cn.heimdall.core.config.NetworkTransportConfig;
 import cn.heimdall.core.network.codec.FrameDecoder;
 import cn.heimdall.core.network.codec.FrameEncoder;
 import cn.heimdall.core.network.codec.ProtocolDecoder;
@@ -28,6 +29,7 @@ import java.util.concurrent.ExecutionException;
 public class ServerBootStrap {
     public static void main(String[] args) throws InterruptedException, ExecutionException, CertificateException, SSLException {
         ServerBootstrap serverBootstrap = new ServerBootstrap();
+        NetworkTransportConfig networkConfig = new NetworkTransportConfig();
 
         serverBootstrap.channel(NioServerSocketChannel.class)
                 .option(NioChannelOption.SO_BACKLOG, 1024)
@@ -51,8 +53,8 @@ public class ServerBootStrap {
                     pipeline.addLast("idleHandler", new IdleCheckHandler());
 
 
-                    pipeline.addLast("frameDecoder", new FrameDecoder());
-                    pipeline.addLast("frameEncoder", new FrameEncoder());
+                    pipeline.addLast("frameDecoder", new FrameDecoder(networkConfig));
+                    pipeline.addLast("frameEncoder", new FrameEncoder(networkConfig));
 
                     pipeline.addLast("protocolDecoder", new ProtocolDecoder());
                     pipeline.addLast("protocolEncoder", new ProtocolEncoder());
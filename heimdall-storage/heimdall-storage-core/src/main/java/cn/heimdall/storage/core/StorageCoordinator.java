@@ -7,6 +7,7 @@ import cn.heimdall.core.config.ConfigurationFactory;
 import cn.heimdall.core.message.MessageBody;
 import cn.heimdall.core.message.MessageDoorway;
 import cn.heimdall.core.message.MessageType;
+import cn.heimdall.core.message.body.StoreMessageRequest;
 import cn.heimdall.core.message.body.store.StoreAppStateRequest;
 import cn.heimdall.core.message.body.store.StoreAppStateResponse;
 import cn.heimdall.core.message.body.store.StoreMetricRequest;
@@ -25,9 +26,11 @@ import cn.heimdall.core.network.coordinator.Coordinator;
 import cn.heimdall.core.network.processor.client.NodeHeartbeatResponseProcessor;
 import cn.heimdall.core.network.processor.client.NodeRegisterResponseProcessor;
 import cn.heimdall.core.network.remote.AbstractRemotingServer;
+import cn.heimdall.core.network.remote.LocalTransport;
 import cn.heimdall.core.network.remote.RemotingInstanceFactory;
 import cn.heimdall.core.utils.annotation.LoadLevel;
 import cn.heimdall.core.utils.constants.LoadLevelConstants;
+import cn.heimdall.core.utils.enums.NodeRole;
 import cn.heimdall.core.utils.enums.NettyServerType;
 import cn.heimdall.core.utils.spi.EnhancedServiceLoader;
 import cn.heimdall.core.utils.spi.Initialize;
@@ -56,6 +59,8 @@ public class StorageCoordinator implements StoreInboundHandler, Coordinator, Mes
         configuration = ConfigurationFactory.getInstance();
         storeManager =  EnhancedServiceLoader.load(StoreManager.class,
                 configuration.getConfig(STORAGE_TYPE, LoadLevelConstants.STORE_MANAGER_LUCENE));
+        //同进程内的计算节点直接调用，不经过网络
+        LocalTransport.getInstance().register(NodeRole.STORAGE, this);
         if (LOGGER.isInfoEnabled()) {
             LOGGER.info("StorageCoordinator init end");
         }
@@ -79,13 +84,19 @@ public class StorageCoordinator implements StoreInboundHandler, Coordinator, Mes
     public void initClientRemoteInstance() {
         //init guarder client
         GuarderRemotingClient guarder = GuarderRemotingClient.getInstance();
-        guarder.doRegisterProcessor(MessageType.NODE_HEARTBEAT_REQUEST,  new NodeHeartbeatResponseProcessor());
-        guarder.doRegisterProcessor(MessageType.NODE_REGISTER_REQUEST, new NodeRegisterResponseProcessor());
+        guarder.doRegisterProcessor(MessageType.NODE_HEARTBEAT_RESPONSE,  new NodeHeartbeatResponseProcessor());
+        guarder.doRegisterProcessor(MessageType.NODE_REGISTER_RESPONSE, new NodeRegisterResponseProcessor());
     }
 
     @Override
     public MessageBody onRequest(MessageBody request) {
-        return null;
+        if (!(request instanceof StoreMessageRequest)) {
+            throw new IllegalArgumentException();
+        }
+        StoreMessageRequest storeMessageRequest = (StoreMessageRequest) request;
+        storeMessageRequest.setComputeInboundHandler(this);
+        //执行inbound的方法
+        return storeMessageRequest.handle();
     }
 
     @Override
@@ -100,7 +111,12 @@ public class StorageCoordinator implements StoreInboundHandler, Coordinator, Mes
 
     @Override
     public StoreTraceResponse handle(StoreTraceRequest request) {
-        return storeManager.handle(request);
+        try {
+            return storeManager.handle(request);
+        } finally {
+            //透传的原始字节已写入索引
+            request.release();
+        }
     }
 
     @Override
@@ -3,6 +3,7 @@ package cn.heimdall.storage.lucence.ssm;
 import cn.heimdall.core.message.MessageBody;
 import cn.heimdall.core.message.body.store.StoreTraceRequest;
 import cn.heimdall.core.message.body.store.StoreTraceResponse;
+import cn.heimdall.core.message.serializer.TraceLogCursor;
 import cn.heimdall.core.message.trace.TraceLog;
 import cn.heimdall.core.utils.common.CollectionUtil;
 import cn.heimdall.core.utils.enums.MetricType;
@@ -50,6 +51,9 @@ public class TraceIndex extends AbstractIndex {
         IndexWriter writer = getWriter();
         StoreTraceRequest storeTrace = (StoreTraceRequest) messageBody;
         List<Document> storeItems = new ArrayList<>();
+        if (storeTrace.isPassThrough()) {
+            addPassThroughDocuments(storeTrace, storeItems);
+        }
         if (!CollectionUtil.isEmpty(storeTrace.getEventLogs())) {
             storeItems.addAll(storeTrace.getEventLogs().stream().map(log -> {
                 Document doc = transToDocFunction().apply(storeTrace, log);
@@ -65,7 +69,7 @@ public class TraceIndex extends AbstractIndex {
                 doc.add(new NumericDocValuesField(FIELD_NAME_ITEM_START_TIME, log.getStartTime()));
                 doc.add(new NumericDocValuesField(FIELD_NAME_ITEM_END_TIME, log.getEndTime()));
                 doc.add(new StringField(FIELD_NAME_TRACE_TYPE, MetricType.MetricTypeSpan.getName(), Field.Store.YES));
-                doc.add(new StringField(FIELD_NAME_ITEM_COMPLETED, log.isErrorTag() ? "1" : "0", Field.Store.YES));
+                doc.add(new StringField(FIELD_NAME_ITEM_COMPLETED, log.isCompleted() ? "1" : "0", Field.Store.YES));
                 return doc;
             }).collect(Collectors.toList()));
         }
@@ -75,19 +79,52 @@ public class TraceIndex extends AbstractIndex {
     }
 
 
+    /**
+     * 透传的原始字节直接通过游标生成文档，不再创建SpanLog、EventLog
+     */
+    private void addPassThroughDocuments(StoreTraceRequest storeTrace, List<Document> storeItems) {
+        TraceLogCursor events = TraceLogCursor.events(storeTrace.getTraceBytes(), storeTrace.getStringTable());
+        while (events.next()) {
+            Document doc = newDocument(storeTrace, events.getTraceId(), events.getLogId(), events.getType(),
+                    events.getName(), events.getContent(), events.isErrorTag());
+            doc.add(new NumericDocValuesField(FIELD_NAME_ITEM_EVENT_TIME, events.getEventTime()));
+            doc.add(new StringField(FIELD_NAME_TRACE_TYPE, MetricType.MetricTypeEvent.getName(), Field.Store.YES));
+            storeItems.add(doc);
+        }
+        TraceLogCursor spans = TraceLogCursor.spans(storeTrace.getTraceBytes(), storeTrace.getStringTable());
+        while (spans.next()) {
+            Document doc = newDocument(storeTrace, spans.getTraceId(), spans.getLogId(), spans.getType(),
+                    spans.getName(), spans.getContent(), spans.isErrorTag());
+            doc.add(new NumericDocValuesField(FIELD_NAME_ITEM_COST_TIME, spans.getCostInMillis()));
+            doc.add(new NumericDocValuesField(FIELD_NAME_ITEM_START_TIME, spans.getStartTime()));
+            doc.add(new NumericDocValuesField(FIELD_NAME_ITEM_END_TIME, spans.getEndTime()));
+            doc.add(new StringField(FIELD_NAME_TRACE_TYPE, MetricType.MetricTypeSpan.getName(), Field.Store.YES));
+            doc.add(new StringField(FIELD_NAME_ITEM_COMPLETED, spans.isCompleted() ? "1" : "0", Field.Store.YES));
+            storeItems.add(doc);
+        }
+    }
+
     public static BiFunction<StoreTraceRequest, TraceLog, Document> transToDocFunction() {
-        return (request, log) -> {
-            Document doc = new Document();
-            doc.add(new StringField(FIELD_NAME_ITEM_ID, log.getLogId(), Field.Store.YES));
-            doc.add(new StringField(FIELD_COMPUTE_IP, request.getAddressIp(), Field.Store.YES));
-            doc.add(new StringField(FIELD_NAME_ITEM_TYPE, log.getType(), Field.Store.YES));
-            doc.add(new StringField(FIELD_NAME_ITEM_NAME, log.getName(), Field.Store.YES));
-            doc.add(new StringField(FIELD_NAME_ITEM_CONTENT, log.getContent(), Field.Store.YES));
-            doc.add(new StringField(FIELD_NAME_APP_NAME, request.getAppName(), Field.Store.YES));
-            doc.add(new StringField(FIELD_NAME_IP, request.getAddressIp(), Field.Store.YES));
-            doc.add(new StringField(FIELD_NAME_TRACE_ID, request.getAddressIp(), Field.Store.YES));
-            doc.add(new StringField(FIELD_NAME_ITEM_ERROR_TAG, log.isErrorTag() ? "1" : "0", Field.Store.YES));
-            return doc;
-        };
+        return (request, log) -> newDocument(request, log.getTraceId(), log.getLogId(), log.getType(),
+                log.getName(), log.getContent(), log.isErrorTag());
+    }
+
+    /**
+     * @param traceId 日志自身的traceId，为空时使用请求的traceId
+     */
+    private static Document newDocument(StoreTraceRequest request, String traceId, String logId, String type,
+                                        String name, String content, boolean errorTag) {
+        Document doc = new Document();
+        doc.add(new StringField(FIELD_NAME_ITEM_ID, logId, Field.Store.YES));
+        doc.add(new StringField(FIELD_COMPUTE_IP, request.getAddressIp(), Field.Store.YES));
+        doc.add(new StringField(FIELD_NAME_ITEM_TYPE, type, Field.Store.YES));
+        doc.add(new StringField(FIELD_NAME_ITEM_NAME, name, Field.Store.YES));
+        doc.add(new StringField(FIELD_NAME_ITEM_CONTENT, content, Field.Store.YES));
+        doc.add(new StringField(FIELD_NAME_APP_NAME, request.getAppName(), Field.Store.YES));
+        doc.add(new StringField(FIELD_NAME_IP, request.getAddressIp(), Field.Store.YES));
+        doc.add(new StringField(FIELD_NAME_TRACE_ID, traceId == null ? request.getTraceId() : traceId,
+                Field.Store.YES));
+        doc.add(new StringField(FIELD_NAME_ITEM_ERROR_TAG, errorTag ? "1" : "0", Field.Store.YES));
+        return doc;
     }
 }